@@ -0,0 +1,174 @@
+package org.cufyx.http.connect;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.cufy.http.connect.Client;
+import org.cufy.http.middleware.OkHttpMiddleware;
+import org.cufy.http.response.Response;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(AndroidJUnit4.class)
+public class CacheMiddlewareTest {
+	private MockWebServer server;
+
+	@After
+	public void after() throws Exception {
+		this.server.shutdown();
+	}
+
+	@Before
+	public void before() throws Exception {
+		this.server = new MockWebServer();
+		this.server.start();
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void authorization() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		CacheMiddleware cache = CacheMiddleware.cacheMiddleware(context, OkHttpMiddleware.okHttpMiddleware());
+		cache.getCache().clear();
+
+		this.server.enqueue(new MockResponse().setHeader("Cache-Control", "max-age=60").setBody("alice"));
+		this.server.enqueue(new MockResponse().setHeader("Cache-Control", "max-age=60").setBody("bob"));
+		this.server.enqueue(new MockResponse().setHeader("Cache-Control", "max-age=60").setBody("anonymous"));
+		this.server.enqueue(new MockResponse().setHeader("Cache-Control", "public, max-age=60").setBody("shared"));
+
+		Assert.assertEquals("alice", this.connect(context, cache, "/private", "Authorization", "alice").getBody().toString());
+		Assert.assertEquals("Served the response of another user", "bob", this.connect(context, cache, "/private", "Authorization", "bob").getBody().toString());
+		Assert.assertEquals("Served an authorized response", "anonymous", this.connect(context, cache, "/private").getBody().toString());
+
+		Assert.assertEquals("shared", this.connect(context, cache, "/public", "Authorization", "alice").getBody().toString());
+		Assert.assertEquals("Public response not served", "shared", this.connect(context, cache, "/public", "Authorization", "bob").getBody().toString());
+		Assert.assertEquals(4, this.server.getRequestCount());
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void binary() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		CacheMiddleware cache = CacheMiddleware.cacheMiddleware(context, OkHttpMiddleware.okHttpMiddleware());
+		cache.getCache().clear();
+
+		for (int i = 0; i < 2; i++)
+			this.server.enqueue(new MockResponse()
+					.setHeader("Cache-Control", "max-age=60")
+					.setHeader("Content-Type", "image/png")
+					.setBody("image " + i));
+
+		this.connect(context, cache, "/image");
+		Assert.assertEquals("Binary response stored", "image 1", this.connect(context, cache, "/image").getBody().toString());
+		Assert.assertEquals(2, this.server.getRequestCount());
+		Assert.assertEquals(0, cache.getCache().getSize());
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void refresh() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		CacheMiddleware cache = CacheMiddleware.cacheMiddleware(context, OkHttpMiddleware.okHttpMiddleware());
+		cache.getCache().clear();
+
+		this.server.enqueue(new MockResponse()
+				.setHeader("ETag", "\"v1\"")
+				.setHeader("Cache-Control", "no-cache")
+				.setBody("cached body"));
+		this.server.enqueue(new MockResponse()
+				.setResponseCode(304)
+				.setHeader("ETag", "\"v1\"")
+				.setHeader("Cache-Control", "max-age=60"));
+
+		this.connect(context, cache, "/resource");
+		Response<?> revalidated = this.connect(context, cache, "/resource");
+		Response<?> fresh = this.connect(context, cache, "/resource");
+
+		Assert.assertEquals("cached body", revalidated.getBody().toString());
+		Assert.assertEquals("cached body", fresh.getBody().toString());
+		Assert.assertEquals("Refreshed entry revalidated again", 2, this.server.getRequestCount());
+		Assert.assertEquals(1, cache.getCache().getRevalidationCount());
+		Assert.assertEquals(1, cache.getCache().getHitCount());
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void revalidate() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		CacheMiddleware cache = CacheMiddleware.cacheMiddleware(context, OkHttpMiddleware.okHttpMiddleware());
+		cache.getCache().clear();
+
+		this.server.enqueue(new MockResponse()
+				.setHeader("ETag", "\"v1\"")
+				.setHeader("Cache-Control", "no-cache")
+				.setBody("cached body"));
+		this.server.enqueue(new MockResponse()
+				.setResponseCode(304)
+				.setHeader("ETag", "\"v1\""));
+
+		Response<?> first = this.connect(context, cache, "/resource");
+		Response<?> second = this.connect(context, cache, "/resource");
+
+		RecordedRequest initial = this.server.takeRequest();
+		RecordedRequest conditional = this.server.takeRequest();
+
+		Assert.assertNull(initial.getHeader("If-None-Match"));
+		Assert.assertEquals("\"v1\"", conditional.getHeader("If-None-Match"));
+		Assert.assertEquals("cached body", first.getBody().toString());
+		Assert.assertEquals("cached body", second.getBody().toString());
+		Assert.assertEquals(1, cache.getCache().getMissCount());
+		Assert.assertEquals(1, cache.getCache().getRevalidationCount());
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void vary() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		CacheMiddleware cache = CacheMiddleware.cacheMiddleware(context, OkHttpMiddleware.okHttpMiddleware());
+		cache.getCache().clear();
+
+		for (String body : new String[]{"english", "french"})
+			this.server.enqueue(new MockResponse()
+					.setHeader("Cache-Control", "max-age=60")
+					.setHeader("Vary", "Accept-Language")
+					.setBody(body));
+
+		Assert.assertEquals("english", this.connect(context, cache, "/greeting", "Accept-Language", "en").getBody().toString());
+		Assert.assertEquals("Served another variant", "french", this.connect(context, cache, "/greeting", "Accept-Language", "fr").getBody().toString());
+		Assert.assertEquals("english", this.connect(context, cache, "/greeting", "Accept-Language", "en").getBody().toString());
+		Assert.assertEquals("french", this.connect(context, cache, "/greeting", "Accept-Language", "fr").getBody().toString());
+		Assert.assertEquals("Variants not served from the cache", 2, this.server.getRequestCount());
+	}
+
+	private Response<?> connect(Context context, CacheMiddleware cache, String path, String... headers) throws Exception {
+		CompletableFuture<Response<?>> future = new CompletableFuture<>();
+		XClient<?> client = XClient.client(context)
+								   .middleware(cache)
+								   .request(r -> r
+										   .setUri(this.server.url(path).toString())
+								   )
+								   .on(Client.CONNECTED, (c, response) -> future.complete(response))
+								   .on(Client.DISCONNECTED, (c, throwable) -> future.completeExceptionally(throwable));
+
+		String message = client.getRequest().toString();
+		for (int i = 0; i < headers.length; i += 2)
+			message = TransportMiddleware.withHeader(message, headers[i], headers[i + 1]);
+
+		client.setRequest(message)
+			  .connect();
+		return future.get(10, TimeUnit.SECONDS);
+	}
+}
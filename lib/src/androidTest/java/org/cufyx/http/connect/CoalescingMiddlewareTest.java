@@ -0,0 +1,116 @@
+package org.cufyx.http.connect;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.cufy.http.connect.Client;
+import org.cufy.http.middleware.OkHttpMiddleware;
+import org.cufy.http.request.Method;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(AndroidJUnit4.class)
+public class CoalescingMiddlewareTest {
+	private MockWebServer server;
+
+	@After
+	public void after() throws Exception {
+		this.server.shutdown();
+	}
+
+	@Before
+	public void before() throws Exception {
+		this.server = new MockWebServer();
+		this.server.start();
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void coalesce() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		int clients = 8;
+
+		this.server.enqueue(new MockResponse()
+				.setBody("shared body")
+				.setHeadersDelay(500, TimeUnit.MILLISECONDS));
+
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(clients);
+		AtomicInteger connected = new AtomicInteger();
+
+		for (int i = 0; i < clients; i++)
+			new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+
+				XClient.client(context)
+					   .middleware(CoalescingMiddleware.coalescingMiddleware(context, OkHttpMiddleware.okHttpMiddleware()))
+					   .request(r -> r
+							   .setUri(this.server.url("/shared").toString())
+					   )
+					   .on(Client.CONNECTED, (client, response) -> {
+						   if ("shared body".equals(response.getBody().toString()))
+							   connected.incrementAndGet();
+						   done.countDown();
+					   })
+					   .on(Client.DISCONNECTED, (client, throwable) -> done.countDown())
+					   .connect();
+			}).start();
+
+		start.countDown();
+
+		Assert.assertTrue("Not all clients completed", done.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals("Not all clients received the response", clients, connected.get());
+		Assert.assertEquals("Requests were not coalesced", 1, this.server.getRequestCount());
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void writes() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		int clients = 2;
+
+		for (int i = 0; i < clients; i++)
+			this.server.enqueue(new MockResponse()
+					.setBody("paid " + i)
+					.setHeadersDelay(500, TimeUnit.MILLISECONDS));
+
+		CountDownLatch done = new CountDownLatch(clients);
+		AtomicInteger connected = new AtomicInteger();
+
+		//a double-tapped button
+		for (int i = 0; i < clients; i++)
+			XClient.client(context)
+				   .middleware(CoalescingMiddleware.coalescingMiddleware(context, OkHttpMiddleware.okHttpMiddleware()))
+				   .request(r -> r
+						   .setMethod(Method.POST)
+						   .setUri(this.server.url("/pay").toString())
+				   )
+				   .on(Client.CONNECTED, (client, response) -> {
+					   connected.incrementAndGet();
+					   done.countDown();
+				   })
+				   .on(Client.DISCONNECTED, (client, throwable) -> done.countDown())
+				   .connect();
+
+		Assert.assertTrue("Not all clients completed", done.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals("Not all clients connected", clients, connected.get());
+		Assert.assertEquals("Identical writes were coalesced", clients, this.server.getRequestCount());
+	}
+}
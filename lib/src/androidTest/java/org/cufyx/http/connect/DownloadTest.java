@@ -0,0 +1,195 @@
+package org.cufyx.http.connect;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.cufy.http.connect.Client;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(AndroidJUnit4.class)
+public class DownloadTest {
+	private final AtomicReference<String> range = new AtomicReference<>();
+	private File file;
+	private ServerSocket server;
+
+	@After
+	public void after() throws Exception {
+		if (this.server != null)
+			this.server.close();
+		if (this.file != null)
+			//noinspection ResultOfMethodCallIgnored
+			this.file.delete();
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void constantHeap() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		long size = 500L * 1024 * 1024;
+		this.file = new File(context.getCacheDir(), "download-heap");
+		//noinspection ResultOfMethodCallIgnored
+		this.file.delete();
+		this.serve(size);
+
+		Runtime runtime = Runtime.getRuntime();
+		runtime.gc();
+		long baseline = runtime.totalMemory() - runtime.freeMemory();
+		AtomicLong peak = new AtomicLong(baseline);
+		AtomicInteger progress = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(1);
+		AtomicInteger connected = new AtomicInteger();
+
+		Thread sampler = new Thread(() -> {
+			while (done.getCount() > 0) {
+				long used = runtime.totalMemory() - runtime.freeMemory();
+				peak.accumulateAndGet(used, Math::max);
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		});
+		sampler.start();
+
+		XClient.client(context)
+			   .request(r -> r
+					   .setUri("http://localhost:" + this.server.getLocalPort() + "/large")
+			   )
+			   .on(XClient.PROGRESS, (client, p) -> progress.incrementAndGet())
+			   .on(Client.CONNECTED, (client, response) -> {
+				   connected.incrementAndGet();
+				   done.countDown();
+			   })
+			   .on(Client.DISCONNECTED, (client, throwable) -> done.countDown())
+			   .download(this.file);
+
+		Assert.assertTrue("Download did not complete", done.await(10, TimeUnit.MINUTES));
+		sampler.join();
+
+		long growth = peak.get() - baseline;
+
+		Assert.assertEquals("Download failed", 1, connected.get());
+		Assert.assertEquals("Incomplete file", size, this.file.length());
+		Assert.assertTrue("No progress triggered", progress.get() > 0);
+		Assert.assertTrue("Heap grew with the body: " + growth / 1024 + " KiB", growth < 32L * 1024 * 1024);
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void resume() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		int size = 1024 * 1024;
+		int half = 300_000;
+		this.file = new File(context.getCacheDir(), "download-resume");
+		this.serve(size);
+
+		try (OutputStream out = new FileOutputStream(this.file)) {
+			byte[] bytes = new byte[half];
+			DownloadTest.fill(bytes, 0, half, 0);
+			out.write(bytes);
+		}
+
+		CountDownLatch done = new CountDownLatch(1);
+		AtomicInteger connected = new AtomicInteger();
+		XClient.client(context)
+			   .request(r -> r
+					   .setUri("http://localhost:" + this.server.getLocalPort() + "/resume")
+			   )
+			   .on(Client.CONNECTED, (client, response) -> {
+				   connected.incrementAndGet();
+				   done.countDown();
+			   })
+			   .on(Client.DISCONNECTED, (client, throwable) -> done.countDown())
+			   .download(this.file);
+
+		Assert.assertTrue("Download did not complete", done.await(30, TimeUnit.SECONDS));
+		Assert.assertEquals("Download failed", 1, connected.get());
+		Assert.assertEquals("Download not resumed", "bytes=" + half + "-", this.range.get());
+		Assert.assertEquals("Incomplete file", size, this.file.length());
+
+		byte[] expected = new byte[size];
+		byte[] actual = new byte[size];
+		DownloadTest.fill(expected, 0, size, 0);
+		try (RandomAccessFile in = new RandomAccessFile(this.file, "r")) {
+			in.readFully(actual);
+		}
+		Assert.assertArrayEquals("Corrupted file", expected, actual);
+	}
+
+	private static void fill(byte[] bytes, int offset, int length, long position) {
+		for (int i = 0; i < length; i++)
+			bytes[offset + i] = (byte) (position + i);
+	}
+
+	private void serve(long size) throws IOException {
+		this.server = new ServerSocket(0, 50, InetAddress.getByName("localhost"));
+		Thread thread = new Thread(() -> {
+			while (!this.server.isClosed())
+				try (Socket socket = this.server.accept()) {
+					this.respond(socket, size);
+				} catch (IOException ignored) {
+				}
+		});
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void respond(Socket socket, long size) throws IOException {
+		InputStream in = socket.getInputStream();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+		long start = 0;
+
+		for (String line = reader.readLine(); line != null && !line.isEmpty(); line = reader.readLine())
+			if (line.regionMatches(true, 0, "Range:", 0, 6)) {
+				String value = line.substring(6).trim();
+				this.range.set(value);
+				start = Long.parseLong(value.substring("bytes=".length(), value.indexOf('-')));
+			}
+
+		String head = start > 0 ?
+					  "HTTP/1.1 206 Partial Content\r\n" +
+					  "Content-Range: bytes " + start + "-" + (size - 1) + "/" + size + "\r\n" :
+					  "HTTP/1.1 200 OK\r\n";
+		head += "Content-Length: " + (size - start) + "\r\n" +
+				"Connection: close\r\n" +
+				"\r\n";
+
+		OutputStream out = socket.getOutputStream();
+		out.write(head.getBytes(StandardCharsets.US_ASCII));
+
+		byte[] chunk = new byte[64 * 1024];
+		for (long position = start; position < size; ) {
+			int length = (int) Math.min(chunk.length, size - position);
+			DownloadTest.fill(chunk, 0, length, position);
+			out.write(chunk, 0, length);
+			position += length;
+		}
+
+		out.flush();
+	}
+}
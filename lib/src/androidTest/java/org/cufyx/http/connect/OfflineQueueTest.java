@@ -0,0 +1,207 @@
+package org.cufyx.http.connect;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.cufy.http.connect.Client;
+import org.cufy.http.request.Method;
+import org.cufy.http.request.Request;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(AndroidJUnit4.class)
+public class OfflineQueueTest {
+	private final AtomicBoolean available = new AtomicBoolean();
+	private final CountDownLatch arrived = new CountDownLatch(1);
+	private final AtomicBoolean blocking = new AtomicBoolean();
+	private final AtomicInteger failing = new AtomicInteger();
+	private final Map<String, String> keys = Collections.synchronizedMap(new HashMap<>());
+	private final List<String> processed = Collections.synchronizedList(new ArrayList<>());
+	private final CountDownLatch rejected = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private File file;
+	private MockWebServer server;
+
+	@After
+	public void after() throws Exception {
+		this.release.countDown();
+		this.server.shutdown();
+		//noinspection ResultOfMethodCallIgnored
+		this.file.delete();
+	}
+
+	@Before
+	public void before() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		this.file = new File(context.getFilesDir(), "offline-queue-test");
+		//noinspection ResultOfMethodCallIgnored
+		this.file.delete();
+		this.server = new MockWebServer();
+		this.server.setDispatcher(new Dispatcher() {
+			@NotNull
+			@Override
+			public MockResponse dispatch(@NotNull RecordedRequest request) throws InterruptedException {
+				return OfflineQueueTest.this.dispatch(request);
+			}
+		});
+		this.server.start();
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void backoff() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		//online the whole time, the server fails twice
+		this.available.set(true);
+		this.failing.set(2);
+		OfflineQueue queue = new OfflineQueue(context, this.file, new XTransport());
+
+		CountDownLatch done = new CountDownLatch(1);
+		AtomicInteger connected = new AtomicInteger();
+		XClient<?> client = XClient.client(context)
+								   .on(Client.CONNECTED, (c, response) -> {
+									   connected.incrementAndGet();
+									   done.countDown();
+								   })
+								   .on(Client.DISCONNECTED, (c, throwable) -> done.countDown());
+		queue.submit(client, this.request(context, "/backoff"));
+
+		//the backoffs of the two failures are less than 2s and 4s
+		Assert.assertTrue("Not retried while online", done.await(15, TimeUnit.SECONDS));
+		Assert.assertEquals("Client did not connect", 1, connected.get());
+		Assert.assertEquals("Wrong attempts", 3, this.server.getRequestCount());
+		Assert.assertEquals("Not applied exactly once", Collections.singletonList("/backoff"), this.processed);
+		Assert.assertEquals("Not removed", 0, queue.getSize());
+		queue.close();
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void replay() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		XTransport transport = new XTransport();
+		this.blocking.set(true);
+
+		//the first process: the server is unavailable
+		OfflineQueue first = new OfflineQueue(context, this.file, transport);
+		for (int i = 0; i < 3; i++)
+			first.submit(XClient.client(context), this.request(context, "/" + i));
+
+		Assert.assertTrue("Not attempted", this.rejected.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals("Not queued", 3, first.getSize());
+		first.close();
+
+		//the second process: dies after the server applied the head but before the ack
+		this.available.set(true);
+		OfflineQueue second = new OfflineQueue(context, this.file, transport).start();
+		Assert.assertTrue("Not replayed", this.arrived.await(10, TimeUnit.SECONDS));
+		second.close();
+		this.release.countDown();
+
+		//the third process: replays everything
+		CountDownLatch done = new CountDownLatch(3);
+		AtomicInteger connected = new AtomicInteger();
+		OfflineQueue third = new OfflineQueue(context, this.file, transport)
+				.setReplay(client -> client
+						.on(Client.CONNECTED, (c, response) -> {
+							connected.incrementAndGet();
+							done.countDown();
+						})
+						.on(Client.DISCONNECTED, (c, throwable) -> done.countDown())
+				)
+				.start();
+
+		Assert.assertTrue("Replay did not complete", done.await(30, TimeUnit.SECONDS));
+		Assert.assertEquals("Replay failed", 3, connected.get());
+		Assert.assertEquals("Not applied exactly once in order", Arrays.asList("/0", "/1", "/2"), this.processed);
+		Assert.assertEquals("Not removed", 0, third.getSize());
+		third.close();
+
+		OfflineQueue fourth = new OfflineQueue(context, this.file, transport);
+		Assert.assertEquals("Removal not durable", 0, fourth.getSize());
+		fourth.close();
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void submit() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		this.available.set(true);
+		OfflineQueue queue = new OfflineQueue(context, this.file, new XTransport());
+
+		CountDownLatch done = new CountDownLatch(1);
+		AtomicInteger connected = new AtomicInteger();
+		XClient<?> client = XClient.client(context)
+								   .on(Client.CONNECTED, (c, response) -> {
+									   connected.incrementAndGet();
+									   done.countDown();
+								   })
+								   .on(Client.DISCONNECTED, (c, throwable) -> done.countDown());
+		queue.submit(client, this.request(context, "/submit"));
+
+		Assert.assertTrue("Client did not complete", done.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals("Client did not connect", 1, connected.get());
+		Assert.assertNotNull("No idempotency key", this.keys.get("/submit"));
+		Assert.assertEquals("Not removed", 0, queue.getSize());
+		queue.close();
+	}
+
+	private MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+		String path = request.getPath();
+		String key = request.getHeader(OfflineQueue.IDEMPOTENCY_KEY);
+
+		if (!this.available.get()) {
+			this.rejected.countDown();
+			return new MockResponse().setResponseCode(503);
+		}
+		if (this.failing.getAndUpdate(n -> Math.max(0, n - 1)) > 0)
+			return new MockResponse().setResponseCode(503);
+
+		String previous = this.keys.putIfAbsent(path, key);
+		Assert.assertTrue("Key changed between attempts", previous == null || previous.equals(key));
+
+		if (previous == null)
+			//an idempotent server applies each key once
+			this.processed.add(path);
+
+		if (this.blocking.compareAndSet(true, false)) {
+			this.arrived.countDown();
+			this.release.await(10, TimeUnit.SECONDS);
+		}
+
+		return new MockResponse().setBody("applied " + path);
+	}
+
+	private Request<?> request(Context context, String path) {
+		return XClient.client(context)
+					  .request(r -> r
+							  .setMethod(Method.POST)
+							  .setUri(this.server.url(path).toString())
+					  )
+					  .getRequest();
+	}
+}
@@ -0,0 +1,179 @@
+package org.cufyx.http.connect;
+
+import android.content.Context;
+import android.os.ParcelFileDescriptor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.cufy.http.body.Body;
+import org.cufy.http.connect.Client;
+import org.cufy.http.request.Method;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(AndroidJUnit4.class)
+public class UploadTest {
+	private File file;
+	private MockWebServer server;
+
+	@After
+	public void after() throws Exception {
+		this.server.shutdown();
+		if (this.file != null)
+			//noinspection ResultOfMethodCallIgnored
+			this.file.delete();
+	}
+
+	@Before
+	public void before() throws Exception {
+		this.server = new MockWebServer();
+		this.server.start();
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void chunked() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		int size = 256 * 1024;
+		this.server.enqueue(new MockResponse());
+
+		ParcelFileDescriptor[] pipe = ParcelFileDescriptor.createPipe();
+		Thread writer = new Thread(() -> {
+			try (OutputStream out = new ParcelFileDescriptor.AutoCloseOutputStream(pipe[1])) {
+				byte[] bytes = new byte[size];
+				UploadTest.fill(bytes, 0);
+				out.write(bytes);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+		writer.start();
+
+		Assert.assertEquals("Upload failed", 1, UploadTest.upload(this.client(context), c -> c.upload(pipe[0])));
+
+		RecordedRequest request = this.server.takeRequest();
+		Assert.assertEquals("Not chunked", "chunked", request.getHeader("Transfer-Encoding"));
+		Assert.assertEquals("Incomplete body", size, request.getBodySize());
+		writer.join();
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void constantHeap() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		long size = 200L * 1024 * 1024;
+		this.file = UploadTest.file(context, "upload-heap", size);
+		//do not keep the received body in memory
+		this.server.setBodyLimit(0);
+		this.server.enqueue(new MockResponse());
+
+		Runtime runtime = Runtime.getRuntime();
+		runtime.gc();
+		long baseline = runtime.totalMemory() - runtime.freeMemory();
+		AtomicLong peak = new AtomicLong(baseline);
+		AtomicInteger progress = new AtomicInteger();
+		CountDownLatch sampling = new CountDownLatch(1);
+
+		Thread sampler = new Thread(() -> {
+			while (sampling.getCount() > 0) {
+				long used = runtime.totalMemory() - runtime.freeMemory();
+				peak.accumulateAndGet(used, Math::max);
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		});
+		sampler.start();
+
+		XClient<Body> client = this.client(context)
+								   .on(XClient.PROGRESS, (c, p) -> progress.incrementAndGet());
+		int connected = UploadTest.upload(client, c -> c.upload(this.file));
+		sampling.countDown();
+		sampler.join();
+
+		long growth = peak.get() - baseline;
+
+		RecordedRequest request = this.server.takeRequest();
+		Assert.assertEquals("Upload failed", 1, connected);
+		Assert.assertEquals("Incomplete body", size, request.getBodySize());
+		Assert.assertTrue("No progress triggered", progress.get() > 0);
+		Assert.assertTrue("Heap grew with the body: " + growth / 1024 + " KiB", growth < 32L * 1024 * 1024);
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void fixedLength() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		int size = 1024 * 1024;
+		this.file = UploadTest.file(context, "upload-fixed", size);
+		this.server.enqueue(new MockResponse());
+
+		Assert.assertEquals("Upload failed", 1, UploadTest.upload(this.client(context), c -> c.upload(this.file)));
+
+		RecordedRequest request = this.server.takeRequest();
+		byte[] expected = new byte[size];
+		UploadTest.fill(expected, 0);
+		Assert.assertEquals("Not fixed-length", String.valueOf(size), request.getHeader("Content-Length"));
+		Assert.assertNull("Chunked", request.getHeader("Transfer-Encoding"));
+		Assert.assertArrayEquals("Corrupted body", expected, request.getBody().readByteArray());
+	}
+
+	private static File file(Context context, String name, long size) throws IOException {
+		File file = new File(context.getCacheDir(), name);
+		byte[] chunk = new byte[64 * 1024];
+		try (OutputStream out = new FileOutputStream(file)) {
+			for (long position = 0; position < size; position += chunk.length) {
+				UploadTest.fill(chunk, position);
+				out.write(chunk, 0, (int) Math.min(chunk.length, size - position));
+			}
+		}
+		return file;
+	}
+
+	private static void fill(byte[] bytes, long position) {
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = (byte) (position + i);
+	}
+
+	private static int upload(XClient<Body> client, Consumer<XClient<Body>> upload) throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(1);
+		AtomicInteger connected = new AtomicInteger();
+		client.on(Client.CONNECTED, (c, response) -> {
+				  connected.incrementAndGet();
+				  done.countDown();
+			  })
+			  .on(Client.DISCONNECTED, (c, throwable) -> done.countDown());
+		upload.accept(client);
+		Assert.assertTrue("Upload did not complete", done.await(5, TimeUnit.MINUTES));
+		return connected.get();
+	}
+
+	private XClient<Body> client(Context context) {
+		return XClient.client(context)
+					  .request(r -> r
+							  .setMethod(Method.POST)
+							  .setUri(this.server.url("/upload").toString())
+					  );
+	}
+}
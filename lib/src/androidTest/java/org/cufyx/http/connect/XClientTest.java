@@ -1,12 +1,16 @@
 package org.cufyx.http.connect;
 
 import android.content.Context;
+import android.os.Debug;
 import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
 import android.widget.Toast;
 
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.platform.app.InstrumentationRegistry;
 
+import org.cufy.http.body.Body;
 import org.cufy.http.connect.Client;
 import org.cufy.http.middleware.OkHttpMiddleware;
 import org.cufy.http.uri.Port;
@@ -15,6 +19,13 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @SuppressWarnings("JUnitTestNG")
 @RunWith(AndroidJUnit4.class)
 public class XClientTest {
@@ -102,4 +113,159 @@ public class XClientTest {
 		}
 		Assert.assertSame("Code executed on different thread", uiThread, execThread[0]);
 	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void transport() {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+		XTransport shared = XTransport.transport(context);
+		XClient<Body> client = XClient.client(context);
+		Assert.assertSame("Shared transport not used", shared, client.getTransport());
+		Assert.assertSame("Shared transport not shared", shared, XClient.client(context).getTransport());
+
+		OkHttpMiddleware okHttp = OkHttpMiddleware.okHttpMiddleware();
+		client.middleware(okHttp);
+		Assert.assertSame("Shared transport not replaced", okHttp, client.getTransport());
+
+		try {
+			client.middleware(new HedgingMiddleware(shared));
+			Assert.fail("Second transport installed");
+		} catch (IllegalStateException ignored) {
+		}
+
+		Assert.assertSame("First transport dropped", okHttp, client.getTransport());
+	}
+
+	@Test
+	public void batching() throws InterruptedException {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+		AtomicInteger posts = new AtomicInteger();
+		Handler handler = new Handler(Looper.getMainLooper()) {
+			@Override
+			public boolean sendMessageAtTime(Message msg, long uptimeMillis) {
+				posts.incrementAndGet();
+				return super.sendMessageAtTime(msg, uptimeMillis);
+			}
+		};
+
+		int burst = 10_000;
+		CountDownLatch delivered = new CountDownLatch(burst);
+		XClient<?> client = XClient.client(context, handler)
+									.setBatching(true)
+									.onh("burst", (c, parameter) -> delivered.countDown());
+
+		//hold the ui thread while the burst is being triggered
+		CountDownLatch hold = new CountDownLatch(1);
+		new Handler(Looper.getMainLooper()).post(() -> {
+			try {
+				hold.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		for (int i = 0; i < burst; i++)
+			client.trigger("burst", i);
+
+		hold.countDown();
+
+		Assert.assertTrue("Not all callbacks delivered", delivered.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue("Too many messages posted: " + posts.get(), posts.get() <= 100);
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void pooling() {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+		AtomicInteger executed = new AtomicInteger();
+		AtomicInteger mismatched = new AtomicInteger();
+		Integer[] parameters = new Integer[16];
+		for (int i = 0; i < parameters.length; i++)
+			parameters[i] = i;
+
+		XClient<Body> client = XClient.client(context);
+		client.onh("pooled", (c, parameter) -> {
+			//a recycled task must carry the parameters of its own trigger
+			if (c != client || parameter != parameters[executed.get() % parameters.length])
+				mismatched.incrementAndGet();
+			executed.incrementAndGet();
+		});
+
+		//warm up the task pool
+		int triggered = 0;
+		for (int i = 0; i < 100; i++)
+			triggered = XClientTest.burst(client, parameters, executed, triggered);
+
+		Set<HandlerTask> before = XClientTest.pooled();
+		Assert.assertTrue("Tasks not recycled: " + before.size(), before.size() >= parameters.length);
+
+		//the steady state must not allocate on the triggering thread
+		Debug.startAllocCounting();
+		Debug.resetThreadAllocCount();
+		for (int i = 0; i < 1000; i++)
+			triggered = XClientTest.burst(client, parameters, executed, triggered);
+		int allocations = Debug.getThreadAllocCount();
+		Debug.stopAllocCounting();
+
+		Assert.assertEquals("Allocated while pooled", 0, allocations);
+		Assert.assertEquals("Tasks not reused", before, XClientTest.pooled());
+		Assert.assertEquals("Wrong parameters delivered", 0, mismatched.get());
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void cloning() {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+		for (int size : new int[]{10, 1_000}) {
+			AtomicInteger template = new AtomicInteger();
+			AtomicInteger own = new AtomicInteger();
+			XClient<Body> client = XClient.client(context);
+			for (int i = 0; i < size; i++)
+				client.on("event" + i + "|connected", (c, o) -> template.incrementAndGet());
+
+			XClient<Body> clone = client.clone();
+			clone.on("connected", (c, o) -> own.incrementAndGet());
+			client.trigger("connected", null);
+			Assert.assertEquals(size, template.get());
+			Assert.assertEquals("Clone affected its origin", 0, own.get());
+
+			clone.trigger("connected", null);
+			Assert.assertEquals(size * 2, template.get());
+			Assert.assertEquals(1, own.get());
+
+			AtomicInteger origin = new AtomicInteger();
+			client.on("connected", (c, o) -> origin.incrementAndGet());
+			clone.trigger("connected", null);
+			Assert.assertEquals(size * 3, template.get());
+			Assert.assertEquals(2, own.get());
+			Assert.assertEquals("Origin affected its clone", 0, origin.get());
+		}
+	}
+
+	private static int burst(XClient<Body> client, Integer[] parameters, AtomicInteger executed, int triggered) {
+		for (Integer parameter : parameters)
+			client.trigger("pooled", parameter);
+
+		triggered += parameters.length;
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (executed.get() < triggered) {
+			Assert.assertTrue("Tasks not executed", System.nanoTime() < deadline);
+			Thread.yield();
+		}
+
+		return triggered;
+	}
+
+	private static Set<HandlerTask> pooled() {
+		Set<HandlerTask> pooled = Collections.newSetFromMap(new IdentityHashMap<>());
+		synchronized (HandlerTask.POOL_LOCK) {
+			for (HandlerTask task = HandlerTask.pool; task != null; task = task.next)
+				pooled.add(task);
+		}
+		return pooled;
+	}
 }
@@ -0,0 +1,243 @@
+package org.cufyx.http.connect;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.cufy.http.body.Body;
+import org.cufy.http.connect.Client;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import okhttp3.Call;
+import okhttp3.Dns;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(AndroidJUnit4.class)
+public class XTransportTest {
+	private MockWebServer server;
+
+	@After
+	public void after() throws Exception {
+		this.server.shutdown();
+	}
+
+	@Before
+	public void before() throws Exception {
+		this.server = new MockWebServer();
+		this.server.start();
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void reuse() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		int clients = 3;
+
+		Assert.assertSame(
+				"Transport is not application-scoped",
+				XTransport.transport(context),
+				XTransport.transport(context.getApplicationContext())
+		);
+
+		for (int i = 0; i < clients; i++) {
+			this.server.enqueue(new MockResponse().setBody("body " + i));
+
+			CountDownLatch done = new CountDownLatch(1);
+			AtomicInteger connected = new AtomicInteger();
+
+			//a separately constructed client each time
+			XClient.client(context)
+				   .request(r -> r
+						   .setUri(this.server.url("/reuse").toString())
+				   )
+				   .on(Client.CONNECTED, (client, response) -> {
+					   connected.incrementAndGet();
+					   done.countDown();
+				   })
+				   .on(Client.DISCONNECTED, (client, throwable) -> done.countDown())
+				   .connect();
+
+			Assert.assertTrue("Client did not complete", done.await(10, TimeUnit.SECONDS));
+			Assert.assertEquals("Client did not connect", 1, connected.get());
+		}
+
+		for (int i = 0; i < clients; i++)
+			//the sequence number is per connection; a fresh connection starts at 0
+			Assert.assertEquals(
+					"Connection was not reused",
+					i,
+					this.server.takeRequest().getSequenceNumber()
+			);
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void warmUp() throws Exception {
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		String host = InetAddress.getByName("localhost").getCanonicalHostName();
+		HeldCertificate certificate = new HeldCertificate.Builder()
+				.addSubjectAlternativeName(host)
+				.build();
+		Semaphore handshakes = new Semaphore(0);
+		MockWebServer secure = new MockWebServer();
+		secure.useHttps(new HandshakeFactory(new HandshakeCertificates.Builder()
+													 .heldCertificate(certificate)
+													 .build()
+													 .sslSocketFactory(), handshakes), false);
+		secure.start();
+
+		try {
+			List<String> lookups = new CopyOnWriteArrayList<>();
+			List<String> events = new CopyOnWriteArrayList<>();
+			XTransport transport = XTransportTest.transport(certificate, lookups, events);
+
+			//resolve only
+			XTransportTest.warmUp(context, secure, transport, false);
+			Assert.assertEquals("Host not resolved", Collections.singletonList(secure.getHostName()), lookups);
+			Assert.assertFalse("Handshake performed", handshakes.tryAcquire(500, TimeUnit.MILLISECONDS));
+
+			//resolve and handshake
+			XClient<Body> client = XTransportTest.warmUp(context, secure, transport, true);
+			Assert.assertEquals("Host not resolved", 2, lookups.size());
+			Assert.assertTrue("Handshake not performed", handshakes.tryAcquire(10, TimeUnit.SECONDS));
+
+			Assert.assertEquals("Warm-up sent a request", 0, secure.getRequestCount());
+			Assert.assertEquals("Warm-up went through a call", Collections.emptyList(), events);
+
+			secure.enqueue(new MockResponse().setBody("warmed"));
+			CountDownLatch done = new CountDownLatch(1);
+			AtomicInteger connected = new AtomicInteger();
+			client.on(Client.CONNECTED, (c, response) -> {
+					  connected.incrementAndGet();
+					  done.countDown();
+				  })
+				  .on(Client.DISCONNECTED, (c, throwable) -> done.countDown())
+				  .connect();
+
+			Assert.assertTrue("Client did not complete", done.await(10, TimeUnit.SECONDS));
+			Assert.assertEquals("Client did not connect", 1, connected.get());
+			Assert.assertEquals(1, secure.getRequestCount());
+			Assert.assertTrue("Connection not secured", events.contains("secureConnectEnd"));
+		} finally {
+			secure.shutdown();
+		}
+	}
+
+	private static XTransport transport(HeldCertificate certificate, List<String> lookups, List<String> events) {
+		HandshakeCertificates certificates = new HandshakeCertificates.Builder()
+				.addTrustedCertificate(certificate.certificate())
+				.build();
+		return new XTransport(new OkHttpClient.Builder()
+									  .sslSocketFactory(certificates.sslSocketFactory(), certificates.trustManager())
+									  .dns(hostname -> {
+										  lookups.add(hostname);
+										  return Dns.SYSTEM.lookup(hostname);
+									  })
+									  .eventListener(new EventListener() {
+										  @Override
+										  public void connectStart(@NotNull Call call, @NotNull InetSocketAddress address, @NotNull Proxy proxy) {
+											  events.add("connectStart");
+										  }
+
+										  @Override
+										  public void secureConnectEnd(@NotNull Call call, @Nullable Handshake handshake) {
+											  events.add("secureConnectEnd");
+										  }
+									  })
+									  .build());
+	}
+
+	private static XClient<Body> warmUp(Context context, MockWebServer server, XTransport transport, boolean handshake) throws InterruptedException {
+		CountDownLatch warmed = new CountDownLatch(1);
+		XClient<Body> client = XClient.client(context)
+								   .setTransport(transport)
+								   .request(r -> r
+										   .setUri(server.url("/warm").toString())
+								   )
+								   .on(XClient.WARMED, (c, request) -> warmed.countDown())
+								   .warmUp(handshake);
+
+		Assert.assertTrue("Connection not warmed up", warmed.await(10, TimeUnit.SECONDS));
+		return client;
+	}
+
+	/**
+	 * A server socket factory counting the completed handshakes.
+	 */
+	private static final class HandshakeFactory extends SSLSocketFactory {
+		private final SSLSocketFactory factory;
+		private final Semaphore handshakes;
+
+		private HandshakeFactory(SSLSocketFactory factory, Semaphore handshakes) {
+			this.factory = factory;
+			this.handshakes = handshakes;
+		}
+
+		@Override
+		public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+			SSLSocket ssl = (SSLSocket) this.factory.createSocket(socket, host, port, autoClose);
+			ssl.addHandshakeCompletedListener(event -> this.handshakes.release());
+			return ssl;
+		}
+
+		@Override
+		public Socket createSocket(String host, int port) throws IOException {
+			return this.factory.createSocket(host, port);
+		}
+
+		@Override
+		public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+			return this.factory.createSocket(host, port, localHost, localPort);
+		}
+
+		@Override
+		public Socket createSocket(InetAddress host, int port) throws IOException {
+			return this.factory.createSocket(host, port);
+		}
+
+		@Override
+		public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+			return this.factory.createSocket(address, port, localAddress, localPort);
+		}
+
+		@Override
+		public String[] getDefaultCipherSuites() {
+			return this.factory.getDefaultCipherSuites();
+		}
+
+		@Override
+		public String[] getSupportedCipherSuites() {
+			return this.factory.getSupportedCipherSuites();
+		}
+	}
+}
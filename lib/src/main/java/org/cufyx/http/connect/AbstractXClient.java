@@ -16,20 +16,42 @@
 package org.cufyx.http.connect;
 
 import android.content.Context;
+import android.net.Uri;
+import android.os.Build;
 import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
 
 import org.cufy.http.body.Body;
 import org.cufy.http.connect.AbstractClient;
 import org.cufy.http.connect.Action;
 import org.cufy.http.connect.Callback;
+import org.cufy.http.connect.Caller;
 import org.cufy.http.connect.Client;
 import org.cufy.http.middleware.Middleware;
+import org.cufy.http.middleware.OkHttpMiddleware;
 import org.cufy.http.request.Request;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A modified {@link org.cufy.http.connect.Client client} for comfort in android.
@@ -40,6 +62,52 @@ import java.util.Objects;
  * @since 0.0.1 ~2021.03.23
  */
 public class AbstractXClient<B extends Body> extends AbstractClient<B> implements XClient<B> {
+	/**
+	 * The default executor to perform the background callbacks with. A bounded pool of
+	 * daemon threads.
+	 *
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	@NotNull
+	public static final Executor EXECUTOR;
+
+	static {
+		int threads = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4));
+		AtomicInteger count = new AtomicInteger();
+		ThreadFactory factory = runnable -> {
+			Thread thread = new Thread(runnable, "XClient-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(
+				threads, threads,
+				30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(),
+				factory
+		);
+		executor.allowCoreThreadTimeOut(true);
+		EXECUTOR = executor;
+	}
+
+	/**
+	 * The state of a client that is not connecting.
+	 *
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	protected static final int STATE_IDLE = 0;
+	/**
+	 * The state of a client that has connected and is waiting for the result.
+	 *
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	protected static final int STATE_CONNECTING = 1;
+	/**
+	 * The state of a client that has its connection cancelled.
+	 *
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	protected static final int STATE_CANCELLED = 2;
+
 	/**
 	 * The context used by the client.
 	 *
@@ -54,6 +122,130 @@ public class AbstractXClient<B extends Body> extends AbstractClient<B> implement
 	 */
 	@NotNull
 	protected Handler handler;
+	/**
+	 * The action listeners of this client. They are stored by the base client and get
+	 * released when this client is released. (lock on itself)
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	protected List<ReleasableCallback<?, ?>> held = new ArrayList<>();
+	/**
+	 * The index of the regex listeners of this client.
+	 *
+	 * @since 0.1.1 ~2021.08.20
+	 */
+	@NotNull
+	protected TriggerIndex index = new TriggerIndex();
+	/**
+	 * The state of the current connection of this client. One of {@link #STATE_IDLE},
+	 * {@link #STATE_CONNECTING} and {@link #STATE_CANCELLED}.
+	 *
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@NotNull
+	protected AtomicInteger state = new AtomicInteger(AbstractXClient.STATE_IDLE);
+
+	/**
+	 * The context of this client while it is bound to a lifecycle. Or null if this client
+	 * is not bound.
+	 *
+	 * @since 0.1.1 ~2021.08.25
+	 */
+	@Nullable
+	protected volatile WeakReference<Context> bound;
+	/**
+	 * The deadline of the connections of this client. Or null if no deadline.
+	 *
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@Nullable
+	protected volatile Deadline deadline;
+	/**
+	 * The scheduled timeout of the current connection of this client. Or null if the
+	 * connection has no total limit.
+	 *
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@Nullable
+	protected volatile ScheduledFuture<?> expiry;
+	/**
+	 * The timer of the last connection of this client. Or null if this client has not
+	 * connected.
+	 *
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@Nullable
+	protected volatile Timer timer;
+	/**
+	 * The watchdog timing the callbacks of this client. Or null if the callbacks are not
+	 * watched.
+	 *
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	@Nullable
+	protected volatile Watchdog watchdog;
+
+	/**
+	 * True, if the callbacks of this client are posted using asynchronous messages.
+	 *
+	 * @since 0.1.1 ~2021.08.21
+	 */
+	protected boolean asynchronous;
+	/**
+	 * True, if the callbacks of this client are posted to the batch of its handler.
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	protected boolean batching;
+	/**
+	 * True, if this client has been released.
+	 *
+	 * @since 0.1.1 ~2021.08.25
+	 */
+	protected volatile boolean released;
+	/**
+	 * The executor used to perform the background callbacks with.
+	 *
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	@NotNull
+	protected Executor executor = AbstractXClient.EXECUTOR;
+	/**
+	 * The lane executing the background callbacks of this client in order.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	protected SerialExecutor lane = new SerialExecutor(AbstractXClient.EXECUTOR);
+	/**
+	 * The priority of the connections of this client.
+	 *
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	@NotNull
+	protected Priority priority = Priority.NORMAL;
+	/**
+	 * The transport performing the connections of this client. Or null if the
+	 * connections are left to the middlewares.
+	 *
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@Nullable
+	protected Middleware<? super Client<?>> transport;
+	/**
+	 * True, if the transport of this client has been installed using {@link
+	 * #middleware(Middleware)}.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	protected boolean installed;
+	/**
+	 * True, if the transport of this client has been injected into it.
+	 *
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	protected boolean transported;
 
 	/**
 	 * <b>Default</b>
@@ -68,6 +260,7 @@ public class AbstractXClient<B extends Body> extends AbstractClient<B> implement
 		Objects.requireNonNull(context, "context");
 		this.context = context;
 		this.handler = new Handler(context.getMainLooper());
+		this.transport = XTransport.transport(context);
 	}
 
 	/**
@@ -86,6 +279,25 @@ public class AbstractXClient<B extends Body> extends AbstractClient<B> implement
 		Objects.requireNonNull(handler, "handler");
 		this.context = context;
 		this.handler = handler;
+		this.transport = XTransport.transport(context);
+	}
+
+	/**
+	 * <b>Default</b>
+	 * <br>
+	 * Construct a new default context client.
+	 *
+	 * @param context      the context to be used by the client.
+	 * @param asynchronous true, to post the callbacks using asynchronous messages.
+	 * @throws NullPointerException if the given {@code context} is null.
+	 * @since 0.1.1 ~2021.08.21
+	 */
+	public AbstractXClient(@NotNull Context context, boolean asynchronous) {
+		Objects.requireNonNull(context, "context");
+		this.context = context;
+		this.handler = AbstractXClient.handler(context.getMainLooper(), asynchronous);
+		this.asynchronous = asynchronous;
+		this.transport = XTransport.transport(context);
 	}
 
 	/**
@@ -101,6 +313,19 @@ public class AbstractXClient<B extends Body> extends AbstractClient<B> implement
 		super(client);
 		this.context = client.getContext();
 		this.handler = client.getHandler();
+		this.batching = client.isBatching();
+		this.asynchronous = client.isAsynchronous();
+		this.executor = client.getExecutor();
+		this.priority = client.getPriority();
+		this.deadline = client.getDeadline();
+		this.transport = client.getTransport();
+		this.watchdog = client.getWatchdog();
+
+		if (client instanceof AbstractXClient) {
+			this.index = ((AbstractXClient<?>) client).index.clone();
+			this.installed = ((AbstractXClient<?>) client).installed;
+			this.transported = ((AbstractXClient<?>) client).transported;
+		}
 	}
 
 	/**
@@ -119,6 +344,15 @@ public class AbstractXClient<B extends Body> extends AbstractClient<B> implement
 		Objects.requireNonNull(context, "context");
 		this.context = context;
 		this.handler = new Handler(context.getMainLooper());
+
+		if (client instanceof AbstractXClient) {
+			this.index = ((AbstractXClient<?>) client).index.clone();
+			this.transport = ((AbstractXClient<?>) client).transport;
+			this.installed = ((AbstractXClient<?>) client).installed;
+			this.transported = ((AbstractXClient<?>) client).transported;
+			this.watchdog = ((AbstractXClient<?>) client).watchdog;
+			this.priority = ((AbstractXClient<?>) client).priority;
+		}
 	}
 
 	/**
@@ -139,6 +373,15 @@ public class AbstractXClient<B extends Body> extends AbstractClient<B> implement
 		Objects.requireNonNull(handler, "handler");
 		this.context = context;
 		this.handler = handler;
+
+		if (client instanceof AbstractXClient) {
+			this.index = ((AbstractXClient<?>) client).index.clone();
+			this.transport = ((AbstractXClient<?>) client).transport;
+			this.installed = ((AbstractXClient<?>) client).installed;
+			this.transported = ((AbstractXClient<?>) client).transported;
+			this.watchdog = ((AbstractXClient<?>) client).watchdog;
+			this.priority = ((AbstractXClient<?>) client).priority;
+		}
 	}
 
 	/**
@@ -157,6 +400,28 @@ public class AbstractXClient<B extends Body> extends AbstractClient<B> implement
 		Objects.requireNonNull(context, "context");
 		this.context = context;
 		this.handler = new Handler(context.getMainLooper());
+		this.transport = XTransport.transport(context);
+	}
+
+	/**
+	 * <b>Components</b>
+	 * <br>
+	 * Construct a new client with its request begin the given {@code request}.
+	 *
+	 * @param context      the context to be used by the client.
+	 * @param asynchronous true, to post the callbacks using asynchronous messages.
+	 * @param request      the request of this client.
+	 * @throws NullPointerException if the given {@code context} or {@code request} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.08.21
+	 */
+	public AbstractXClient(@NotNull Context context, boolean asynchronous, @NotNull Request<?> request) {
+		super((Request)/*fixme remove cast*/ request);
+		Objects.requireNonNull(context, "context");
+		this.context = context;
+		this.handler = AbstractXClient.handler(context.getMainLooper(), asynchronous);
+		this.asynchronous = asynchronous;
+		this.transport = XTransport.transport(context);
 	}
 
 	/**
@@ -177,43 +442,410 @@ public class AbstractXClient<B extends Body> extends AbstractClient<B> implement
 		Objects.requireNonNull(handler, "handler");
 		this.context = context;
 		this.handler = handler;
+		this.transport = XTransport.transport(context);
+	}
+
+	/**
+	 * Return the application context of the given {@code context}.
+	 *
+	 * @param context the context to get its application context.
+	 * @return the application context. Or the given {@code context} if it has no
+	 * 		application context.
+	 * @throws NullPointerException if the given {@code context} is null.
+	 * @since 0.1.1 ~2021.08.25
+	 */
+	@NotNull
+	protected static Context application(@NotNull Context context) {
+		Objects.requireNonNull(context, "context");
+		Context application = context.getApplicationContext();
+		return application == null ? context : application;
+	}
+
+	/**
+	 * Create a new handler for the given {@code looper}. If {@code asynchronous} is true
+	 * and the platform supports it, the created handler will post asynchronous messages
+	 * only.
+	 *
+	 * @param looper       the looper of the handler.
+	 * @param asynchronous true, to create an asynchronous handler.
+	 * @return a new handler.
+	 * @throws NullPointerException if the given {@code looper} is null.
+	 * @since 0.1.1 ~2021.08.21
+	 */
+	@NotNull
+	protected static Handler handler(@NotNull Looper looper, boolean asynchronous) {
+		Objects.requireNonNull(looper, "looper");
+
+		if (asynchronous && Build.VERSION.SDK_INT >= Build.VERSION_CODES.P)
+			return Handler.createAsync(looper);
+
+		//older platforms: the messages will be marked asynchronous individually
+		return new Handler(looper);
+	}
+
+	/**
+	 * Create a new timer for a connection starting now.
+	 *
+	 * @return a new timer with {@link Timing.Phase#CONNECT} marked.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@NotNull
+	protected static Timer timer() {
+		Timer timer = new Timer();
+		timer.mark(Timing.Phase.CONNECT);
+		return timer;
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> bindTo(@NotNull Lifecycle lifecycle) {
+		Objects.requireNonNull(lifecycle, "lifecycle");
+		Context context = this.getContext();
+		//only the application context is held strongly
+		this.bound = new WeakReference<>(context);
+		this.context = AbstractXClient.application(context);
+
+		if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+			this.release();
+			return this;
+		}
+
+		lifecycle.addObserver(new LifecycleEventObserver() {
+			@Override
+			public void onStateChanged(@NotNull LifecycleOwner source, @NotNull Lifecycle.Event event) {
+				if (event == Lifecycle.Event.ON_DESTROY) {
+					source.getLifecycle().removeObserver(this);
+					AbstractXClient.this.release();
+				}
+			}
+		});
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> cancel() {
+		this.cancel(XClient.CANCELLED);
+		return this;
 	}
 
 	@NotNull
 	@Override
 	public AbstractXClient<B> clone() {
-		return (AbstractXClient<B>) super.clone();
+		AbstractXClient<B> clone = (AbstractXClient<B>) super.clone();
+		//the listeners are shared copy-on-write until either client adds one.
+		//the transport is shallow-copied and stays the same instance on both
+		clone.index = this.index.clone();
+		//the base client copies the action listeners; both clients are holding them
+		synchronized (this.held) {
+			clone.held = new ArrayList<>(this.held);
+			for (ReleasableCallback<?, ?> callback : clone.held)
+				callback.acquire();
+		}
+		clone.lane = new SerialExecutor(AbstractXClient.EXECUTOR);
+		clone.state = new AtomicInteger(AbstractXClient.STATE_IDLE);
+		clone.expiry = null;
+		clone.timer = null;
+		return clone;
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> connect() {
+		this.start();
+		Middleware<? super Client<?>> transport = this.transport;
+
+		if (transport != null && !this.transported) {
+			//injected lazily, so it can be replaced until the first connection
+			this.transported = true;
+			super.middleware(transport);
+		}
+
+		super.connect();
+		//the radio is awake anyway
+		Deferral.piggyback(this.context);
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> defer(long delay, @NotNull TimeUnit unit) {
+		Objects.requireNonNull(unit, "unit");
+		Deferral.deferral(this.getContext()).defer(this, delay, unit);
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> download(@NotNull File file) {
+		Objects.requireNonNull(file, "file");
+		return this.download(Download.file(file));
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> download(@NotNull Uri uri) {
+		Objects.requireNonNull(uri, "uri");
+		return this.download(Download.uri(this.getContext(), uri));
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> execute(@NotNull Executor executor, @NotNull Runnable task) {
+		Objects.requireNonNull(executor, "executor");
+		Objects.requireNonNull(task, "task");
+		this.lane.execute(executor, task);
+		return this;
 	}
 
 	@NotNull
 	@Override
 	public Context getContext() {
+		WeakReference<Context> bound = this.bound;
+
+		if (bound != null) {
+			Context context = bound.get();
+
+			if (context != null)
+				return context;
+		}
+
 		return this.context;
 	}
 
+	@Nullable
+	@Override
+	public Deadline getDeadline() {
+		return this.deadline;
+	}
+
+	@NotNull
+	@Override
+	public Executor getExecutor() {
+		return this.executor;
+	}
+
 	@NotNull
 	@Override
 	public Handler getHandler() {
 		return this.handler;
 	}
 
+	@NotNull
+	@Override
+	public Priority getPriority() {
+		return this.priority;
+	}
+
+	@Nullable
+	@Override
+	public Timer getTimer() {
+		return this.timer;
+	}
+
+	@Nullable
+	@Override
+	public Middleware<? super Client<?>> getTransport() {
+		return this.transport;
+	}
+
+	@Nullable
+	@Override
+	public Watchdog getWatchdog() {
+		return this.watchdog;
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> image(int width, int height) {
+		if (width < 0)
+			throw new IllegalArgumentException("width < 0");
+		if (height < 0)
+			throw new IllegalArgumentException("height < 0");
+		Middleware<? super Client<?>> transport = this.transport;
+
+		if (transport == null)
+			throw new UnsupportedOperationException("image");
+
+		//the middlewares wrapping it cannot stream the body
+		XTransport xtransport = TransportMiddleware.unwrap(transport);
+		ImageLoader loader = ImageLoader.imageLoader(this.getContext());
+
+		this.start();
+
+		if (xtransport != null)
+			loader.load(xtransport, this, this.getRequest(), width, height);
+		else
+			loader.load(transport, this, this.getRequest(), width, height);
+
+		return this;
+	}
+
+	@Override
+	public boolean isAsynchronous() {
+		return this.asynchronous;
+	}
+
+	@Override
+	public boolean isBatching() {
+		return this.batching;
+	}
+
+	@Override
+	public boolean isReleased() {
+		return this.released;
+	}
+
 	@NotNull
 	@Override
 	public XClient<B> middleware(@NotNull Middleware<? super Client<B>> middleware) {
+		Objects.requireNonNull(middleware, "middleware");
+
+		if (middleware instanceof XTransport ||
+			middleware instanceof TransportMiddleware ||
+			middleware instanceof OkHttpMiddleware) {
+			//a second transport would connect each request twice
+			if (this.installed || this.transported)
+				throw new IllegalStateException("transport already installed");
+
+			this.installed = true;
+			this.transport = (Middleware) middleware;
+			return this;
+		}
+
 		return (XClient<B>) super.middleware(middleware);
 	}
 
 	@NotNull
 	@Override
 	public <T> XClient<B> on(@NotNull Action<T> action, @NotNull Callback<Client<B>, T> callback) {
-		return (XClient<B>) super.on(action, callback);
+		Objects.requireNonNull(action, "action");
+		Objects.requireNonNull(callback, "callback");
+		//the base client cannot drop the listener on release
+		ReleasableCallback<Client<B>, T> releasable = new ReleasableCallback<>(callback);
+		synchronized (this.held) {
+			this.held.add(releasable);
+		}
+		return (XClient<B>) super.on(action, releasable);
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> on(@NotNull @NonNls String regex, @NotNull Callback<Client<B>, Object> callback) {
+		return this.on(Object.class, regex, callback);
+	}
+
+	@NotNull
+	@Override
+	public <T> XClient<B> on(@NotNull Class<T> type, @NotNull @NonNls String regex, @NotNull Callback<Client<B>, T> callback) {
+		Objects.requireNonNull(type, "type");
+		Objects.requireNonNull(regex, "regex");
+		Objects.requireNonNull(callback, "callback");
+		this.index.add(type, regex, callback);
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> post(@NotNull Runnable task) {
+		Objects.requireNonNull(task, "task");
+
+		if (this.released) {
+			//stale callback
+			if (task instanceof HandlerTask)
+				((HandlerTask) task).recycle();
+			return this;
+		}
+
+		Watchdog watchdog = this.watchdog;
+		if (watchdog != null && task instanceof HandlerTask) {
+			HandlerTask handlerTask = (HandlerTask) task;
+			Callback<?, ?> callback = handlerTask.callback;
+
+			if (handlerTask.action != null && callback != null && watchdog.isRerouted(callback)) {
+				//known to be slow, keep it off the thread of the handler
+				handlerTask.action = null;
+				this.executor.execute(handlerTask);
+				return this;
+			}
+		}
+
+		return XClient.super.post(task);
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> queue() {
+		OfflineQueue queue;
+		try {
+			queue = OfflineQueue.queue(this.getContext());
+		} catch (IOException e) {
+			this.trigger(Client.DISCONNECTED, e);
+			return this;
+		}
+
+		queue.submit(this, this.getRequest());
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> release() {
+		this.released = true;
+		this.bound = null;
+		//the listeners might be holding the released context
+		this.index = new TriggerIndex();
+		synchronized (this.held) {
+			for (ReleasableCallback<?, ?> callback : this.held)
+				callback.release();
+			this.held.clear();
+		}
+		this.purge();
+
+		this.free();
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> setAsynchronous(boolean asynchronous) {
+		this.asynchronous = asynchronous;
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> setBatching(boolean batching) {
+		this.batching = batching;
+		return this;
 	}
 
 	@NotNull
 	@Override
 	public XClient<B> setContext(@NotNull Context context) {
 		Objects.requireNonNull(context, "context");
-		this.context = context;
+
+		if (this.bound != null) {
+			this.bound = new WeakReference<>(context);
+			this.context = AbstractXClient.application(context);
+		} else
+			this.context = context;
+
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> setDeadline(@Nullable Deadline deadline) {
+		this.deadline = deadline;
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> setExecutor(@NotNull Executor executor) {
+		Objects.requireNonNull(executor, "executor");
+		this.executor = executor;
 		return this;
 	}
 
@@ -222,6 +854,31 @@ public class AbstractXClient<B extends Body> extends AbstractClient<B> implement
 	public XClient<B> setHandler(@NotNull Handler handler) {
 		Objects.requireNonNull(handler, "handler");
 		this.handler = handler;
+		this.asynchronous = false;
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> setPriority(@NotNull Priority priority) {
+		Objects.requireNonNull(priority, "priority");
+		this.priority = priority;
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> setTransport(@Nullable Middleware<? super Client<?>> transport) {
+		if (this.transported)
+			throw new IllegalStateException("transport already injected");
+		this.transport = transport;
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> setWatchdog(@Nullable Watchdog watchdog) {
+		this.watchdog = watchdog;
 		return this;
 	}
 
@@ -247,7 +904,68 @@ public class AbstractXClient<B extends Body> extends AbstractClient<B> implement
 	@NotNull
 	@Override
 	public XClient<B> trigger(@NotNull String trigger, @Nullable Object parameter) {
-		return (XClient<B>) super.trigger(trigger, parameter);
+		boolean finished = "connected".equals(trigger) || "disconnected".equals(trigger);
+
+		//a cached image is the only result of its connection
+		if ((finished || "image".equals(trigger)) && !this.finish())
+			//the result of a cancelled connection
+			return this;
+
+		Timer timer = this.timer;
+		boolean result = finished && timer != null;
+
+		if (result)
+			timer.mark(Timing.Phase.TRIGGER);
+
+		//the base calls its listeners first; defer them to keep the registration order
+		ReleasableCallback.Dispatch dispatch = ReleasableCallback.DISPATCH.get();
+		List<Object> calls = dispatch.calls;
+		boolean deferring = dispatch.deferring;
+		int start = calls.size();
+		dispatch.deferring = true;
+		try {
+			super.trigger(trigger, parameter);
+		} finally {
+			dispatch.deferring = false;
+		}
+
+		TriggerIndex.Listener[] listeners = this.index.resolve(trigger);
+		int end = calls.size();
+		try {
+			for (int i = 0, j = start; i < listeners.length || j < end; )
+				try {
+					if (j < end && (i == listeners.length || ((ReleasableCallback<?, ?>) calls.get(j)).sequence < listeners[i].sequence)) {
+						ReleasableCallback<Object, Object> callback = (ReleasableCallback<Object, Object>) calls.get(j);
+						Object caller = calls.get(j + 1);
+						Object argument = calls.get(j + 2);
+						j += 3;
+						callback.call(caller, argument);
+					} else {
+						TriggerIndex.Listener listener = listeners[i++];
+
+						if (listener.accepts(parameter))
+							listener.call(this, parameter);
+					}
+				} catch (Throwable throwable) {
+					if (!"exception".equals(trigger))
+						this.trigger(Caller.EXCEPTION, throwable);
+				}
+		} finally {
+			//the calls of the enclosing triggers stay
+			while (calls.size() > start)
+				calls.remove(calls.size() - 1);
+			dispatch.deferring = deferring;
+		}
+
+		if (result && !timer.isMarked(Timing.Phase.ENQUEUE)) {
+			//nothing was posted, the result has been delivered already
+			Timing timing = timer.publish();
+
+			if (timing != null)
+				this.trigger(XClient.TIMING, timing);
+		}
+
+		return this;
 	}
 
 	@NotNull
@@ -261,4 +979,187 @@ public class AbstractXClient<B extends Body> extends AbstractClient<B> implement
 	public <T> XClient<B> trigger(@Nullable T parameter, @Nullable Action<T> @NotNull ... actions) {
 		return (XClient<B>) super.trigger(parameter, actions);
 	}
+
+	@NotNull
+	@Override
+	public XClient<B> upload(@NotNull File file) {
+		Objects.requireNonNull(file, "file");
+		return this.upload(Upload.file(file));
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> upload(@NotNull ParcelFileDescriptor descriptor) {
+		Objects.requireNonNull(descriptor, "descriptor");
+		return this.upload(Upload.descriptor(descriptor));
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> upload(@NotNull Uri uri) {
+		Objects.requireNonNull(uri, "uri");
+		return this.upload(Upload.uri(this.getContext(), uri));
+	}
+
+	@NotNull
+	@Override
+	public XClient<B> warmUp(boolean handshake) {
+		Middleware<? super Client<?>> transport = this.transport;
+
+		if (!(transport instanceof XTransport))
+			throw new UnsupportedOperationException("warmUp");
+
+		((XTransport) transport).warmUp(this, this.getRequest(), handshake);
+		return this;
+	}
+
+	/**
+	 * Cancel the current connection of this client and trigger the given {@code action}
+	 * with its request. Nothing happens if this client is not connecting.
+	 *
+	 * @param action the action to be triggered.
+	 * @return true, if the connection was cancelled by this invocation.
+	 * @throws NullPointerException if the given {@code action} is null.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	protected boolean cancel(@NotNull Action<Request> action) {
+		Objects.requireNonNull(action, "action");
+
+		if (!this.state.compareAndSet(AbstractXClient.STATE_CONNECTING, AbstractXClient.STATE_CANCELLED))
+			return false;
+
+		ScheduledFuture<?> expiry = this.expiry;
+		if (expiry != null)
+			expiry.cancel(false);
+
+		this.purge();
+		this.free();
+		this.trigger(action, this.getRequest());
+		return true;
+	}
+
+	/**
+	 * Download the response of the request of this client to the given {@code target}
+	 * using the transport of this client.
+	 *
+	 * @param target the target to download to.
+	 * @return this.
+	 * @throws NullPointerException          if the given {@code target} is null.
+	 * @throws UnsupportedOperationException if the transport of this client cannot
+	 *                                       download.
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	@NotNull
+	protected XClient<B> download(@NotNull Download.Target target) {
+		Objects.requireNonNull(target, "target");
+		Middleware<? super Client<?>> transport = this.transport;
+
+		if (!(transport instanceof XTransport))
+			throw new UnsupportedOperationException("download");
+
+		this.start();
+		((XTransport) transport).download(this, this.getRequest(), target);
+		return this;
+	}
+
+	/**
+	 * Mark the current connection of this client as finished. Invoked when its result is
+	 * about to be triggered.
+	 *
+	 * @return false, if the connection has been cancelled and its result must be
+	 * 		dropped.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	protected boolean finish() {
+		int state = this.state.get();
+
+		if (state == AbstractXClient.STATE_CANCELLED)
+			return false;
+		if (state == AbstractXClient.STATE_CONNECTING) {
+			if (!this.state.compareAndSet(AbstractXClient.STATE_CONNECTING, AbstractXClient.STATE_IDLE))
+				//cancelled meanwhile
+				return false;
+
+			ScheduledFuture<?> expiry = this.expiry;
+			if (expiry != null)
+				expiry.cancel(false);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Cancel the connections of this client (and of its exchanges) in its transport.
+	 *
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	protected void free() {
+		Middleware<? super Client<?>> transport = this.transport;
+
+		if (transport instanceof XTransport)
+			((XTransport) transport).cancel(this);
+		if (transport instanceof TransportMiddleware)
+			((TransportMiddleware) transport).cancel(this);
+	}
+
+	/**
+	 * Remove the pending callbacks of this client from its handler and the batch of its
+	 * handler. The {@link ConflatingCallback conflating callbacks} called by this client
+	 * get reset. Thus, they will deliver again after this client reconnects. The pending
+	 * callbacks of other clients (including the clones of this client) are not removed.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	protected void purge() {
+		this.handler.removeCallbacksAndMessages(this);
+		HandlerBatch.batch(this.handler).remove(this);
+		ConflatingCallback.reset(this);
+	}
+
+	/**
+	 * Start a new connection of this client. A new timer is created and the total limit
+	 * of the deadline of this client (if any) gets scheduled.
+	 *
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	protected void start() {
+		Timer timer = AbstractXClient.timer();
+		this.timer = timer;
+		this.state.set(AbstractXClient.STATE_CONNECTING);
+
+		ScheduledFuture<?> previous = this.expiry;
+		if (previous != null)
+			previous.cancel(false);
+
+		Deadline deadline = this.deadline;
+		this.expiry = deadline == null || deadline.total == 0 ? null : Deadline.SCHEDULER.schedule(() -> {
+			//a later connection has its own limit
+			if (this.timer == timer)
+				this.cancel(XClient.TIMEOUT);
+		}, deadline.total, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Upload the body of the request of this client from the given {@code source} using
+	 * the transport of this client.
+	 *
+	 * @param source the source of the body.
+	 * @return this.
+	 * @throws NullPointerException          if the given {@code source} is null.
+	 * @throws UnsupportedOperationException if the transport of this client cannot
+	 *                                       upload.
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	@NotNull
+	protected XClient<B> upload(@NotNull Upload.Source source) {
+		Objects.requireNonNull(source, "source");
+		Middleware<? super Client<?>> transport = this.transport;
+
+		if (!(transport instanceof XTransport))
+			throw new UnsupportedOperationException("upload");
+
+		this.start();
+		((XTransport) transport).upload(this, this.getRequest(), source);
+		return this;
+	}
 }
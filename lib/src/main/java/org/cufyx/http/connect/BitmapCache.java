@@ -0,0 +1,287 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import android.graphics.Bitmap;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size-bounded memory cache of decoded bitmaps. The size of an entry is the allocation
+ * size of its bitmap. The least recently used entries get evicted when the total size of
+ * the entries exceeds the maximum size of the cache.
+ * <br>
+ * Evicted bitmaps are only dropped (not recycled nor pooled) since they might still be
+ * displayed.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.09.05
+ */
+public class BitmapCache {
+	/**
+	 * The entries of this cache. In access order. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	protected final LinkedHashMap<String, Bitmap> entries = new LinkedHashMap<>(16, .75f, true);
+	/**
+	 * The number of evicted entries.
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	protected final AtomicLong evictions = new AtomicLong();
+	/**
+	 * The number of lookups that found an entry.
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	protected final AtomicLong hits = new AtomicLong();
+	/**
+	 * The number of lookups that found no entry.
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	protected final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * The maximum size of this cache in bytes.
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	protected volatile long maxSize;
+	/**
+	 * The total size of the entries of this cache. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	protected long size;
+
+	/**
+	 * Construct a new cache.
+	 *
+	 * @param maxSize the maximum size of the cache in bytes.
+	 * @throws IllegalArgumentException if the given {@code maxSize} is negative.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	public BitmapCache(long maxSize) {
+		if (maxSize < 0)
+			throw new IllegalArgumentException("maxSize < 0");
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Remove all the entries of this cache.
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	public synchronized void clear() {
+		this.entries.clear();
+		this.size = 0;
+	}
+
+	/**
+	 * Return the bitmap stored with the given {@code key}.
+	 *
+	 * @param key the key of the entry.
+	 * @return the bitmap of the given {@code key}. Or null if no such entry.
+	 * @throws NullPointerException if the given {@code key} is null.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@Nullable
+	public synchronized Bitmap get(@NotNull String key) {
+		Objects.requireNonNull(key, "key");
+		Bitmap bitmap = this.entries.get(key);
+
+		if (bitmap == null || bitmap.isRecycled()) {
+			if (bitmap != null)
+				this.remove(key);
+
+			this.misses.incrementAndGet();
+			return null;
+		}
+
+		this.hits.incrementAndGet();
+		return bitmap;
+	}
+
+	/**
+	 * Get the number of evicted entries.
+	 *
+	 * @return the eviction count.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@Contract(pure = true)
+	public long getEvictionCount() {
+		return this.evictions.get();
+	}
+
+	/**
+	 * Get the number of lookups that found an entry.
+	 *
+	 * @return the hit count.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@Contract(pure = true)
+	public long getHitCount() {
+		return this.hits.get();
+	}
+
+	/**
+	 * Get the maximum size of this cache in bytes.
+	 *
+	 * @return the maximum size of this cache.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@Contract(pure = true)
+	public long getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 * Get the number of lookups that found no entry.
+	 *
+	 * @return the miss count.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@Contract(pure = true)
+	public long getMissCount() {
+		return this.misses.get();
+	}
+
+	/**
+	 * Get the total size of the entries of this cache in bytes.
+	 *
+	 * @return the size of this cache.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	public synchronized long getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Store the given {@code bitmap} with the given {@code key}. Replacing any previous
+	 * entry with the same key. Bitmaps larger than the maximum size are not stored.
+	 *
+	 * @param key    the key of the entry.
+	 * @param bitmap the bitmap to be stored.
+	 * @throws NullPointerException if the given {@code key} or {@code bitmap} is null.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	public synchronized void put(@NotNull String key, @NotNull Bitmap bitmap) {
+		Objects.requireNonNull(key, "key");
+		Objects.requireNonNull(bitmap, "bitmap");
+		int size = bitmap.getAllocationByteCount();
+
+		if (size > this.maxSize)
+			return;
+
+		Bitmap previous = this.entries.put(key, bitmap);
+		this.size += size - (previous == null ? 0 : previous.getAllocationByteCount());
+		this.trim();
+	}
+
+	/**
+	 * Remove the entry stored with the given {@code key}.
+	 *
+	 * @param key the key of the entry.
+	 * @return the removed bitmap. Or null if no such entry.
+	 * @throws NullPointerException if the given {@code key} is null.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@Nullable
+	public synchronized Bitmap remove(@NotNull String key) {
+		Objects.requireNonNull(key, "key");
+		Bitmap previous = this.entries.remove(key);
+
+		if (previous != null)
+			this.size -= previous.getAllocationByteCount();
+
+		return previous;
+	}
+
+	/**
+	 * Remove the entries storing the given {@code bitmap}.
+	 *
+	 * @param bitmap the bitmap to be removed.
+	 * @throws NullPointerException if the given {@code bitmap} is null.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	public synchronized void remove(@NotNull Bitmap bitmap) {
+		Objects.requireNonNull(bitmap, "bitmap");
+		Iterator<Bitmap> iterator = this.entries.values().iterator();
+
+		while (iterator.hasNext())
+			if (iterator.next() == bitmap) {
+				iterator.remove();
+				this.size -= bitmap.getAllocationByteCount();
+			}
+	}
+
+	/**
+	 * Set the maximum size of this cache. Entries will be evicted immediately if the
+	 * cache exceeds the new size.
+	 *
+	 * @param maxSize the new maximum size in bytes.
+	 * @return this.
+	 * @throws IllegalArgumentException if the given {@code maxSize} is negative.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	public synchronized BitmapCache setMaxSize(long maxSize) {
+		if (maxSize < 0)
+			throw new IllegalArgumentException("maxSize < 0");
+		this.maxSize = maxSize;
+		this.trim();
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "BitmapCache " + System.identityHashCode(this);
+	}
+
+	/**
+	 * Evict the least recently used entries until the size of this cache is not more
+	 * than its maximum size.
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	protected synchronized void trim() {
+		Iterator<Map.Entry<String, Bitmap>> iterator = this.entries.entrySet().iterator();
+
+		while (this.size > this.maxSize && iterator.hasNext()) {
+			Map.Entry<String, Bitmap> eldest = iterator.next();
+			iterator.remove();
+			this.size -= eldest.getValue().getAllocationByteCount();
+			this.evictions.incrementAndGet();
+		}
+	}
+}
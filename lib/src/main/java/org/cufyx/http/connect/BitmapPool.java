@@ -0,0 +1,212 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import android.graphics.Bitmap;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * A size-bounded pool of mutable bitmaps to be decoded into (using {@link
+ * android.graphics.BitmapFactory.Options#inBitmap}) instead of allocating a new bitmap
+ * for each decoding. The largest bitmaps get dropped when the total size of the pool
+ * exceeds its maximum size.
+ * <br>
+ * A bitmap must not be put in a pool while it is still in use (for example, displayed by
+ * a view) since it will be overwritten by the next decoding reusing it.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.09.05
+ */
+public class BitmapPool {
+	/**
+	 * The bitmaps of this pool by their allocation size. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	protected final TreeMap<Integer, ArrayDeque<Bitmap>> bitmaps = new TreeMap<>();
+
+	/**
+	 * The maximum size of this pool in bytes.
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	protected volatile long maxSize;
+	/**
+	 * The total allocation size of the bitmaps of this pool. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	protected long size;
+
+	/**
+	 * Construct a new pool.
+	 *
+	 * @param maxSize the maximum size of the pool in bytes.
+	 * @throws IllegalArgumentException if the given {@code maxSize} is negative.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	public BitmapPool(long maxSize) {
+		if (maxSize < 0)
+			throw new IllegalArgumentException("maxSize < 0");
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Remove all the bitmaps of this pool.
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	public synchronized void clear() {
+		this.bitmaps.clear();
+		this.size = 0;
+	}
+
+	/**
+	 * Remove and return a bitmap that can be decoded into with at least the given
+	 * {@code size} bytes. Bitmaps larger than twice the given size are not returned to
+	 * not waste memory on small decodings.
+	 *
+	 * @param size the number of bytes needed.
+	 * @return a reusable bitmap. Or null if no suitable bitmap is in the pool.
+	 * @throws IllegalArgumentException if the given {@code size} is negative.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@Nullable
+	@Contract(mutates = "this")
+	public synchronized Bitmap get(int size) {
+		if (size < 0)
+			throw new IllegalArgumentException("size < 0");
+		Map.Entry<Integer, ArrayDeque<Bitmap>> entry = this.bitmaps.ceilingEntry(size);
+
+		if (entry == null || entry.getKey() > 2L * size)
+			return null;
+
+		ArrayDeque<Bitmap> deque = entry.getValue();
+		Bitmap bitmap = deque.poll();
+
+		if (deque.isEmpty())
+			this.bitmaps.remove(entry.getKey());
+		if (bitmap != null)
+			this.size -= entry.getKey();
+
+		return bitmap;
+	}
+
+	/**
+	 * Get the maximum size of this pool in bytes.
+	 *
+	 * @return the maximum size of this pool.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@Contract(pure = true)
+	public long getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 * Get the total allocation size of the bitmaps of this pool in bytes.
+	 *
+	 * @return the size of this pool.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	public synchronized long getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Put the given {@code bitmap} in this pool to be reused. Immutable, recycled and
+	 * hardware bitmaps cannot be decoded into and are ignored.
+	 *
+	 * @param bitmap the bitmap to be reused.
+	 * @throws NullPointerException if the given {@code bitmap} is null.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	public synchronized void put(@NotNull Bitmap bitmap) {
+		Objects.requireNonNull(bitmap, "bitmap");
+
+		if (!bitmap.isMutable() || bitmap.isRecycled() || bitmap.getConfig() == Bitmap.Config.HARDWARE)
+			return;
+
+		int size = bitmap.getAllocationByteCount();
+
+		if (size > this.maxSize)
+			return;
+
+		ArrayDeque<Bitmap> deque = this.bitmaps.get(size);
+
+		if (deque == null) {
+			deque = new ArrayDeque<>();
+			this.bitmaps.put(size, deque);
+		}
+
+		deque.push(bitmap);
+		this.size += size;
+		this.trim();
+	}
+
+	/**
+	 * Set the maximum size of this pool. Bitmaps will be dropped immediately if the pool
+	 * exceeds the new size.
+	 *
+	 * @param maxSize the new maximum size in bytes.
+	 * @return this.
+	 * @throws IllegalArgumentException if the given {@code maxSize} is negative.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	public synchronized BitmapPool setMaxSize(long maxSize) {
+		if (maxSize < 0)
+			throw new IllegalArgumentException("maxSize < 0");
+		this.maxSize = maxSize;
+		this.trim();
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "BitmapPool " + System.identityHashCode(this);
+	}
+
+	/**
+	 * Drop the largest bitmaps until the size of this pool is not more than its maximum
+	 * size.
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	protected synchronized void trim() {
+		while (this.size > this.maxSize && !this.bitmaps.isEmpty()) {
+			Map.Entry<Integer, ArrayDeque<Bitmap>> largest = this.bitmaps.lastEntry();
+			ArrayDeque<Bitmap> deque = largest.getValue();
+			deque.pollLast();
+			this.size -= largest.getKey();
+
+			if (deque.isEmpty())
+				this.bitmaps.remove(largest.getKey());
+		}
+	}
+}
@@ -0,0 +1,522 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import android.content.Context;
+
+import org.cufy.http.connect.Client;
+import org.cufy.http.middleware.Middleware;
+import org.cufy.http.request.Request;
+import org.cufy.http.response.Response;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * A middleware that serves {@code GET} requests from a {@link ResponseCache} and
+ * delegates the rest to its transport.
+ * <br>
+ * Fresh entries (per {@code Cache-Control: max-age}) are triggered as {@link
+ * Client#CONNECTED} directly without touching the network. Stale entries having an
+ * {@code ETag} or a {@code Last-Modified} header are revalidated using a conditional
+ * request. If the server answered with {@code 304 Not Modified}, the cached response is
+ * triggered and its body is not downloaded again.
+ * <br>
+ * Responses and requests with {@code Cache-Control: no-store} are never stored. The
+ * responses of requests carrying an {@code Authorization} header are stored and served
+ * only if they are explicitly {@code public}. Responses varying on request headers (per
+ * {@code Vary}) are stored per the values of those headers. Responses with a non-text
+ * {@code Content-Type} are not stored, the cache stores text messages only.
+ * <br>
+ * The headers of a {@code 304 Not Modified} response replace the headers of the
+ * revalidated response. Thus, a refreshed {@code Cache-Control} makes it fresh again.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.22
+ */
+public class CacheMiddleware extends TransportMiddleware {
+	/**
+	 * The cache of this middleware.
+	 *
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	protected final ResponseCache cache;
+
+	/**
+	 * Construct a new cache middleware.
+	 *
+	 * @param cache     the cache to store the responses at.
+	 * @param transport the transport performing the actual connections.
+	 * @throws NullPointerException if the given {@code cache} or {@code transport} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	public CacheMiddleware(@NotNull ResponseCache cache, @NotNull Middleware<? super Client<?>> transport) {
+		super(transport);
+		Objects.requireNonNull(cache, "cache");
+		this.cache = cache;
+	}
+
+	/**
+	 * Return a new cache middleware that uses the shared {@link
+	 * ResponseCache#cache(Context) cache} and the shared {@link
+	 * XTransport#transport(Context) transport} of the given {@code context}.
+	 *
+	 * @param context the context to use its cache and transport.
+	 * @return a new cache middleware.
+	 * @throws NullPointerException if the given {@code context} is null.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@NotNull
+	public static CacheMiddleware cacheMiddleware(@NotNull Context context) {
+		return new CacheMiddleware(ResponseCache.cache(context), XTransport.transport(context));
+	}
+
+	/**
+	 * Return a new cache middleware that uses the shared {@link
+	 * ResponseCache#cache(Context) cache} of the given {@code context}.
+	 *
+	 * @param context   the context to use its cache.
+	 * @param transport the transport performing the actual connections.
+	 * @return a new cache middleware.
+	 * @throws NullPointerException if the given {@code context} or {@code transport} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	public static CacheMiddleware cacheMiddleware(@NotNull Context context, @NotNull Middleware<? super Client<?>> transport) {
+		return new CacheMiddleware(ResponseCache.cache(context), transport);
+	}
+
+	/**
+	 * Return the {@code max-age} directive in the given {@code Cache-Control} header
+	 * value.
+	 *
+	 * @param control the value of the {@code Cache-Control} header.
+	 * @return the max-age in seconds. Or -1 if no max-age.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@Contract(pure = true)
+	protected static long maxAge(@Nullable String control) {
+		if (control == null)
+			return -1;
+
+		int index = control.toLowerCase(Locale.ROOT).indexOf("max-age=");
+
+		if (index < 0)
+			return -1;
+
+		int start = index + "max-age=".length();
+		int end = start;
+		while (end < control.length() && Character.isDigit(control.charAt(end)))
+			end++;
+
+		try {
+			return Long.parseLong(control.substring(start, end));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Return true if the given {@code Cache-Control} header value has the given {@code
+	 * directive}.
+	 *
+	 * @param control   the value of the {@code Cache-Control} header.
+	 * @param directive the directive to look for.
+	 * @return true, if the directive is present.
+	 * @throws NullPointerException if the given {@code directive} is null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@Contract(pure = true)
+	protected static boolean has(@Nullable String control, @NotNull String directive) {
+		Objects.requireNonNull(directive, "directive");
+		return control != null && control.toLowerCase(Locale.ROOT).contains(directive);
+	}
+
+	/**
+	 * Return a copy of the given raw http {@code message} with its headers replaced by
+	 * the headers of the given {@code update} (a {@code 304 Not Modified} response). The
+	 * headers describing the body of the update are ignored.
+	 *
+	 * @param message the stored raw http response.
+	 * @param update  the raw http response updating the stored one.
+	 * @return a copy of the message with the headers of the update.
+	 * @throws NullPointerException if the given {@code message} or {@code update} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	@Contract(pure = true)
+	protected static String merge(@NotNull String message, @NotNull String update) {
+		Objects.requireNonNull(message, "message");
+		Objects.requireNonNull(update, "update");
+		List<String> headers = new ArrayList<>();
+		int start = update.indexOf('\n') + 1;
+
+		while (start > 0 && start < update.length()) {
+			int end = update.indexOf('\n', start);
+			String line = update.substring(start, end < 0 ? update.length() : end).trim();
+
+			if (line.isEmpty())
+				//end of headers
+				break;
+
+			int colon = line.indexOf(':');
+
+			if (colon > 0) {
+				String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+
+				if (!name.equals("content-length") &&
+					!name.equals("content-encoding") &&
+					!name.equals("transfer-encoding"))
+					headers.add(line);
+			}
+
+			if (end < 0)
+				break;
+
+			start = end + 1;
+		}
+
+		String merged = message;
+		for (String line : headers)
+			merged = CacheMiddleware.withoutHeader(merged, line.substring(0, line.indexOf(':')).trim());
+
+		//inserted after the start line; thus, in reverse
+		for (int i = headers.size() - 1; i >= 0; i--) {
+			String line = headers.get(i);
+			int colon = line.indexOf(':');
+			merged = TransportMiddleware.withHeader(merged, line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+		}
+
+		return merged;
+	}
+
+	/**
+	 * Return true if the given {@code Content-Type} is a text type. Thus, it is not
+	 * corrupted by being stored as text.
+	 *
+	 * @param type the value of the {@code Content-Type} header.
+	 * @return true, if the type is a text type or if there is no type.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@Contract(pure = true)
+	protected static boolean textual(@Nullable String type) {
+		if (type == null)
+			return true;
+
+		String mime = type.toLowerCase(Locale.ROOT);
+		int semicolon = mime.indexOf(';');
+		mime = (semicolon < 0 ? mime : mime.substring(0, semicolon)).trim();
+
+		return mime.startsWith("text/") ||
+			   mime.endsWith("/json") ||
+			   mime.endsWith("+json") ||
+			   mime.endsWith("/xml") ||
+			   mime.endsWith("+xml") ||
+			   mime.equals("application/javascript") ||
+			   mime.equals("application/x-www-form-urlencoded");
+	}
+
+	/**
+	 * Return the key of the variant of the given {@code key} selected by the values of
+	 * the headers named in the given {@code Vary} header value in the given raw request
+	 * {@code message}.
+	 *
+	 * @param key     the key of the request.
+	 * @param vary    the value of the {@code Vary} header.
+	 * @param message the raw http request.
+	 * @return the key of the variant.
+	 * @throws NullPointerException if the given {@code key} or {@code vary} or {@code
+	 *                              message} is null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	@Contract(pure = true)
+	protected static String variant(@NotNull String key, @NotNull String vary, @NotNull String message) {
+		Objects.requireNonNull(key, "key");
+		Objects.requireNonNull(vary, "vary");
+		Objects.requireNonNull(message, "message");
+		StringBuilder builder = new StringBuilder(key);
+
+		for (String name : vary.split(",")) {
+			String header = name.trim().toLowerCase(Locale.ROOT);
+
+			if (!header.isEmpty())
+				builder.append('\n')
+					   .append(header)
+					   .append(": ")
+					   .append(TransportMiddleware.header(message, header));
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Return a copy of the given raw http {@code message} without the headers of the
+	 * given {@code name}.
+	 *
+	 * @param message the raw http message.
+	 * @param name    the name of the headers (case-insensitive).
+	 * @return a copy of the message without the headers.
+	 * @throws NullPointerException if the given {@code message} or {@code name} is null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	@Contract(pure = true)
+	protected static String withoutHeader(@NotNull String message, @NotNull @NonNls String name) {
+		Objects.requireNonNull(message, "message");
+		Objects.requireNonNull(name, "name");
+		int start = message.indexOf('\n') + 1;
+
+		if (start <= 0)
+			return message;
+
+		StringBuilder builder = new StringBuilder(message.length());
+		builder.append(message, 0, start);
+
+		while (start < message.length()) {
+			int end = message.indexOf('\n', start);
+			int next = end < 0 ? message.length() : end + 1;
+			String line = message.substring(start, end < 0 ? message.length() : end).trim();
+
+			if (line.isEmpty())
+				//end of headers
+				return builder.append(message, start, message.length()).toString();
+
+			int colon = line.indexOf(':');
+
+			if (colon != name.length() || !line.regionMatches(true, 0, name, 0, colon))
+				builder.append(message, start, next);
+
+			start = next;
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Get the cache of this middleware.
+	 *
+	 * @return the cache of this middleware.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public ResponseCache getCache() {
+		return this.cache;
+	}
+
+	@Override
+	protected void connect(@NotNull Client<?> client, @NotNull Request<?> request) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(request, "request");
+		//disk access is kept off the connecting thread
+		this.executor(client).execute(() -> this.perform(client, request));
+	}
+
+	/**
+	 * Serve the given {@code request} from the cache or forward it to the transport.
+	 *
+	 * @param client  the client to be connected.
+	 * @param request the request to be connected.
+	 * @throws NullPointerException if the given {@code client} or {@code request} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	protected void perform(@NotNull Client<?> client, @NotNull Request<?> request) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(request, "request");
+		String method = String.valueOf(request.getMethod());
+		String message = request.toString();
+		String control = TransportMiddleware.header(message, "Cache-Control");
+
+		if (!"GET".equalsIgnoreCase(method) || CacheMiddleware.has(control, "no-store")) {
+			this.forward(client, request, message, null, null);
+			return;
+		}
+
+		String key = method + " " + request.getUri();
+		ResponseCache.Entry entry = this.cache.get(key);
+
+		if (entry != null) {
+			String vary = TransportMiddleware.header(entry.message, "Vary");
+
+			if (vary != null)
+				//the entry of the key only tells what the response varies on
+				entry = this.cache.get(CacheMiddleware.variant(key, vary, message));
+		}
+		if (entry != null &&
+			TransportMiddleware.header(message, "Authorization") != null &&
+			!CacheMiddleware.has(TransportMiddleware.header(entry.message, "Cache-Control"), "public"))
+			//possibly stored for another user
+			entry = null;
+
+		if (entry != null) {
+			String cached = TransportMiddleware.header(entry.message, "Cache-Control");
+			long maxAge = CacheMiddleware.maxAge(cached);
+			boolean revalidate = CacheMiddleware.has(cached, "no-cache") ||
+								 CacheMiddleware.has(control, "no-cache");
+
+			if (!revalidate && maxAge > 0 && System.currentTimeMillis() - entry.time < maxAge * 1000) {
+				this.cache.hits.incrementAndGet();
+				client.trigger(Client.CONNECTED, Response.response(entry.message));
+				return;
+			}
+
+			String etag = TransportMiddleware.header(entry.message, "ETag");
+			String modified = TransportMiddleware.header(entry.message, "Last-Modified");
+
+			if (etag != null)
+				message = TransportMiddleware.withHeader(message, "If-None-Match", etag);
+			if (modified != null)
+				message = TransportMiddleware.withHeader(message, "If-Modified-Since", modified);
+			if (etag == null && modified == null)
+				//cannot be revalidated
+				entry = null;
+		}
+
+		if (entry == null)
+			this.cache.misses.incrementAndGet();
+
+		this.forward(client, request, message, key, entry);
+	}
+
+	/**
+	 * Forward the given {@code message} to the transport. Then, store or revalidate the
+	 * response and trigger it to the given {@code client}.
+	 *
+	 * @param client  the client to be connected.
+	 * @param request the original request.
+	 * @param message the raw request message to be sent.
+	 * @param key     the cache key of the request. Or null if the request is not
+	 *                cacheable.
+	 * @param entry   the entry being revalidated. Or null if not revalidating.
+	 * @throws NullPointerException if the given {@code client} or {@code request} or
+	 *                              {@code message} is null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	protected void forward(@NotNull Client<?> client, @NotNull Request<?> request, @NotNull String message, @Nullable String key, @Nullable ResponseCache.Entry entry) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(request, "request");
+		Objects.requireNonNull(message, "message");
+		Client<?> exchange = this.exchange(client, request);
+
+		if (!message.equals(request.toString()))
+			exchange.setRequest(message);
+
+		exchange.on(Client.CONNECTED, (caller, response) -> {
+					String received = response.toString();
+					int status = TransportMiddleware.status(received);
+					long now = System.currentTimeMillis();
+
+					if (key != null && entry != null && status == 304) {
+						//the refreshed headers make the entry fresh again
+						String merged = CacheMiddleware.merge(entry.message, received);
+						this.cache.revalidations.incrementAndGet();
+						this.store(key, request.toString(), now, merged);
+						client.trigger(Client.CONNECTED, Response.response(merged));
+						return;
+					}
+					if (key != null && status == 200) {
+						String control = TransportMiddleware.header(received, "Cache-Control");
+
+						if (CacheMiddleware.has(control, "no-store"))
+							this.cache.remove(key);
+						else if (this.isStorable(request.toString(), received))
+							this.store(key, request.toString(), now, received);
+					}
+
+					client.trigger(Client.CONNECTED, response);
+				})
+				.on(Client.DISCONNECTED, (caller, throwable) ->
+						client.trigger(Client.DISCONNECTED, throwable)
+				)
+				.connect();
+	}
+
+	/**
+	 * Return true if the given {@code response} to the given {@code request} can be
+	 * stored.
+	 *
+	 * @param request  the raw http request.
+	 * @param response the raw http response.
+	 * @return true, if the response can be stored.
+	 * @throws NullPointerException if the given {@code request} or {@code response} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@Contract(pure = true)
+	protected boolean isStorable(@NotNull String request, @NotNull String response) {
+		Objects.requireNonNull(request, "request");
+		Objects.requireNonNull(response, "response");
+		String control = TransportMiddleware.header(response, "Cache-Control");
+
+		if (TransportMiddleware.header(request, "Authorization") != null && !CacheMiddleware.has(control, "public"))
+			//the cache is shared by all the clients of the context
+			return false;
+		if (!CacheMiddleware.textual(TransportMiddleware.header(response, "Content-Type")))
+			return false;
+
+		return CacheMiddleware.maxAge(control) > 0 ||
+			   TransportMiddleware.header(response, "ETag") != null ||
+			   TransportMiddleware.header(response, "Last-Modified") != null;
+	}
+
+	/**
+	 * Store the given {@code response} to the given {@code request} with the given {@code
+	 * key}. If the response varies on request headers, it is stored with the key of its
+	 * {@link #variant(String, String, String) variant} instead.
+	 *
+	 * @param key      the key of the request.
+	 * @param request  the raw http request.
+	 * @param time     the time the response was received at.
+	 * @param response the raw http response.
+	 * @throws NullPointerException if the given {@code key} or {@code request} or {@code
+	 *                              response} is null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	protected void store(@NotNull String key, @NotNull String request, long time, @NotNull String response) {
+		Objects.requireNonNull(key, "key");
+		Objects.requireNonNull(request, "request");
+		Objects.requireNonNull(response, "response");
+		String vary = TransportMiddleware.header(response, "Vary");
+
+		if (vary == null) {
+			this.cache.put(key, time, response);
+			return;
+		}
+		if (vary.trim().equals("*")) {
+			//varies on everything
+			this.cache.remove(key);
+			return;
+		}
+
+		int newline = response.indexOf('\n');
+		String line = (newline < 0 ? response : response.substring(0, newline)).trim();
+		this.cache.put(key, time, line + "\r\nVary: " + vary + "\r\n\r\n");
+		this.cache.put(CacheMiddleware.variant(key, vary, request), time, response);
+	}
+}
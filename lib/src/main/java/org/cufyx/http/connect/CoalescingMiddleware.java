@@ -0,0 +1,209 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import android.content.Context;
+
+import org.cufy.http.connect.Client;
+import org.cufy.http.middleware.Middleware;
+import org.cufy.http.request.Request;
+import org.cufy.http.response.Response;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * A middleware that coalesces identical in-flight requests. When a request with the same
+ * method, uri, headers and body is already in flight, the client attaches to it instead
+ * of connecting again. Only safe requests ({@code GET}, {@code HEAD} and {@code OPTIONS})
+ * are coalesced. Other requests are written to the server as many times as they are
+ * connected. Once the single response arrives, every attached client gets its
+ * own copy of it triggered as {@link Client#CONNECTED} (or the failure triggered as
+ * {@link Client#DISCONNECTED}).
+ * <br>
+ * The in-flight requests are shared by all the coalescing middlewares of the same
+ * application context. Since a flight serves many clients, it does not belong to any of
+ * them. Thus, it is not bound by their {@link Deadline deadlines} and cancelling one of
+ * them does not cancel it.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.23
+ */
+public class CoalescingMiddleware extends TransportMiddleware {
+	/**
+	 * The in-flight requests of each application context.
+	 *
+	 * @since 0.1.1 ~2021.08.23
+	 */
+	@NotNull
+	protected static final Map<Context, Map<String, List<Client<?>>>> FLIGHTS = new WeakHashMap<>();
+
+	/**
+	 * The clients attached to each in-flight request, by the raw request. (lock on
+	 * itself)
+	 *
+	 * @since 0.1.1 ~2021.08.23
+	 */
+	@NotNull
+	protected final Map<String, List<Client<?>>> flights;
+
+	/**
+	 * Construct a new coalescing middleware.
+	 *
+	 * @param context   the context to share the in-flight requests of.
+	 * @param transport the transport performing the actual connections.
+	 * @throws NullPointerException if the given {@code context} or {@code transport} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.08.23
+	 */
+	public CoalescingMiddleware(@NotNull Context context, @NotNull Middleware<? super Client<?>> transport) {
+		super(transport);
+		Objects.requireNonNull(context, "context");
+		Context application = context.getApplicationContext();
+
+		if (application == null)
+			application = context;
+
+		synchronized (CoalescingMiddleware.FLIGHTS) {
+			Map<String, List<Client<?>>> flights = CoalescingMiddleware.FLIGHTS.get(application);
+
+			if (flights == null) {
+				flights = new HashMap<>();
+				CoalescingMiddleware.FLIGHTS.put(application, flights);
+			}
+
+			this.flights = flights;
+		}
+	}
+
+	/**
+	 * Return a new coalescing middleware sharing the in-flight requests and the {@link
+	 * XTransport#transport(Context) transport} of the given {@code context}.
+	 *
+	 * @param context the context to share the in-flight requests and transport of.
+	 * @return a new coalescing middleware.
+	 * @throws NullPointerException if the given {@code context} is null.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@NotNull
+	public static CoalescingMiddleware coalescingMiddleware(@NotNull Context context) {
+		return new CoalescingMiddleware(context, XTransport.transport(context));
+	}
+
+	/**
+	 * Return a new coalescing middleware sharing the in-flight requests of the given
+	 * {@code context}.
+	 *
+	 * @param context   the context to share the in-flight requests of.
+	 * @param transport the transport performing the actual connections.
+	 * @return a new coalescing middleware.
+	 * @throws NullPointerException if the given {@code context} or {@code transport} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.08.23
+	 */
+	@NotNull
+	public static CoalescingMiddleware coalescingMiddleware(@NotNull Context context, @NotNull Middleware<? super Client<?>> transport) {
+		return new CoalescingMiddleware(context, transport);
+	}
+
+	/**
+	 * Return true if the given {@code request} is safe to be coalesced. That is, it does
+	 * not modify anything at the server.
+	 *
+	 * @param request the request to be checked.
+	 * @return true, if the request is a {@code GET}, {@code HEAD} or {@code OPTIONS}
+	 * 		request.
+	 * @throws NullPointerException if the given {@code request} is null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@Contract(pure = true)
+	protected static boolean safe(@NotNull Request<?> request) {
+		Objects.requireNonNull(request, "request");
+		switch (String.valueOf(request.getMethod()).toUpperCase()) {
+			case "GET":
+			case "HEAD":
+			case "OPTIONS":
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	@Override
+	protected void connect(@NotNull Client<?> client, @NotNull Request<?> request) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(request, "request");
+		if (!CoalescingMiddleware.safe(request)) {
+			//two identical writes are two writes
+			this.exchange(client, request)
+				.on(Client.CONNECTED, (caller, response) -> client.trigger(Client.CONNECTED, response))
+				.on(Client.DISCONNECTED, (caller, throwable) -> client.trigger(Client.DISCONNECTED, throwable))
+				.connect();
+			return;
+		}
+
+		String key = request.toString();
+		synchronized (this.flights) {
+			List<Client<?>> attached = this.flights.get(key);
+
+			if (attached != null) {
+				attached.add(client);
+				return;
+			}
+
+			attached = new ArrayList<>();
+			attached.add(client);
+			this.flights.put(key, attached);
+		}
+
+		this.exchange(request)
+			.on(Client.CONNECTED, (caller, response) -> {
+				String received = response.toString();
+				for (Client<?> attached : this.land(key))
+					attached.trigger(Client.CONNECTED, Response.response(received));
+			})
+			.on(Client.DISCONNECTED, (caller, throwable) -> {
+				for (Client<?> attached : this.land(key))
+					attached.trigger(Client.DISCONNECTED, throwable);
+			})
+			.connect();
+	}
+
+	/**
+	 * Remove the in-flight request with the given {@code key} and return its attached
+	 * clients. Requests connecting after this call will start a new flight.
+	 *
+	 * @param key the raw request.
+	 * @return the clients attached to the request.
+	 * @throws NullPointerException if the given {@code key} is null.
+	 * @since 0.1.1 ~2021.08.23
+	 */
+	@NotNull
+	protected List<Client<?>> land(@NotNull String key) {
+		Objects.requireNonNull(key, "key");
+		synchronized (this.flights) {
+			List<Client<?>> attached = this.flights.remove(key);
+			return attached == null ? new ArrayList<>() : attached;
+		}
+	}
+}
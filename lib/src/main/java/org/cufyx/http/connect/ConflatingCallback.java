@@ -0,0 +1,270 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.cufy.http.connect.Callback;
+import org.cufy.http.connect.Caller;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A callback that posts the latest parameter it was called with to the handler of the
+ * client calling it. While a delivery for a caller is still pending, newer parameters
+ * replace the pending one instead of posting another delivery.
+ * <br>
+ * A pending delivery removed from the handler (or the batch of the handler) will never
+ * run to empty its slot. Thus, whoever removes the deliveries of a client must {@link
+ * #reset(XClient) reset} the conflating callbacks the client called. Otherwise, the
+ * callbacks will never post for the client again.
+ *
+ * @param <C> the type of the caller.
+ * @param <T> the type of the parameter.
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.19
+ */
+public class ConflatingCallback<C extends XClient<?>, T> implements Callback<C, T> {
+	/**
+	 * A placeholder for an empty slot.
+	 *
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	@NotNull
+	protected static final Object EMPTY = new Object();
+	/**
+	 * A placeholder for a {@code null} parameter.
+	 *
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	@NotNull
+	protected static final Object NULL = new Object();
+
+	/**
+	 * The conflating callbacks called by each client. (lock on itself)
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	protected static final Map<XClient<?>, Set<ConflatingCallback<?, ?>>> CALLBACKS = new WeakHashMap<>();
+
+	/**
+	 * The callback to deliver the parameters to.
+	 *
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	@NotNull
+	protected final Callback<C, T> callback;
+	/**
+	 * The slot of each caller. (lock on itself)
+	 *
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	@NotNull
+	protected final Map<C, Slot> slots = new WeakHashMap<>();
+
+	/**
+	 * Construct a new conflating callback. The deliveries are posted with the client
+	 * calling the callback.
+	 *
+	 * @param callback the callback to deliver the parameters to.
+	 * @throws NullPointerException if the given {@code callback} is null.
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	public ConflatingCallback(@NotNull Callback<C, T> callback) {
+		Objects.requireNonNull(callback, "callback");
+		this.callback = callback;
+	}
+
+	/**
+	 * Forget the pending deliveries of the conflating callbacks called by the given
+	 * {@code client}. Expected to be invoked after the pending deliveries of the client
+	 * got removed from its handler. The deliveries of other clients are not affected.
+	 *
+	 * @param client the client to reset its conflating callbacks.
+	 * @throws NullPointerException if the given {@code client} is null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public static void reset(@NotNull XClient<?> client) {
+		Objects.requireNonNull(client, "client");
+		List<ConflatingCallback<?, ?>> callbacks;
+		synchronized (ConflatingCallback.CALLBACKS) {
+			Set<ConflatingCallback<?, ?>> set = ConflatingCallback.CALLBACKS.get(client);
+
+			if (set == null)
+				return;
+
+			callbacks = new ArrayList<>(set);
+		}
+
+		for (ConflatingCallback<?, ?> callback : callbacks) {
+			ConflatingCallback<?, ?>.Slot slot;
+			synchronized (callback.slots) {
+				slot = callback.slots.get(client);
+			}
+
+			if (slot != null)
+				slot.reset();
+		}
+	}
+
+	@Override
+	public void call(@NotNull C caller, @Nullable T parameter) {
+		Slot slot;
+		synchronized (this.slots) {
+			slot = this.slots.get(caller);
+
+			if (slot == null) {
+				slot = new Slot(caller);
+				this.slots.put(caller, slot);
+				ConflatingCallback.register(caller, this);
+			}
+		}
+
+		Object value = parameter == null ? ConflatingCallback.NULL : parameter;
+
+		if (slot.latest.getAndSet(value) == ConflatingCallback.EMPTY)
+			caller.post(slot);
+	}
+
+	/**
+	 * Forget the pending deliveries of this callback for all the callers. Expected to be
+	 * invoked after the pending deliveries of this callback got removed from the
+	 * handlers.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public void reset() {
+		synchronized (this.slots) {
+			for (Slot slot : this.slots.values())
+				slot.reset();
+		}
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "ConflatingCallback " + System.identityHashCode(this);
+	}
+
+	/**
+	 * Register the given {@code callback} as called by the given {@code client}. Thus, it
+	 * gets {@link #reset(XClient) reset} when the deliveries of the client get removed.
+	 *
+	 * @param client   the client calling the callback.
+	 * @param callback the callback called by the client.
+	 * @throws NullPointerException if the given {@code client} or {@code callback} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	protected static void register(@NotNull XClient<?> client, @NotNull ConflatingCallback<?, ?> callback) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(callback, "callback");
+		synchronized (ConflatingCallback.CALLBACKS) {
+			Set<ConflatingCallback<?, ?>> callbacks = ConflatingCallback.CALLBACKS.get(client);
+
+			if (callbacks == null) {
+				//weak, the slots of the callbacks are holding the clients weakly
+				callbacks = Collections.newSetFromMap(new WeakHashMap<>());
+				ConflatingCallback.CALLBACKS.put(client, callbacks);
+			}
+
+			callbacks.add(callback);
+		}
+	}
+
+	/**
+	 * The pending delivery of a single caller.
+	 *
+	 * @author LSafer
+	 * @version 0.1.1
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	protected class Slot implements Runnable {
+		/**
+		 * The caller of this slot.
+		 *
+		 * @since 0.1.1 ~2021.08.19
+		 */
+		@NotNull
+		protected final WeakReference<C> caller;
+		/**
+		 * The latest parameter. Or {@link #EMPTY} if there is no pending delivery.
+		 *
+		 * @since 0.1.1 ~2021.08.19
+		 */
+		@NotNull
+		protected final AtomicReference<Object> latest = new AtomicReference<>(ConflatingCallback.EMPTY);
+
+		/**
+		 * Construct a new slot for the given {@code caller}.
+		 *
+		 * @param caller the caller of the slot.
+		 * @since 0.1.1 ~2021.08.19
+		 */
+		protected Slot(@NotNull C caller) {
+			this.caller = new WeakReference<>(caller);
+		}
+
+		/**
+		 * Get the client this slot is posted with. That is, the caller of this slot.
+		 *
+		 * @return the client of this slot. Or null if it got garbage collected.
+		 * @since 0.1.1 ~2021.08.25
+		 */
+		@Nullable
+		@Contract(pure = true)
+		public XClient<?> getClient() {
+			return this.caller.get();
+		}
+
+		/**
+		 * Forget the pending delivery of this slot. Expected to be invoked after the
+		 * delivery got removed. Thus, the next parameter will be posted.
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		public void reset() {
+			this.latest.set(ConflatingCallback.EMPTY);
+		}
+
+		@Override
+		public void run() {
+			Object value = this.latest.getAndSet(ConflatingCallback.EMPTY);
+			C caller = this.caller.get();
+
+			if (value == ConflatingCallback.EMPTY || caller == null)
+				return;
+
+			try {
+				//noinspection unchecked
+				ConflatingCallback.this.callback.call(caller, value == ConflatingCallback.NULL ? null : (T) value);
+			} catch (Throwable throwable) {
+				caller.trigger(Caller.EXCEPTION, throwable);
+			}
+		}
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.cufy.http.connect.Client;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time limits of the connections of a client. A limit of {@code 0} means no limit.
+ * <ul>
+ *     <li>The connect limit bounds establishing the socket (including the tls
+ *     handshake).</li>
+ *     <li>The read limit bounds the silence between two reads of the response.</li>
+ *     <li>The total limit bounds the whole connection from calling connect to the
+ *     result. Including the time spent in the middlewares and the queues.</li>
+ * </ul>
+ * The connect and read limits are applied by the {@link XTransport transport} even when
+ * connecting through a {@link TransportMiddleware middleware}. A connection exceeding
+ * them fails with {@link Client#DISCONNECTED}. A connection exceeding the total
+ * limit gets cancelled and triggers {@link XClient#TIMEOUT} instead of its result.
+ * <br>
+ * Deadlines are immutable.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.09.06
+ */
+public class Deadline {
+	/**
+	 * The scheduler of the total limits. A single daemon thread.
+	 *
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@NotNull
+	protected static final ScheduledThreadPoolExecutor SCHEDULER;
+
+	static {
+		SCHEDULER = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "XClient-Deadline");
+			thread.setDaemon(true);
+			return thread;
+		});
+		//the limits of the connections that finished in time are dropped
+		Deadline.SCHEDULER.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * The connect limit in milliseconds.
+	 *
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	protected final long connect;
+	/**
+	 * The read limit in milliseconds.
+	 *
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	protected final long read;
+	/**
+	 * The total limit in milliseconds.
+	 *
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	protected final long total;
+
+	/**
+	 * Construct a new deadline with the given limits.
+	 *
+	 * @param connect the connect limit. (zero for no limit)
+	 * @param read    the read limit. (zero for no limit)
+	 * @param total   the total limit. (zero for no limit)
+	 * @param unit    the unit of the given limits.
+	 * @throws NullPointerException     if the given {@code unit} is null.
+	 * @throws IllegalArgumentException if any of the given limits is negative.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	public Deadline(long connect, long read, long total, @NotNull TimeUnit unit) {
+		Objects.requireNonNull(unit, "unit");
+		if (connect < 0)
+			throw new IllegalArgumentException("connect < 0");
+		if (read < 0)
+			throw new IllegalArgumentException("read < 0");
+		if (total < 0)
+			throw new IllegalArgumentException("total < 0");
+		this.connect = unit.toMillis(connect);
+		this.read = unit.toMillis(read);
+		this.total = unit.toMillis(total);
+	}
+
+	/**
+	 * Return a deadline with only the given total limit.
+	 *
+	 * @param total the total limit.
+	 * @param unit  the unit of the given limit.
+	 * @return a new deadline.
+	 * @throws NullPointerException     if the given {@code unit} is null.
+	 * @throws IllegalArgumentException if the given {@code total} is negative.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@NotNull
+	@Contract(value = "_,_->new", pure = true)
+	public static Deadline deadline(long total, @NotNull TimeUnit unit) {
+		return new Deadline(0, 0, total, unit);
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (object == this)
+			return true;
+		if (!(object instanceof Deadline))
+			return false;
+
+		Deadline deadline = (Deadline) object;
+		return this.connect == deadline.connect &&
+			   this.read == deadline.read &&
+			   this.total == deadline.total;
+	}
+
+	/**
+	 * Get the connect limit of this deadline.
+	 *
+	 * @param unit the unit of the returned value.
+	 * @return the connect limit in the given {@code unit}. Or zero if no limit.
+	 * @throws NullPointerException if the given {@code unit} is null.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@Contract(pure = true)
+	public long getConnect(@NotNull TimeUnit unit) {
+		Objects.requireNonNull(unit, "unit");
+		return unit.convert(this.connect, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Get the read limit of this deadline.
+	 *
+	 * @param unit the unit of the returned value.
+	 * @return the read limit in the given {@code unit}. Or zero if no limit.
+	 * @throws NullPointerException if the given {@code unit} is null.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@Contract(pure = true)
+	public long getRead(@NotNull TimeUnit unit) {
+		Objects.requireNonNull(unit, "unit");
+		return unit.convert(this.read, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Get the total limit of this deadline.
+	 *
+	 * @param unit the unit of the returned value.
+	 * @return the total limit in the given {@code unit}. Or zero if no limit.
+	 * @throws NullPointerException if the given {@code unit} is null.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@Contract(pure = true)
+	public long getTotal(@NotNull TimeUnit unit) {
+		Objects.requireNonNull(unit, "unit");
+		return unit.convert(this.total, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(this.connect, this.read, this.total);
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "Deadline {" +
+			   " connect=" + this.connect + "ms" +
+			   " read=" + this.read + "ms" +
+			   " total=" + this.total + "ms" +
+			   " }";
+	}
+}
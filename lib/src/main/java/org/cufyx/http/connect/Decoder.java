@@ -0,0 +1,68 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.cufy.http.response.Response;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * A function decoding the body of a response into an object. Decoders are performed
+ * using the {@link XClient#getExecutor() executor} of a client so that only the decoded
+ * object reaches the thread of the handler.
+ * <pre>
+ *     client.onh(Client.CONNECTED, body -> gson.fromJson(new InputStreamReader(body), User.class), (c, user) -> {
+ *         //already in UI thread
+ *     });
+ * </pre>
+ *
+ * @param <T> the type of the decoded objects.
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.09.04
+ */
+@FunctionalInterface
+public interface Decoder<T> {
+	/**
+	 * Return a stream reading the body of the given {@code response} as {@code UTF-8}
+	 * bytes. The bytes are encoded while being read.
+	 *
+	 * @param response the response to read its body.
+	 * @return a stream of the body of the response.
+	 * @throws NullPointerException if the given {@code response} is null.
+	 * @since 0.1.1 ~2021.09.04
+	 */
+	@NotNull
+	@Contract(value = "_->new", pure = true)
+	static InputStream body(@NotNull Response<?> response) {
+		Objects.requireNonNull(response, "response");
+		return new TextInputStream(String.valueOf(response.getBody()));
+	}
+
+	/**
+	 * Decode the given {@code body}. The stream is closed after this method returns.
+	 *
+	 * @param body the stream of the body to be decoded.
+	 * @return the decoded object.
+	 * @throws IOException if an I/O exception occurred or the body is malformed.
+	 * @since 0.1.1 ~2021.09.04
+	 */
+	T decode(@NotNull InputStream body) throws IOException;
+}
@@ -0,0 +1,419 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import org.cufy.http.connect.Client;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A batch of deferred clients to be connected together at a moment that is cheap for the
+ * radio and the battery. The batch is flushed once any of the following happens:
+ * <ul>
+ *     <li>An unmetered network becomes available.</li>
+ *     <li>The device gets connected to power.</li>
+ *     <li>The device enters an idle window (via {@link JobScheduler}).</li>
+ *     <li>The earliest deadline of the deferred clients is reached.</li>
+ *     <li>Another client of the application connects (the radio is awake anyway),
+ *     unless {@link #setPiggyback(boolean) disabled}.</li>
+ * </ul>
+ * Flushing connects each deferred client as if {@link Client#connect()} was invoked on
+ * it. Thus, its results are triggered on it as usual.
+ * <br>
+ * The deferred clients are held in memory. A deferral does not survive the death of the
+ * process; use {@link XClient#queue()} for work that must.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.30
+ */
+public class Deferral {
+	/**
+	 * The default maximum delay of a deferred client in milliseconds.
+	 *
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	public static final long DELAY = TimeUnit.MINUTES.toMillis(15);
+	/**
+	 * The id of the first flush job scheduled by a deferral. A deferral uses the ids
+	 * {@code JOB_ID}, {@code JOB_ID + 1} and {@code JOB_ID + 2}.
+	 *
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	public static final int JOB_ID = 0x43756679;
+
+	/**
+	 * The deferrals of each application context.
+	 *
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	@NotNull
+	protected static final Map<Context, Deferral> DEFERRALS = new WeakHashMap<>();
+
+	/**
+	 * The callback flushing this deferral when an unmetered network becomes available.
+	 *
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	@NotNull
+	protected final ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+		@Override
+		public void onAvailable(@NotNull Network network) {
+			Deferral.this.flush();
+		}
+	};
+	/**
+	 * The application context of this deferral.
+	 *
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	@NotNull
+	protected final Context context;
+	/**
+	 * The handler of the main thread. Used to post the deadline of this deferral.
+	 *
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	@NotNull
+	protected final Handler handler;
+	/**
+	 * The deferred clients in the order they were deferred. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	@NotNull
+	protected final List<Client<?>> pending = new ArrayList<>();
+	/**
+	 * The receiver flushing this deferral when the device gets connected to power.
+	 *
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	@NotNull
+	protected final BroadcastReceiver receiver = new BroadcastReceiver() {
+		@Override
+		public void onReceive(Context context, Intent intent) {
+			Deferral.this.flush();
+		}
+	};
+
+	/**
+	 * True, if the callbacks and the jobs of this deferral are registered. (lock on
+	 * this)
+	 *
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	protected boolean armed;
+	/**
+	 * The earliest deadline of the deferred clients. In {@link
+	 * SystemClock#elapsedRealtime()} milliseconds. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	protected long deadline = Long.MAX_VALUE;
+	/**
+	 * True, if this deferral gets flushed when another client connects.
+	 *
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	protected volatile boolean piggyback = true;
+
+	/**
+	 * Construct a new deferral.
+	 *
+	 * @param context the context of the deferral.
+	 * @throws NullPointerException if the given {@code context} is null.
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	public Deferral(@NotNull Context context) {
+		Objects.requireNonNull(context, "context");
+		this.context = AbstractXClient.application(context);
+		this.handler = new Handler(this.context.getMainLooper());
+	}
+
+	/**
+	 * Return the shared deferral of the application of the given {@code context}.
+	 *
+	 * @param context the context to get the deferral of its application.
+	 * @return the deferral of the application.
+	 * @throws NullPointerException if the given {@code context} is null.
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	@NotNull
+	public static Deferral deferral(@NotNull Context context) {
+		Objects.requireNonNull(context, "context");
+		Context application = AbstractXClient.application(context);
+
+		synchronized (Deferral.DEFERRALS) {
+			Deferral deferral = Deferral.DEFERRALS.get(application);
+
+			if (deferral == null) {
+				deferral = new Deferral(application);
+				Deferral.DEFERRALS.put(application, deferral);
+			}
+
+			return deferral;
+		}
+	}
+
+	/**
+	 * Flush the shared deferral of the application of the given {@code context} (if it
+	 * exists) because a client has just connected, unless piggybacking is disabled.
+	 *
+	 * @param context the context of the connecting client.
+	 * @throws NullPointerException if the given {@code context} is null.
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	public static void piggyback(@NotNull Context context) {
+		Objects.requireNonNull(context, "context");
+		Context application = AbstractXClient.application(context);
+		Deferral deferral;
+		synchronized (Deferral.DEFERRALS) {
+			deferral = Deferral.DEFERRALS.get(application);
+		}
+
+		if (deferral != null && deferral.piggyback)
+			deferral.flush();
+	}
+
+	/**
+	 * Defer connecting the given {@code client} until this deferral gets flushed. The
+	 * client will be connected no later than the given {@code delay} from now.
+	 *
+	 * @param client the client to be deferred.
+	 * @param delay  the maximum delay.
+	 * @param unit   the unit of the given {@code delay}.
+	 * @return this.
+	 * @throws NullPointerException     if the given {@code client} or {@code unit} is
+	 *                                  null.
+	 * @throws IllegalArgumentException if the given {@code delay} is negative.
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	@NotNull
+	@Contract(value = "_,_,_->this", mutates = "this")
+	public Deferral defer(@NotNull Client<?> client, long delay, @NotNull TimeUnit unit) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(unit, "unit");
+		if (delay < 0)
+			throw new IllegalArgumentException("delay < 0");
+		long deadline = SystemClock.elapsedRealtime() + unit.toMillis(delay);
+
+		synchronized (this) {
+			this.pending.add(client);
+
+			if (!this.armed) {
+				this.armed = true;
+				this.deadline = deadline;
+				this.arm();
+			} else if (deadline < this.deadline) {
+				this.deadline = deadline;
+				this.schedule();
+			}
+		}
+
+		return this;
+	}
+
+	/**
+	 * Connect all the deferred clients now. Flushing an empty deferral has no effect.
+	 *
+	 * @return this.
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	@NotNull
+	@Contract(value = "->this", mutates = "this")
+	public Deferral flush() {
+		List<Client<?>> clients;
+		synchronized (this) {
+			if (this.pending.isEmpty())
+				return this;
+
+			clients = new ArrayList<>(this.pending);
+			this.pending.clear();
+			this.armed = false;
+			this.deadline = Long.MAX_VALUE;
+			this.disarm();
+		}
+
+		for (Client<?> client : clients) {
+			if (client instanceof XClient && ((XClient<?>) client).isReleased())
+				continue;
+
+			try {
+				client.connect();
+			} catch (RuntimeException e) {
+				client.trigger(Client.DISCONNECTED, e);
+			}
+		}
+
+		return this;
+	}
+
+	/**
+	 * Get the number of the deferred clients.
+	 *
+	 * @return the size of this deferral.
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	@Contract(pure = true)
+	public synchronized int getSize() {
+		return this.pending.size();
+	}
+
+	/**
+	 * Return true if this deferral gets flushed when another client connects.
+	 *
+	 * @return true, if this deferral piggybacks on other connections.
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	@Contract(pure = true)
+	public boolean isPiggyback() {
+		return this.piggyback;
+	}
+
+	/**
+	 * Set whether this deferral gets flushed when another client connects or not.
+	 *
+	 * @param piggyback true, to piggyback on other connections.
+	 * @return this.
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	public Deferral setPiggyback(boolean piggyback) {
+		this.piggyback = piggyback;
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "Deferral " + System.identityHashCode(this);
+	}
+
+	/**
+	 * Register the callbacks and schedule the jobs flushing this deferral. Must be
+	 * called while holding the lock of this.
+	 *
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	protected void arm() {
+		ConnectivityManager manager = this.context.getSystemService(ConnectivityManager.class);
+		if (manager != null)
+			manager.registerNetworkCallback(
+					new NetworkRequest.Builder()
+							.addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+							.addCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED)
+							.build(),
+					this.callback
+			);
+
+		this.context.registerReceiver(this.receiver, new IntentFilter(Intent.ACTION_POWER_CONNECTED));
+
+		BatteryManager battery = this.context.getSystemService(BatteryManager.class);
+		if (battery != null && battery.isCharging())
+			//no power to save
+			this.handler.postAtTime(this::flush, this, SystemClock.uptimeMillis());
+
+		this.schedule();
+	}
+
+	/**
+	 * Unregister the callbacks and cancel the jobs flushing this deferral. Must be
+	 * called while holding the lock of this.
+	 *
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	protected void disarm() {
+		ConnectivityManager manager = this.context.getSystemService(ConnectivityManager.class);
+		if (manager != null)
+			manager.unregisterNetworkCallback(this.callback);
+
+		this.context.unregisterReceiver(this.receiver);
+		this.handler.removeCallbacksAndMessages(this);
+
+		JobScheduler scheduler = this.context.getSystemService(JobScheduler.class);
+		if (scheduler != null)
+			for (int i = 0; i < 3; i++)
+				scheduler.cancel(Deferral.JOB_ID + i);
+	}
+
+	/**
+	 * Return a new job flushing this deferral with the given {@code id}. The job has the
+	 * deadline of this deferral as its override deadline. Must be called while holding
+	 * the lock of this.
+	 *
+	 * @param id the id of the job.
+	 * @return a new job builder.
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	@NotNull
+	protected JobInfo.Builder job(int id) {
+		return new JobInfo.Builder(id, new ComponentName(this.context, DeferralJobService.class))
+				.setOverrideDeadline(Math.max(0, this.deadline - SystemClock.elapsedRealtime()));
+	}
+
+	/**
+	 * (Re)schedule the deadline and the jobs of this deferral. Must be called while
+	 * holding the lock of this.
+	 *
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	protected void schedule() {
+		long delay = Math.max(0, this.deadline - SystemClock.elapsedRealtime());
+		this.handler.removeCallbacksAndMessages(this);
+		//the deadline while the process is alive
+		this.handler.postAtTime(this::flush, this, SystemClock.uptimeMillis() + delay);
+
+		JobScheduler scheduler = this.context.getSystemService(JobScheduler.class);
+		if (scheduler == null)
+			return;
+
+		//a job can have a single set of constraints; one job for each flush condition
+		scheduler.schedule(this.job(Deferral.JOB_ID)
+								   .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+								   .build());
+		scheduler.schedule(this.job(Deferral.JOB_ID + 1)
+								   .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+								   .setRequiresCharging(true)
+								   .build());
+		scheduler.schedule(this.job(Deferral.JOB_ID + 2)
+								   .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+								   .setRequiresDeviceIdle(true)
+								   .build());
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The job service flushing the {@link Deferral#deferral(android.content.Context)
+ * deferral} of the application when one of the conditions of its jobs is met.
+ * <br>
+ * Declared in the manifest of this library.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.30
+ */
+public class DeferralJobService extends JobService {
+	@Override
+	public boolean onStartJob(@NotNull JobParameters parameters) {
+		//the clients connect asynchronously; nothing to wait for
+		Deferral.deferral(this).flush();
+		return false;
+	}
+
+	@Override
+	public boolean onStopJob(@NotNull JobParameters parameters) {
+		return false;
+	}
+}
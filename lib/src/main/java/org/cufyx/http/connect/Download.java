@@ -0,0 +1,261 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import org.cufy.http.connect.Client;
+import org.cufy.http.response.Response;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * A callback that streams the body of a response straight to a file channel using a
+ * fixed direct buffer. Thus, the heap used by a download is constant regardless of the
+ * size of the body.
+ * <br>
+ * While writing, {@link XClient#PROGRESS} is triggered at most once per {@link
+ * #INTERVAL}. Once the body is written and the channel is closed, {@link
+ * Client#CONNECTED} is triggered with the response without its body.
+ * <br>
+ * If the download was resumed (the request had a {@code Range} header), a {@code 206
+ * Partial Content} response is appended to the file. A {@code 416 Range Not
+ * Satisfiable} response means the file is already complete. Any other successful
+ * response replaces the content of the file. Unsuccessful responses are triggered as-is
+ * without touching the file.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.27
+ */
+public class Download implements Callback {
+	/**
+	 * The size of the direct buffer of a download.
+	 *
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	public static final int BUFFER = 64 * 1024;
+	/**
+	 * The minimum interval between two progress triggers in nanoseconds.
+	 *
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	public static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(16);
+
+	/**
+	 * The channel to write the body to.
+	 *
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	@NotNull
+	protected final FileChannel channel;
+	/**
+	 * The client to trigger the progress and the result to.
+	 *
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	@NotNull
+	protected final Client<?> client;
+	/**
+	 * The number of bytes already in the file when the download was requested.
+	 *
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	protected final long offset;
+
+	/**
+	 * Construct a new download callback.
+	 *
+	 * @param client  the client to trigger the progress and the result to.
+	 * @param channel the channel to write the body to.
+	 * @param offset  the number of bytes already in the file. (the start of the range
+	 *                requested)
+	 * @throws NullPointerException     if the given {@code client} or {@code channel} is
+	 *                                  null.
+	 * @throws IllegalArgumentException if the given {@code offset} is negative.
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	public Download(@NotNull Client<?> client, @NotNull FileChannel channel, long offset) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(channel, "channel");
+		if (offset < 0)
+			throw new IllegalArgumentException("offset < 0");
+		this.client = client;
+		this.channel = channel;
+		this.offset = offset;
+	}
+
+	/**
+	 * Return a target that opens the given {@code file} for writing. The file will be
+	 * created if it does not exist.
+	 *
+	 * @param file the file to download to.
+	 * @return a target of the given {@code file}.
+	 * @throws NullPointerException if the given {@code file} is null.
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	@NotNull
+	public static Target file(@NotNull File file) {
+		Objects.requireNonNull(file, "file");
+		return () -> FileChannel.open(
+				file.toPath(),
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE
+		);
+	}
+
+	/**
+	 * Return a target that opens the given content {@code uri} for writing using the
+	 * content resolver of the given {@code context}.
+	 *
+	 * @param context the context to use its content resolver.
+	 * @param uri     the uri to download to.
+	 * @return a target of the given {@code uri}.
+	 * @throws NullPointerException if the given {@code context} or {@code uri} is null.
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	@NotNull
+	public static Target uri(@NotNull Context context, @NotNull Uri uri) {
+		Objects.requireNonNull(context, "context");
+		Objects.requireNonNull(uri, "uri");
+		Context application = AbstractXClient.application(context);
+		return () -> {
+			ParcelFileDescriptor descriptor = application.getContentResolver().openFileDescriptor(uri, "rw");
+
+			if (descriptor == null)
+				throw new FileNotFoundException(uri.toString());
+
+			return new ParcelFileDescriptor.AutoCloseOutputStream(descriptor).getChannel();
+		};
+	}
+
+	@Override
+	public void onFailure(@NotNull Call call, @NotNull IOException exception) {
+		try {
+			this.channel.close();
+		} catch (IOException e) {
+			exception.addSuppressed(e);
+		}
+
+		this.client.trigger(Client.DISCONNECTED, exception);
+	}
+
+	@Override
+	public void onResponse(@NotNull Call call, @NotNull okhttp3.Response response) {
+		Response<?> result;
+		try (FileChannel channel = this.channel; ResponseBody body = response.body()) {
+			int code = response.code();
+
+			if (code == 416 && this.offset > 0)
+				//already complete
+				result = Response.response(XTransport.head(response));
+			else if (!response.isSuccessful() || body == null)
+				result = XTransport.response(response);
+			else {
+				long position = code == 206 ? this.offset : 0;
+				long length = body.contentLength();
+
+				channel.truncate(position);
+				channel.position(position);
+				this.transfer(body.source(), channel, position, length < 0 ? -1 : position + length);
+				result = Response.response(XTransport.head(response));
+			}
+		} catch (IOException | RuntimeException e) {
+			this.client.trigger(Client.DISCONNECTED, e);
+			return;
+		}
+
+		this.client.trigger(Client.CONNECTED, result);
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "Download " + System.identityHashCode(this);
+	}
+
+	/**
+	 * Transfer the remaining bytes of the given {@code source} to the given {@code
+	 * channel} and trigger the progress to the client of this download.
+	 *
+	 * @param source   the source to read from.
+	 * @param channel  the channel to write to.
+	 * @param position the number of bytes already in the channel.
+	 * @param total    the total number of bytes expected. Or -1 if unknown.
+	 * @throws NullPointerException if the given {@code source} or {@code channel} is
+	 *                              null.
+	 * @throws IOException          if an I/O exception occurred.
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	protected void transfer(@NotNull BufferedSource source, @NotNull FileChannel channel, long position, long total) throws IOException {
+		Objects.requireNonNull(source, "source");
+		Objects.requireNonNull(channel, "channel");
+		ByteBuffer buffer = ByteBuffer.allocateDirect(Download.BUFFER);
+		long transferred = position;
+		long triggered = System.nanoTime();
+
+		while (source.read(buffer) != -1) {
+			buffer.flip();
+			while (buffer.hasRemaining())
+				transferred += channel.write(buffer);
+			buffer.clear();
+
+			long now = System.nanoTime();
+			if (now - triggered >= Download.INTERVAL) {
+				triggered = now;
+				this.client.trigger(XClient.PROGRESS, new Progress(transferred, total));
+			}
+		}
+
+		this.client.trigger(XClient.PROGRESS, new Progress(transferred, total));
+	}
+
+	/**
+	 * The destination of a download.
+	 *
+	 * @author LSafer
+	 * @version 0.1.1
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	@FunctionalInterface
+	public interface Target {
+		/**
+		 * Open a channel to write the downloaded body to. The size of the returned
+		 * channel is taken as the number of bytes already downloaded.
+		 *
+		 * @return a new writable file channel.
+		 * @throws IOException if an I/O exception occurred.
+		 * @since 0.1.1 ~2021.08.27
+		 */
+		@NotNull
+		FileChannel open() throws IOException;
+	}
+}
@@ -0,0 +1,326 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import android.os.Handler;
+import android.os.Message;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A queue of tasks to be drained in the thread of a handler using a single message per
+ * drain. Tasks are executed in the order they were posted. A drain will stop when its
+ * budget is exhausted and defer the remaining tasks to the next message.
+ * <br>
+ * There is at most one batch for each handler. Clients sharing a handler will share its
+ * batch.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.18
+ */
+public class HandlerBatch implements Runnable {
+	/**
+	 * The default time budget of a single drain in nanoseconds.
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	public static final long BUDGET = TimeUnit.MILLISECONDS.toNanos(4);
+
+	/**
+	 * The batches of each handler.
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@NotNull
+	protected static final Map<Handler, HandlerBatch> BATCHES = new WeakHashMap<>();
+
+	/**
+	 * The handler this batch is draining to.
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@NotNull
+	protected final WeakReference<Handler> handler;
+	/**
+	 * The pending tasks. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@NotNull
+	protected final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+
+	/**
+	 * The time budget of a single drain in nanoseconds.
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	protected volatile long budget = HandlerBatch.BUDGET;
+	/**
+	 * True, if any of the pending tasks requested an asynchronous message. (lock on
+	 * this)
+	 *
+	 * @since 0.1.1 ~2021.08.21
+	 */
+	protected boolean asynchronous;
+	/**
+	 * True, if a drain message is currently posted to the handler. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	protected boolean scheduled;
+
+	/**
+	 * Construct a new batch for the given {@code handler}.
+	 *
+	 * @param handler the handler to drain to.
+	 * @throws NullPointerException if the given {@code handler} is null.
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	protected HandlerBatch(@NotNull Handler handler) {
+		Objects.requireNonNull(handler, "handler");
+		this.handler = new WeakReference<>(handler);
+	}
+
+	/**
+	 * Return the batch of the given {@code handler}. A new batch will be created if the
+	 * handler has no batch yet.
+	 *
+	 * @param handler the handler to get its batch.
+	 * @return the batch of the given {@code handler}.
+	 * @throws NullPointerException if the given {@code handler} is null.
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@NotNull
+	public static HandlerBatch batch(@NotNull Handler handler) {
+		Objects.requireNonNull(handler, "handler");
+		synchronized (HandlerBatch.BATCHES) {
+			HandlerBatch batch = HandlerBatch.BATCHES.get(handler);
+
+			if (batch == null) {
+				batch = new HandlerBatch(handler);
+				HandlerBatch.BATCHES.put(handler, batch);
+			}
+
+			return batch;
+		}
+	}
+
+	/**
+	 * Drain the pending tasks until the queue is empty or the budget is exhausted. This
+	 * method is expected to be called by the handler only.
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@Override
+	public void run() {
+		long deadline = System.nanoTime() + this.budget;
+		boolean done = false;
+
+		try {
+			while (true) {
+				Runnable task;
+				synchronized (this) {
+					task = this.queue.poll();
+
+					if (task == null) {
+						this.scheduled = false;
+						this.asynchronous = false;
+						done = true;
+						return;
+					}
+				}
+
+				task.run();
+
+				if (System.nanoTime() - deadline >= 0)
+					return;
+			}
+		} finally {
+			if (!done)
+				this.reschedule();
+		}
+	}
+
+	/**
+	 * Get the time budget of a single drain.
+	 *
+	 * @param unit the unit of the returned value.
+	 * @return the budget of this batch in the given {@code unit}.
+	 * @throws NullPointerException if the given {@code unit} is null.
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@Contract(pure = true)
+	public long getBudget(@NotNull TimeUnit unit) {
+		Objects.requireNonNull(unit, "unit");
+		return unit.convert(this.budget, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Enqueue the given {@code task} to be executed in the next drain. A drain message
+	 * will be posted to the handler only if there is no drain message already posted.
+	 *
+	 * @param task the task to be enqueued.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code task} is null.
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	public HandlerBatch post(@NotNull Runnable task) {
+		return this.post(task, false);
+	}
+
+	/**
+	 * Enqueue the given {@code task} to be executed in the next drain. A drain message
+	 * will be posted to the handler only if there is no drain message already posted.
+	 * <br>
+	 * If {@code asynchronous} is true, the drain messages will be {@link
+	 * Message#setAsynchronous(boolean) asynchronous} until the task gets executed.
+	 *
+	 * @param task         the task to be enqueued.
+	 * @param asynchronous true, to drain the task with asynchronous messages.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code task} is null.
+	 * @since 0.1.1 ~2021.08.21
+	 */
+	@NotNull
+	@Contract(value = "_,_->this", mutates = "this")
+	public HandlerBatch post(@NotNull Runnable task, boolean asynchronous) {
+		Objects.requireNonNull(task, "task");
+		boolean schedule;
+		synchronized (this) {
+			this.queue.add(task);
+			this.asynchronous |= asynchronous;
+			schedule = !this.scheduled;
+			this.scheduled = true;
+		}
+
+		if (schedule)
+			this.schedule();
+
+		return this;
+	}
+
+	/**
+	 * Remove the pending tasks posted for the given {@code client}. Only the tasks known
+	 * to belong to a client ({@link HandlerTask}s and {@link ConflatingCallback}
+	 * deliveries) can be removed. The removed deliveries get {@link
+	 * ConflatingCallback.Slot#reset() reset}.
+	 *
+	 * @param client the client to remove its pending tasks.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code client} is null.
+	 * @since 0.1.1 ~2021.08.25
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	public HandlerBatch remove(@NotNull XClient<?> client) {
+		Objects.requireNonNull(client, "client");
+		synchronized (this) {
+			this.queue.removeIf(task -> {
+				if (task instanceof HandlerTask)
+					return ((HandlerTask) task).client == client;
+				if (task instanceof ConflatingCallback.Slot) {
+					ConflatingCallback<?, ?>.Slot slot = (ConflatingCallback<?, ?>.Slot) task;
+
+					if (slot.getClient() != client)
+						return false;
+
+					//the slot would never post again otherwise
+					slot.reset();
+					return true;
+				}
+
+				return false;
+			});
+		}
+
+		return this;
+	}
+
+	/**
+	 * Set the time budget of a single drain. A drain will always execute at least one
+	 * task regardless of its budget.
+	 *
+	 * @param budget the new budget.
+	 * @param unit   the unit of the given {@code budget}.
+	 * @return this.
+	 * @throws NullPointerException     if the given {@code unit} is null.
+	 * @throws IllegalArgumentException if the given {@code budget} is negative.
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@NotNull
+	@Contract(value = "_,_->this", mutates = "this")
+	public HandlerBatch setBudget(long budget, @NotNull TimeUnit unit) {
+		Objects.requireNonNull(unit, "unit");
+		if (budget < 0)
+			throw new IllegalArgumentException("budget < 0");
+		this.budget = unit.toNanos(budget);
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "HandlerBatch " + System.identityHashCode(this);
+	}
+
+	/**
+	 * Post a drain message if there is still pending tasks. Otherwise, mark this batch as
+	 * not scheduled.
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	protected void reschedule() {
+		synchronized (this) {
+			if (this.queue.isEmpty()) {
+				this.scheduled = false;
+				this.asynchronous = false;
+				return;
+			}
+		}
+
+		this.schedule();
+	}
+
+	/**
+	 * Post a drain message to the handler.
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	protected void schedule() {
+		Handler handler = this.handler.get();
+		boolean asynchronous;
+		synchronized (this) {
+			asynchronous = this.asynchronous;
+		}
+
+		if (handler != null) {
+			Message message = Message.obtain(handler, this);
+			message.setAsynchronous(asynchronous);
+			handler.sendMessage(message);
+		}
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.cufy.http.connect.Callback;
+import org.cufy.http.connect.Caller;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * A pooled task that invokes a callback with a parameter. Tasks are obtained from a
+ * global pool using {@link #obtain(XClient, Callback, Object, Object)} and get recycled
+ * back to the pool once executed. Thus, posting a steady stream of tasks allocates
+ * nothing after the pool warms up.
+ * <br>
+ * Exceptions thrown by the callback will be triggered as {@link Caller#EXCEPTION} on the
+ * client of the task.
+ * <br>
+ * The first task obtained after the result of a connection was triggered records the
+ * {@link Timing.Phase#ENQUEUE queueing} and the execution of its callback to the {@link
+ * XClient#getTimer() timer} of the connection and triggers {@link XClient#TIMING} once
+ * done.
+ * <br>
+ * A task must be executed at most once after being obtained.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.18
+ */
+public class HandlerTask implements Runnable {
+	/**
+	 * The maximum number of tasks to be kept in the pool.
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	public static final int POOL_MAX = 64;
+
+	/**
+	 * The pool lock.
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@NotNull
+	protected static final Object POOL_LOCK = new Object();
+
+	/**
+	 * The head of the pool. (lock on {@link #POOL_LOCK})
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@Nullable
+	protected static HandlerTask pool;
+	/**
+	 * The number of tasks in the pool. (lock on {@link #POOL_LOCK})
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	protected static int poolSize;
+
+	/**
+	 * The action (or the regex) the callback is listening to. Or null if the callback is
+	 * not to be watched.
+	 *
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	@Nullable
+	protected String action;
+	/**
+	 * The callback to be invoked.
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@Nullable
+	protected Callback callback;
+	/**
+	 * The caller to be passed to the callback.
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@Nullable
+	protected Object caller;
+	/**
+	 * The client to trigger the exceptions to.
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@Nullable
+	protected XClient<?> client;
+	/**
+	 * The next task in the pool. (lock on {@link #POOL_LOCK})
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@Nullable
+	protected HandlerTask next;
+	/**
+	 * The parameter to be passed to the callback.
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@Nullable
+	protected Object parameter;
+	/**
+	 * The timer of the connection which result is delivered by this task. Or null if
+	 * this task is not delivering a result.
+	 *
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@Nullable
+	protected Timer timer;
+
+	/**
+	 * Construct a new empty task. Use {@link #obtain(XClient, Callback, Object, Object)}
+	 * instead.
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	protected HandlerTask() {
+	}
+
+	/**
+	 * Obtain a task from the pool (or create a new one if the pool is empty) that invokes
+	 * the given {@code callback} with the given {@code caller} and {@code parameter}.
+	 *
+	 * @param client    the client to trigger the exceptions to.
+	 * @param callback  the callback to be invoked.
+	 * @param caller    the caller to be passed to the callback.
+	 * @param parameter the parameter to be passed to the callback.
+	 * @param <C>       the type of the caller.
+	 * @param <T>       the type of the parameter.
+	 * @return a task that invokes the given {@code callback}.
+	 * @throws NullPointerException if the given {@code client} or {@code callback} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@NotNull
+	public static <C, T> HandlerTask obtain(@NotNull XClient<?> client, @NotNull Callback<C, T> callback, @Nullable C caller, @Nullable T parameter) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(callback, "callback");
+		HandlerTask task;
+		synchronized (HandlerTask.POOL_LOCK) {
+			task = HandlerTask.pool;
+
+			if (task != null) {
+				HandlerTask.pool = task.next;
+				HandlerTask.poolSize--;
+				task.next = null;
+			}
+		}
+
+		if (task == null)
+			task = new HandlerTask();
+
+		task.client = client;
+		task.callback = callback;
+		task.caller = caller;
+		task.parameter = parameter;
+
+		Timer timer = client.getTimer();
+		if (timer != null && timer.isMarked(Timing.Phase.TRIGGER) && timer.mark(Timing.Phase.ENQUEUE))
+			task.timer = timer;
+
+		return task;
+	}
+
+	@Override
+	public void run() {
+		XClient<?> client = this.client;
+		Callback callback = this.callback;
+		Object caller = this.caller;
+		Object parameter = this.parameter;
+		Timer timer = this.timer;
+		String action = this.action;
+
+		this.recycle();
+
+		if (client == null || callback == null)
+			//already executed
+			return;
+
+		//reports are not watched, a slow report would report itself
+		Watchdog watchdog = action == null || parameter instanceof Jank ? null : client.getWatchdog();
+		long start = watchdog == null ? 0 : System.nanoTime();
+
+		if (timer != null)
+			timer.mark(Timing.Phase.CALLBACK_START);
+
+		try {
+			//noinspection unchecked
+			callback.call(caller, parameter);
+		} catch (Throwable throwable) {
+			client.trigger(Caller.EXCEPTION, throwable);
+		}
+
+		if (watchdog != null)
+			watchdog.check(client, callback, action, System.nanoTime() - start);
+
+		if (timer != null) {
+			timer.mark(Timing.Phase.CALLBACK_END);
+			Timing timing = timer.publish();
+
+			if (timing != null)
+				client.trigger(XClient.TIMING, timing);
+		}
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "HandlerTask " + System.identityHashCode(this);
+	}
+
+	/**
+	 * Let the {@link XClient#getWatchdog() watchdog} of the client of this task time the
+	 * execution of the callback of this task.
+	 *
+	 * @param action the action (or the regex) the callback is listening to.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code action} is null.
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	public HandlerTask watch(@NotNull String action) {
+		Objects.requireNonNull(action, "action");
+		this.action = action;
+		return this;
+	}
+
+	/**
+	 * Clear this task and return it to the pool.
+	 *
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	protected void recycle() {
+		this.client = null;
+		this.action = null;
+		this.callback = null;
+		this.caller = null;
+		this.parameter = null;
+		this.timer = null;
+
+		synchronized (HandlerTask.POOL_LOCK) {
+			if (HandlerTask.poolSize < HandlerTask.POOL_MAX) {
+				this.next = HandlerTask.pool;
+				HandlerTask.pool = this;
+				HandlerTask.poolSize++;
+			}
+		}
+	}
+}
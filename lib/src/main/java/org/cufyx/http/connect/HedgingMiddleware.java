@@ -0,0 +1,561 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import android.content.Context;
+
+import org.cufy.http.connect.Client;
+import org.cufy.http.middleware.Middleware;
+import org.cufy.http.request.Request;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+
+/**
+ * A middleware that cuts the tail latency of idempotent requests. If an idempotent
+ * request takes longer than the {@link #PERCENTILE observed percentile} of the latency
+ * of its host, a second (hedge) request gets sent. The first response wins and the
+ * loser gets cancelled.
+ * <br>
+ * Failed idempotent requests (and the ones responded with {@code 408}, {@code 429} or
+ * {@code 5xx}) are retried with a jittered exponential backoff. Retries and hedges are
+ * limited by a retry budget that is refilled by a fraction of the requests. Thus, they
+ * cannot amplify an outage.
+ * <br>
+ * Exactly one {@link Client#CONNECTED} or {@link Client#DISCONNECTED} is triggered on
+ * the connected client regardless of the number of attempts.
+ * <br>
+ * The requests using the methods {@code GET}, {@code HEAD}, {@code OPTIONS}, {@code
+ * PUT}, {@code DELETE} and {@code TRACE} or having an {@link OfflineQueue#IDEMPOTENCY_KEY
+ * idempotency key} are considered idempotent. Other requests are passed through.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.09.03
+ */
+public class HedgingMiddleware extends TransportMiddleware {
+	/**
+	 * The base delay of the backoff of the retries in nanoseconds.
+	 *
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	public static final long BACKOFF = TimeUnit.MILLISECONDS.toNanos(100);
+	/**
+	 * The maximum delay of the backoff of the retries in nanoseconds.
+	 *
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	public static final long BACKOFF_MAX = TimeUnit.SECONDS.toNanos(5);
+	/**
+	 * The maximum number of tokens in the retry budget.
+	 *
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	public static final double BUDGET = 20;
+	/**
+	 * The fraction of a token each request adds to the retry budget.
+	 *
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	public static final double BUDGET_RATIO = 0.2;
+	/**
+	 * The percentile of the latency of a host to hedge the requests exceeding it.
+	 *
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	public static final double PERCENTILE = 95;
+	/**
+	 * The maximum number of retries of a single request.
+	 *
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	public static final int RETRIES = 3;
+	/**
+	 * The number of the latest latencies of each host to derive the hedging delay from.
+	 *
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	public static final int SAMPLES = 64;
+
+	/**
+	 * The minimum number of latencies of a host before its requests get hedged.
+	 *
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	protected static final int MIN_SAMPLES = 16;
+	/**
+	 * The scheduler of the hedges and the retries.
+	 *
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	@NotNull
+	protected static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "XClient-Hedging");
+		thread.setDaemon(true);
+		return thread;
+	});
+	/**
+	 * The shared middleware of each application context.
+	 *
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	@NotNull
+	protected static final Map<Context, HedgingMiddleware> MIDDLEWARES = new WeakHashMap<>();
+
+	/**
+	 * The latest latencies of each host. (lock on itself)
+	 *
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	@NotNull
+	protected final Map<String, Latencies> latencies = new HashMap<>();
+
+	/**
+	 * The tokens in the retry budget. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	protected double budget = HedgingMiddleware.BUDGET;
+
+	/**
+	 * Construct a new hedging middleware with its own retry budget and latencies.
+	 *
+	 * @param transport the transport performing the actual connections.
+	 * @throws NullPointerException if the given {@code transport} is null.
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	public HedgingMiddleware(@NotNull Middleware<? super Client<?>> transport) {
+		super(transport);
+	}
+
+	/**
+	 * Return the shared hedging middleware of the application of the given {@code
+	 * context}. It connects through the {@link XTransport#transport(Context) transport}
+	 * of the application and its retry budget is global to the application.
+	 *
+	 * @param context the context to get the middleware of its application.
+	 * @return the hedging middleware of the application.
+	 * @throws NullPointerException if the given {@code context} is null.
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	@NotNull
+	public static HedgingMiddleware hedgingMiddleware(@NotNull Context context) {
+		Objects.requireNonNull(context, "context");
+		Context application = AbstractXClient.application(context);
+
+		synchronized (HedgingMiddleware.MIDDLEWARES) {
+			HedgingMiddleware middleware = HedgingMiddleware.MIDDLEWARES.get(application);
+
+			if (middleware == null) {
+				middleware = new HedgingMiddleware(XTransport.transport(application));
+				HedgingMiddleware.MIDDLEWARES.put(application, middleware);
+			}
+
+			return middleware;
+		}
+	}
+
+	/**
+	 * Return true if the given {@code request} can be sent more than once.
+	 *
+	 * @param request the request to be checked.
+	 * @return true, if the request is idempotent.
+	 * @throws NullPointerException if the given {@code request} is null.
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	@Contract(pure = true)
+	protected static boolean idempotent(@NotNull Request<?> request) {
+		Objects.requireNonNull(request, "request");
+		switch (String.valueOf(request.getMethod()).toUpperCase()) {
+			case "GET":
+			case "HEAD":
+			case "OPTIONS":
+			case "PUT":
+			case "DELETE":
+			case "TRACE":
+				return true;
+			default:
+				return TransportMiddleware.header(request.toString(), OfflineQueue.IDEMPOTENCY_KEY) != null;
+		}
+	}
+
+	/**
+	 * Get the delay after which the requests to the given {@code host} get hedged.
+	 *
+	 * @param host the host.
+	 * @param unit the unit of the returned delay.
+	 * @return the hedging delay. Or -1 if not enough latencies of the host were observed.
+	 * @throws NullPointerException if the given {@code host} or {@code unit} is null.
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	@Contract(pure = true)
+	public long getDelay(@NotNull String host, @NotNull TimeUnit unit) {
+		Objects.requireNonNull(host, "host");
+		Objects.requireNonNull(unit, "unit");
+		long delay;
+		synchronized (this.latencies) {
+			Latencies latencies = this.latencies.get(host);
+			delay = latencies == null ? -1 : latencies.percentile(HedgingMiddleware.PERCENTILE);
+		}
+
+		return delay < 0 ? -1 : unit.convert(delay, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Get the number of whole tokens in the retry budget of this middleware.
+	 *
+	 * @return the number of retries and hedges this middleware can currently afford.
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	@Contract(pure = true)
+	public synchronized int getBudget() {
+		return (int) this.budget;
+	}
+
+	@Override
+	protected void connect(@NotNull Client<?> client, @NotNull Request<?> request) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(request, "request");
+
+		if (!HedgingMiddleware.idempotent(request)) {
+			this.exchange(client, request)
+				.on(Client.CONNECTED, (caller, response) -> client.trigger(Client.CONNECTED, response))
+				.on(Client.DISCONNECTED, (caller, throwable) -> client.trigger(Client.DISCONNECTED, throwable))
+				.connect();
+			return;
+		}
+
+		synchronized (this) {
+			this.budget = Math.min(HedgingMiddleware.BUDGET, this.budget + HedgingMiddleware.BUDGET_RATIO);
+		}
+
+		Flight flight = new Flight(client, request);
+		flight.attempt();
+
+		long delay = this.getDelay(flight.host, TimeUnit.NANOSECONDS);
+		if (delay >= 0)
+			HedgingMiddleware.SCHEDULER.schedule(flight::hedge, delay, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Record the given {@code latency} of a successful request to the given {@code
+	 * host}.
+	 *
+	 * @param host    the host.
+	 * @param latency the latency in nanoseconds.
+	 * @throws NullPointerException if the given {@code host} is null.
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	protected void record(@NotNull String host, long latency) {
+		Objects.requireNonNull(host, "host");
+		synchronized (this.latencies) {
+			Latencies latencies = this.latencies.get(host);
+
+			if (latencies == null) {
+				latencies = new Latencies();
+				this.latencies.put(host, latencies);
+			}
+
+			latencies.add(latency);
+		}
+	}
+
+	/**
+	 * Take a token from the retry budget.
+	 *
+	 * @return true, if a token was taken. False, if the budget is exhausted.
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	protected synchronized boolean withdraw() {
+		if (this.budget < 1)
+			return false;
+
+		this.budget--;
+		return true;
+	}
+
+	/**
+	 * The attempts of a single connection of a client.
+	 *
+	 * @author LSafer
+	 * @version 0.1.1
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	protected class Flight {
+		/**
+		 * The client to trigger the result to.
+		 *
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		@NotNull
+		protected final Client<?> client;
+		/**
+		 * The exchanges in flight. (lock on this)
+		 *
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		@NotNull
+		protected final List<Client<?>> exchanges = new ArrayList<>();
+		/**
+		 * The host of the request.
+		 *
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		@NotNull
+		protected final String host;
+		/**
+		 * The request to be connected.
+		 *
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		@NotNull
+		protected final Request<?> request;
+
+		/**
+		 * True, if the result has been triggered. (lock on this)
+		 *
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		protected boolean done;
+		/**
+		 * True, if this flight has been hedged. (lock on this)
+		 *
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		protected boolean hedged;
+		/**
+		 * The number of the attempts in flight or scheduled. (lock on this)
+		 *
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		protected int pending = 1;
+		/**
+		 * The number of the retries so far. (lock on this)
+		 *
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		protected int retries;
+
+		/**
+		 * Construct a new flight.
+		 *
+		 * @param client  the client to trigger the result to.
+		 * @param request the request to be connected.
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		protected Flight(@NotNull Client<?> client, @NotNull Request<?> request) {
+			this.client = client;
+			this.request = request;
+			HttpUrl url = HttpUrl.parse(String.valueOf(request.getUri()));
+			this.host = url == null ? "" : url.host();
+		}
+
+		/**
+		 * Send an attempt of the request. The attempt must be counted as pending
+		 * already.
+		 *
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		protected void attempt() {
+			if (TransportMiddleware.cancelled(this.client)) {
+				//cancelled while the attempt was scheduled
+				synchronized (this) {
+					this.done = true;
+				}
+				return;
+			}
+
+			Client<?> exchange = HedgingMiddleware.this.exchange(this.client, this.request);
+			long start = System.nanoTime();
+			synchronized (this) {
+				if (this.done)
+					return;
+
+				this.exchanges.add(exchange);
+			}
+
+			exchange.on(Client.CONNECTED, (caller, response) -> {
+						int status = TransportMiddleware.status(response.toString());
+
+						if (status == 408 || status == 429 || status >= 500) {
+							if (this.retry(exchange))
+								return;
+						} else
+							HedgingMiddleware.this.record(this.host, System.nanoTime() - start);
+
+						if (this.finish(exchange))
+							this.client.trigger(Client.CONNECTED, response);
+					})
+					.on(Client.DISCONNECTED, (caller, throwable) -> {
+						if (!this.retry(exchange) && this.finish(exchange))
+							this.client.trigger(Client.DISCONNECTED, throwable);
+					})
+					.connect();
+		}
+
+		/**
+		 * Let the given {@code exchange} win this flight unless another exchange won it
+		 * already. The other exchanges get cancelled.
+		 *
+		 * @param exchange the exchange that produced a result.
+		 * @return true, if the result of the exchange is to be triggered to the client.
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		protected boolean finish(@NotNull Client<?> exchange) {
+			List<Client<?>> losers;
+			synchronized (this) {
+				if (this.done)
+					return false;
+
+				this.done = true;
+				losers = new ArrayList<>(this.exchanges);
+				losers.remove(exchange);
+				this.exchanges.clear();
+			}
+
+			if (HedgingMiddleware.this.transport instanceof XTransport)
+				for (Client<?> loser : losers)
+					((XTransport) HedgingMiddleware.this.transport).cancel(loser);
+
+			return true;
+		}
+
+		/**
+		 * Send a hedge attempt if the request is still in flight, its client has not
+		 * been cancelled and the budget allows it.
+		 *
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		protected void hedge() {
+			if (TransportMiddleware.cancelled(this.client))
+				return;
+
+			synchronized (this) {
+				if (this.done || this.hedged || !HedgingMiddleware.this.withdraw())
+					return;
+
+				this.hedged = true;
+				this.pending++;
+			}
+
+			this.attempt();
+		}
+
+		/**
+		 * Handle the failure of the given {@code exchange}. If another attempt is
+		 * pending, the failure is ignored. Otherwise, a retry gets scheduled if allowed.
+		 * The failures caused by cancelling the client are final and silent.
+		 *
+		 * @param exchange the failed exchange.
+		 * @return true, if the failure is handled. False, if it is final.
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		protected boolean retry(@NotNull Client<?> exchange) {
+			long delay;
+			synchronized (this) {
+				if (this.done)
+					return true;
+				if (TransportMiddleware.cancelled(this.client)) {
+					//the client dropped the result already
+					this.done = true;
+					return true;
+				}
+
+				this.exchanges.remove(exchange);
+
+				if (--this.pending > 0)
+					//the other attempt may still succeed
+					return true;
+				if (this.retries >= HedgingMiddleware.RETRIES || !HedgingMiddleware.this.withdraw())
+					return false;
+
+				this.retries++;
+				this.pending++;
+				//full jitter
+				long ceiling = Math.min(HedgingMiddleware.BACKOFF_MAX, HedgingMiddleware.BACKOFF << this.retries);
+				delay = ThreadLocalRandom.current().nextLong(ceiling);
+			}
+
+			HedgingMiddleware.SCHEDULER.schedule(this::attempt, delay, TimeUnit.NANOSECONDS);
+			return true;
+		}
+	}
+
+	/**
+	 * A ring of the latest latencies of a host.
+	 *
+	 * @author LSafer
+	 * @version 0.1.1
+	 * @since 0.1.1 ~2021.09.03
+	 */
+	protected static class Latencies {
+		/**
+		 * The latencies in nanoseconds.
+		 *
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		protected final long[] values = new long[HedgingMiddleware.SAMPLES];
+
+		/**
+		 * The number of latencies added so far.
+		 *
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		protected long count;
+
+		/**
+		 * Add the given {@code latency} replacing the oldest one.
+		 *
+		 * @param latency the latency in nanoseconds.
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		protected void add(long latency) {
+			this.values[(int) (this.count++ % this.values.length)] = latency;
+		}
+
+		/**
+		 * Return the given {@code percentile} of the latencies.
+		 *
+		 * @param percentile the percentile.
+		 * @return the latency at the percentile. Or -1 if there are not enough latencies.
+		 * @since 0.1.1 ~2021.09.03
+		 */
+		@Contract(pure = true)
+		protected long percentile(double percentile) {
+			int size = (int) Math.min(this.count, this.values.length);
+
+			if (size < HedgingMiddleware.MIN_SAMPLES)
+				return -1;
+
+			long[] sorted = Arrays.copyOf(this.values, size);
+			Arrays.sort(sorted);
+			return sorted[Math.max(0, (int) Math.ceil(percentile / 100 * size) - 1)];
+		}
+	}
+}
@@ -0,0 +1,616 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import org.cufy.http.connect.Client;
+import org.cufy.http.middleware.Middleware;
+import org.cufy.http.request.Request;
+import org.cufy.http.response.Response;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+
+/**
+ * A loader decoding images straight from the body of their responses into bitmaps. The
+ * decoding happens on the threads of the transport and is downsampled (using {@link
+ * BitmapFactory.Options#inSampleSize}) to the smallest power of two keeping the bitmap
+ * at least as large as the requested size. Thus, a full-size bitmap is never allocated
+ * for a thumbnail.
+ * <br>
+ * Decoded bitmaps are kept in a {@link BitmapCache} by the uri of their request and
+ * their requested size. Loading a cached bitmap does not connect. Loading a bitmap that
+ * is already being loaded attaches to the running load instead of connecting again.
+ * <br>
+ * Decodings reuse the bitmaps of a {@link BitmapPool} when possible. The pool is only
+ * filled by {@link #recycle(Bitmap)} since the loader cannot know when a bitmap is no
+ * longer displayed.
+ * <pre>
+ *     XClient.client(context)
+ *            .request(r -> r.setUri(uri))
+ *            .onh(XClient.IMAGE, (c, bitmap) -> view.setImageBitmap(bitmap))
+ *            .image(width, height);
+ * </pre>
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.09.05
+ */
+public class ImageLoader {
+	/**
+	 * The fraction of the maximum heap size used by the cache of a shared loader.
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	public static final int CACHE_FRACTION = 8;
+	/**
+	 * The fraction of the maximum heap size used by the pool of a shared loader.
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	public static final int POOL_FRACTION = 16;
+
+	/**
+	 * The shared loaders of each application context.
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	protected static final Map<Context, ImageLoader> LOADERS = new WeakHashMap<>();
+
+	/**
+	 * The cache of the decoded bitmaps.
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	protected final BitmapCache cache;
+	/**
+	 * The running loads by their keys. (lock on itself)
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	protected final Map<String, Load> loads = new HashMap<>();
+	/**
+	 * The pool of the bitmaps to decode into.
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	protected final BitmapPool pool;
+
+	/**
+	 * Construct a new loader.
+	 *
+	 * @param cache the cache of the decoded bitmaps.
+	 * @param pool  the pool of the bitmaps to decode into.
+	 * @throws NullPointerException if the given {@code cache} or {@code pool} is null.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	public ImageLoader(@NotNull BitmapCache cache, @NotNull BitmapPool pool) {
+		Objects.requireNonNull(cache, "cache");
+		Objects.requireNonNull(pool, "pool");
+		this.cache = cache;
+		this.pool = pool;
+	}
+
+	/**
+	 * Return the shared loader of the application of the given {@code context}. Its
+	 * cache and pool are bounded by {@link #CACHE_FRACTION} and {@link #POOL_FRACTION}
+	 * of the maximum heap size.
+	 *
+	 * @param context the context to get the loader of its application.
+	 * @return the image loader of the application.
+	 * @throws NullPointerException if the given {@code context} is null.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	public static ImageLoader imageLoader(@NotNull Context context) {
+		Objects.requireNonNull(context, "context");
+		Context application = AbstractXClient.application(context);
+
+		synchronized (ImageLoader.LOADERS) {
+			ImageLoader loader = ImageLoader.LOADERS.get(application);
+
+			if (loader == null) {
+				long heap = Runtime.getRuntime().maxMemory();
+				loader = new ImageLoader(
+						new BitmapCache(heap / ImageLoader.CACHE_FRACTION),
+						new BitmapPool(heap / ImageLoader.POOL_FRACTION)
+				);
+				ImageLoader.LOADERS.put(application, loader);
+			}
+
+			return loader;
+		}
+	}
+
+	/**
+	 * Return the key of the bitmap of the given {@code request} at the given size.
+	 *
+	 * @param request the request of the image.
+	 * @param width   the requested width.
+	 * @param height  the requested height.
+	 * @return the cache key of the bitmap.
+	 * @throws NullPointerException if the given {@code request} is null.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	@Contract(pure = true)
+	protected static String key(@NotNull Request<?> request, int width, int height) {
+		Objects.requireNonNull(request, "request");
+		return request.getUri() + " " + width + "x" + height;
+	}
+
+	/**
+	 * Return the largest power of two that can be used to downsample an image with the
+	 * given size while keeping it at least as large as the given requested size.
+	 *
+	 * @param width        the width of the image.
+	 * @param height       the height of the image.
+	 * @param targetWidth  the requested width. (zero for any width)
+	 * @param targetHeight the requested height. (zero for any height)
+	 * @return the sample size.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@Contract(pure = true)
+	protected static int sample(int width, int height, int targetWidth, int targetHeight) {
+		if (targetWidth <= 0 && targetHeight <= 0)
+			return 1;
+
+		int sample = 1;
+		while (width / (sample * 2) >= targetWidth && height / (sample * 2) >= targetHeight)
+			sample *= 2;
+
+		return sample;
+	}
+
+	/**
+	 * Get the cache of the decoded bitmaps of this loader.
+	 *
+	 * @return the cache of this loader.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public BitmapCache getCache() {
+		return this.cache;
+	}
+
+	/**
+	 * Get the number of the loads currently running.
+	 *
+	 * @return the number of the running loads.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	public int getLoadCount() {
+		synchronized (this.loads) {
+			return this.loads.size();
+		}
+	}
+
+	/**
+	 * Get the pool of the bitmaps to decode into of this loader.
+	 *
+	 * @return the pool of this loader.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public BitmapPool getPool() {
+		return this.pool;
+	}
+
+	/**
+	 * Load the image of the given {@code request} using the given {@code transport}
+	 * downsampled to the given size.
+	 * <br>
+	 * {@link XClient#IMAGE} is triggered on the given {@code client} with the bitmap. If
+	 * the bitmap was not cached, {@link Client#CONNECTED} is triggered after it with the
+	 * response (without its body). Unsuccessful responses are triggered as-is without
+	 * {@link XClient#IMAGE}. Failures (including undecodable images) are triggered as
+	 * {@link Client#DISCONNECTED}.
+	 *
+	 * @param transport the transport to connect with.
+	 * @param client    the client to trigger the result to.
+	 * @param request   the request of the image.
+	 * @param width     the requested width. (zero for the original width)
+	 * @param height    the requested height. (zero for the original height)
+	 * @throws NullPointerException     if the given {@code transport} or {@code client}
+	 *                                  or {@code request} is null.
+	 * @throws IllegalArgumentException if the given {@code width} or {@code height} is
+	 *                                  negative.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	public void load(@NotNull XTransport transport, @NotNull Client<?> client, @NotNull Request<?> request, int width, int height) {
+		Objects.requireNonNull(transport, "transport");
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(request, "request");
+		if (width < 0)
+			throw new IllegalArgumentException("width < 0");
+		if (height < 0)
+			throw new IllegalArgumentException("height < 0");
+		Load load = this.attach(client, request, width, height);
+
+		if (load == null)
+			return;
+
+		okhttp3.Request okRequest;
+		try {
+			okRequest = XTransport.request(request)
+								  .newBuilder()
+								  .tag(Client.class, client)
+								  .tag(Timer.class, XTransport.timer(client))
+								  .build();
+		} catch (RuntimeException e) {
+			for (Client<?> c : load.finish())
+				c.trigger(Client.DISCONNECTED, e);
+			return;
+		}
+
+		transport.queue.enqueue(
+				XTransport.priority(client),
+				transport.call(client, okRequest),
+				load
+		);
+	}
+
+	/**
+	 * Load the image of the given {@code request} by connecting it through the given
+	 * {@code transport} (one that is not an {@link XTransport}) and decoding the body of
+	 * the response downsampled to the given size. The body arrives as text. Thus, it is
+	 * decoded back to bytes using {@code ISO-8859-1} (the only lossless text form of
+	 * bytes) and the image survives only if the transport did the same. The decoding
+	 * happens using the {@link XClient#getExecutor() executor} of the client.
+	 * <br>
+	 * The results are triggered the same way as {@link #load(XTransport, Client,
+	 * Request, int, int)}.
+	 *
+	 * @param transport the transport to connect with.
+	 * @param client    the client to trigger the result to.
+	 * @param request   the request of the image.
+	 * @param width     the requested width. (zero for the original width)
+	 * @param height    the requested height. (zero for the original height)
+	 * @throws NullPointerException     if the given {@code transport} or {@code client}
+	 *                                  or {@code request} is null.
+	 * @throws IllegalArgumentException if the given {@code width} or {@code height} is
+	 *                                  negative.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public void load(@NotNull Middleware<? super Client<?>> transport, @NotNull Client<?> client, @NotNull Request<?> request, int width, int height) {
+		Objects.requireNonNull(transport, "transport");
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(request, "request");
+		if (width < 0)
+			throw new IllegalArgumentException("width < 0");
+		if (height < 0)
+			throw new IllegalArgumentException("height < 0");
+		Load load = this.attach(client, request, width, height);
+
+		if (load == null)
+			return;
+
+		Executor executor = client instanceof XClient ?
+							((XClient<?>) client).getExecutor() :
+							AbstractXClient.EXECUTOR;
+		Client<?> exchange = Client.client(request);
+		exchange.middleware(transport);
+		exchange.on(Client.CONNECTED, (caller, response) ->
+						//decoding is kept off the thread of the transport
+						executor.execute(() -> load.onResponse(response))
+				)
+				.on(Client.DISCONNECTED, (caller, throwable) -> {
+					for (Client<?> c : load.finish())
+						c.trigger(Client.DISCONNECTED, throwable);
+				})
+				.connect();
+	}
+
+	/**
+	 * Give the given {@code bitmap} back to this loader to be decoded into by later
+	 * loads. The bitmap gets removed from the cache and must not be used after this.
+	 *
+	 * @param bitmap the bitmap no longer in use.
+	 * @throws NullPointerException if the given {@code bitmap} is null.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	public void recycle(@NotNull Bitmap bitmap) {
+		Objects.requireNonNull(bitmap, "bitmap");
+		this.cache.remove(bitmap);
+		this.pool.put(bitmap);
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "ImageLoader " + System.identityHashCode(this);
+	}
+
+	/**
+	 * Attach the given {@code client} to the load of the image of the given {@code
+	 * request} of the given size. If the bitmap is cached, {@link XClient#IMAGE} is
+	 * triggered on the client with it. If the bitmap is already being loaded, the client
+	 * waits for the running load.
+	 *
+	 * @param client  the client to trigger the result to.
+	 * @param request the request of the image.
+	 * @param width   the requested width. (zero for the original width)
+	 * @param height  the requested height. (zero for the original height)
+	 * @return a new load to be connected by the caller. Or null if there is nothing to
+	 * 		connect.
+	 * @throws NullPointerException if the given {@code client} or {@code request} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@Nullable
+	protected Load attach(@NotNull Client<?> client, @NotNull Request<?> request, int width, int height) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(request, "request");
+		String key = ImageLoader.key(request, width, height);
+		Bitmap bitmap;
+		Load load;
+
+		synchronized (this.loads) {
+			load = this.loads.get(key);
+
+			if (load != null) {
+				load.clients.add(client);
+				return null;
+			}
+
+			//checked while locked to not miss a load finishing right now
+			bitmap = this.cache.get(key);
+
+			if (bitmap == null) {
+				load = new Load(key, width, height);
+				load.clients.add(client);
+				this.loads.put(key, load);
+			}
+		}
+
+		if (bitmap != null) {
+			client.trigger(XClient.IMAGE, bitmap);
+			return null;
+		}
+
+		return load;
+	}
+
+	/**
+	 * Decode the image in the given {@code source} downsampled to the given size.
+	 *
+	 * @param source the source of the encoded image.
+	 * @param width  the requested width. (zero for the original width)
+	 * @param height the requested height. (zero for the original height)
+	 * @return the decoded bitmap. Or null if the image cannot be decoded.
+	 * @throws NullPointerException if the given {@code source} is null.
+	 * @throws IOException          if an I/O exception occurred.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@Nullable
+	protected Bitmap decode(@NotNull BufferedSource source, int width, int height) throws IOException {
+		Objects.requireNonNull(source, "source");
+		BitmapFactory.Options options = new BitmapFactory.Options();
+
+		//peeking keeps the bytes read in the buffer of the source to be read again
+		options.inJustDecodeBounds = true;
+		BitmapFactory.decodeStream(source.peek().inputStream(), null, options);
+
+		if (options.outWidth <= 0 || options.outHeight <= 0)
+			return null;
+
+		int sample = ImageLoader.sample(options.outWidth, options.outHeight, width, height);
+		long size = 4L * ((options.outWidth + sample - 1) / sample) * ((options.outHeight + sample - 1) / sample);
+		options.inJustDecodeBounds = false;
+		options.inSampleSize = sample;
+		options.inMutable = true;
+		options.inBitmap = size > Integer.MAX_VALUE ? null : this.pool.get((int) size);
+
+		if (options.inBitmap != null) {
+			try {
+				Bitmap bitmap = BitmapFactory.decodeStream(source.peek().inputStream(), null, options);
+
+				if (bitmap != null)
+					return bitmap;
+			} catch (IllegalArgumentException ignored) {
+				//the pooled bitmap cannot be decoded into
+			}
+
+			this.pool.put(options.inBitmap);
+			options.inBitmap = null;
+		}
+
+		return BitmapFactory.decodeStream(source.inputStream(), null, options);
+	}
+
+	/**
+	 * A running load of a bitmap and the clients waiting for it.
+	 *
+	 * @author LSafer
+	 * @version 0.1.1
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	protected class Load implements Callback {
+		/**
+		 * The clients waiting for the bitmap. (lock on the loads of the loader)
+		 *
+		 * @since 0.1.1 ~2021.09.05
+		 */
+		@NotNull
+		protected final List<Client<?>> clients = new ArrayList<>();
+		/**
+		 * The requested height.
+		 *
+		 * @since 0.1.1 ~2021.09.05
+		 */
+		protected final int height;
+		/**
+		 * The key of the bitmap.
+		 *
+		 * @since 0.1.1 ~2021.09.05
+		 */
+		@NotNull
+		protected final String key;
+		/**
+		 * The requested width.
+		 *
+		 * @since 0.1.1 ~2021.09.05
+		 */
+		protected final int width;
+
+		/**
+		 * Construct a new load.
+		 *
+		 * @param key    the key of the bitmap.
+		 * @param width  the requested width.
+		 * @param height the requested height.
+		 * @throws NullPointerException if the given {@code key} is null.
+		 * @since 0.1.1 ~2021.09.05
+		 */
+		public Load(@NotNull String key, int width, int height) {
+			Objects.requireNonNull(key, "key");
+			this.key = key;
+			this.width = width;
+			this.height = height;
+		}
+
+		@Override
+		public void onFailure(@NotNull Call call, @NotNull IOException exception) {
+			for (Client<?> client : this.finish())
+				client.trigger(Client.DISCONNECTED, exception);
+		}
+
+		@Override
+		public void onResponse(@NotNull Call call, @NotNull okhttp3.Response response) {
+			Bitmap bitmap = null;
+			Response<?> result;
+			try (ResponseBody body = response.body()) {
+				if (!response.isSuccessful() || body == null)
+					result = XTransport.response(response);
+				else {
+					bitmap = ImageLoader.this.decode(body.source(), this.width, this.height);
+
+					if (bitmap == null)
+						throw new IOException("Undecodable image");
+
+					result = Response.response(XTransport.head(response));
+					ImageLoader.this.cache.put(this.key, bitmap);
+				}
+			} catch (IOException | RuntimeException e) {
+				for (Client<?> client : this.finish())
+					client.trigger(Client.DISCONNECTED, e);
+				return;
+			}
+
+			this.deliver(bitmap, result);
+		}
+
+		/**
+		 * Decode the body of the given {@code response} received through a transport
+		 * other than {@link XTransport}. Then, deliver the bitmap to the waiting clients.
+		 *
+		 * @param response the response of the image.
+		 * @throws NullPointerException if the given {@code response} is null.
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		public void onResponse(@NotNull Response<?> response) {
+			Objects.requireNonNull(response, "response");
+			String message = response.toString();
+			int status = TransportMiddleware.status(message);
+			Bitmap bitmap = null;
+			Response<?> result = response;
+
+			if (status >= 200 && status < 300)
+				try {
+					byte[] bytes = String.valueOf(response.getBody()).getBytes(StandardCharsets.ISO_8859_1);
+					bitmap = ImageLoader.this.decode(new Buffer().write(bytes), this.width, this.height);
+
+					if (bitmap == null)
+						throw new IOException("Undecodable image");
+
+					int end = message.indexOf("\r\n\r\n");
+					result = Response.response(end < 0 ? message : message.substring(0, end + 4));
+					ImageLoader.this.cache.put(this.key, bitmap);
+				} catch (IOException | RuntimeException e) {
+					for (Client<?> client : this.finish())
+						client.trigger(Client.DISCONNECTED, e);
+					return;
+				}
+
+			this.deliver(bitmap, result);
+		}
+
+		@NotNull
+		@Override
+		public String toString() {
+			return "Load " + this.key;
+		}
+
+		/**
+		 * Trigger the given {@code bitmap} (if any) then the given {@code result} on the
+		 * clients waiting for this load.
+		 *
+		 * @param bitmap the decoded bitmap. Or null if the response was unsuccessful.
+		 * @param result the response to be triggered after the bitmap.
+		 * @throws NullPointerException if the given {@code result} is null.
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		protected void deliver(@Nullable Bitmap bitmap, @NotNull Response<?> result) {
+			Objects.requireNonNull(result, "result");
+			for (Client<?> client : this.finish()) {
+				if (bitmap != null)
+					client.trigger(XClient.IMAGE, bitmap);
+
+				client.trigger(Client.CONNECTED, result);
+			}
+		}
+
+		/**
+		 * Remove this load from the running loads and return the clients waiting for
+		 * it. No more clients get attached to this load after this.
+		 *
+		 * @return the clients waiting for this load.
+		 * @since 0.1.1 ~2021.09.05
+		 */
+		@NotNull
+		protected List<Client<?>> finish() {
+			synchronized (ImageLoader.this.loads) {
+				ImageLoader.this.loads.remove(this.key);
+				return this.clients;
+			}
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.cufy.http.connect.Callback;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A report of a callback that exceeded the frame budget of the {@link Watchdog watchdog}
+ * of its client while running in the thread of the handler of the client.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.09.01
+ */
+public class Jank {
+	/**
+	 * The action (or the regex) the callback was listening to.
+	 *
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	@NotNull
+	protected final String action;
+	/**
+	 * The offending callback.
+	 *
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	@NotNull
+	protected final Callback<?, ?> callback;
+	/**
+	 * The duration of the execution of the callback in nanoseconds.
+	 *
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	protected final long duration;
+	/**
+	 * True, if the callback will be rerouted to the executor of its client.
+	 *
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	protected final boolean rerouted;
+
+	/**
+	 * Construct a new jank report.
+	 *
+	 * @param callback the offending callback.
+	 * @param action   the action (or the regex) the callback was listening to.
+	 * @param duration the duration of the execution of the callback in nanoseconds.
+	 * @param rerouted true, if the callback will be rerouted.
+	 * @throws NullPointerException if the given {@code callback} or {@code action} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	public Jank(@NotNull Callback<?, ?> callback, @NotNull String action, long duration, boolean rerouted) {
+		Objects.requireNonNull(callback, "callback");
+		Objects.requireNonNull(action, "action");
+		this.callback = callback;
+		this.action = action;
+		this.duration = duration;
+		this.rerouted = rerouted;
+	}
+
+	/**
+	 * Get the action (or the regex) the offending callback was listening to.
+	 *
+	 * @return the action of the callback.
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public String getAction() {
+		return this.action;
+	}
+
+	/**
+	 * Get the offending callback.
+	 *
+	 * @return the callback.
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public Callback<?, ?> getCallback() {
+		return this.callback;
+	}
+
+	/**
+	 * Get the duration of the execution of the callback.
+	 *
+	 * @param unit the unit of the returned duration.
+	 * @return the duration of the callback.
+	 * @throws NullPointerException if the given {@code unit} is null.
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	@Contract(pure = true)
+	public long getDuration(@NotNull TimeUnit unit) {
+		Objects.requireNonNull(unit, "unit");
+		return unit.convert(this.duration, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Return true if the callback will be performed using the executor of its client for
+	 * the subsequent occurrences.
+	 *
+	 * @return true, if the callback was rerouted.
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	@Contract(pure = true)
+	public boolean isRerouted() {
+		return this.rerouted;
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return this.callback + " on " + this.action + " took " + this.duration / 1000 + "us" +
+			   (this.rerouted ? " (rerouted)" : "");
+	}
+}
@@ -0,0 +1,642 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import android.content.Context;
+
+import org.cufy.http.connect.Client;
+import org.cufy.http.middleware.Middleware;
+import org.cufy.http.request.Request;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.HttpUrl;
+
+/**
+ * A middleware that limits the requests to each origin (scheme, host and port). Each
+ * origin has a token bucket limiting the rate of its requests and a limit of the
+ * concurrent requests to it. Requests exceeding the limits are queued, not failed.
+ * <br>
+ * When an origin responds with {@code 429 Too Many Requests} or {@code 503 Service
+ * Unavailable}, no more requests are sent to it until its {@code Retry-After} elapses.
+ * Without a {@code Retry-After}, an exponential backoff is used instead.
+ * <br>
+ * The limits are lock-free. Each origin has its own atomic state, so the origins do not
+ * contend with each other. The state of the limit of each origin can be observed using
+ * {@link #getLimits()} for tuning.
+ * <pre>
+ *     client.setTransport(LimitingMiddleware.limitingMiddleware(context));
+ * </pre>
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.09.07
+ */
+public class LimitingMiddleware extends TransportMiddleware {
+	/**
+	 * The base delay of the backoff of an origin in nanoseconds.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public static final long BACKOFF = TimeUnit.SECONDS.toNanos(1);
+	/**
+	 * The maximum delay an origin can ask for (or back off) in nanoseconds.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public static final long BACKOFF_MAX = TimeUnit.MINUTES.toNanos(1);
+	/**
+	 * The default number of requests an origin can take at once.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public static final int BURST = 10;
+	/**
+	 * The default maximum number of concurrent requests to an origin.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public static final int MAX_REQUESTS = XTransport.MAX_REQUESTS_PER_HOST;
+	/**
+	 * The default number of requests per second to an origin.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public static final double RATE = 10;
+
+	/**
+	 * The shared middleware of each application context.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	protected static final Map<Context, LimitingMiddleware> MIDDLEWARES = new WeakHashMap<>();
+	/**
+	 * The scheduler of the requests waiting for a token.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	protected static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "XClient-Limiting");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * The limits of each origin.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	protected final ConcurrentHashMap<String, Limit> limits = new ConcurrentHashMap<>();
+
+	/**
+	 * The number of requests an origin can take at once.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	protected final int burst;
+	/**
+	 * The maximum number of concurrent requests to an origin.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	protected final int maxRequests;
+	/**
+	 * The number of requests per second to an origin.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	protected final double rate;
+
+	/**
+	 * Construct a new limiting middleware with the default limits.
+	 *
+	 * @param transport the transport performing the actual connections.
+	 * @throws NullPointerException if the given {@code transport} is null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public LimitingMiddleware(@NotNull Middleware<? super Client<?>> transport) {
+		this(transport, LimitingMiddleware.RATE, LimitingMiddleware.BURST, LimitingMiddleware.MAX_REQUESTS);
+	}
+
+	/**
+	 * Construct a new limiting middleware with the given limits for each origin.
+	 *
+	 * @param transport   the transport performing the actual connections.
+	 * @param rate        the number of requests per second to an origin.
+	 * @param burst       the number of requests an origin can take at once.
+	 * @param maxRequests the maximum number of concurrent requests to an origin.
+	 * @throws NullPointerException     if the given {@code transport} is null.
+	 * @throws IllegalArgumentException if the given {@code rate} or {@code burst} or
+	 *                                  {@code maxRequests} is not positive.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public LimitingMiddleware(@NotNull Middleware<? super Client<?>> transport, double rate, int burst, int maxRequests) {
+		super(transport);
+		if (!(rate > 0))
+			throw new IllegalArgumentException("rate <= 0");
+		if (burst <= 0)
+			throw new IllegalArgumentException("burst <= 0");
+		if (maxRequests <= 0)
+			throw new IllegalArgumentException("maxRequests <= 0");
+		this.rate = rate;
+		this.burst = burst;
+		this.maxRequests = maxRequests;
+	}
+
+	/**
+	 * Return the shared limiting middleware of the application of the given {@code
+	 * context}. It connects through the {@link XTransport#transport(Context) transport}
+	 * of the application. Thus, all the clients of the application share the same
+	 * limits.
+	 *
+	 * @param context the context to get the middleware of its application.
+	 * @return the limiting middleware of the application.
+	 * @throws NullPointerException if the given {@code context} is null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	public static LimitingMiddleware limitingMiddleware(@NotNull Context context) {
+		Objects.requireNonNull(context, "context");
+		Context application = AbstractXClient.application(context);
+
+		synchronized (LimitingMiddleware.MIDDLEWARES) {
+			LimitingMiddleware middleware = LimitingMiddleware.MIDDLEWARES.get(application);
+
+			if (middleware == null) {
+				middleware = new LimitingMiddleware(XTransport.transport(application));
+				LimitingMiddleware.MIDDLEWARES.put(application, middleware);
+			}
+
+			return middleware;
+		}
+	}
+
+	/**
+	 * Return the origin of the given {@code request}.
+	 *
+	 * @param request the request.
+	 * @return the scheme, host and port of the uri of the request. Or an empty string if
+	 * 		the uri is not an http url.
+	 * @throws NullPointerException if the given {@code request} is null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	@Contract(pure = true)
+	protected static String origin(@NotNull Request<?> request) {
+		Objects.requireNonNull(request, "request");
+		HttpUrl url = HttpUrl.parse(String.valueOf(request.getUri()));
+		return url == null ? "" : url.scheme() + "://" + url.host() + ":" + url.port();
+	}
+
+	/**
+	 * Return the delay the given {@code Retry-After} header value asks for. The value is
+	 * either a number of seconds or an http date.
+	 *
+	 * @param value the value of the header.
+	 * @return the delay in nanoseconds. Or -1 if no valid value.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@Contract(pure = true)
+	protected static long retryAfter(@Nullable String value) {
+		if (value == null)
+			return -1;
+
+		try {
+			return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(value.trim())));
+		} catch (NumberFormatException ignored) {
+			//an http date
+		}
+
+		try {
+			long at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)
+								   .toInstant()
+								   .toEpochMilli();
+			return TimeUnit.MILLISECONDS.toNanos(Math.max(0, at - System.currentTimeMillis()));
+		} catch (DateTimeParseException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Get the limits of the origins this middleware has connected to. The limits are
+	 * live; their counters keep changing.
+	 *
+	 * @return the limits of each origin.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	@Contract(value = "->new", pure = true)
+	public Map<String, Limit> getLimits() {
+		return Collections.unmodifiableMap(new HashMap<>(this.limits));
+	}
+
+	@Override
+	protected void connect(@NotNull Client<?> client, @NotNull Request<?> request) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(request, "request");
+		Limit limit = this.limits.computeIfAbsent(
+				LimitingMiddleware.origin(request),
+				origin -> new Limit(this.rate, this.burst, this.maxRequests)
+		);
+		long start = System.nanoTime();
+		long wait = limit.reserve(start);
+		Runnable admit = () -> limit.submit(() -> this.send(limit, client, request, start));
+
+		limit.queued.incrementAndGet();
+		if (wait <= 0)
+			admit.run();
+		else
+			LimitingMiddleware.SCHEDULER.schedule(admit, wait, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Send the given {@code request} of the given {@code client} after it was admitted
+	 * by the given {@code limit}. The slot of the request gets released once its result
+	 * arrives.
+	 *
+	 * @param limit   the limit that admitted the request.
+	 * @param client  the client to trigger the result to.
+	 * @param request the request to be sent.
+	 * @param start   the time the request was queued at. ({@link System#nanoTime()})
+	 * @throws NullPointerException if the given {@code limit} or {@code client} or {@code
+	 *                              request} is null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	protected void send(@NotNull Limit limit, @NotNull Client<?> client, @NotNull Request<?> request, long start) {
+		Objects.requireNonNull(limit, "limit");
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(request, "request");
+		limit.queued.decrementAndGet();
+		limit.waited(System.nanoTime() - start);
+
+		if (client instanceof AbstractXClient &&
+			((AbstractXClient<?>) client).state.get() == AbstractXClient.STATE_CANCELLED) {
+			//cancelled while queued
+			limit.release();
+			return;
+		}
+
+		AtomicBoolean released = new AtomicBoolean();
+		this.exchange(client, request)
+			.on(Client.CONNECTED, (caller, response) -> {
+				String message = response.toString();
+				int status = TransportMiddleware.status(message);
+
+				if (status == 429 || status == 503) {
+					long after = LimitingMiddleware.retryAfter(TransportMiddleware.header(message, "Retry-After"));
+					limit.penalize(after < 0 ? limit.backoff() : after);
+				} else
+					limit.recover();
+
+				if (released.compareAndSet(false, true))
+					limit.release();
+
+				client.trigger(Client.CONNECTED, response);
+			})
+			.on(Client.DISCONNECTED, (caller, throwable) -> {
+				if (released.compareAndSet(false, true))
+					limit.release();
+
+				client.trigger(Client.DISCONNECTED, throwable);
+			})
+			.connect();
+	}
+
+	/**
+	 * The limit of the requests to a single origin. A token bucket (implemented as a
+	 * generic cell rate algorithm, a single atomic timestamp) followed by a queue of the
+	 * requests waiting for a concurrent slot.
+	 *
+	 * @author LSafer
+	 * @version 0.1.1
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public static class Limit {
+		/**
+		 * The consecutive throttling responses of the origin.
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		@NotNull
+		protected final AtomicInteger failures = new AtomicInteger();
+		/**
+		 * The time the next request is due at if no tokens are saved.
+		 * ({@link System#nanoTime()})
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		@NotNull
+		protected final AtomicLong next = new AtomicLong(System.nanoTime());
+		/**
+		 * The requests that got a token and are waiting for a concurrent slot.
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		@NotNull
+		protected final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+		/**
+		 * The number of the requests waiting for a token or a slot.
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		@NotNull
+		protected final AtomicInteger queued = new AtomicInteger();
+		/**
+		 * The number of the requests running.
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		@NotNull
+		protected final AtomicInteger running = new AtomicInteger();
+		/**
+		 * The number of the admitted requests.
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		@NotNull
+		protected final AtomicLong waitCount = new AtomicLong();
+		/**
+		 * The longest wait of an admitted request in nanoseconds.
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		@NotNull
+		protected final AtomicLong waitMax = new AtomicLong();
+		/**
+		 * The total wait of the admitted requests in nanoseconds.
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		@NotNull
+		protected final AtomicLong waitTime = new AtomicLong();
+
+		/**
+		 * The interval between two tokens in nanoseconds.
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		protected final long interval;
+		/**
+		 * The maximum number of concurrent requests.
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		protected final int maxRequests;
+		/**
+		 * How far ahead of the due time a request can be sent in nanoseconds. (the saved
+		 * tokens)
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		protected final long tolerance;
+
+		/**
+		 * Construct a new limit.
+		 *
+		 * @param rate        the number of requests per second.
+		 * @param burst       the number of requests that can be sent at once.
+		 * @param maxRequests the maximum number of concurrent requests.
+		 * @throws IllegalArgumentException if the given {@code rate} or {@code burst} or
+		 *                                  {@code maxRequests} is not positive.
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		public Limit(double rate, int burst, int maxRequests) {
+			if (!(rate > 0))
+				throw new IllegalArgumentException("rate <= 0");
+			if (burst <= 0)
+				throw new IllegalArgumentException("burst <= 0");
+			if (maxRequests <= 0)
+				throw new IllegalArgumentException("maxRequests <= 0");
+			this.interval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+			this.tolerance = this.interval * (burst - 1);
+			this.maxRequests = maxRequests;
+		}
+
+		/**
+		 * Get the longest time an admitted request waited in the queue.
+		 *
+		 * @param unit the unit of the returned value.
+		 * @return the longest wait in the given {@code unit}.
+		 * @throws NullPointerException if the given {@code unit} is null.
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		@Contract(pure = true)
+		public long getMaxWaitTime(@NotNull TimeUnit unit) {
+			Objects.requireNonNull(unit, "unit");
+			return unit.convert(this.waitMax.get(), TimeUnit.NANOSECONDS);
+		}
+
+		/**
+		 * Get the number of the requests waiting for a token or a concurrent slot.
+		 *
+		 * @return the queue depth.
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		@Contract(pure = true)
+		public int getQueuedCount() {
+			return this.queued.get();
+		}
+
+		/**
+		 * Get the number of the requests running.
+		 *
+		 * @return the number of the running requests.
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		@Contract(pure = true)
+		public int getRunningCount() {
+			return this.running.get();
+		}
+
+		/**
+		 * Get the number of the requests admitted so far.
+		 *
+		 * @return the number of the admitted requests.
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		@Contract(pure = true)
+		public long getWaitCount() {
+			return this.waitCount.get();
+		}
+
+		/**
+		 * Get the total time the admitted requests waited in the queue. Divided by
+		 * {@link #getWaitCount()} it is the average wait.
+		 *
+		 * @param unit the unit of the returned value.
+		 * @return the total wait in the given {@code unit}.
+		 * @throws NullPointerException if the given {@code unit} is null.
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		@Contract(pure = true)
+		public long getWaitTime(@NotNull TimeUnit unit) {
+			Objects.requireNonNull(unit, "unit");
+			return unit.convert(this.waitTime.get(), TimeUnit.NANOSECONDS);
+		}
+
+		@NotNull
+		@Override
+		public String toString() {
+			long count = this.waitCount.get();
+			return "Limit {" +
+				   " queued=" + this.queued.get() +
+				   " running=" + this.running.get() +
+				   " waited=" + count +
+				   " average=" + (count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(this.waitTime.get() / count)) + "ms" +
+				   " max=" + TimeUnit.NANOSECONDS.toMillis(this.waitMax.get()) + "ms" +
+				   " }";
+		}
+
+		/**
+		 * Return the delay of the next backoff and grow the backoff.
+		 *
+		 * @return the delay of the backoff in nanoseconds.
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		protected long backoff() {
+			int failures = Math.min(this.failures.getAndIncrement(), 16);
+			return Math.min(LimitingMiddleware.BACKOFF << failures, LimitingMiddleware.BACKOFF_MAX);
+		}
+
+		/**
+		 * Start the requests waiting for a concurrent slot while there are free slots.
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		protected void drain() {
+			while (!this.pending.isEmpty()) {
+				int running = this.running.get();
+
+				if (running >= this.maxRequests)
+					return;
+				if (!this.running.compareAndSet(running, running + 1))
+					continue;
+
+				Runnable task = this.pending.poll();
+
+				if (task == null) {
+					//taken by another thread
+					this.running.decrementAndGet();
+					continue;
+				}
+
+				task.run();
+			}
+		}
+
+		/**
+		 * Delay the next requests until the given {@code delay} elapses from now.
+		 *
+		 * @param delay the delay in nanoseconds.
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		protected void penalize(long delay) {
+			//the saved tokens are spent too
+			long until = System.nanoTime() + Math.min(delay, LimitingMiddleware.BACKOFF_MAX) + this.tolerance;
+
+			for (long next = this.next.get(); next - until < 0; next = this.next.get())
+				if (this.next.compareAndSet(next, until))
+					return;
+		}
+
+		/**
+		 * Reset the backoff after a response that was not throttled.
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		protected void recover() {
+			this.failures.set(0);
+		}
+
+		/**
+		 * Release the concurrent slot of a finished request.
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		protected void release() {
+			this.running.decrementAndGet();
+			this.drain();
+		}
+
+		/**
+		 * Take a token for a request arriving at the given time. A token is always
+		 * taken; when none is available, a future one is reserved.
+		 *
+		 * @param now the current time. ({@link System#nanoTime()})
+		 * @return the time to wait for the reserved token in nanoseconds.
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		protected long reserve(long now) {
+			while (true) {
+				long next = this.next.get();
+				long due = next - now > 0 ? next : now;
+
+				if (this.next.compareAndSet(next, due + this.interval))
+					return due - this.tolerance - now;
+			}
+		}
+
+		/**
+		 * Queue the given {@code task} to be run once a concurrent slot is free.
+		 *
+		 * @param task the task starting the request.
+		 * @throws NullPointerException if the given {@code task} is null.
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		protected void submit(@NotNull Runnable task) {
+			Objects.requireNonNull(task, "task");
+			this.pending.add(task);
+			this.drain();
+		}
+
+		/**
+		 * Record the wait of an admitted request.
+		 *
+		 * @param wait the wait in nanoseconds.
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		protected void waited(long wait) {
+			this.waitCount.incrementAndGet();
+			this.waitTime.addAndGet(wait);
+
+			for (long max = this.waitMax.get(); wait > max; max = this.waitMax.get())
+				if (this.waitMax.compareAndSet(max, wait))
+					return;
+		}
+	}
+}
@@ -0,0 +1,622 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+
+import org.cufy.http.body.Body;
+import org.cufy.http.connect.Action;
+import org.cufy.http.connect.Client;
+import org.cufy.http.request.Request;
+import org.cufy.http.response.Response;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A durable queue of requests to be connected in order once there is connectivity.
+ * <br>
+ * A submitted request gets an {@code Idempotency-Key} header and gets appended to a
+ * {@link RequestLog write-ahead log} before it is connected. The submissions made
+ * together are made durable with a single fsync. A request leaves the log only after
+ * its response has been received. Thus, a request survives the death of the process
+ * and, combined with a server honoring its idempotency key, gets applied exactly once.
+ * <br>
+ * The requests are connected one at a time in the order they were submitted. A request
+ * failing with an I/O exception, or receiving a {@code 408}, {@code 429} or {@code 5xx}
+ * response, stays at the head of the queue. It gets retried after a jittered exponential
+ * backoff, or as soon as the default network becomes available again (or {@link
+ * #replay()} is called).
+ * <br>
+ * The final result of a request is triggered ({@link Client#CONNECTED} or {@link
+ * Client#DISCONNECTED}) on the client that submitted it. The final results of the
+ * requests submitted by a previous process are triggered on new clients passed to the
+ * {@link #setReplay(Consumer) replay} consumer to register their listeners.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.29
+ */
+public class OfflineQueue implements Closeable {
+	/**
+	 * The name of the header carrying the idempotency key of a queued request.
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+	/**
+	 * The base delay before retrying the head of a queue in nanoseconds. Doubled after
+	 * each consecutive failure.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public static final long BACKOFF = TimeUnit.SECONDS.toNanos(1);
+	/**
+	 * The maximum delay before retrying the head of a queue in nanoseconds.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public static final long BACKOFF_MAX = TimeUnit.MINUTES.toNanos(5);
+
+	/**
+	 * The queues of each application context.
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	protected static final Map<Context, OfflineQueue> QUEUES = new WeakHashMap<>();
+	/**
+	 * The scheduler of the delayed replays.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	protected static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "XClient-OfflineQueue");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * The callback replaying this queue when the default network becomes available.
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	protected final ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+		@Override
+		public void onAvailable(@NotNull Network network) {
+			OfflineQueue.this.replay();
+		}
+	};
+	/**
+	 * The application context of this queue.
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	protected final Context context;
+	/**
+	 * The executor performing the log writes and the connections of this queue in order.
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	protected final Executor executor = new SerialExecutor(AbstractXClient.EXECUTOR);
+	/**
+	 * The log of this queue.
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	protected final RequestLog log;
+	/**
+	 * The clients that submitted the queued requests in this process mapped to the ids of
+	 * the entries of their requests. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	protected final Map<Long, Client<?>> receivers = new HashMap<>();
+	/**
+	 * The transport connecting the requests of this queue.
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	protected final XTransport transport;
+
+	/**
+	 * The number of the consecutive failures of the head of this queue. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	protected int attempts;
+	/**
+	 * True, if this queue has been closed. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	protected boolean closed;
+	/**
+	 * True, if the head of this queue is being connected. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	protected boolean connecting;
+	/**
+	 * The consumer preparing the clients receiving the results of the requests submitted
+	 * by a previous process. Or null to replay them without listeners.
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@Nullable
+	protected volatile Consumer<? super XClient<Body>> replay;
+	/**
+	 * True, if this queue has been started. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	protected boolean started;
+	/**
+	 * True, if a sync of the log is scheduled. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	protected boolean syncing;
+
+	/**
+	 * Construct a new queue stored at the given {@code file}.
+	 *
+	 * @param context   the context of the queue.
+	 * @param file      the file of the log of the queue.
+	 * @param transport the transport to connect the requests with.
+	 * @throws NullPointerException if the given {@code context} or {@code file} or {@code
+	 *                              transport} is null.
+	 * @throws IOException          if an I/O exception occurred while reading the log.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	public OfflineQueue(@NotNull Context context, @NotNull File file, @NotNull XTransport transport) throws IOException {
+		Objects.requireNonNull(context, "context");
+		Objects.requireNonNull(file, "file");
+		Objects.requireNonNull(transport, "transport");
+		this.context = AbstractXClient.application(context);
+		this.transport = transport;
+		this.log = new RequestLog(file);
+	}
+
+	/**
+	 * Return the shared queue of the application of the given {@code context}. The queue
+	 * is stored in the files directory of the application and connects using the shared
+	 * {@link XTransport#transport(Context) transport} of the application.
+	 *
+	 * @param context the context to get the queue of its application.
+	 * @return the queue of the application.
+	 * @throws NullPointerException if the given {@code context} is null.
+	 * @throws IOException          if an I/O exception occurred while reading the log.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	public static OfflineQueue queue(@NotNull Context context) throws IOException {
+		Objects.requireNonNull(context, "context");
+		Context application = AbstractXClient.application(context);
+
+		synchronized (OfflineQueue.QUEUES) {
+			OfflineQueue queue = OfflineQueue.QUEUES.get(application);
+
+			if (queue == null) {
+				queue = new OfflineQueue(
+						application,
+						new File(application.getFilesDir(), "org.cufyx.http.queue"),
+						XTransport.transport(application)
+				);
+				OfflineQueue.QUEUES.put(application, queue);
+			}
+
+			return queue;
+		}
+	}
+
+	/**
+	 * Return true if the given {@code response} is worth retrying later.
+	 *
+	 * @param response the response to be checked.
+	 * @return true, if the status of the response is {@code 408}, {@code 429} or {@code
+	 * 		5xx}.
+	 * @throws NullPointerException if the given {@code response} is null.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@Contract(pure = true)
+	protected static boolean retryable(@NotNull Response<?> response) {
+		Objects.requireNonNull(response, "response");
+		String message = response.toString();
+		int start = message.indexOf(' ') + 1;
+		int end = message.indexOf(' ', start);
+
+		try {
+			int code = Integer.parseInt(message.substring(start, end < 0 ? message.length() : end).trim());
+			return code == 408 || code == 429 || code >= 500;
+		} catch (RuntimeException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Return the given raw request {@code message} with an idempotency header with the
+	 * given {@code key} added to it.
+	 *
+	 * @param message the raw request message.
+	 * @param key     the idempotency key.
+	 * @return the raw message with the idempotency header.
+	 * @throws NullPointerException if the given {@code message} or {@code key} is null.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	@Contract(pure = true)
+	protected static String stamp(@NotNull String message, @NotNull String key) {
+		Objects.requireNonNull(message, "message");
+		Objects.requireNonNull(key, "key");
+		int line = message.indexOf('\n') + 1;
+
+		if (line <= 0)
+			return message + "\r\n" + OfflineQueue.IDEMPOTENCY_KEY + ": " + key + "\r\n";
+
+		return message.substring(0, line) +
+			   OfflineQueue.IDEMPOTENCY_KEY + ": " + key + "\r\n" +
+			   message.substring(line);
+	}
+
+	/**
+	 * Close this queue. Its pending log records get written and the results received
+	 * afterwards are dropped (the requests stay queued for the next process). Closing a
+	 * closed queue has no effect.
+	 *
+	 * @throws IOException if an I/O exception occurred while writing the log.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (this.closed)
+				return;
+
+			this.closed = true;
+			this.receivers.clear();
+
+			if (this.started) {
+				ConnectivityManager manager = this.context.getSystemService(ConnectivityManager.class);
+
+				if (manager != null)
+					manager.unregisterNetworkCallback(this.callback);
+			}
+		}
+
+		this.log.close();
+	}
+
+	/**
+	 * Get the number of the requests in this queue.
+	 *
+	 * @return the size of this queue.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@Contract(pure = true)
+	public int getSize() {
+		return this.log.getSize();
+	}
+
+	/**
+	 * Connect the head of this queue if it is not being connected already.
+	 *
+	 * @return this.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	@Contract(value = "->this", mutates = "this")
+	public OfflineQueue replay() {
+		this.executor.execute(this::connect);
+		return this;
+	}
+
+	/**
+	 * Set the consumer preparing the clients receiving the results of the requests
+	 * submitted by a previous process. The consumer is invoked in a background thread
+	 * once per request before it is replayed; it is expected to register the listeners
+	 * of the client.
+	 * <br>
+	 * Set it before {@link #start() starting} this queue to receive the results of all
+	 * the replayed requests.
+	 *
+	 * @param replay the replay consumer. Or null to replay without listeners.
+	 * @return this.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	public OfflineQueue setReplay(@Nullable Consumer<? super XClient<Body>> replay) {
+		this.replay = replay;
+		return this;
+	}
+
+	/**
+	 * Start this queue. This queue gets replayed now and whenever the default network
+	 * becomes available. Starting a started queue has no effect.
+	 *
+	 * @return this.
+	 * @throws IllegalStateException if this queue has been closed.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	@Contract(value = "->this", mutates = "this")
+	public OfflineQueue start() {
+		synchronized (this) {
+			if (this.closed)
+				throw new IllegalStateException("closed");
+			if (this.started)
+				return this;
+
+			this.started = true;
+		}
+
+		ConnectivityManager manager = this.context.getSystemService(ConnectivityManager.class);
+
+		if (manager != null)
+			//invoked immediately when the network is already available
+			manager.registerDefaultNetworkCallback(this.callback);
+		else
+			this.replay();
+
+		return this;
+	}
+
+	/**
+	 * Append the given {@code request} to this queue. The final result of the request
+	 * will be triggered on the given {@code client}. This queue gets {@link #start()
+	 * started} if it was not.
+	 *
+	 * @param client  the client to trigger the result to.
+	 * @param request the request to be queued.
+	 * @return this.
+	 * @throws NullPointerException  if the given {@code client} or {@code request} is
+	 *                               null.
+	 * @throws IllegalStateException if this queue has been closed.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	@Contract(value = "_,_->this", mutates = "this")
+	public OfflineQueue submit(@NotNull Client<?> client, @NotNull Request<?> request) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(request, "request");
+		String key = UUID.randomUUID().toString();
+		String message = OfflineQueue.stamp(request.toString(), key);
+
+		synchronized (this) {
+			if (this.closed)
+				throw new IllegalStateException("closed");
+
+			RequestLog.Entry entry = this.log.append(key, message);
+			this.receivers.put(entry.id, client);
+		}
+
+		//durable before connected
+		this.sync();
+		this.start();
+		this.replay();
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "OfflineQueue " + System.identityHashCode(this);
+	}
+
+	/**
+	 * Connect the head of this queue. Must be called by the executor of this queue.
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	protected void connect() {
+		RequestLog.Entry entry;
+		synchronized (this) {
+			if (this.closed || this.connecting)
+				return;
+
+			List<RequestLog.Entry> entries = this.log.getEntries();
+
+			if (entries.isEmpty())
+				return;
+
+			entry = entries.get(0);
+			this.connecting = true;
+		}
+
+		XClient<Body> client;
+		try {
+			//prepared before the first attempt
+			this.receiver(entry);
+			client = XClient.client(this.context)
+							.setTransport(this.transport)
+							.setRequest(entry.message);
+		} catch (RuntimeException e) {
+			//unparsable; would block the queue forever
+			this.done(entry, Client.DISCONNECTED, e);
+			return;
+		}
+
+		client.on(Client.CONNECTED, (c, response) -> this.executor.execute(() -> {
+				  if (OfflineQueue.retryable(response))
+					  this.retry(entry);
+				  else
+					  this.done(entry, Client.CONNECTED, response);
+			  }))
+			  .on(Client.DISCONNECTED, (c, throwable) -> this.executor.execute(() -> {
+				  if (throwable instanceof IOException)
+					  this.retry(entry);
+				  else
+					  this.done(entry, Client.DISCONNECTED, throwable);
+			  }))
+			  .connect();
+	}
+
+	/**
+	 * Remove the given {@code entry} from this queue and trigger its result to its
+	 * {@link #receiver(RequestLog.Entry) receiver}. Then, connect the next request. Must
+	 * be called by the executor of this queue.
+	 *
+	 * @param entry     the entry of the request.
+	 * @param action    the action of the result.
+	 * @param parameter the result.
+	 * @param <T>       the type of the result.
+	 * @throws NullPointerException if the given {@code entry} or {@code action} is null.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	protected <T> void done(@NotNull RequestLog.Entry entry, @NotNull Action<T> action, @Nullable T parameter) {
+		Objects.requireNonNull(entry, "entry");
+		Objects.requireNonNull(action, "action");
+		Client<?> receiver;
+		synchronized (this) {
+			if (this.closed)
+				//the result of a dead process
+				return;
+
+			this.log.remove(entry.id);
+			receiver = this.receivers.remove(entry.id);
+			this.connecting = false;
+			this.attempts = 0;
+		}
+
+		try {
+			this.log.sync();
+		} catch (IOException ignored) {
+			//the removal will be retried by the next sync
+		}
+
+		if (receiver != null)
+			receiver.trigger(action, parameter);
+
+		this.connect();
+	}
+
+	/**
+	 * Return the client to trigger the final result of the request of the given {@code
+	 * entry} to. If the request was submitted by a previous process, a new client gets
+	 * created and passed to the {@link #replay} consumer (once per request).
+	 *
+	 * @param entry the entry of the request.
+	 * @return the receiver of the result. Or null if there is no one to receive it.
+	 * @throws NullPointerException if the given {@code entry} is null.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@Nullable
+	protected Client<?> receiver(@NotNull RequestLog.Entry entry) {
+		Objects.requireNonNull(entry, "entry");
+		Consumer<? super XClient<Body>> replay = this.replay;
+		synchronized (this) {
+			Client<?> receiver = this.receivers.get(entry.id);
+
+			if (receiver != null || replay == null)
+				return receiver;
+		}
+
+		XClient<Body> receiver = XClient.client(this.context)
+										.setRequest(entry.message);
+		try {
+			replay.accept(receiver);
+		} catch (RuntimeException ignored) {
+			//the request shall be replayed regardless
+		}
+
+		synchronized (this) {
+			this.receivers.put(entry.id, receiver);
+		}
+
+		return receiver;
+	}
+
+	/**
+	 * Leave the given {@code entry} at the head of this queue until the next replay. A
+	 * replay gets scheduled after a jittered exponential backoff. Thus, a failing server
+	 * does not block the queue until the network changes. Must be called by the executor
+	 * of this queue.
+	 *
+	 * @param entry the entry of the request.
+	 * @throws NullPointerException if the given {@code entry} is null.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	protected void retry(@NotNull RequestLog.Entry entry) {
+		Objects.requireNonNull(entry, "entry");
+		long delay;
+		synchronized (this) {
+			this.connecting = false;
+
+			if (this.closed)
+				return;
+
+			this.attempts = Math.min(this.attempts + 1, 16);
+			//full jitter
+			long ceiling = Math.min(OfflineQueue.BACKOFF_MAX, OfflineQueue.BACKOFF << this.attempts);
+			delay = ThreadLocalRandom.current().nextLong(ceiling);
+		}
+
+		OfflineQueue.SCHEDULER.schedule(this::replay, delay, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Schedule a sync of the log of this queue. The syncs scheduled before the log gets
+	 * synced are merged into a single sync.
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	protected void sync() {
+		synchronized (this) {
+			if (this.syncing)
+				return;
+
+			this.syncing = true;
+		}
+
+		this.executor.execute(() -> {
+			synchronized (this) {
+				this.syncing = false;
+			}
+
+			try {
+				this.log.sync();
+			} catch (IOException ignored) {
+				//the records stay pending for the next sync
+			}
+		});
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+/**
+ * The priority of the connections of a client. Higher priority connections jump the
+ * queue of the {@link XTransport transport} and, while any {@link #HIGH} connection is
+ * pending, the {@link #LOW} connections that have not started are paused.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.09.02
+ */
+public enum Priority {
+	/**
+	 * Background traffic. (prefetching, syncing, etc...)
+	 *
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	LOW,
+	/**
+	 * The default priority.
+	 *
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	NORMAL,
+	/**
+	 * Traffic blocking the visible screen.
+	 *
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	HIGH
+}
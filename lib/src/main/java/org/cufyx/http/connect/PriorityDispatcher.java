@@ -0,0 +1,371 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.cufy.http.connect.Client;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+
+/**
+ * A bounded priority-ordered queue in front of an okhttp dispatcher. Calls are started
+ * in the order of their {@link Priority priority} (then in the order they were
+ * enqueued) without exceeding the request limits of the dispatcher. Thus, the okhttp
+ * dispatcher never queues the calls itself.
+ * <br>
+ * While any {@link Priority#HIGH high} priority call is queued or running, the {@link
+ * Priority#LOW low} priority calls that have not started are paused.
+ * <br>
+ * When the queue is full, the lowest priority call (the newest among equals) gets
+ * rejected. Rejected calls fail with an {@link IOException}.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.09.02
+ */
+public class PriorityDispatcher {
+	/**
+	 * The default maximum number of queued calls.
+	 *
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	public static final int CAPACITY = 512;
+
+	/**
+	 * The number of running calls per host. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	@NotNull
+	protected final Map<String, Integer> hosts = new HashMap<>();
+	/**
+	 * The maximum number of queued calls.
+	 *
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	protected final int capacity;
+	/**
+	 * The dispatcher to take the request limits from and run the calls with.
+	 *
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	@NotNull
+	protected final Dispatcher dispatcher;
+	/**
+	 * The queued calls ordered by their priority then their sequence. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	@NotNull
+	protected final TreeSet<Entry> queue = new TreeSet<>();
+
+	/**
+	 * The number of high priority calls that are queued or running. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	protected int high;
+	/**
+	 * The number of running calls. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	protected int running;
+	/**
+	 * The sequence of the next enqueued call. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	protected long sequence;
+
+	/**
+	 * Construct a new priority dispatcher in front of the given {@code dispatcher}.
+	 *
+	 * @param dispatcher the dispatcher to take the request limits from.
+	 * @param capacity   the maximum number of queued calls.
+	 * @throws NullPointerException     if the given {@code dispatcher} is null.
+	 * @throws IllegalArgumentException if the given {@code capacity} is not positive.
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	public PriorityDispatcher(@NotNull Dispatcher dispatcher, int capacity) {
+		Objects.requireNonNull(dispatcher, "dispatcher");
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity <= 0");
+		this.dispatcher = dispatcher;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Remove the queued calls of the given {@code client} (and of its exchanges). The
+	 * removed calls get cancelled and fail.
+	 *
+	 * @param client the client to cancel its queued calls.
+	 * @throws NullPointerException if the given {@code client} is null.
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	public void cancel(@NotNull Client<?> client) {
+		Objects.requireNonNull(client, "client");
+		List<Entry> cancelled = new ArrayList<>();
+		synchronized (this) {
+			Iterator<Entry> iterator = this.queue.iterator();
+			while (iterator.hasNext()) {
+				Entry entry = iterator.next();
+
+				if (XTransport.belongs(entry.call, client)) {
+					iterator.remove();
+					this.remove(entry);
+					cancelled.add(entry);
+				}
+			}
+		}
+
+		for (Entry entry : cancelled) {
+			entry.call.cancel();
+			entry.callback.onFailure(entry.call, new IOException("Canceled"));
+		}
+
+		this.promote();
+	}
+
+	/**
+	 * Enqueue the given {@code call} with the given {@code priority}. The given {@code
+	 * callback} is invoked once the call is done. Or if the call got rejected.
+	 *
+	 * @param priority the priority of the call.
+	 * @param call     the call to be enqueued.
+	 * @param callback the callback of the call.
+	 * @throws NullPointerException if the given {@code priority} or {@code call} or
+	 *                              {@code callback} is null.
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	public void enqueue(@NotNull Priority priority, @NotNull Call call, @NotNull Callback callback) {
+		Objects.requireNonNull(priority, "priority");
+		Objects.requireNonNull(call, "call");
+		Objects.requireNonNull(callback, "callback");
+		Entry rejected = null;
+		synchronized (this) {
+			Entry entry = new Entry(priority, this.sequence++, call, callback);
+			this.queue.add(entry);
+
+			if (priority == Priority.HIGH)
+				this.high++;
+
+			if (this.queue.size() > this.capacity) {
+				rejected = this.queue.pollLast();
+				this.remove(rejected);
+			}
+		}
+
+		if (rejected != null)
+			rejected.callback.onFailure(rejected.call, new IOException("Queue full"));
+
+		this.promote();
+	}
+
+	/**
+	 * Get the number of the queued calls.
+	 *
+	 * @return the number of the calls waiting to be started.
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	@Contract(pure = true)
+	public synchronized int getQueuedCount() {
+		return this.queue.size();
+	}
+
+	/**
+	 * Get the number of the running calls.
+	 *
+	 * @return the number of the calls started and not done.
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	@Contract(pure = true)
+	public synchronized int getRunningCount() {
+		return this.running;
+	}
+
+	/**
+	 * Start the queued calls that can be started without exceeding the limits.
+	 *
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	public void promote() {
+		List<Entry> promoted = new ArrayList<>();
+		synchronized (this) {
+			int maxRequests = this.dispatcher.getMaxRequests();
+			int maxRequestsPerHost = this.dispatcher.getMaxRequestsPerHost();
+			Iterator<Entry> iterator = this.queue.iterator();
+			while (iterator.hasNext() && this.running < maxRequests) {
+				Entry entry = iterator.next();
+
+				if (entry.priority == Priority.LOW && this.high > 0)
+					//paused, and so are the rest
+					break;
+
+				Integer count = this.hosts.get(entry.host);
+				if (count != null && count >= maxRequestsPerHost)
+					continue;
+
+				iterator.remove();
+				this.hosts.put(entry.host, count == null ? 1 : count + 1);
+				this.running++;
+				promoted.add(entry);
+			}
+		}
+
+		for (Entry entry : promoted)
+			entry.call.enqueue(entry);
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "PriorityDispatcher " + System.identityHashCode(this);
+	}
+
+	/**
+	 * Release the slot of the given running {@code entry}.
+	 *
+	 * @param entry the entry that is done.
+	 * @throws NullPointerException if the given {@code entry} is null.
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	protected void finish(@NotNull Entry entry) {
+		Objects.requireNonNull(entry, "entry");
+		synchronized (this) {
+			Integer count = this.hosts.get(entry.host);
+
+			if (count == null || count <= 1)
+				this.hosts.remove(entry.host);
+			else
+				this.hosts.put(entry.host, count - 1);
+
+			this.running--;
+			this.remove(entry);
+		}
+
+		this.promote();
+	}
+
+	/**
+	 * Forget the priority of the given {@code entry} that is no longer queued or
+	 * running. (lock on this)
+	 *
+	 * @param entry the removed entry.
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	protected void remove(@NotNull Entry entry) {
+		if (entry.priority == Priority.HIGH)
+			this.high--;
+	}
+
+	/**
+	 * A queued (or running) call.
+	 *
+	 * @author LSafer
+	 * @version 0.1.1
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	protected class Entry implements Callback, Comparable<Entry> {
+		/**
+		 * The call.
+		 *
+		 * @since 0.1.1 ~2021.09.02
+		 */
+		@NotNull
+		protected final Call call;
+		/**
+		 * The callback of the call.
+		 *
+		 * @since 0.1.1 ~2021.09.02
+		 */
+		@NotNull
+		protected final Callback callback;
+		/**
+		 * The host of the call.
+		 *
+		 * @since 0.1.1 ~2021.09.02
+		 */
+		@NotNull
+		protected final String host;
+		/**
+		 * The priority of the call.
+		 *
+		 * @since 0.1.1 ~2021.09.02
+		 */
+		@NotNull
+		protected final Priority priority;
+		/**
+		 * The order of the call among the calls with the same priority.
+		 *
+		 * @since 0.1.1 ~2021.09.02
+		 */
+		protected final long sequence;
+
+		/**
+		 * Construct a new entry.
+		 *
+		 * @param priority the priority of the call.
+		 * @param sequence the order of the call.
+		 * @param call     the call.
+		 * @param callback the callback of the call.
+		 * @since 0.1.1 ~2021.09.02
+		 */
+		protected Entry(@NotNull Priority priority, long sequence, @NotNull Call call, @NotNull Callback callback) {
+			this.priority = priority;
+			this.sequence = sequence;
+			this.call = call;
+			this.callback = callback;
+			this.host = call.request().url().host();
+		}
+
+		@Override
+		public int compareTo(@NotNull Entry entry) {
+			int priority = entry.priority.compareTo(this.priority);
+			return priority != 0 ? priority : Long.compare(this.sequence, entry.sequence);
+		}
+
+		@Override
+		public void onFailure(@NotNull Call call, @NotNull IOException exception) {
+			try {
+				this.callback.onFailure(call, exception);
+			} finally {
+				PriorityDispatcher.this.finish(this);
+			}
+		}
+
+		@Override
+		public void onResponse(@NotNull Call call, @NotNull okhttp3.Response response) throws IOException {
+			try {
+				this.callback.onResponse(call, response);
+			} finally {
+				PriorityDispatcher.this.finish(this);
+			}
+		}
+	}
+}
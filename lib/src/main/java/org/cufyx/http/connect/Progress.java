@@ -0,0 +1,97 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The progress of a transfer.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.27
+ */
+public class Progress {
+	/**
+	 * The total number of bytes to be transferred. Or -1 if unknown.
+	 *
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	protected final long total;
+	/**
+	 * The number of bytes transferred so far.
+	 *
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	protected final long transferred;
+
+	/**
+	 * Construct a new progress.
+	 *
+	 * @param transferred the number of bytes transferred so far.
+	 * @param total       the total number of bytes to be transferred. Or -1 if unknown.
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	public Progress(long transferred, long total) {
+		this.transferred = transferred;
+		this.total = total;
+	}
+
+	/**
+	 * Get the fraction of the bytes transferred so far.
+	 *
+	 * @return the transferred fraction between 0 and 1. Or -1 if the total is unknown.
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	@Contract(pure = true)
+	public float getFraction() {
+		if (this.total < 0)
+			return -1;
+		if (this.total == 0)
+			return 1;
+
+		return (float) this.transferred / this.total;
+	}
+
+	/**
+	 * Get the total number of bytes to be transferred.
+	 *
+	 * @return the total number of bytes. Or -1 if unknown.
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	@Contract(pure = true)
+	public long getTotal() {
+		return this.total;
+	}
+
+	/**
+	 * Get the number of bytes transferred so far.
+	 *
+	 * @return the number of transferred bytes.
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	@Contract(pure = true)
+	public long getTransferred() {
+		return this.transferred;
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return this.transferred + "/" + (this.total < 0 ? "?" : this.total);
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.cufy.http.connect.Callback;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A callback holding another callback until all the clients holding it are released.
+ * Used to wrap the listeners stored outside the {@link TriggerIndex index} of a client.
+ * Thus, releasing the client frees whatever the listeners captured (like an activity)
+ * even while the client itself is still referenced.
+ * <br>
+ * A clone sharing the callback must {@link #acquire() acquire} it. Otherwise, releasing
+ * its origin will silence the callback for the clone too.
+ * <br>
+ * While a client is triggering through its base, the calls are {@link Dispatch
+ * deferred}. Thus, the client calls them merged with its index in the order they were
+ * registered.
+ *
+ * @param <C> the type of the caller.
+ * @param <T> the type of the parameter.
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.09.07
+ */
+public class ReleasableCallback<C, T> implements Callback<C, T> {
+	/**
+	 * The calls deferred on each thread.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	protected static final ThreadLocal<Dispatch> DISPATCH = ThreadLocal.withInitial(Dispatch::new);
+
+	/**
+	 * The number of the clients holding this callback.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	protected final AtomicInteger holders = new AtomicInteger(1);
+	/**
+	 * The registration order of this callback.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	protected final long sequence = TriggerIndex.SEQUENCE.incrementAndGet();
+
+	/**
+	 * The held callback. Or null if this callback has been released.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@Nullable
+	protected volatile Callback<C, T> callback;
+
+	/**
+	 * Construct a new releasable callback held by a single client.
+	 *
+	 * @param callback the callback to be held.
+	 * @throws NullPointerException if the given {@code callback} is null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public ReleasableCallback(@NotNull Callback<C, T> callback) {
+		Objects.requireNonNull(callback, "callback");
+		this.callback = callback;
+	}
+
+	/**
+	 * Let one more client hold this callback.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public void acquire() {
+		this.holders.incrementAndGet();
+	}
+
+	@Override
+	public void call(@NotNull C caller, @Nullable T parameter) throws Throwable {
+		Callback<C, T> callback = this.callback;
+
+		if (callback == null)
+			return;
+
+		Dispatch dispatch = ReleasableCallback.DISPATCH.get();
+
+		if (dispatch.deferring) {
+			dispatch.calls.add(this);
+			dispatch.calls.add(caller);
+			dispatch.calls.add(parameter);
+			return;
+		}
+
+		callback.call(caller, parameter);
+	}
+
+	/**
+	 * Return true if the held callback has been released.
+	 *
+	 * @return true, if this callback has been released.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@Contract(pure = true)
+	public boolean isReleased() {
+		return this.callback == null;
+	}
+
+	/**
+	 * Let a client stop holding this callback. The held callback gets dropped once no
+	 * client is holding it.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public void release() {
+		if (this.holders.decrementAndGet() <= 0)
+			this.callback = null;
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "ReleasableCallback " + System.identityHashCode(this);
+	}
+
+	/**
+	 * The dispatch of the releasable callbacks on a thread. Their calls are held while a
+	 * client on it is triggering through its base. The calls of nested triggers are
+	 * stacked after the calls of the triggers enclosing them.
+	 *
+	 * @author LSafer
+	 * @version 0.1.1
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	protected static class Dispatch {
+		/**
+		 * The deferred calls. Each is the callback, the caller and the parameter.
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		@NotNull
+		protected final List<Object> calls = new ArrayList<>();
+
+		/**
+		 * True, if the calls are currently being deferred.
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		protected boolean deferring;
+
+		@NotNull
+		@Override
+		public String toString() {
+			return "Dispatch " + System.identityHashCode(this);
+		}
+	}
+}
@@ -0,0 +1,538 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of raw http request messages. Appending and removing entries only
+ * buffers their records; the records are written and forced to the storage device
+ * together on the next {@link #sync()}. Thus, many appends cost a single fsync.
+ * <br>
+ * Each record is checksummed. A record torn by a process death while being written is
+ * discarded (with anything after it) when the log is opened again.
+ * <br>
+ * Once the records of the removed entries outweigh the records of the live entries, the
+ * log is compacted by rewriting the live entries into a new file and atomically
+ * replacing the log with it.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.29
+ */
+public class RequestLog implements Closeable {
+	/**
+	 * The minimum number of garbage bytes for the log to be compacted.
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	public static final long COMPACT_SIZE = 64 * 1024;
+
+	/**
+	 * The type of the record appending an entry.
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	protected static final byte APPEND = 1;
+	/**
+	 * The type of the record removing an entry.
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	protected static final byte REMOVE = 2;
+
+	/**
+	 * The live entries of this log in the order they were appended. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	protected final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>();
+	/**
+	 * The file of this log.
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	protected final File file;
+	/**
+	 * The lock of the writes to the file of this log.
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	protected final Object io = new Object();
+
+	/**
+	 * The channel writing to the file of this log. (lock on io)
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	protected FileChannel channel;
+	/**
+	 * True, if this log has been closed. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	protected boolean closed;
+	/**
+	 * The number of bytes of the records of the removed entries. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	protected long garbage;
+	/**
+	 * The id of the next appended entry. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	protected long next;
+	/**
+	 * The records not written yet. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	protected ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+	/**
+	 * Open the log stored at the given {@code file}. The file will be created if it does
+	 * not exist.
+	 *
+	 * @param file the file of the log.
+	 * @throws NullPointerException if the given {@code file} is null.
+	 * @throws IOException          if an I/O exception occurred while reading the log.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	public RequestLog(@NotNull File file) throws IOException {
+		Objects.requireNonNull(file, "file");
+		this.file = file;
+		long valid = this.load();
+		this.channel = FileChannel.open(
+				file.toPath(),
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE
+		);
+		//drop the torn tail
+		this.channel.truncate(valid);
+		this.channel.position(valid);
+	}
+
+	/**
+	 * Return the record of the given {@code type} with the given {@code id} and {@code
+	 * payload}.
+	 *
+	 * @param type    the type of the record.
+	 * @param id      the id of the entry of the record.
+	 * @param payload the payload of the record.
+	 * @return the bytes of the record.
+	 * @throws NullPointerException if the given {@code payload} is null.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	@Contract(pure = true)
+	protected static byte[] record(byte type, long id, byte @NotNull [] payload) {
+		Objects.requireNonNull(payload, "payload");
+		ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 4 + payload.length + 4);
+		buffer.put(type)
+			  .putLong(id)
+			  .putInt(payload.length)
+			  .put(payload);
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.putInt((int) crc.getValue());
+		return buffer.array();
+	}
+
+	/**
+	 * Append an entry with the given {@code key} and {@code message} to this log. The
+	 * entry is not durable until the next {@link #sync()}.
+	 *
+	 * @param key     the key of the entry.
+	 * @param message the raw http request message.
+	 * @return the appended entry.
+	 * @throws NullPointerException  if the given {@code key} or {@code message} is null.
+	 * @throws IllegalStateException if this log has been closed.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	@Contract(mutates = "this")
+	public synchronized Entry append(@NotNull String key, @NotNull String message) {
+		Objects.requireNonNull(key, "key");
+		Objects.requireNonNull(message, "message");
+		if (this.closed)
+			throw new IllegalStateException("closed");
+		Entry entry = new Entry(this.next++, key, message);
+		byte[] record = RequestLog.record(RequestLog.APPEND, entry.id, entry.payload());
+		this.pending.write(record, 0, record.length);
+		this.entries.put(entry.id, entry);
+		return entry;
+	}
+
+	/**
+	 * Write the pending records of this log and close it. Closing a closed log has no
+	 * effect.
+	 *
+	 * @throws IOException if an I/O exception occurred.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			this.sync();
+		} finally {
+			synchronized (this) {
+				this.closed = true;
+			}
+			synchronized (this.io) {
+				this.channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Return the live entries of this log in the order they were appended.
+	 *
+	 * @return a snapshot of the entries of this log.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	@Contract(value = "->new", pure = true)
+	public synchronized List<Entry> getEntries() {
+		return new ArrayList<>(this.entries.values());
+	}
+
+	/**
+	 * Return the number of the live entries of this log.
+	 *
+	 * @return the size of this log.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@Contract(pure = true)
+	public synchronized int getSize() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Remove the entry with the given {@code id} from this log. The removal is not
+	 * durable until the next {@link #sync()}. Removing an absent entry has no effect.
+	 *
+	 * @param id the id of the entry.
+	 * @throws IllegalStateException if this log has been closed.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@Contract(mutates = "this")
+	public synchronized void remove(long id) {
+		if (this.closed)
+			throw new IllegalStateException("closed");
+		Entry entry = this.entries.remove(id);
+
+		if (entry == null)
+			return;
+
+		byte[] record = RequestLog.record(RequestLog.REMOVE, id, new byte[0]);
+		this.pending.write(record, 0, record.length);
+		this.garbage += record.length + entry.length();
+	}
+
+	/**
+	 * Write the pending records of this log and force them to the storage device. Then,
+	 * compact this log if needed. If the write fails, the records stay pending.
+	 *
+	 * @throws IOException if an I/O exception occurred.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	public void sync() throws IOException {
+		synchronized (this.io) {
+			byte[] records;
+			boolean compact;
+			synchronized (this) {
+				if (this.closed)
+					return;
+				records = this.pending.toByteArray();
+				this.pending = new ByteArrayOutputStream();
+				compact = this.garbage >= RequestLog.COMPACT_SIZE &&
+						  this.garbage >= this.channel.position() + records.length - this.garbage;
+			}
+
+			if (records.length == 0 && !compact)
+				return;
+
+			long position = this.channel.position();
+			try {
+				ByteBuffer buffer = ByteBuffer.wrap(records);
+				while (buffer.hasRemaining())
+					this.channel.write(buffer);
+
+				//a single fsync for the whole batch
+				this.channel.force(false);
+			} catch (IOException e) {
+				try {
+					//a partial record would hide the records after it
+					this.channel.truncate(position);
+					this.channel.position(position);
+				} catch (IOException te) {
+					e.addSuppressed(te);
+				}
+
+				synchronized (this) {
+					ByteArrayOutputStream pending = new ByteArrayOutputStream();
+					pending.write(records, 0, records.length);
+					this.pending.writeTo(pending);
+					this.pending = pending;
+				}
+
+				throw e;
+			}
+
+			if (compact)
+				this.compact();
+		}
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "RequestLog " + this.file;
+	}
+
+	/**
+	 * Rewrite the live entries of this log into a new file and atomically replace the
+	 * file of this log with it. Must be called while holding the io lock.
+	 *
+	 * @throws IOException if an I/O exception occurred.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	protected void compact() throws IOException {
+		File temp = new File(this.file.getPath() + ".tmp");
+		List<Entry> entries;
+		synchronized (this) {
+			//records appended from now on are pending; they will go to the new file
+			entries = new ArrayList<>(this.entries.values());
+			this.garbage = 0;
+		}
+
+		try (FileChannel channel = FileChannel.open(
+				temp.toPath(),
+				StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE
+		)) {
+			for (Entry entry : entries) {
+				ByteBuffer buffer = ByteBuffer.wrap(RequestLog.record(RequestLog.APPEND, entry.id, entry.payload()));
+				while (buffer.hasRemaining())
+					channel.write(buffer);
+			}
+
+			channel.force(false);
+		}
+
+		if (!temp.renameTo(this.file)) {
+			//noinspection ResultOfMethodCallIgnored
+			temp.delete();
+			throw new IOException("Could not replace " + this.file);
+		}
+
+		this.channel.close();
+		this.channel = FileChannel.open(this.file.toPath(), StandardOpenOption.WRITE);
+		this.channel.position(this.channel.size());
+	}
+
+	/**
+	 * Read the records of the file of this log into its entries.
+	 *
+	 * @return the number of bytes of the valid records at the start of the file.
+	 * @throws IOException if an I/O exception occurred.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	protected synchronized long load() throws IOException {
+		long size = this.file.length();
+		long valid = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)))) {
+			CRC32 crc = new CRC32();
+			while (true) {
+				byte type;
+				try {
+					type = in.readByte();
+				} catch (EOFException e) {
+					break;
+				}
+
+				byte[] head = new byte[1 + 8 + 4];
+				byte[] payload;
+				try {
+					in.readFully(head, 1, head.length - 1);
+					head[0] = type;
+					int length = ByteBuffer.wrap(head, 9, 4).getInt();
+
+					if (length < 0 || valid + head.length + length + 4 > size)
+						//torn record
+						break;
+
+					payload = new byte[length];
+					in.readFully(payload);
+					crc.reset();
+					crc.update(head);
+					crc.update(payload);
+
+					if (in.readInt() != (int) crc.getValue())
+						break;
+				} catch (EOFException e) {
+					//torn record
+					break;
+				}
+
+				long id = ByteBuffer.wrap(head, 1, 8).getLong();
+				this.next = Math.max(this.next, id + 1);
+
+				if (type == RequestLog.APPEND) {
+					Entry entry = Entry.entry(id, payload);
+					this.entries.put(id, entry);
+				} else {
+					Entry entry = this.entries.remove(id);
+					if (entry != null)
+						this.garbage += entry.length();
+				}
+
+				valid += head.length + payload.length + 4;
+				if (type == RequestLog.REMOVE)
+					this.garbage += head.length + 4;
+			}
+		} catch (FileNotFoundException ignored) {
+			//a new log
+		}
+
+		return valid;
+	}
+
+	/**
+	 * An entry in a request log.
+	 *
+	 * @author LSafer
+	 * @version 0.1.1
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	public static class Entry {
+		/**
+		 * The id of the entry. Ids are increasing in the order the entries were
+		 * appended.
+		 *
+		 * @since 0.1.1 ~2021.08.29
+		 */
+		public final long id;
+		/**
+		 * The key of the entry.
+		 *
+		 * @since 0.1.1 ~2021.08.29
+		 */
+		@NotNull
+		public final String key;
+		/**
+		 * The raw http request message.
+		 *
+		 * @since 0.1.1 ~2021.08.29
+		 */
+		@NotNull
+		public final String message;
+
+		/**
+		 * Construct a new entry.
+		 *
+		 * @param id      the id of the entry.
+		 * @param key     the key of the entry.
+		 * @param message the raw http request message.
+		 * @throws NullPointerException if the given {@code key} or {@code message} is
+		 *                              null.
+		 * @since 0.1.1 ~2021.08.29
+		 */
+		public Entry(long id, @NotNull String key, @NotNull String message) {
+			Objects.requireNonNull(key, "key");
+			Objects.requireNonNull(message, "message");
+			this.id = id;
+			this.key = key;
+			this.message = message;
+		}
+
+		/**
+		 * Return the entry with the given {@code id} decoded from the given {@code
+		 * payload}.
+		 *
+		 * @param id      the id of the entry.
+		 * @param payload the payload of the append record of the entry.
+		 * @return the decoded entry.
+		 * @throws NullPointerException if the given {@code payload} is null.
+		 * @since 0.1.1 ~2021.08.29
+		 */
+		@NotNull
+		@Contract(value = "_,_->new", pure = true)
+		protected static Entry entry(long id, byte @NotNull [] payload) {
+			Objects.requireNonNull(payload, "payload");
+			String string = new String(payload, StandardCharsets.UTF_8);
+			int separator = string.indexOf('\n');
+			return new Entry(id, string.substring(0, separator), string.substring(separator + 1));
+		}
+
+		@NotNull
+		@Override
+		public String toString() {
+			return "Entry " + this.id;
+		}
+
+		/**
+		 * Return the number of bytes of the append record of this entry.
+		 *
+		 * @return the length of the record of this entry.
+		 * @since 0.1.1 ~2021.08.29
+		 */
+		@Contract(pure = true)
+		protected long length() {
+			return 1 + 8 + 4 + this.payload().length + 4;
+		}
+
+		/**
+		 * Return the payload of the append record of this entry.
+		 *
+		 * @return the payload of this entry.
+		 * @since 0.1.1 ~2021.08.29
+		 */
+		@Contract(value = "->new", pure = true)
+		protected byte @NotNull [] payload() {
+			return (this.key + "\n" + this.message).getBytes(StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,496 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import android.content.Context;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size-bounded disk storage of raw http responses. The least recently used entries get
+ * evicted when the total size of the entries exceeds the maximum size of the cache.
+ * <br>
+ * The cache only stores the responses. The caching policy is left for the {@link
+ * CacheMiddleware}.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.22
+ */
+public class ResponseCache {
+	/**
+	 * The default maximum size of a cache in bytes.
+	 *
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	public static final long MAX_SIZE = 10L * 1024 * 1024;
+
+	/**
+	 * The shared caches of each directory.
+	 *
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	protected static final Map<File, ResponseCache> CACHES = new HashMap<>();
+
+	/**
+	 * The directory of this cache.
+	 *
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	protected final File directory;
+	/**
+	 * The sizes of the entries of this cache. In access order. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	protected final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, .75f, true);
+	/**
+	 * The number of evicted entries.
+	 *
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	protected final AtomicLong evictions = new AtomicLong();
+	/**
+	 * The number of requests served from this cache without touching the network.
+	 *
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	protected final AtomicLong hits = new AtomicLong();
+	/**
+	 * The number of requests that could not be served from this cache.
+	 *
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	protected final AtomicLong misses = new AtomicLong();
+	/**
+	 * The number of requests served from this cache after a successful revalidation.
+	 *
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	protected final AtomicLong revalidations = new AtomicLong();
+
+	/**
+	 * True, if the entries has been loaded from the directory. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	protected boolean loaded;
+	/**
+	 * The maximum size of this cache in bytes.
+	 *
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	protected volatile long maxSize;
+	/**
+	 * The total size of the entries of this cache. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	protected long size;
+
+	/**
+	 * Construct a new cache storing its entries at the given {@code directory}.
+	 *
+	 * @param directory the directory of the cache.
+	 * @param maxSize   the maximum size of the cache in bytes.
+	 * @throws NullPointerException     if the given {@code directory} is null.
+	 * @throws IllegalArgumentException if the given {@code maxSize} is negative.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	public ResponseCache(@NotNull File directory, long maxSize) {
+		Objects.requireNonNull(directory, "directory");
+		if (maxSize < 0)
+			throw new IllegalArgumentException("maxSize < 0");
+		this.directory = directory;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Return the shared cache stored in the cache directory of the given {@code
+	 * context}.
+	 *
+	 * @param context the context to get its cache.
+	 * @return the shared cache of the given {@code context}.
+	 * @throws NullPointerException if the given {@code context} is null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	public static ResponseCache cache(@NotNull Context context) {
+		Objects.requireNonNull(context, "context");
+		File directory = new File(context.getCacheDir(), "org.cufyx.http");
+		synchronized (ResponseCache.CACHES) {
+			ResponseCache cache = ResponseCache.CACHES.get(directory);
+
+			if (cache == null) {
+				cache = new ResponseCache(directory, ResponseCache.MAX_SIZE);
+				ResponseCache.CACHES.put(directory, cache);
+			}
+
+			return cache;
+		}
+	}
+
+	/**
+	 * Remove all the entries of this cache.
+	 *
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	public synchronized void clear() {
+		this.load();
+		for (String name : this.entries.keySet())
+			//noinspection ResultOfMethodCallIgnored
+			new File(this.directory, name).delete();
+
+		this.entries.clear();
+		this.size = 0;
+	}
+
+	/**
+	 * Return the entry stored with the given {@code key}.
+	 *
+	 * @param key the key of the entry.
+	 * @return the entry of the given {@code key}. Or null if no such entry.
+	 * @throws NullPointerException if the given {@code key} is null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@Nullable
+	public synchronized Entry get(@NotNull String key) {
+		Objects.requireNonNull(key, "key");
+		this.load();
+		String name = ResponseCache.name(key);
+
+		if (this.entries.get(name) == null)
+			return null;
+
+		File file = new File(this.directory, name);
+		try (InputStream stream = new FileInputStream(file)) {
+			byte[] bytes = new byte[(int) file.length()];
+			int length = 0;
+			for (int r; length < bytes.length && (r = stream.read(bytes, length, bytes.length - length)) > 0; )
+				length += r;
+
+			String content = new String(bytes, 0, length, StandardCharsets.UTF_8);
+			int newline = content.indexOf('\n');
+			long time = Long.parseLong(content.substring(0, newline));
+			return new Entry(time, content.substring(newline + 1));
+		} catch (IOException | RuntimeException e) {
+			this.remove(key);
+			return null;
+		}
+	}
+
+	/**
+	 * Get the number of evicted entries.
+	 *
+	 * @return the eviction count.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@Contract(pure = true)
+	public long getEvictionCount() {
+		return this.evictions.get();
+	}
+
+	/**
+	 * Get the number of requests served from this cache without touching the network.
+	 *
+	 * @return the hit count.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@Contract(pure = true)
+	public long getHitCount() {
+		return this.hits.get();
+	}
+
+	/**
+	 * Get the maximum size of this cache in bytes.
+	 *
+	 * @return the maximum size of this cache.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@Contract(pure = true)
+	public long getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 * Get the number of requests that could not be served from this cache.
+	 *
+	 * @return the miss count.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@Contract(pure = true)
+	public long getMissCount() {
+		return this.misses.get();
+	}
+
+	/**
+	 * Get the number of requests served from this cache after a successful
+	 * revalidation.
+	 *
+	 * @return the revalidation count.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@Contract(pure = true)
+	public long getRevalidationCount() {
+		return this.revalidations.get();
+	}
+
+	/**
+	 * Get the total size of the entries of this cache in bytes.
+	 *
+	 * @return the size of this cache.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	public synchronized long getSize() {
+		this.load();
+		return this.size;
+	}
+
+	/**
+	 * Store the given {@code message} with the given {@code key}. Replacing any previous
+	 * entry with the same key.
+	 *
+	 * @param key     the key of the entry.
+	 * @param time    the time the message was received at.
+	 * @param message the raw http response message.
+	 * @throws NullPointerException if the given {@code key} or {@code message} is null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	public synchronized void put(@NotNull String key, long time, @NotNull String message) {
+		Objects.requireNonNull(key, "key");
+		Objects.requireNonNull(message, "message");
+		this.load();
+		String name = ResponseCache.name(key);
+		byte[] bytes = (time + "\n" + message).getBytes(StandardCharsets.UTF_8);
+
+		if (bytes.length > this.maxSize)
+			return;
+
+		//noinspection ResultOfMethodCallIgnored
+		this.directory.mkdirs();
+		File temp = new File(this.directory, name + ".tmp");
+		File file = new File(this.directory, name);
+		try (OutputStream stream = new FileOutputStream(temp)) {
+			stream.write(bytes);
+		} catch (IOException e) {
+			//noinspection ResultOfMethodCallIgnored
+			temp.delete();
+			return;
+		}
+
+		if (!temp.renameTo(file)) {
+			//noinspection ResultOfMethodCallIgnored
+			temp.delete();
+			return;
+		}
+
+		Long previous = this.entries.put(name, (long) bytes.length);
+		this.size += bytes.length - (previous == null ? 0 : previous);
+		this.trim();
+	}
+
+	/**
+	 * Remove the entry stored with the given {@code key}.
+	 *
+	 * @param key the key of the entry.
+	 * @throws NullPointerException if the given {@code key} is null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	public synchronized void remove(@NotNull String key) {
+		Objects.requireNonNull(key, "key");
+		this.load();
+		String name = ResponseCache.name(key);
+		Long previous = this.entries.remove(name);
+
+		if (previous != null)
+			this.size -= previous;
+
+		//noinspection ResultOfMethodCallIgnored
+		new File(this.directory, name).delete();
+	}
+
+	/**
+	 * Set the maximum size of this cache. Entries will be evicted immediately if the
+	 * cache exceeds the new size.
+	 *
+	 * @param maxSize the new maximum size in bytes.
+	 * @return this.
+	 * @throws IllegalArgumentException if the given {@code maxSize} is negative.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	public synchronized ResponseCache setMaxSize(long maxSize) {
+		if (maxSize < 0)
+			throw new IllegalArgumentException("maxSize < 0");
+		this.load();
+		this.maxSize = maxSize;
+		this.trim();
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "ResponseCache " + this.directory;
+	}
+
+	/**
+	 * Return the file name of the given {@code key}.
+	 *
+	 * @param key the key.
+	 * @return the file name of the key.
+	 * @throws NullPointerException if the given {@code key} is null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	@Contract(pure = true)
+	protected static String name(@NotNull String key) {
+		Objects.requireNonNull(key, "key");
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256")
+										 .digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder builder = new StringBuilder(digest.length * 2);
+			for (byte b : digest)
+				builder.append(Character.forDigit(b >> 4 & 0xF, 16))
+					   .append(Character.forDigit(b & 0xF, 16));
+			return builder.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new InternalError(e);
+		}
+	}
+
+	/**
+	 * Load the entries from the directory if not loaded already. The entries will be
+	 * ordered by their last modification time.
+	 *
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	protected synchronized void load() {
+		if (this.loaded)
+			return;
+
+		this.loaded = true;
+		File[] files = this.directory.listFiles();
+
+		if (files == null)
+			return;
+
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (File file : files) {
+			if (file.getName().endsWith(".tmp")) {
+				//noinspection ResultOfMethodCallIgnored
+				file.delete();
+				continue;
+			}
+
+			this.entries.put(file.getName(), file.length());
+			this.size += file.length();
+		}
+
+		this.trim();
+	}
+
+	/**
+	 * Evict the least recently used entries until the size of this cache is not more
+	 * than its maximum size.
+	 *
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	protected synchronized void trim() {
+		Iterator<Map.Entry<String, Long>> iterator = this.entries.entrySet().iterator();
+
+		while (this.size > this.maxSize && iterator.hasNext()) {
+			Map.Entry<String, Long> eldest = iterator.next();
+			iterator.remove();
+			this.size -= eldest.getValue();
+			this.evictions.incrementAndGet();
+
+			//noinspection ResultOfMethodCallIgnored
+			new File(this.directory, eldest.getKey()).delete();
+		}
+	}
+
+	/**
+	 * An entry in a cache.
+	 *
+	 * @author LSafer
+	 * @version 0.1.1
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	public static class Entry {
+		/**
+		 * The raw http response message.
+		 *
+		 * @since 0.1.1 ~2021.08.22
+		 */
+		@NotNull
+		public final String message;
+		/**
+		 * The time the message was received at.
+		 *
+		 * @since 0.1.1 ~2021.08.22
+		 */
+		public final long time;
+
+		/**
+		 * Construct a new entry.
+		 *
+		 * @param time    the time the message was received at.
+		 * @param message the raw http response message.
+		 * @throws NullPointerException if the given {@code message} is null.
+		 * @since 0.1.1 ~2021.08.22
+		 */
+		public Entry(long time, @NotNull String message) {
+			Objects.requireNonNull(message, "message");
+			this.time = time;
+			this.message = message;
+		}
+
+		@NotNull
+		@Override
+		public String toString() {
+			return "Entry " + this.time;
+		}
+	}
+}
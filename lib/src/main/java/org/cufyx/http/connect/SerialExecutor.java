@@ -0,0 +1,193 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * An executor that executes its tasks one after the other, in the order they were
+ * submitted, using another executor. Only one task of a serial executor will be running
+ * at a time no matter how many threads the backing executor has.
+ * <br>
+ * A task can be submitted with its own backing executor using {@link
+ * #execute(Executor, Runnable)}. The order is kept across the backing executors; the
+ * drain moves to the executor of the next task once the previous tasks are done.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.19
+ */
+public class SerialExecutor implements Executor {
+	/**
+	 * The default backing executor.
+	 *
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	@NotNull
+	protected final Executor executor;
+	/**
+	 * The backing executors of the pending tasks. Parallel to {@link #queue}. (lock on
+	 * this)
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	protected final ArrayDeque<Executor> executors = new ArrayDeque<>();
+	/**
+	 * The pending tasks. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	@NotNull
+	protected final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+	/**
+	 * The drain task submitted to the backing executor.
+	 *
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	@NotNull
+	protected final Runnable drain = this::drain;
+
+	/**
+	 * True, if a drain task is currently submitted to the backing executor. (lock on
+	 * this)
+	 *
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	protected boolean active;
+	/**
+	 * The backing executor the active drain task is submitted to. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@Nullable
+	protected Executor current;
+
+	/**
+	 * Construct a new serial executor backed by the given {@code executor}.
+	 *
+	 * @param executor the backing executor.
+	 * @throws NullPointerException if the given {@code executor} is null.
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	public SerialExecutor(@NotNull Executor executor) {
+		Objects.requireNonNull(executor, "executor");
+		this.executor = executor;
+	}
+
+	@Override
+	public void execute(@NotNull Runnable task) {
+		this.execute(this.executor, task);
+	}
+
+	/**
+	 * Execute the given {@code task} using the given {@code executor} after the tasks
+	 * submitted before it are done.
+	 *
+	 * @param executor the backing executor to execute the task with.
+	 * @param task     the task to be executed.
+	 * @throws NullPointerException if the given {@code executor} or {@code task} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	public void execute(@NotNull Executor executor, @NotNull Runnable task) {
+		Objects.requireNonNull(executor, "executor");
+		Objects.requireNonNull(task, "task");
+		synchronized (this) {
+			this.queue.add(task);
+			this.executors.add(executor);
+
+			if (this.active)
+				return;
+
+			this.active = true;
+			this.current = executor;
+		}
+
+		this.submit(executor);
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "SerialExecutor " + System.identityHashCode(this);
+	}
+
+	/**
+	 * Execute the pending tasks one after the other until there is no more pending
+	 * tasks, or the next task is to be executed by another backing executor.
+	 *
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	protected void drain() {
+		Executor next;
+		while (true) {
+			Runnable task;
+			synchronized (this) {
+				next = this.executors.peek();
+
+				if (next == null) {
+					this.active = false;
+					this.current = null;
+					return;
+				}
+				if (next != this.current) {
+					//continue in the backing executor of the next task
+					this.current = next;
+					break;
+				}
+
+				this.executors.poll();
+				task = this.queue.poll();
+			}
+
+			try {
+				task.run();
+			} catch (Throwable ignored) {
+				//tasks are expected to handle their own exceptions
+			}
+		}
+
+		this.submit(next);
+	}
+
+	/**
+	 * Submit the drain task to the given backing {@code executor}. If the executor
+	 * rejected it, the pending tasks get dropped.
+	 *
+	 * @param executor the backing executor.
+	 * @throws RuntimeException if the executor rejected the drain task.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	protected void submit(@NotNull Executor executor) {
+		try {
+			executor.execute(this.drain);
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				this.queue.clear();
+				this.executors.clear();
+				this.active = false;
+				this.current = null;
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * A stream of the {@code UTF-8} bytes of a text. The text is encoded in chunks while
+ * being read. Thus, no byte array of the whole text gets allocated.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.09.04
+ */
+public class TextInputStream extends InputStream {
+	/**
+	 * The size of the encoded chunks.
+	 *
+	 * @since 0.1.1 ~2021.09.04
+	 */
+	public static final int CHUNK = 8192;
+
+	/**
+	 * The encoded bytes not read yet.
+	 *
+	 * @since 0.1.1 ~2021.09.04
+	 */
+	@NotNull
+	protected final ByteBuffer bytes = ByteBuffer.allocate(TextInputStream.CHUNK);
+	/**
+	 * The remaining text.
+	 *
+	 * @since 0.1.1 ~2021.09.04
+	 */
+	@NotNull
+	protected final CharBuffer chars;
+	/**
+	 * The encoder of the text.
+	 *
+	 * @since 0.1.1 ~2021.09.04
+	 */
+	@NotNull
+	protected final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	/**
+	 * True, if the whole text has been encoded.
+	 *
+	 * @since 0.1.1 ~2021.09.04
+	 */
+	protected boolean flushed;
+
+	/**
+	 * Construct a new stream of the given {@code text}.
+	 *
+	 * @param text the text to be streamed.
+	 * @throws NullPointerException if the given {@code text} is null.
+	 * @since 0.1.1 ~2021.09.04
+	 */
+	public TextInputStream(@NotNull CharSequence text) {
+		Objects.requireNonNull(text, "text");
+		this.chars = CharBuffer.wrap(text);
+		this.bytes.flip();
+	}
+
+	@Override
+	public int available() {
+		return this.bytes.remaining();
+	}
+
+	@Override
+	public int read() {
+		if (!this.fill())
+			return -1;
+
+		return this.bytes.get() & 0xFF;
+	}
+
+	@Override
+	public int read(byte @NotNull [] buffer, int offset, int length) {
+		Objects.requireNonNull(buffer, "buffer");
+		if (offset < 0 || length < 0 || length > buffer.length - offset)
+			throw new IndexOutOfBoundsException();
+		if (length == 0)
+			return 0;
+		if (!this.fill())
+			return -1;
+
+		int count = Math.min(length, this.bytes.remaining());
+		this.bytes.get(buffer, offset, count);
+		return count;
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "TextInputStream " + System.identityHashCode(this);
+	}
+
+	/**
+	 * Encode the next chunk of the text if all the encoded bytes were read.
+	 *
+	 * @return true, if there are bytes to be read. False, if the end was reached.
+	 * @since 0.1.1 ~2021.09.04
+	 */
+	protected boolean fill() {
+		while (!this.bytes.hasRemaining()) {
+			if (this.flushed)
+				return false;
+
+			this.bytes.clear();
+			this.encoder.encode(this.chars, this.bytes, true);
+
+			if (!this.chars.hasRemaining() && this.bytes.hasRemaining()) {
+				this.encoder.flush(this.bytes);
+				this.flushed = true;
+			}
+
+			this.bytes.flip();
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A recorder of the {@link Timing timing} of a single connection. Each phase is marked
+ * once; marking a marked phase has no effect. Thus, the first occurrence of a phase is
+ * the one recorded.
+ * <br>
+ * A timer is a single small allocation per connection and marking a phase is a single
+ * {@link System#nanoTime()} and a compare-and-set.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.31
+ */
+public class Timer {
+	/**
+	 * True, if the timing of this timer has been published.
+	 *
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@NotNull
+	protected final AtomicBoolean published = new AtomicBoolean();
+	/**
+	 * The timestamps of each phase by its ordinal.
+	 *
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@NotNull
+	protected final AtomicLongArray timestamps = new AtomicLongArray(Timing.Phase.VALUES.length);
+
+	/**
+	 * Return true if the given {@code phase} has been marked.
+	 *
+	 * @param phase the phase to be checked.
+	 * @return true, if the phase has been marked.
+	 * @throws NullPointerException if the given {@code phase} is null.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@Contract(pure = true)
+	public boolean isMarked(@NotNull Timing.Phase phase) {
+		Objects.requireNonNull(phase, "phase");
+		return this.timestamps.get(phase.ordinal()) != 0;
+	}
+
+	/**
+	 * Mark the given {@code phase} as happening now, unless it has been marked already.
+	 *
+	 * @param phase the phase to be marked.
+	 * @return true, if the phase was marked by this invocation.
+	 * @throws NullPointerException if the given {@code phase} is null.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@Contract(mutates = "this")
+	public boolean mark(@NotNull Timing.Phase phase) {
+		Objects.requireNonNull(phase, "phase");
+		int index = phase.ordinal();
+
+		if (this.timestamps.get(index) != 0)
+			return false;
+
+		long now = System.nanoTime();
+		//zero is reserved for the phases that did not happen
+		return this.timestamps.compareAndSet(index, 0, now == 0 ? 1 : now);
+	}
+
+	/**
+	 * Return the timing of this timer if it was not published before. Only the first
+	 * invocation of this method returns a timing.
+	 *
+	 * @return the timing to be published. Or null if it has been published already.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@Contract(mutates = "this")
+	public Timing publish() {
+		return this.published.compareAndSet(false, true) ? this.snapshot() : null;
+	}
+
+	/**
+	 * Return a timing of the phases marked so far.
+	 *
+	 * @return a snapshot of this timer.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@NotNull
+	@Contract(value = "->new", pure = true)
+	public Timing snapshot() {
+		long[] timestamps = new long[this.timestamps.length()];
+		for (int i = 0; i < timestamps.length; i++)
+			timestamps[i] = this.timestamps.get(i);
+		return new Timing(timestamps);
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "Timer " + System.identityHashCode(this);
+	}
+}
@@ -0,0 +1,341 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The timestamps of the phases of a single connection of a client. The timestamps are
+ * {@link System#nanoTime()} values. A phase that did not happen (for example, the dns
+ * lookup of a reused connection) has the timestamp {@code 0}.
+ * <br>
+ * Timings are immutable. They are triggered as {@link XClient#TIMING} once the result
+ * of the connection has been delivered.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.31
+ */
+public class Timing {
+	/**
+	 * The timestamps of each phase by its ordinal.
+	 *
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	protected final long[] timestamps;
+
+	/**
+	 * Construct a new timing with the given {@code timestamps}.
+	 *
+	 * @param timestamps the timestamps of each phase by its ordinal.
+	 * @throws NullPointerException     if the given {@code timestamps} is null.
+	 * @throws IllegalArgumentException if the length of the given {@code timestamps} is
+	 *                                  not the number of the phases.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	public Timing(long @NotNull [] timestamps) {
+		Objects.requireNonNull(timestamps, "timestamps");
+		if (timestamps.length != Phase.VALUES.length)
+			throw new IllegalArgumentException("timestamps.length != phases");
+		this.timestamps = timestamps.clone();
+	}
+
+	/**
+	 * Return the timestamp of the given {@code phase}.
+	 *
+	 * @param phase the phase.
+	 * @return the timestamp of the phase. Or {@code 0} if the phase did not happen.
+	 * @throws NullPointerException if the given {@code phase} is null.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@Contract(pure = true)
+	public long get(@NotNull Phase phase) {
+		Objects.requireNonNull(phase, "phase");
+		return this.timestamps[phase.ordinal()];
+	}
+
+	/**
+	 * Return the duration of the given {@code span} in this timing.
+	 *
+	 * @param span the span.
+	 * @return the duration of the span in nanoseconds. Or {@code -1} if any of its phases
+	 * 		did not happen.
+	 * @throws NullPointerException if the given {@code span} is null.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@Contract(pure = true)
+	public long get(@NotNull Span span) {
+		Objects.requireNonNull(span, "span");
+		long from = this.get(span.from);
+		long to = span.to == null ? this.last() : this.get(span.to);
+		return from == 0 || to == 0 ? -1 : to - from;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		return object == this ||
+			   object instanceof Timing &&
+			   Arrays.equals(this.timestamps, ((Timing) object).timestamps);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(this.timestamps);
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		long origin = this.get(Phase.CONNECT);
+		StringBuilder builder = new StringBuilder("Timing {");
+
+		for (Phase phase : Phase.VALUES) {
+			long timestamp = this.get(phase);
+
+			if (timestamp != 0)
+				builder.append(" ")
+					   .append(phase.name().toLowerCase())
+					   .append("=+")
+					   .append((timestamp - origin) / 1000)
+					   .append("us");
+		}
+
+		return builder.append(" }").toString();
+	}
+
+	/**
+	 * Return the latest timestamp in this timing.
+	 *
+	 * @return the latest timestamp. Or {@code 0} if no phase happened.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@Contract(pure = true)
+	protected long last() {
+		long last = 0;
+		for (long timestamp : this.timestamps)
+			if (timestamp != 0 && (last == 0 || timestamp - last > 0))
+				last = timestamp;
+		return last;
+	}
+
+	/**
+	 * The phases of a connection in the order they usually happen.
+	 *
+	 * @author LSafer
+	 * @version 0.1.1
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	public enum Phase {
+		/**
+		 * {@link XClient#connect()} was called.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		CONNECT,
+		/**
+		 * The middlewares are done and the transport received the request.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		MIDDLEWARE,
+		/**
+		 * The dns lookup started.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		DNS_START,
+		/**
+		 * The dns lookup ended.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		DNS_END,
+		/**
+		 * The socket connection started.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		SOCKET_START,
+		/**
+		 * The tls handshake started.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		TLS_START,
+		/**
+		 * The tls handshake ended.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		TLS_END,
+		/**
+		 * The connection (including the tls handshake) was established.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		SOCKET_END,
+		/**
+		 * The first byte of the response was received.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		FIRST_BYTE,
+		/**
+		 * The body of the response was received completely.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		BODY_END,
+		/**
+		 * The result was triggered on the client.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		TRIGGER,
+		/**
+		 * A callback handling the result was posted to a handler (or an executor).
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		ENQUEUE,
+		/**
+		 * The posted callback started.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		CALLBACK_START,
+		/**
+		 * The posted callback finished.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		CALLBACK_END;
+
+		/**
+		 * A cached array of the phases.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		protected static final Phase[] VALUES = Phase.values();
+	}
+
+	/**
+	 * The durations worth aggregating between the phases of a connection.
+	 *
+	 * @author LSafer
+	 * @version 0.1.1
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	public enum Span {
+		/**
+		 * From calling connect to the transport receiving the request.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		MIDDLEWARE(Phase.CONNECT, Phase.MIDDLEWARE),
+		/**
+		 * The dns lookup.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		DNS(Phase.DNS_START, Phase.DNS_END),
+		/**
+		 * The socket connection (including the tls handshake).
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		SOCKET(Phase.SOCKET_START, Phase.SOCKET_END),
+		/**
+		 * The tls handshake.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		TLS(Phase.TLS_START, Phase.TLS_END),
+		/**
+		 * From the transport receiving the request to the first byte of the response.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		FIRST_BYTE(Phase.MIDDLEWARE, Phase.FIRST_BYTE),
+		/**
+		 * From the first byte to the last byte of the response.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		BODY(Phase.FIRST_BYTE, Phase.BODY_END),
+		/**
+		 * From the last byte of the response to the result being triggered.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		TRIGGER(Phase.BODY_END, Phase.TRIGGER),
+		/**
+		 * The wait of the posted callback in the queue of its handler.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		QUEUE(Phase.ENQUEUE, Phase.CALLBACK_START),
+		/**
+		 * The execution of the posted callback.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		CALLBACK(Phase.CALLBACK_START, Phase.CALLBACK_END),
+		/**
+		 * From calling connect to the last recorded phase.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		TOTAL(Phase.CONNECT, null);
+
+		/**
+		 * A cached array of the spans.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		protected static final Span[] VALUES = Span.values();
+
+		/**
+		 * The phase starting this span.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		@NotNull
+		protected final Phase from;
+		/**
+		 * The phase ending this span. Or null for the last recorded phase.
+		 *
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		protected final Phase to;
+
+		/**
+		 * Construct a new span.
+		 *
+		 * @param from the phase starting the span.
+		 * @param to   the phase ending the span. Or null for the last recorded phase.
+		 * @since 0.1.1 ~2021.08.31
+		 */
+		Span(@NotNull Phase from, Phase to) {
+			this.from = from;
+			this.to = to;
+		}
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * An aggregate of the {@link Timing.Span spans} of many timings. Each span has a
+ * histogram of log-linear buckets (in the style of HdrHistogram): each power of two is
+ * split into {@link #SUB_BUCKETS} linear buckets. Thus, a recorded duration is kept
+ * with a relative error below {@code 1 / SUB_BUCKETS} regardless of its magnitude.
+ * <br>
+ * Recording is lock-free and allocates nothing. The histograms are fixed in size.
+ * <pre>
+ *     TimingHistogram histogram = new TimingHistogram();
+ *     client.on(XClient.TIMING, (c, timing) -> histogram.record(timing));
+ *     ...
+ *     long p99 = histogram.getPercentile(Timing.Span.QUEUE, 99, TimeUnit.MILLISECONDS);
+ * </pre>
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.31
+ */
+public class TimingHistogram {
+	/**
+	 * The number of the linear buckets in each power of two.
+	 *
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	public static final int SUB_BUCKETS = 16;
+
+	/**
+	 * The number of the buckets of a single histogram. Enough for any positive long.
+	 *
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	protected static final int BUCKETS = (64 - 4) * TimingHistogram.SUB_BUCKETS;
+
+	/**
+	 * The counts of the buckets of the histograms of all the spans. The histogram of a
+	 * span starts at {@code span.ordinal() * BUCKETS}.
+	 *
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@NotNull
+	protected final AtomicLongArray counts = new AtomicLongArray(Timing.Span.VALUES.length * TimingHistogram.BUCKETS);
+
+	/**
+	 * Return the index of the bucket of the given {@code value}.
+	 *
+	 * @param value the value. (non-negative)
+	 * @return the index of the bucket of the value.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@Contract(pure = true)
+	protected static int bucket(long value) {
+		if (value < 2 * TimingHistogram.SUB_BUCKETS)
+			return (int) value;
+
+		//the five most significant bits select the bucket within the power of two
+		int shift = 63 - Long.numberOfLeadingZeros(value) - 4;
+		return (shift + 1) * TimingHistogram.SUB_BUCKETS + (int) (value >>> shift) - TimingHistogram.SUB_BUCKETS;
+	}
+
+	/**
+	 * Return the highest value in the bucket with the given {@code index}.
+	 *
+	 * @param index the index of the bucket.
+	 * @return the highest value of the bucket.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@Contract(pure = true)
+	protected static long highest(int index) {
+		if (index < 2 * TimingHistogram.SUB_BUCKETS)
+			return index;
+
+		int shift = index / TimingHistogram.SUB_BUCKETS - 1;
+		long sub = index % TimingHistogram.SUB_BUCKETS + TimingHistogram.SUB_BUCKETS;
+		return ((sub + 1) << shift) - 1;
+	}
+
+	/**
+	 * Get the number of the durations recorded for the given {@code span}.
+	 *
+	 * @param span the span.
+	 * @return the number of the recorded durations of the span.
+	 * @throws NullPointerException if the given {@code span} is null.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@Contract(pure = true)
+	public long getCount(@NotNull Timing.Span span) {
+		Objects.requireNonNull(span, "span");
+		int offset = span.ordinal() * TimingHistogram.BUCKETS;
+		long count = 0;
+		for (int i = 0; i < TimingHistogram.BUCKETS; i++)
+			count += this.counts.get(offset + i);
+		return count;
+	}
+
+	/**
+	 * Get the duration that the given {@code percentile} of the recorded durations of
+	 * the given {@code span} are less than or equal to.
+	 *
+	 * @param span       the span.
+	 * @param percentile the percentile. (between 0 and 100)
+	 * @param unit       the unit of the returned duration.
+	 * @return the duration at the given percentile. Or -1 if nothing was recorded.
+	 * @throws NullPointerException     if the given {@code span} or {@code unit} is
+	 *                                  null.
+	 * @throws IllegalArgumentException if the given {@code percentile} is not between 0
+	 *                                  and 100.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@Contract(pure = true)
+	public long getPercentile(@NotNull Timing.Span span, double percentile, @NotNull TimeUnit unit) {
+		Objects.requireNonNull(span, "span");
+		Objects.requireNonNull(unit, "unit");
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("percentile not in [0, 100]");
+		long count = this.getCount(span);
+
+		if (count == 0)
+			return -1;
+
+		int offset = span.ordinal() * TimingHistogram.BUCKETS;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < TimingHistogram.BUCKETS; i++) {
+			seen += this.counts.get(offset + i);
+
+			if (seen >= rank)
+				return unit.convert(TimingHistogram.highest(i), TimeUnit.NANOSECONDS);
+		}
+
+		return unit.convert(TimingHistogram.highest(TimingHistogram.BUCKETS - 1), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Record the spans of the given {@code timing}. The spans with missing phases are
+	 * skipped.
+	 *
+	 * @param timing the timing to be recorded.
+	 * @throws NullPointerException if the given {@code timing} is null.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	public void record(@NotNull Timing timing) {
+		Objects.requireNonNull(timing, "timing");
+		for (Timing.Span span : Timing.Span.VALUES) {
+			long duration = timing.get(span);
+
+			if (duration >= 0)
+				this.counts.incrementAndGet(span.ordinal() * TimingHistogram.BUCKETS + TimingHistogram.bucket(duration));
+		}
+	}
+
+	/**
+	 * Remove all the recorded durations.
+	 *
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	public void reset() {
+		for (int i = 0; i < this.counts.length(); i++)
+			this.counts.set(i, 0);
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("TimingHistogram {");
+
+		for (Timing.Span span : Timing.Span.VALUES) {
+			long count = this.getCount(span);
+
+			if (count != 0)
+				builder.append(" ")
+					   .append(span.name().toLowerCase())
+					   .append("=[n=")
+					   .append(count)
+					   .append(" p50=")
+					   .append(this.getPercentile(span, 50, TimeUnit.MICROSECONDS))
+					   .append("us p99=")
+					   .append(this.getPercentile(span, 99, TimeUnit.MICROSECONDS))
+					   .append("us]");
+		}
+
+		return builder.append(" }").toString();
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.Objects;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+/**
+ * An okhttp event listener recording the network phases of a call to the {@link Timer
+ * timer} tagged to its request. The phases of a reused connection (dns, socket and tls)
+ * are not recorded.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.31
+ */
+public class TimingListener extends EventListener {
+	/**
+	 * The timer to record the phases to.
+	 *
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@NotNull
+	protected final Timer timer;
+
+	/**
+	 * Construct a new listener recording to the given {@code timer}.
+	 *
+	 * @param timer the timer to record the phases to.
+	 * @throws NullPointerException if the given {@code timer} is null.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	public TimingListener(@NotNull Timer timer) {
+		Objects.requireNonNull(timer, "timer");
+		this.timer = timer;
+	}
+
+	/**
+	 * Return a factory that creates the listeners of the given {@code base} factory. For
+	 * the calls that the base factory does not listen to and that have a timer tagged to
+	 * their request, a timing listener gets created instead.
+	 *
+	 * @param base the factory to prefer its listeners.
+	 * @return a factory of timing listeners.
+	 * @throws NullPointerException if the given {@code base} is null.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@NotNull
+	public static EventListener.Factory factory(@NotNull EventListener.Factory base) {
+		Objects.requireNonNull(base, "base");
+		return call -> {
+			EventListener listener = base.create(call);
+
+			if (listener != EventListener.NONE)
+				//okhttp listeners cannot be chained
+				return listener;
+
+			Timer timer = call.request().tag(Timer.class);
+			return timer == null ? EventListener.NONE : new TimingListener(timer);
+		};
+	}
+
+	@Override
+	public void connectEnd(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress, @NotNull Proxy proxy, @Nullable Protocol protocol) {
+		this.timer.mark(Timing.Phase.SOCKET_END);
+	}
+
+	@Override
+	public void connectStart(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress, @NotNull Proxy proxy) {
+		this.timer.mark(Timing.Phase.SOCKET_START);
+	}
+
+	@Override
+	public void dnsEnd(@NotNull Call call, @NotNull String domainName, @NotNull List<InetAddress> inetAddressList) {
+		this.timer.mark(Timing.Phase.DNS_END);
+	}
+
+	@Override
+	public void dnsStart(@NotNull Call call, @NotNull String domainName) {
+		this.timer.mark(Timing.Phase.DNS_START);
+	}
+
+	@Override
+	public void responseBodyEnd(@NotNull Call call, long byteCount) {
+		this.timer.mark(Timing.Phase.BODY_END);
+	}
+
+	@Override
+	public void responseHeadersStart(@NotNull Call call) {
+		this.timer.mark(Timing.Phase.FIRST_BYTE);
+	}
+
+	@Override
+	public void secureConnectEnd(@NotNull Call call, @Nullable Handshake handshake) {
+		this.timer.mark(Timing.Phase.TLS_END);
+	}
+
+	@Override
+	public void secureConnectStart(@NotNull Call call) {
+		this.timer.mark(Timing.Phase.TLS_START);
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "TimingListener " + System.identityHashCode(this);
+	}
+}
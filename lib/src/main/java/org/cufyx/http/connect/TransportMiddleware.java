@@ -0,0 +1,328 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.cufy.http.connect.Client;
+import org.cufy.http.middleware.Middleware;
+import org.cufy.http.request.Request;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * A middleware that decides how the requests of a client get connected and delegates
+ * the actual connection to another middleware (the transport).
+ * <br>
+ * Each connection is performed by a separate exchange client having the transport as
+ * its only middleware. The results of the exchange are then passed back to the client
+ * that has been connected by the implementation.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.22
+ */
+public abstract class TransportMiddleware implements Middleware<Client<?>> {
+	/**
+	 * The client each exchange client has been created for. (lock on itself)
+	 *
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@NotNull
+	protected static final Map<Client<?>, Client<?>> ORIGINS = new WeakHashMap<>();
+
+	/**
+	 * The transport performing the actual connections.
+	 *
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	protected final Middleware<? super Client<?>> transport;
+
+	/**
+	 * Construct a new middleware delegating to the given {@code transport}.
+	 *
+	 * @param transport the transport performing the actual connections.
+	 * @throws NullPointerException if the given {@code transport} is null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	protected TransportMiddleware(@NotNull Middleware<? super Client<?>> transport) {
+		Objects.requireNonNull(transport, "transport");
+		this.transport = transport;
+	}
+
+	/**
+	 * Return true if the {@link #origin(Client) origin} of the given {@code client} has
+	 * been cancelled. A middleware must not send (or resend) the request of a cancelled
+	 * client.
+	 *
+	 * @param client the client to be checked.
+	 * @return true, if the origin of the client has been cancelled.
+	 * @throws NullPointerException if the given {@code client} is null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@Contract(pure = true)
+	protected static boolean cancelled(@NotNull Client<?> client) {
+		Objects.requireNonNull(client, "client");
+		Client<?> origin = TransportMiddleware.origin(client);
+		return origin instanceof AbstractXClient &&
+			   ((AbstractXClient<?>) origin).state.get() == AbstractXClient.STATE_CANCELLED;
+	}
+
+	/**
+	 * Return the value of the first header with the given {@code name} in the given raw
+	 * http {@code message}.
+	 *
+	 * @param message the raw http message.
+	 * @param name    the name of the header (case-insensitive).
+	 * @return the value of the header. Or null if the message has no such header.
+	 * @throws NullPointerException if the given {@code message} or {@code name} is null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@Nullable
+	@Contract(pure = true)
+	protected static String header(@NotNull String message, @NotNull @NonNls String name) {
+		Objects.requireNonNull(message, "message");
+		Objects.requireNonNull(name, "name");
+		int start = message.indexOf('\n') + 1;
+
+		while (start > 0 && start < message.length()) {
+			int end = message.indexOf('\n', start);
+			String line = message.substring(start, end < 0 ? message.length() : end).trim();
+
+			if (line.isEmpty())
+				//end of headers
+				return null;
+
+			int colon = line.indexOf(':');
+
+			if (colon == name.length() && line.regionMatches(true, 0, name, 0, colon))
+				return line.substring(colon + 1).trim();
+
+			start = end + 1;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Return the client that the given {@code client} is an exchange of. Following the
+	 * exchanges of the nested middlewares. The limits of the {@link Deadline deadline}
+	 * and the cancellation of a client reach its exchanges through this.
+	 *
+	 * @param client the client to get its origin.
+	 * @return the client the given {@code client} has been created for. Or the given
+	 * 		{@code client} if it is not an exchange.
+	 * @throws NullPointerException if the given {@code client} is null.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public static Client<?> origin(@NotNull Client<?> client) {
+		Objects.requireNonNull(client, "client");
+		synchronized (TransportMiddleware.ORIGINS) {
+			Client<?> origin = client;
+			for (Client<?> o = TransportMiddleware.ORIGINS.get(origin); o != null; o = TransportMiddleware.ORIGINS.get(origin))
+				origin = o;
+			return origin;
+		}
+	}
+
+	/**
+	 * Return the status code in the status line of the given raw http response {@code
+	 * message}.
+	 *
+	 * @param message the raw http response message.
+	 * @return the status code. Or -1 if the status line is malformed.
+	 * @throws NullPointerException if the given {@code message} is null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@Contract(pure = true)
+	protected static int status(@NotNull String message) {
+		Objects.requireNonNull(message, "message");
+		int start = message.indexOf(' ') + 1;
+		int end = message.indexOf(' ', start);
+
+		if (start <= 0)
+			return -1;
+
+		try {
+			return Integer.parseInt(message.substring(start, end < 0 ? message.length() : end).trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Return the {@link XTransport} at the end of the chain of middlewares starting with
+	 * the given {@code transport}.
+	 *
+	 * @param transport the transport to unwrap.
+	 * @return the xtransport performing the connections of the given {@code transport}.
+	 * 		Or null if the chain does not end with one.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@Nullable
+	@Contract(pure = true)
+	protected static XTransport unwrap(@Nullable Middleware<?> transport) {
+		Middleware<?> current = transport;
+		while (current instanceof TransportMiddleware)
+			current = ((TransportMiddleware) current).transport;
+
+		return current instanceof XTransport ? (XTransport) current : null;
+	}
+
+	/**
+	 * Return a copy of the given raw http {@code message} with a header of the given
+	 * {@code name} and {@code value} inserted after its start line.
+	 *
+	 * @param message the raw http message.
+	 * @param name    the name of the header.
+	 * @param value   the value of the header.
+	 * @return a copy of the message with the header.
+	 * @throws NullPointerException if the given {@code message} or {@code name} or {@code
+	 *                              value} is null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	@Contract(pure = true)
+	protected static String withHeader(@NotNull String message, @NotNull @NonNls String name, @NotNull String value) {
+		Objects.requireNonNull(message, "message");
+		Objects.requireNonNull(name, "name");
+		Objects.requireNonNull(value, "value");
+		int end = message.indexOf('\n') + 1;
+
+		if (end <= 0)
+			return message + "\r\n" + name + ": " + value + "\r\n";
+
+		return message.substring(0, end) + name + ": " + value + "\r\n" + message.substring(end);
+	}
+
+	/**
+	 * Cancel the connections of the exchanges of the given {@code client} that are
+	 * queued or running in the transport of this middleware.
+	 *
+	 * @param client the client to cancel the connections of its exchanges.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code client} is null.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	public TransportMiddleware cancel(@NotNull Client<?> client) {
+		Objects.requireNonNull(client, "client");
+		Middleware<? super Client<?>> transport = this.transport;
+
+		if (transport instanceof XTransport)
+			((XTransport) transport).cancel(client);
+		if (transport instanceof TransportMiddleware)
+			((TransportMiddleware) transport).cancel(client);
+
+		return this;
+	}
+
+	@Override
+	public void inject(@NotNull Client<?> client) {
+		Objects.requireNonNull(client, "client");
+		client.on(Client.CONNECT, (caller, request) ->
+				this.connect(client, request)
+		);
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + " " + System.identityHashCode(this);
+	}
+
+	/**
+	 * Connect the given {@code request} of the given {@code client}. The implementation
+	 * is expected to eventually trigger {@link Client#CONNECTED} or {@link
+	 * Client#DISCONNECTED} on the given {@code client}.
+	 *
+	 * @param client  the client to be connected.
+	 * @param request the request to be connected.
+	 * @throws NullPointerException if the given {@code client} or {@code request} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	protected abstract void connect(@NotNull Client<?> client, @NotNull Request<?> request);
+
+	/**
+	 * Return a new exchange client that connects the given {@code request} using the
+	 * transport of this middleware. The returned client has no listeners other than the
+	 * ones added by the transport.
+	 *
+	 * @param request the request to be connected.
+	 * @return a new exchange client.
+	 * @throws NullPointerException if the given {@code request} is null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	protected Client<?> exchange(@NotNull Request<?> request) {
+		Objects.requireNonNull(request, "request");
+		Client<?> exchange = Client.client(request);
+		exchange.middleware(this.transport);
+		return exchange;
+	}
+
+	/**
+	 * Return a new exchange client that connects the given {@code request} on behalf of
+	 * the given {@code client} using the transport of this middleware. The {@link
+	 * Deadline deadline} of the given client applies to the returned exchange and
+	 * cancelling the given client cancels the returned exchange.
+	 *
+	 * @param client  the client the exchange is for.
+	 * @param request the request to be connected.
+	 * @return a new exchange client.
+	 * @throws NullPointerException if the given {@code client} or {@code request} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@NotNull
+	protected Client<?> exchange(@NotNull Client<?> client, @NotNull Request<?> request) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(request, "request");
+		Client<?> exchange = this.exchange(request);
+		synchronized (TransportMiddleware.ORIGINS) {
+			TransportMiddleware.ORIGINS.put(exchange, client);
+		}
+		return exchange;
+	}
+
+	/**
+	 * Return the executor to perform the blocking work of the given {@code client} with.
+	 *
+	 * @param client the client to get an executor for.
+	 * @return the executor of the given {@code client} if it has one. Otherwise, the
+	 * 		default executor.
+	 * @throws NullPointerException if the given {@code client} is null.
+	 * @since 0.1.1 ~2021.08.22
+	 */
+	@NotNull
+	@Contract(pure = true)
+	protected Executor executor(@NotNull Client<?> client) {
+		Objects.requireNonNull(client, "client");
+		return client instanceof XClient ?
+			   ((XClient<?>) client).getExecutor() :
+			   AbstractXClient.EXECUTOR;
+	}
+}
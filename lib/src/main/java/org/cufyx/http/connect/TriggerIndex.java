@@ -0,0 +1,352 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.cufy.http.connect.Callback;
+import org.intellij.lang.annotations.Language;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * An index of regex listeners that memoizes the listeners matching each trigger. The
+ * listeners of a trigger are resolved once and reused until a listener is added.
+ * <br>
+ * Regexes that are only a literal or an alternation of literals (like {@code
+ * "connected|disconnected"}) are matched using a set lookup without invoking {@link
+ * java.util.regex}.
+ * <br>
+ * The state of an index is immutable and replaced on each change. Thus, cloning an index
+ * is constant-time regardless of the number of its listeners.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.20
+ */
+public class TriggerIndex implements Cloneable {
+	/**
+	 * The maximum number of triggers to memoize.
+	 *
+	 * @since 0.1.1 ~2021.08.20
+	 */
+	public static final int CACHE_MAX = 256;
+
+	/**
+	 * The source of the registration order of the listeners of all the clients. Shared
+	 * with the {@link ReleasableCallback listeners stored outside the indexes} so that
+	 * both kinds can be called in the order they were added.
+	 *
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	protected static final AtomicLong SEQUENCE = new AtomicLong();
+
+	/**
+	 * The current state of this index.
+	 *
+	 * @since 0.1.1 ~2021.08.20
+	 */
+	@NotNull
+	protected volatile State state = new State(new Listener[0]);
+
+	/**
+	 * Add a listener with the given {@code type}, {@code regex} and {@code callback}.
+	 *
+	 * @param type     the type of the accepted parameters.
+	 * @param regex    the regex of the triggers to listen to.
+	 * @param callback the callback of the listener.
+	 * @return this.
+	 * @throws NullPointerException                   if the given {@code type} or {@code
+	 *                                                regex} or {@code callback} is null.
+	 * @throws java.util.regex.PatternSyntaxException if the given {@code regex} is not a
+	 *                                                valid regex.
+	 * @since 0.1.1 ~2021.08.20
+	 */
+	@NotNull
+	@Contract(value = "_,_,_->this", mutates = "this")
+	public TriggerIndex add(@NotNull Class<?> type, @NotNull @NonNls @Language("RegExp") String regex, @NotNull Callback<?, ?> callback) {
+		Objects.requireNonNull(type, "type");
+		Objects.requireNonNull(regex, "regex");
+		Objects.requireNonNull(callback, "callback");
+		Listener listener = new Listener(type, regex, callback);
+
+		synchronized (this) {
+			Listener[] listeners = this.state.listeners;
+			Listener[] array = Arrays.copyOf(listeners, listeners.length + 1);
+			array[listeners.length] = listener;
+			this.state = new State(array);
+		}
+
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public TriggerIndex clone() {
+		try {
+			//the state is immutable; it is safe to share it
+			return (TriggerIndex) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new InternalError(e);
+		}
+	}
+
+	/**
+	 * Return the listeners listening to the given {@code trigger}. The returned array
+	 * must not be modified.
+	 *
+	 * @param trigger the trigger to resolve its listeners.
+	 * @return the listeners of the given {@code trigger}.
+	 * @throws NullPointerException if the given {@code trigger} is null.
+	 * @since 0.1.1 ~2021.08.20
+	 */
+	@NotNull
+	public Listener @NotNull [] resolve(@NotNull @NonNls String trigger) {
+		Objects.requireNonNull(trigger, "trigger");
+		State state = this.state;
+		Listener[] resolved = state.cache.get(trigger);
+
+		if (resolved == null) {
+			List<Listener> list = new ArrayList<>();
+			for (Listener listener : state.listeners)
+				if (listener.matches(trigger))
+					list.add(listener);
+
+			resolved = list.toArray(new Listener[0]);
+
+			if (state.cache.size() < TriggerIndex.CACHE_MAX)
+				state.cache.put(trigger, resolved);
+		}
+
+		return resolved;
+	}
+
+	/**
+	 * Return the number of listeners in this index.
+	 *
+	 * @return the number of listeners.
+	 * @since 0.1.1 ~2021.08.20
+	 */
+	@Contract(pure = true)
+	public int size() {
+		return this.state.listeners.length;
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "TriggerIndex " + System.identityHashCode(this);
+	}
+
+	/**
+	 * A listener in an index.
+	 *
+	 * @author LSafer
+	 * @version 0.1.1
+	 * @since 0.1.1 ~2021.08.20
+	 */
+	public static class Listener {
+		/**
+		 * The callback of this listener.
+		 *
+		 * @since 0.1.1 ~2021.08.20
+		 */
+		@NotNull
+		protected final Callback callback;
+		/**
+		 * The registration order of this listener.
+		 *
+		 * @since 0.1.1 ~2021.09.07
+		 */
+		protected final long sequence = TriggerIndex.SEQUENCE.incrementAndGet();
+		/**
+		 * The literals matched by this listener. Or null if this listener requires a
+		 * regex.
+		 *
+		 * @since 0.1.1 ~2021.08.20
+		 */
+		@Nullable
+		protected final Set<String> literals;
+		/**
+		 * The pattern matched by this listener. Or null if this listener matches
+		 * literals.
+		 *
+		 * @since 0.1.1 ~2021.08.20
+		 */
+		@Nullable
+		protected final Pattern pattern;
+		/**
+		 * The type of the parameters accepted by this listener.
+		 *
+		 * @since 0.1.1 ~2021.08.20
+		 */
+		@NotNull
+		protected final Class<?> type;
+
+		/**
+		 * Construct a new listener.
+		 *
+		 * @param type     the type of the accepted parameters.
+		 * @param regex    the regex of the triggers to listen to.
+		 * @param callback the callback of the listener.
+		 * @throws NullPointerException                   if the given {@code type} or
+		 *                                                {@code regex} or {@code
+		 *                                                callback} is null.
+		 * @throws java.util.regex.PatternSyntaxException if the given {@code regex} is
+		 *                                                not a valid regex.
+		 * @since 0.1.1 ~2021.08.20
+		 */
+		public Listener(@NotNull Class<?> type, @NotNull @NonNls @Language("RegExp") String regex, @NotNull Callback<?, ?> callback) {
+			Objects.requireNonNull(type, "type");
+			Objects.requireNonNull(regex, "regex");
+			Objects.requireNonNull(callback, "callback");
+			this.type = type;
+			this.callback = callback;
+
+			if (Listener.isLiteral(regex)) {
+				this.literals = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(regex.split("\\|"))));
+				this.pattern = null;
+			} else {
+				this.literals = null;
+				this.pattern = Pattern.compile(regex);
+			}
+		}
+
+		/**
+		 * Return true if the given {@code regex} is a literal or an alternation of
+		 * literals.
+		 *
+		 * @param regex the regex to be checked.
+		 * @return true, if the given {@code regex} can be matched without a regex engine.
+		 * @throws NullPointerException if the given {@code regex} is null.
+		 * @since 0.1.1 ~2021.08.20
+		 */
+		@Contract(pure = true)
+		protected static boolean isLiteral(@NotNull String regex) {
+			Objects.requireNonNull(regex, "regex");
+			boolean empty = true;
+			for (int i = 0, l = regex.length(); i < l; i++) {
+				char c = regex.charAt(i);
+
+				if (c == '|') {
+					if (empty)
+						return false;
+					empty = true;
+				} else if (Character.isLetterOrDigit(c) || c == '_' || c == '-')
+					empty = false;
+				else
+					return false;
+			}
+
+			return !empty;
+		}
+
+		/**
+		 * Return true if the given {@code parameter} is accepted by this listener.
+		 *
+		 * @param parameter the parameter to be checked.
+		 * @return true, if the given {@code parameter} can be passed to the callback.
+		 * @since 0.1.1 ~2021.08.20
+		 */
+		@Contract(pure = true)
+		public boolean accepts(@Nullable Object parameter) {
+			return parameter == null || this.type.isInstance(parameter);
+		}
+
+		/**
+		 * Invoke the callback of this listener.
+		 *
+		 * @param caller    the caller.
+		 * @param parameter the parameter.
+		 * @throws Throwable any throwable thrown by the callback.
+		 * @since 0.1.1 ~2021.08.20
+		 */
+		public void call(@NotNull Object caller, @Nullable Object parameter) throws Throwable {
+			//noinspection unchecked
+			this.callback.call(caller, parameter);
+		}
+
+		/**
+		 * Return true if this listener listens to the given {@code trigger}.
+		 *
+		 * @param trigger the trigger to be checked.
+		 * @return true, if this listener matches the given {@code trigger}.
+		 * @throws NullPointerException if the given {@code trigger} is null.
+		 * @since 0.1.1 ~2021.08.20
+		 */
+		@Contract(pure = true)
+		public boolean matches(@NotNull @NonNls String trigger) {
+			Objects.requireNonNull(trigger, "trigger");
+			return this.literals != null ?
+				   this.literals.contains(trigger) :
+				   this.pattern.matcher(trigger).matches();
+		}
+
+		@NotNull
+		@Override
+		public String toString() {
+			return "Listener " + System.identityHashCode(this);
+		}
+	}
+
+	/**
+	 * An immutable state of an index.
+	 *
+	 * @author LSafer
+	 * @version 0.1.1
+	 * @since 0.1.1 ~2021.08.20
+	 */
+	protected static class State {
+		/**
+		 * The resolved listeners of each trigger.
+		 *
+		 * @since 0.1.1 ~2021.08.20
+		 */
+		@NotNull
+		protected final ConcurrentHashMap<String, Listener[]> cache = new ConcurrentHashMap<>();
+		/**
+		 * The listeners.
+		 *
+		 * @since 0.1.1 ~2021.08.20
+		 */
+		@NotNull
+		protected final Listener @NotNull [] listeners;
+
+		/**
+		 * Construct a new state with the given {@code listeners}.
+		 *
+		 * @param listeners the listeners.
+		 * @throws NullPointerException if the given {@code listeners} is null.
+		 * @since 0.1.1 ~2021.08.20
+		 */
+		protected State(@NotNull Listener @NotNull [] listeners) {
+			Objects.requireNonNull(listeners, "listeners");
+			this.listeners = listeners;
+		}
+	}
+}
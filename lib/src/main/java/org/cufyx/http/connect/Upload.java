@@ -0,0 +1,355 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import org.cufy.http.connect.Client;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * A request body streamed from a file channel in chunks. Thus, the heap used by an
+ * upload is constant regardless of the size of the body.
+ * <br>
+ * If the length of the source is known, the body is sent with a fixed {@code
+ * Content-Length} and the channel is transferred to the connection using {@link
+ * FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}. Otherwise,
+ * the body is sent using the chunked encoding.
+ * <br>
+ * While writing, {@link XClient#PROGRESS} is triggered at most once per {@link
+ * Download#INTERVAL}.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.28
+ */
+public class Upload extends RequestBody {
+	/**
+	 * The maximum number of bytes to be transferred at once.
+	 *
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	public static final int CHUNK = 64 * 1024;
+
+	/**
+	 * The client to trigger the progress to.
+	 *
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	@NotNull
+	protected final Client<?> client;
+	/**
+	 * The type of the body. Or null if unknown.
+	 *
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	@Nullable
+	protected final MediaType contentType;
+	/**
+	 * The source of the body.
+	 *
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	@NotNull
+	protected final Source source;
+
+	/**
+	 * The length of the source. Or -2 if not computed yet.
+	 *
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	protected long length = -2;
+
+	/**
+	 * Construct a new upload body.
+	 *
+	 * @param client      the client to trigger the progress to.
+	 * @param source      the source of the body.
+	 * @param contentType the type of the body. Or null if unknown.
+	 * @throws NullPointerException if the given {@code client} or {@code source} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	public Upload(@NotNull Client<?> client, @NotNull Source source, @Nullable MediaType contentType) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(source, "source");
+		this.client = client;
+		this.source = source;
+		this.contentType = contentType;
+	}
+
+	/**
+	 * Return a source that reads the given {@code descriptor}. The descriptor will be
+	 * closed after the upload. Descriptors that are not seekable (like pipes) are
+	 * uploaded using the chunked encoding.
+	 *
+	 * @param descriptor the descriptor to upload.
+	 * @return a source of the given {@code descriptor}.
+	 * @throws NullPointerException if the given {@code descriptor} is null.
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	@NotNull
+	public static Source descriptor(@NotNull ParcelFileDescriptor descriptor) {
+		Objects.requireNonNull(descriptor, "descriptor");
+		return new Source() {
+			@Override
+			public boolean isOneShot() {
+				return true;
+			}
+
+			@Override
+			public long length() {
+				return descriptor.getStatSize();
+			}
+
+			@NotNull
+			@Override
+			public FileChannel open() {
+				return new ParcelFileDescriptor.AutoCloseInputStream(descriptor).getChannel();
+			}
+		};
+	}
+
+	/**
+	 * Return a source that reads the given {@code file}.
+	 *
+	 * @param file the file to upload.
+	 * @return a source of the given {@code file}.
+	 * @throws NullPointerException if the given {@code file} is null.
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	@NotNull
+	public static Source file(@NotNull File file) {
+		Objects.requireNonNull(file, "file");
+		return new Source() {
+			@Override
+			public long length() {
+				return file.length();
+			}
+
+			@NotNull
+			@Override
+			public FileChannel open() throws IOException {
+				return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			}
+		};
+	}
+
+	/**
+	 * Return a source that reads the given content {@code uri} using the content
+	 * resolver of the given {@code context}.
+	 *
+	 * @param context the context to use its content resolver.
+	 * @param uri     the uri to upload.
+	 * @return a source of the given {@code uri}.
+	 * @throws NullPointerException if the given {@code context} or {@code uri} is null.
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	@NotNull
+	public static Source uri(@NotNull Context context, @NotNull Uri uri) {
+		Objects.requireNonNull(context, "context");
+		Objects.requireNonNull(uri, "uri");
+		Context application = AbstractXClient.application(context);
+		return new Source() {
+			@Override
+			public long length() throws IOException {
+				try (ParcelFileDescriptor descriptor = this.descriptor()) {
+					return descriptor.getStatSize();
+				}
+			}
+
+			@NotNull
+			@Override
+			public FileChannel open() throws IOException {
+				return new ParcelFileDescriptor.AutoCloseInputStream(this.descriptor()).getChannel();
+			}
+
+			@NotNull
+			private ParcelFileDescriptor descriptor() throws IOException {
+				ParcelFileDescriptor descriptor = application.getContentResolver().openFileDescriptor(uri, "r");
+
+				if (descriptor == null)
+					throw new FileNotFoundException(uri.toString());
+
+				return descriptor;
+			}
+		};
+	}
+
+	@Override
+	public long contentLength() throws IOException {
+		if (this.length == -2)
+			//the source might be expensive to open
+			this.length = this.source.length();
+
+		return this.length;
+	}
+
+	@Nullable
+	@Override
+	public MediaType contentType() {
+		return this.contentType;
+	}
+
+	@Override
+	public boolean isOneShot() {
+		return this.source.isOneShot();
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "Upload " + System.identityHashCode(this);
+	}
+
+	@Override
+	public void writeTo(@NotNull BufferedSink sink) throws IOException {
+		Objects.requireNonNull(sink, "sink");
+		long length = this.contentLength();
+
+		try (FileChannel channel = this.source.open()) {
+			if (length < 0)
+				this.copy(channel, sink);
+			else
+				this.transfer(channel, sink, length);
+		}
+	}
+
+	/**
+	 * Copy the given {@code channel} to the given {@code sink} until the end of the
+	 * channel is reached.
+	 *
+	 * @param channel the channel to read from.
+	 * @param sink    the sink to write to.
+	 * @throws NullPointerException if the given {@code channel} or {@code sink} is null.
+	 * @throws IOException          if an I/O exception occurred.
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	protected void copy(@NotNull FileChannel channel, @NotNull BufferedSink sink) throws IOException {
+		Objects.requireNonNull(channel, "channel");
+		Objects.requireNonNull(sink, "sink");
+		ByteBuffer buffer = ByteBuffer.allocateDirect(Upload.CHUNK);
+		long transferred = 0;
+		long triggered = System.nanoTime();
+
+		while (channel.read(buffer) != -1) {
+			buffer.flip();
+			while (buffer.hasRemaining())
+				transferred += sink.write(buffer);
+			buffer.clear();
+
+			long now = System.nanoTime();
+			if (now - triggered >= Download.INTERVAL) {
+				triggered = now;
+				this.client.trigger(XClient.PROGRESS, new Progress(transferred, -1));
+			}
+		}
+
+		this.client.trigger(XClient.PROGRESS, new Progress(transferred, transferred));
+	}
+
+	/**
+	 * Transfer the first {@code length} bytes of the given {@code channel} to the given
+	 * {@code sink}.
+	 *
+	 * @param channel the channel to read from.
+	 * @param sink    the sink to write to.
+	 * @param length  the number of bytes to transfer.
+	 * @throws NullPointerException if the given {@code channel} or {@code sink} is null.
+	 * @throws IOException          if an I/O exception occurred or the channel ended
+	 *                              before the given {@code length}.
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	protected void transfer(@NotNull FileChannel channel, @NotNull BufferedSink sink, long length) throws IOException {
+		Objects.requireNonNull(channel, "channel");
+		Objects.requireNonNull(sink, "sink");
+		long transferred = 0;
+		long triggered = System.nanoTime();
+
+		while (transferred < length) {
+			long count = channel.transferTo(transferred, Math.min(Upload.CHUNK, length - transferred), sink);
+
+			if (count <= 0)
+				throw new EOFException("Expected " + length + " bytes but was " + transferred);
+
+			transferred += count;
+
+			long now = System.nanoTime();
+			if (now - triggered >= Download.INTERVAL) {
+				triggered = now;
+				this.client.trigger(XClient.PROGRESS, new Progress(transferred, length));
+			}
+		}
+
+		this.client.trigger(XClient.PROGRESS, new Progress(transferred, length));
+	}
+
+	/**
+	 * The source of an upload.
+	 *
+	 * @author LSafer
+	 * @version 0.1.1
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	public interface Source {
+		/**
+		 * Return true if this source can be opened once only.
+		 *
+		 * @return true, if this source is one-shot.
+		 * @since 0.1.1 ~2021.08.28
+		 */
+		@Contract(pure = true)
+		default boolean isOneShot() {
+			return false;
+		}
+
+		/**
+		 * Return the number of bytes of this source.
+		 *
+		 * @return the length of this source. Or -1 if unknown.
+		 * @throws IOException if an I/O exception occurred.
+		 * @since 0.1.1 ~2021.08.28
+		 */
+		long length() throws IOException;
+
+		/**
+		 * Open a channel to read this source from its start.
+		 *
+		 * @return a new readable file channel.
+		 * @throws IOException if an I/O exception occurred.
+		 * @since 0.1.1 ~2021.08.28
+		 */
+		@NotNull
+		FileChannel open() throws IOException;
+	}
+}
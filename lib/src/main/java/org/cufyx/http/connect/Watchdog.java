@@ -0,0 +1,179 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import org.cufy.http.connect.Action;
+import org.cufy.http.connect.Callback;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An opt-in watchdog timing the callbacks added using {@link XClient#onh(Action,
+ * Callback)}. A callback that runs longer than the frame budget of the watchdog gets
+ * reported as {@link XClient#JANK} on its client. If the watchdog is rerouting, the
+ * reported callback gets performed using the {@link XClient#getExecutor() executor} of
+ * its client for the subsequent occurrences instead of blocking the thread of the
+ * handler again.
+ * <br>
+ * A watchdog can be shared between clients. Watching costs two {@link System#nanoTime()}
+ * calls per callback.
+ * <pre>
+ *     client.setWatchdog(new Watchdog(8, TimeUnit.MILLISECONDS, false))
+ *           .on(XClient.JANK, (c, jank) -> Log.w("Jank", jank.toString()));
+ * </pre>
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.09.01
+ */
+public class Watchdog {
+	/**
+	 * The default frame budget in nanoseconds. Half a frame at 60Hz.
+	 *
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	public static final long BUDGET = TimeUnit.MILLISECONDS.toNanos(8);
+
+	/**
+	 * The frame budget in nanoseconds.
+	 *
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	protected final long budget;
+	/**
+	 * True, if the reported callbacks get rerouted.
+	 *
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	protected final boolean rerouting;
+	/**
+	 * The callbacks that were rerouted. (lock on itself)
+	 *
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	@NotNull
+	protected final Map<Callback<?, ?>, Boolean> rerouted = new WeakHashMap<>();
+
+	/**
+	 * Construct a new watchdog with the {@link #BUDGET default budget} that does not
+	 * reroute.
+	 *
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	public Watchdog() {
+		this(Watchdog.BUDGET, TimeUnit.NANOSECONDS, false);
+	}
+
+	/**
+	 * Construct a new watchdog.
+	 *
+	 * @param budget    the frame budget.
+	 * @param unit      the unit of the given {@code budget}.
+	 * @param rerouting true, to reroute the reported callbacks.
+	 * @throws NullPointerException     if the given {@code unit} is null.
+	 * @throws IllegalArgumentException if the given {@code budget} is negative.
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	public Watchdog(long budget, @NotNull TimeUnit unit, boolean rerouting) {
+		Objects.requireNonNull(unit, "unit");
+		if (budget < 0)
+			throw new IllegalArgumentException("budget < 0");
+		this.budget = unit.toNanos(budget);
+		this.rerouting = rerouting;
+	}
+
+	/**
+	 * Get the frame budget of this watchdog.
+	 *
+	 * @param unit the unit of the returned budget.
+	 * @return the frame budget.
+	 * @throws NullPointerException if the given {@code unit} is null.
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	@Contract(pure = true)
+	public long getBudget(@NotNull TimeUnit unit) {
+		Objects.requireNonNull(unit, "unit");
+		return unit.convert(this.budget, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Return true if the given {@code callback} has been rerouted by this watchdog.
+	 *
+	 * @param callback the callback to be checked.
+	 * @return true, if the callback is rerouted.
+	 * @throws NullPointerException if the given {@code callback} is null.
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	@Contract(pure = true)
+	public boolean isRerouted(@NotNull Callback<?, ?> callback) {
+		Objects.requireNonNull(callback, "callback");
+		synchronized (this.rerouted) {
+			return this.rerouted.containsKey(callback);
+		}
+	}
+
+	/**
+	 * Return true if this watchdog reroutes the reported callbacks.
+	 *
+	 * @return true, if this watchdog is rerouting.
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	@Contract(pure = true)
+	public boolean isRerouting() {
+		return this.rerouting;
+	}
+
+	/**
+	 * Check the given {@code duration} of an execution of the given {@code callback}
+	 * against the budget of this watchdog and report it to the given {@code client} if
+	 * it exceeded the budget.
+	 *
+	 * @param client   the client of the callback.
+	 * @param callback the executed callback.
+	 * @param action   the action (or the regex) the callback is listening to.
+	 * @param duration the duration of the execution in nanoseconds.
+	 * @throws NullPointerException if the given {@code client} or {@code callback} or
+	 *                              {@code action} is null.
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	public void check(@NotNull XClient<?> client, @NotNull Callback<?, ?> callback, @NotNull String action, long duration) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(callback, "callback");
+		Objects.requireNonNull(action, "action");
+
+		if (duration <= this.budget)
+			return;
+
+		if (this.rerouting)
+			synchronized (this.rerouted) {
+				this.rerouted.put(callback, Boolean.TRUE);
+			}
+
+		client.trigger(XClient.JANK, new Jank(callback, action, duration, this.rerouting));
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "Watchdog " + this.budget / 1000 + "us" + (this.rerouting ? " (rerouting)" : "");
+	}
+}
@@ -16,7 +16,15 @@
 package org.cufyx.http.connect;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
 import android.os.Handler;
+import android.os.Message;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
 
 import org.cufy.http.body.Body;
 import org.cufy.http.connect.Action;
@@ -25,6 +33,7 @@ import org.cufy.http.connect.Caller;
 import org.cufy.http.connect.Client;
 import org.cufy.http.middleware.Middleware;
 import org.cufy.http.request.Request;
+import org.cufy.http.response.Response;
 import org.cufy.http.syntax.HTTPRegExp;
 import org.intellij.lang.annotations.Language;
 import org.intellij.lang.annotations.Pattern;
@@ -33,7 +42,11 @@ import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.io.InputStream;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
 
@@ -46,11 +59,83 @@ import java.util.function.UnaryOperator;
  * @since 0.0.1 ~2021.04.08
  */
 public interface XClient<B extends Body> extends Client<B> {
+	/**
+	 * An action that is triggered when the connection of a client has been {@link
+	 * #cancel() cancelled}. The parameter is the request of the cancelled connection.
+	 *
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@NotNull
+	Action<Request> CANCELLED = Action.action(Request.class, "cancelled", "cancelled");
+	/**
+	 * An action that is triggered when the image requested by a client using {@link
+	 * #image(int, int)} has been decoded. The parameter is the decoded bitmap. Consider
+	 * listening to it using {@link #onh(Action, Callback)} since only the decoded bitmap
+	 * needs the UI thread.
+	 *
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	Action<Bitmap> IMAGE = Action.action(Bitmap.class, "image", "image");
+	/**
+	 * An action that is triggered when a callback added using {@link #onh(Action,
+	 * Callback)} exceeded the frame budget of the {@link #setWatchdog(Watchdog) watchdog}
+	 * of a client. The parameter is the report of the offending callback.
+	 *
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	@NotNull
+	Action<Jank> JANK = Action.action(Jank.class, "jank", "jank");
+	/**
+	 * An action that is triggered periodically while a client is {@link #download(File)
+	 * downloading} or {@link #upload(File) uploading}. The parameter is the progress of
+	 * the transfer. Consider listening to it using {@link #onhLatest(Action, Callback)}.
+	 *
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	@NotNull
+	Action<Progress> PROGRESS = Action.action(Progress.class, "progress", "progress");
+	/**
+	 * An action that is triggered when the connection of a client exceeded the total
+	 * limit of the {@link #setDeadline(Deadline) deadline} of the client and got
+	 * cancelled. The parameter is the request of the cancelled connection.
+	 *
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@NotNull
+	Action<Request> TIMEOUT = Action.action(Request.class, "timeout", "timeout");
+	/**
+	 * An action that is triggered once the result of a connection of a client has been
+	 * delivered. If the result was posted using {@link #onh(Action, Callback)} or {@link
+	 * #onx(Action, Callback)}, it is triggered after the first posted callback finished.
+	 * The parameter is the {@link Timing timing} of the connection. Consider aggregating
+	 * it using a {@link TimingHistogram}.
+	 *
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@NotNull
+	Action<Timing> TIMING = Action.action(Timing.class, "timing", "timing");
+	/**
+	 * An action that is triggered when the connection of a client has been {@link
+	 * #warmUp() warmed up}. The parameter is the request the connection was warmed up
+	 * for.
+	 *
+	 * @since 0.1.1 ~2021.08.26
+	 */
+	@NotNull
+	Action<Request> WARMED = Action.action(Request.class, "warmed", "warmed");
+
 	/**
 	 * <b>Default</b>
 	 * <br>
 	 * Return a new client instance to be a placeholder if a the user has not specified a
 	 * client.
+	 * <br>
+	 * The clients created by the factories of this interface connect using the shared
+	 * {@link XTransport#transport(Context) transport} of the application of their
+	 * context. Installing a transport middleware (for example {@code OkHttpMiddleware})
+	 * replaces it instead of adding a second transport. See {@link
+	 * #middleware(Middleware)}.
 	 *
 	 * @param context the context to be used by the client.
 	 * @return a new default client.
@@ -78,6 +163,47 @@ public interface XClient<B extends Body> extends Client<B> {
 		return new AbstractXClient<>(context, handler);
 	}
 
+	/**
+	 * <b>Default</b>
+	 * <br>
+	 * Return a new client instance to be a placeholder if a the user has not specified a
+	 * client.
+	 * <br>
+	 * If {@code asynchronous} is true, the callbacks of the client will be posted using
+	 * asynchronous messages. Thus, they will not be held back by the synchronization
+	 * barriers of the main looper.
+	 *
+	 * @param context      the context to be used by the client.
+	 * @param asynchronous true, to post the callbacks asynchronously.
+	 * @return a new default client.
+	 * @throws NullPointerException if the given {@code context} is null.
+	 * @since 0.1.1 ~2021.08.21
+	 */
+	static XClient<Body> client(@NotNull Context context, boolean asynchronous) {
+		return new AbstractXClient<>(context, asynchronous);
+	}
+
+	/**
+	 * <b>Default</b>
+	 * <br>
+	 * Return a new client instance {@link #bindTo(Lifecycle) bound} to the lifecycle of
+	 * the given {@code owner}. The client holds the given {@code context} weakly and
+	 * gets {@link #release() released} when the owner is destroyed.
+	 * <br>
+	 * Must be called in the main thread.
+	 *
+	 * @param context the context to be used by the client.
+	 * @param owner   the owner of the lifecycle to bind the client to.
+	 * @return a new lifecycle-bound client.
+	 * @throws NullPointerException if the given {@code context} or {@code owner} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.08.25
+	 */
+	static XClient<Body> client(@NotNull Context context, @NotNull LifecycleOwner owner) {
+		Objects.requireNonNull(owner, "owner");
+		return new AbstractXClient<>(context).bindTo(owner.getLifecycle());
+	}
+
 	/**
 	 * <b>Copy</b>
 	 * <br>
@@ -108,6 +234,27 @@ public interface XClient<B extends Body> extends Client<B> {
 		return new AbstractXClient<>(context, request);
 	}
 
+	/**
+	 * <b>Components</b>
+	 * <br>
+	 * Construct a new client with its request begin the given {@code request}.
+	 * <br>
+	 * If {@code asynchronous} is true, the callbacks of the client will be posted using
+	 * asynchronous messages. Thus, they will not be held back by the synchronization
+	 * barriers of the main looper.
+	 *
+	 * @param context      the context to be used by the constructed client.
+	 * @param asynchronous true, to post the callbacks asynchronously.
+	 * @param request      the request of this client.
+	 * @return a new client from the given {@code request}.
+	 * @throws NullPointerException if the given {@code context} or {@code request} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.08.21
+	 */
+	static XClient<Body> client(@NotNull Context context, boolean asynchronous, @NotNull Request<?> request) {
+		return new AbstractXClient<>(context, asynchronous, request);
+	}
+
 	/**
 	 * <b>Components</b>
 	 * <br>
@@ -191,6 +338,49 @@ public interface XClient<B extends Body> extends Client<B> {
 		return (XClient<BB>) Client.super.request(operator);
 	}
 
+	/**
+	 * Bind this client to the given {@code lifecycle}. A bound client holds its context
+	 * weakly (keeping only the application context strongly) and gets {@link #release()
+	 * released} once the lifecycle is destroyed.
+	 * <br>
+	 * Must be called in the main thread.
+	 *
+	 * @param lifecycle the lifecycle to bind this client to.
+	 * @return this.
+	 * @throws NullPointerException          if the given {@code lifecycle} is null.
+	 * @throws UnsupportedOperationException if this client cannot be bound.
+	 * @since 0.1.1 ~2021.08.25
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	default XClient<B> bindTo(@NotNull Lifecycle lifecycle) {
+		throw new UnsupportedOperationException("lifecycle");
+	}
+
+	/**
+	 * Cancel the current connection of this client. The connection is freed in the
+	 * transport (including the connections of its exchanges in the middlewares), the
+	 * callbacks of this client pending in its handler are removed and {@link #CANCELLED}
+	 * is triggered. The result of the cancelled connection is not triggered.
+	 * <br>
+	 * If this client is not connecting, nothing happens. Since {@link #connect()}
+	 * returns the client itself, the client is the handle of its connection.
+	 * <pre>
+	 *     XClient<?> call = client.connect();
+	 *     ...
+	 *     call.cancel();
+	 * </pre>
+	 *
+	 * @return this.
+	 * @throws UnsupportedOperationException if this client cannot be cancelled.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@NotNull
+	@Contract(value = "->this", mutates = "this")
+	default XClient<B> cancel() {
+		throw new UnsupportedOperationException("cancel");
+	}
+
 	/**
 	 * Replace the context of this client to be the result of invoking the given {@code
 	 * operator} with the current context of this client. If the {@code operator} returned
@@ -220,6 +410,164 @@ public interface XClient<B extends Body> extends Client<B> {
 		return this;
 	}
 
+	/**
+	 * Replace the deadline of this client to be the result of invoking the given {@code
+	 * operator} with the current deadline of this client. If the {@code operator}
+	 * returned null then nothing happens.
+	 * <br>
+	 * Throwable thrown by the {@code operator} will fall throw this method unhandled.
+	 *
+	 * @param operator the computing operator.
+	 * @return this.
+	 * @throws NullPointerException          if the given {@code operator} is null.
+	 * @throws UnsupportedOperationException if the deadline of this client cannot be
+	 *                                       changed and the returned deadline from the
+	 *                                       given {@code operator} is different from the
+	 *                                       current deadline.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	default XClient<B> deadline(@NotNull UnaryOperator<Deadline> operator) {
+		Objects.requireNonNull(operator, "operator");
+		Deadline d = this.getDeadline();
+		Deadline deadline = operator.apply(d);
+
+		if (deadline != null && !deadline.equals(d))
+			this.setDeadline(deadline);
+
+		return this;
+	}
+
+	/**
+	 * Defer connecting this client to the {@link Deferral#deferral(Context) deferral} of
+	 * the application of its context. The client gets connected together with the other
+	 * deferred clients once it is cheap for the radio and the battery, and no later than
+	 * {@link Deferral#DELAY} from now.
+	 *
+	 * @return this.
+	 * @throws UnsupportedOperationException if this client cannot be deferred.
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	@NotNull
+	@Contract("->this")
+	default XClient<B> defer() {
+		return this.defer(Deferral.DELAY, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Defer connecting this client to the {@link Deferral#deferral(Context) deferral} of
+	 * the application of its context. The client gets connected together with the other
+	 * deferred clients once it is cheap for the radio and the battery, and no later than
+	 * the given {@code delay} from now.
+	 *
+	 * @param delay the maximum delay.
+	 * @param unit  the unit of the given {@code delay}.
+	 * @return this.
+	 * @throws NullPointerException          if the given {@code unit} is null.
+	 * @throws IllegalArgumentException      if the given {@code delay} is negative.
+	 * @throws UnsupportedOperationException if this client cannot be deferred.
+	 * @since 0.1.1 ~2021.08.30
+	 */
+	@NotNull
+	@Contract("_,_->this")
+	default XClient<B> defer(long delay, @NotNull TimeUnit unit) {
+		throw new UnsupportedOperationException("defer");
+	}
+
+	/**
+	 * Connect the request of this client directly through its transport and stream the
+	 * body of the response to the given {@code file} instead of holding it in memory.
+	 * If the file already has content, the download gets resumed using a {@code Range}
+	 * header.
+	 * <br>
+	 * {@link #PROGRESS} is triggered while writing. {@link Client#CONNECTED} is
+	 * triggered with the response (without its body) once the file is complete.
+	 *
+	 * @param file the file to download to.
+	 * @return this.
+	 * @throws NullPointerException          if the given {@code file} is null.
+	 * @throws UnsupportedOperationException if the transport of this client cannot
+	 *                                       download.
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	@NotNull
+	@Contract("_->this")
+	default XClient<B> download(@NotNull File file) {
+		throw new UnsupportedOperationException("download");
+	}
+
+	/**
+	 * Connect the request of this client directly through its transport and stream the
+	 * body of the response to the given content {@code uri} instead of holding it in
+	 * memory. If the uri already has content, the download gets resumed using a {@code
+	 * Range} header.
+	 * <br>
+	 * {@link #PROGRESS} is triggered while writing. {@link Client#CONNECTED} is
+	 * triggered with the response (without its body) once the content is complete.
+	 *
+	 * @param uri the uri to download to.
+	 * @return this.
+	 * @throws NullPointerException          if the given {@code uri} is null.
+	 * @throws UnsupportedOperationException if the transport of this client cannot
+	 *                                       download.
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	@NotNull
+	@Contract("_->this")
+	default XClient<B> download(@NotNull Uri uri) {
+		throw new UnsupportedOperationException("download");
+	}
+
+	/**
+	 * Execute the given {@code task} using the given {@code executor} after the tasks
+	 * previously executed by this client are done. The callbacks added using {@link
+	 * #onx(Action, Callback)} are executed through this. Thus, they are performed in the
+	 * order the actions occurred on this client regardless of their executors.
+	 *
+	 * @param executor the executor to execute the task with.
+	 * @param task     the task to be executed.
+	 * @return this.
+	 * @throws NullPointerException          if the given {@code executor} or {@code task}
+	 *                                       is null.
+	 * @throws UnsupportedOperationException if this client cannot execute tasks.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	@Contract(value = "_,_->this", mutates = "this")
+	default XClient<B> execute(@NotNull Executor executor, @NotNull Runnable task) {
+		throw new UnsupportedOperationException("execute");
+	}
+
+	/**
+	 * Replace the executor of this client to be the result of invoking the given {@code
+	 * operator} with the current executor of this client. If the {@code operator}
+	 * returned null then nothing happens.
+	 * <br>
+	 * Throwable thrown by the {@code operator} will fall throw this method unhandled.
+	 *
+	 * @param operator the computing operator.
+	 * @return this.
+	 * @throws NullPointerException          if the given {@code operator} is null.
+	 * @throws UnsupportedOperationException if the executor of this client cannot be
+	 *                                       changed and the returned executor from the
+	 *                                       given {@code operator} is different from the
+	 *                                       current executor.
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	default XClient<B> executor(@NotNull UnaryOperator<Executor> operator) {
+		Objects.requireNonNull(operator, "operator");
+		Executor e = this.getExecutor();
+		Executor executor = operator.apply(e);
+
+		if (executor != null && executor != e)
+			this.setExecutor(executor);
+
+		return this;
+	}
+
 	/**
 	 * Replace the handler of this client to be the result of invoking the given {@code
 	 * operator} with the current handler of this client. If the {@code operator} returned
@@ -249,12 +597,43 @@ public interface XClient<B extends Body> extends Client<B> {
 		return this;
 	}
 
+	/**
+	 * Connect the request of this client directly through its transport and decode the
+	 * body of the response into a bitmap downsampled to the given size. The decoding
+	 * happens off the UI thread and the bitmap is cached in memory by the uri of the
+	 * request and the given size. See {@link ImageLoader}.
+	 * <br>
+	 * If the transport is a chain of middlewares ending with an {@link XTransport}, the
+	 * request is connected by the xtransport directly. Otherwise, the request is
+	 * connected normally and the image is decoded from the body of the response.
+	 * <br>
+	 * {@link #IMAGE} is triggered with the bitmap. {@link Client#CONNECTED} is triggered
+	 * after it with the response (without its body) unless the bitmap was cached.
+	 *
+	 * @param width  the requested width. (zero for the original width)
+	 * @param height the requested height. (zero for the original height)
+	 * @return this.
+	 * @throws IllegalArgumentException      if the given {@code width} or {@code height}
+	 *                                       is negative.
+	 * @throws UnsupportedOperationException if this client cannot load images or has no
+	 *                                       transport.
+	 * @since 0.1.1 ~2021.09.05
+	 */
+	@NotNull
+	@Contract("_,_->this")
+	default XClient<B> image(int width, int height) {
+		throw new UnsupportedOperationException("image");
+	}
+
 	/**
 	 * Add the given {@code callback} to be performed in the UI thread (when possible)
 	 * when the given {@code action} occurs.
 	 * <br>
 	 * Exceptions thrown by the given {@code callback} will be caught safely. But,
 	 * exception by a thread created by the callback is left for the callback to handle.
+	 * <br>
+	 * If this client has a {@link #getWatchdog() watchdog}, the executions of the
+	 * callback are timed by it.
 	 *
 	 * @param action   the action to listen to.
 	 * @param callback the callback to be set.
@@ -269,15 +648,58 @@ public interface XClient<B extends Body> extends Client<B> {
 	default <T> XClient<B> onh(@NotNull Action<T> action, @NotNull Callback<XClient<B>, T> callback) {
 		Objects.requireNonNull(action, "action");
 		Objects.requireNonNull(callback, "callback");
-		return this.on(action, (caller, parameter) ->
-				this.getHandler().post(() -> {
-					try {
-						callback.call((XClient<B>) caller, parameter);
-					} catch (Throwable throwable) {
-						this.trigger(Caller.EXCEPTION, throwable);
-					}
-				})
-		);
+		String name = String.valueOf(action);
+		return this.on(action, (caller, parameter) -> {
+			XClient<B> client = (XClient<B>) caller;
+			//the caller might be a clone; its deliveries must be removable by it
+			client.post(HandlerTask.obtain(client, callback, client, parameter).watch(name));
+		});
+	}
+
+	/**
+	 * Add the given {@code callback} to be performed in the UI thread (when possible)
+	 * with the body of the response decoded using the given {@code decoder} when the
+	 * given {@code action} occurs. The decoder is performed using the {@link
+	 * #getExecutor() executor} of this client. Thus, only the decoded object is posted
+	 * to the handler.
+	 * <br>
+	 * Exceptions thrown by the given {@code decoder} or {@code callback} will be caught
+	 * safely and triggered as {@link Caller#EXCEPTION}. But, exception by a thread
+	 * created by the callback is left for the callback to handle.
+	 *
+	 * @param action   the action to listen to.
+	 * @param decoder  the decoder of the body of the response.
+	 * @param callback the callback to be set.
+	 * @param <T>      the type of the decoded object.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code action} or {@code decoder} or
+	 *                              {@code callback} is null.
+	 * @since 0.1.1 ~2021.09.04
+	 */
+	@NotNull
+	@Contract(value = "_,_,_->this", mutates = "this")
+	default <T> XClient<B> onh(@NotNull Action<? extends Response> action, @NotNull Decoder<T> decoder, @NotNull Callback<XClient<B>, T> callback) {
+		Objects.requireNonNull(action, "action");
+		Objects.requireNonNull(decoder, "decoder");
+		Objects.requireNonNull(callback, "callback");
+		String name = String.valueOf(action);
+		return this.on(action, (caller, response) -> {
+			XClient<B> client = (XClient<B>) caller;
+			client.getExecutor().execute(() -> {
+				if (client.isReleased())
+					return;
+
+				T decoded;
+				try (InputStream body = Decoder.body(response)) {
+					decoded = decoder.decode(body);
+				} catch (Throwable throwable) {
+					client.trigger(Caller.EXCEPTION, throwable);
+					return;
+				}
+
+				client.post(HandlerTask.obtain(client, callback, client, decoded).watch(name));
+			});
+		});
 	}
 
 	/**
@@ -299,15 +721,10 @@ public interface XClient<B extends Body> extends Client<B> {
 	default XClient<B> onh(@NotNull @NonNls @Language("RegExp") String regex, @NotNull Callback<XClient<B>, Object> callback) {
 		Objects.requireNonNull(regex, "regex");
 		Objects.requireNonNull(callback, "callback");
-		return this.on(Object.class, regex, (caller, parameter) ->
-				this.getHandler().post(() -> {
-					try {
-						callback.call((XClient<B>) caller, parameter);
-					} catch (Throwable throwable) {
-						this.trigger(Caller.EXCEPTION, throwable);
-					}
-				})
-		);
+		return this.on(Object.class, regex, (caller, parameter) -> {
+			XClient<B> client = (XClient<B>) caller;
+			client.post(HandlerTask.obtain(client, callback, client, parameter).watch(regex));
+		});
 	}
 
 	/**
@@ -332,15 +749,10 @@ public interface XClient<B extends Body> extends Client<B> {
 		Objects.requireNonNull(type, "type");
 		Objects.requireNonNull(regex, "regex");
 		Objects.requireNonNull(callback, "callback");
-		return this.on(type, regex, (caller, parameter) ->
-				this.getHandler().post(() -> {
-					try {
-						callback.call((XClient<B>) caller, parameter);
-					} catch (Throwable throwable) {
-						this.trigger(Caller.EXCEPTION, throwable);
-					}
-				})
-		);
+		return this.on(type, regex, (caller, parameter) -> {
+			XClient<B> client = (XClient<B>) caller;
+			client.post(HandlerTask.obtain(client, callback, client, parameter).watch(regex));
+		});
 	}
 
 	/**
@@ -374,49 +786,637 @@ public interface XClient<B extends Body> extends Client<B> {
 	}
 
 	/**
-	 * Set the context used by this to the given {@code context}.
+	 * Add the given {@code callback} to be performed in the UI thread (when possible)
+	 * with the latest parameter when the given {@code action} occurs. If a previous
+	 * occurrence is still pending in the handler, its parameter will be replaced with the
+	 * new one instead of posting another delivery. Thus, only the latest parameter will
+	 * reach the callback.
+	 * <br>
+	 * Exceptions thrown by the given {@code callback} will be caught safely. But,
+	 * exception by a thread created by the callback is left for the callback to handle.
 	 *
-	 * @param context the new context to be set.
+	 * @param action   the action to listen to.
+	 * @param callback the callback to be set.
+	 * @param <T>      the type of the expected parameter.
 	 * @return this.
-	 * @throws NullPointerException if the given {@code context} is null.
-	 * @since 0.0.1 ~2021.04.08
+	 * @throws NullPointerException if the given {@code action} or {@code callback} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.08.19
 	 */
 	@NotNull
-	@Contract(value = "_->this", mutates = "this")
-	default XClient<B> setContext(@NotNull Context context) {
-		throw new UnsupportedOperationException("context");
+	@Contract(value = "_,_->this", mutates = "this")
+	default <T> XClient<B> onhLatest(@NotNull Action<T> action, @NotNull Callback<XClient<B>, T> callback) {
+		Objects.requireNonNull(action, "action");
+		Objects.requireNonNull(callback, "callback");
+		ConflatingCallback<XClient<B>, T> conflating = new ConflatingCallback<>(callback);
+		return this.on(action, (caller, parameter) ->
+				conflating.call((XClient<B>) caller, parameter)
+		);
 	}
 
 	/**
-	 * Set the handler used by this to the given {@code handler}.
+	 * Add the given {@code callback} to be performed using the {@link #getExecutor()
+	 * executor} of this client when the given {@code action} occurs. The executor is
+	 * resolved each time the action occurs. The invocations of the background callbacks
+	 * of a client are executed one after the other in the order the actions occurred.
+	 * <br>
+	 * Exceptions thrown by the given {@code callback} will be caught safely. But,
+	 * exception by a thread created by the callback is left for the callback to handle.
 	 *
-	 * @param handler the new handler to be set.
+	 * @param action   the action to listen to.
+	 * @param callback the callback to be set.
+	 * @param <T>      the type of the expected parameter.
 	 * @return this.
-	 * @throws NullPointerException if the given {@code handler} is null.
-	 * @since 0.0.1 ~2021.04.08
+	 * @throws NullPointerException if the given {@code action} or {@code callback} is
+	 *                              null.
+	 * @see #onx(Executor, Action, Callback)
+	 * @since 0.1.1 ~2021.08.19
 	 */
 	@NotNull
-	@Contract(value = "_->this", mutates = "this")
-	default XClient<B> setHandler(@NotNull Handler handler) {
-		throw new UnsupportedOperationException("handler");
+	@Contract(value = "_,_->this", mutates = "this")
+	default <T> XClient<B> onx(@NotNull Action<T> action, @NotNull Callback<XClient<B>, T> callback) {
+		Objects.requireNonNull(action, "action");
+		Objects.requireNonNull(callback, "callback");
+		return this.on(action, (caller, parameter) -> {
+			XClient<B> client = (XClient<B>) caller;
+			//resolved now, the executor might have been replaced
+			client.execute(client.getExecutor(), HandlerTask.obtain(client, callback, client, parameter));
+		});
 	}
 
+	/**
+	 * Add the given {@code callback} to be performed using the {@link #getExecutor()
+	 * executor} of this client when the given {@code regex} occurs. The executor is
+	 * resolved each time the regex occurs. The invocations of the background callbacks
+	 * of a client are executed one after the other in the order the triggers occurred.
+	 * <br>
+	 * Exceptions thrown by the given {@code callback} will be caught safely. But,
+	 * exception by a thread created by the callback is left for the callback to handle.
+	 *
+	 * @param regex    the regex to listen to.
+	 * @param callback the callback to be set.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code regex} or {@code callback} is
+	 *                              null.
+	 * @see #onx(Executor, String, Callback)
+	 * @since 0.1.1 ~2021.08.19
+	 */
 	@NotNull
-	@Override
-	XClient<B> clone();
-
-	@NotNull
-	@Override
-	XClient<B> middleware(@NotNull Middleware<? super Client<B>> middleware);
+	@Contract(value = "_,_->this", mutates = "this")
+	default XClient<B> onx(@NotNull @NonNls @Language("RegExp") String regex, @NotNull Callback<XClient<B>, Object> callback) {
+		return this.onx(Object.class, regex, callback);
+	}
 
+	/**
+	 * Add the given {@code callback} to be performed using the {@link #getExecutor()
+	 * executor} of this client when the given {@code regex} occurs. The executor is
+	 * resolved each time the regex occurs. The invocations of the background callbacks
+	 * of a client are executed one after the other in the order the triggers occurred.
+	 * <br>
+	 * Exceptions thrown by the given {@code callback} will be caught safely. But,
+	 * exception by a thread created by the callback is left for the callback to handle.
+	 *
+	 * @param type     the type of the accepted parameters.
+	 * @param regex    the regex to listen to.
+	 * @param callback the callback to be set.
+	 * @param <T>      the type of the expected parameter.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code type} or {@code regex} or {@code
+	 *                              callback} is null.
+	 * @see #onx(Executor, Class, String, Callback)
+	 * @since 0.1.1 ~2021.08.19
+	 */
 	@NotNull
-	@Override
-	<T> XClient<B> on(@NotNull Action<T> action, @NotNull Callback<Client<B>, T> callback);
+	@Contract(value = "_,_,_->this", mutates = "this")
+	default <T> XClient<B> onx(@NotNull Class<T> type, @NotNull @NonNls @Language("RegExp") String regex, @NotNull Callback<XClient<B>, T> callback) {
+		Objects.requireNonNull(type, "type");
+		Objects.requireNonNull(regex, "regex");
+		Objects.requireNonNull(callback, "callback");
+		return this.on(type, regex, (caller, parameter) -> {
+			XClient<B> client = (XClient<B>) caller;
+			//resolved now, the executor might have been replaced
+			client.execute(client.getExecutor(), HandlerTask.obtain(client, callback, client, parameter));
+		});
+	}
+
+	/**
+	 * Add the given {@code callback} to be performed using the {@link #getExecutor()
+	 * executor} of this client when any of the given {@code actions} occurs.
+	 * <br>
+	 * Exceptions thrown by the given {@code callback} will be caught safely. But,
+	 * exception by a thread created by the callback is left for the callback to handle.
+	 * <br>
+	 * Null elements in the given {@code actions} array will be skipped.
+	 *
+	 * @param callback the callback to be set.
+	 * @param actions  the actions to listen to.
+	 * @param <T>      the type of the expected parameter.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code callback} or {@code actions} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	@NotNull
+	@Contract(value = "_,_->this", mutates = "this")
+	default <T> XClient<B> onx(@NotNull Callback<XClient<B>, T> callback, @Nullable Action<T> @NotNull ... actions) {
+		Objects.requireNonNull(callback, "callback");
+		Objects.requireNonNull(actions, "actions");
+		for (Action<T> action : actions)
+			if (action != null)
+				this.onx(action, callback);
+
+		//noinspection unchecked
+		return this;
+	}
+
+	/**
+	 * Add the given {@code callback} to be performed using the given {@code executor}
+	 * when the given {@code action} occurs. The invocations of the background callbacks
+	 * of a client are executed one after the other in the order the actions occurred.
+	 * <br>
+	 * Exceptions thrown by the given {@code callback} will be caught safely. But,
+	 * exception by a thread created by the callback is left for the callback to handle.
+	 *
+	 * @param executor the executor to perform the callback with.
+	 * @param action   the action to listen to.
+	 * @param callback the callback to be set.
+	 * @param <T>      the type of the expected parameter.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code executor} or {@code action} or
+	 *                              {@code callback} is null.
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	@NotNull
+	@Contract(value = "_,_,_->this", mutates = "this")
+	default <T> XClient<B> onx(@NotNull Executor executor, @NotNull Action<T> action, @NotNull Callback<XClient<B>, T> callback) {
+		Objects.requireNonNull(executor, "executor");
+		Objects.requireNonNull(action, "action");
+		Objects.requireNonNull(callback, "callback");
+		return this.on(action, (caller, parameter) -> {
+			XClient<B> client = (XClient<B>) caller;
+			client.execute(executor, HandlerTask.obtain(client, callback, client, parameter));
+		});
+	}
+
+	/**
+	 * Add the given {@code callback} to be performed using the given {@code executor}
+	 * when the given {@code regex} occurs. The invocations of the background callbacks
+	 * of a client are executed one after the other in the order the triggers occurred.
+	 * <br>
+	 * Exceptions thrown by the given {@code callback} will be caught safely. But,
+	 * exception by a thread created by the callback is left for the callback to handle.
+	 *
+	 * @param executor the executor to perform the callback with.
+	 * @param regex    the regex to listen to.
+	 * @param callback the callback to be set.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code executor} or {@code regex} or
+	 *                              {@code callback} is null.
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	@NotNull
+	@Contract(value = "_,_,_->this", mutates = "this")
+	default XClient<B> onx(@NotNull Executor executor, @NotNull @NonNls @Language("RegExp") String regex, @NotNull Callback<XClient<B>, Object> callback) {
+		return this.onx(executor, Object.class, regex, callback);
+	}
+
+	/**
+	 * Add the given {@code callback} to be performed using the given {@code executor}
+	 * when the given {@code regex} occurs. The invocations of the background callbacks
+	 * of a client are executed one after the other in the order the triggers occurred.
+	 * <br>
+	 * Exceptions thrown by the given {@code callback} will be caught safely. But,
+	 * exception by a thread created by the callback is left for the callback to handle.
+	 *
+	 * @param executor the executor to perform the callback with.
+	 * @param type     the type of the accepted parameters.
+	 * @param regex    the regex to listen to.
+	 * @param callback the callback to be set.
+	 * @param <T>      the type of the expected parameter.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code executor} or {@code type} or
+	 *                              {@code regex} or {@code callback} is null.
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	@NotNull
+	@Contract(value = "_,_,_,_->this", mutates = "this")
+	default <T> XClient<B> onx(@NotNull Executor executor, @NotNull Class<T> type, @NotNull @NonNls @Language("RegExp") String regex, @NotNull Callback<XClient<B>, T> callback) {
+		Objects.requireNonNull(executor, "executor");
+		Objects.requireNonNull(type, "type");
+		Objects.requireNonNull(regex, "regex");
+		Objects.requireNonNull(callback, "callback");
+		return this.on(type, regex, (caller, parameter) -> {
+			XClient<B> client = (XClient<B>) caller;
+			client.execute(executor, HandlerTask.obtain(client, callback, client, parameter));
+		});
+	}
+
+	/**
+	 * Post the given {@code task} to be executed in the thread of the handler of this
+	 * client. If this client is {@link #isBatching() batching}, the task will be enqueued
+	 * to the {@link HandlerBatch batch} of the handler instead of being posted directly.
+	 * If this client is {@link #isAsynchronous() asynchronous}, the task will be posted
+	 * using an asynchronous message.
+	 * <br>
+	 * The messages posted directly have this client as their token. Thus, they can be
+	 * removed using {@link Handler#removeCallbacksAndMessages(Object)}.
+	 *
+	 * @param task the task to be posted.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code task} is null.
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	default XClient<B> post(@NotNull Runnable task) {
+		Objects.requireNonNull(task, "task");
+		Handler handler = this.getHandler();
+		boolean asynchronous = this.isAsynchronous();
+
+		if (this.isBatching())
+			HandlerBatch.batch(handler).post(task, asynchronous);
+		else if (asynchronous) {
+			Message message = Message.obtain(handler, task);
+			//the client is the token of its messages
+			message.obj = this;
+			message.setAsynchronous(true);
+			handler.sendMessage(message);
+		} else
+			handler.postAtTime(task, this, SystemClock.uptimeMillis());
+
+		return this;
+	}
+
+	/**
+	 * Replace the priority of this client to be the result of invoking the given {@code
+	 * operator} with the current priority of this client. If the {@code operator}
+	 * returned null then nothing happens.
+	 * <br>
+	 * Throwable thrown by the {@code operator} will fall throw this method unhandled.
+	 *
+	 * @param operator the computing operator.
+	 * @return this.
+	 * @throws NullPointerException          if the given {@code operator} is null.
+	 * @throws UnsupportedOperationException if the priority of this client cannot be
+	 *                                       changed and the returned priority from the
+	 *                                       given {@code operator} is different from the
+	 *                                       current priority.
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	default XClient<B> priority(@NotNull UnaryOperator<Priority> operator) {
+		Objects.requireNonNull(operator, "operator");
+		Priority p = this.getPriority();
+		Priority priority = operator.apply(p);
+
+		if (priority != null && priority != p)
+			this.setPriority(priority);
+
+		return this;
+	}
+
+	/**
+	 * Submit the request of this client to the durable {@link OfflineQueue#queue(Context)
+	 * offline queue} of the application of its context instead of connecting it
+	 * directly. The request gets connected (in order with the other queued requests) once
+	 * there is connectivity and survives the death of the process until its response is
+	 * received.
+	 * <br>
+	 * The final result of the request is triggered on this client ({@link
+	 * Client#CONNECTED} or {@link Client#DISCONNECTED}). Failing to open the queue is
+	 * triggered as {@link Client#DISCONNECTED}.
+	 *
+	 * @return this.
+	 * @throws UnsupportedOperationException if this client cannot be queued.
+	 * @since 0.1.1 ~2021.08.29
+	 */
+	@NotNull
+	@Contract("->this")
+	default XClient<B> queue() {
+		throw new UnsupportedOperationException("queue");
+	}
+
+	/**
+	 * Release this client. The pending callbacks of this client get removed from its
+	 * handler, its connections get cancelled (when its transport supports it), its
+	 * listeners (both the regex and the action listeners) get dropped and the callbacks
+	 * posted afterwards get dropped.
+	 *
+	 * @return this.
+	 * @throws UnsupportedOperationException if this client cannot be released.
+	 * @since 0.1.1 ~2021.08.25
+	 */
+	@NotNull
+	@Contract(value = "->this", mutates = "this")
+	default XClient<B> release() {
+		throw new UnsupportedOperationException("release");
+	}
+
+	/**
+	 * Set whether the callbacks of this client to be posted using asynchronous messages
+	 * or not. Asynchronous messages are not held back by the synchronization barriers of
+	 * the looper of the handler.
+	 *
+	 * @param asynchronous true, to post the callbacks of this client asynchronously.
+	 * @return this.
+	 * @since 0.1.1 ~2021.08.21
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	default XClient<B> setAsynchronous(boolean asynchronous) {
+		throw new UnsupportedOperationException("asynchronous");
+	}
+
+	/**
+	 * Set whether the callbacks of this client to be posted to the {@link HandlerBatch
+	 * batch} of its handler or not.
+	 *
+	 * @param batching true, to batch the callbacks of this client.
+	 * @return this.
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	default XClient<B> setBatching(boolean batching) {
+		throw new UnsupportedOperationException("batching");
+	}
+
+	/**
+	 * Set the context used by this to the given {@code context}.
+	 *
+	 * @param context the new context to be set.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code context} is null.
+	 * @since 0.0.1 ~2021.04.08
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	default XClient<B> setContext(@NotNull Context context) {
+		throw new UnsupportedOperationException("context");
+	}
+
+	/**
+	 * Set the deadline of the connections of this client to the given {@code deadline}.
+	 * The deadline applies to the connections started afterwards.
+	 *
+	 * @param deadline the new deadline to be set. Or null for no deadline.
+	 * @return this.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	default XClient<B> setDeadline(@Nullable Deadline deadline) {
+		throw new UnsupportedOperationException("deadline");
+	}
+
+	/**
+	 * Set the executor used by this to the given {@code executor}.
+	 *
+	 * @param executor the new executor to be set.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code executor} is null.
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	default XClient<B> setExecutor(@NotNull Executor executor) {
+		throw new UnsupportedOperationException("executor");
+	}
+
+	/**
+	 * Set the handler used by this to the given {@code handler}. The given handler will
+	 * be used as-is. Thus, this client will no longer be {@link #isAsynchronous()
+	 * asynchronous}.
+	 *
+	 * @param handler the new handler to be set.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code handler} is null.
+	 * @since 0.0.1 ~2021.04.08
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	default XClient<B> setHandler(@NotNull Handler handler) {
+		throw new UnsupportedOperationException("handler");
+	}
+
+	/**
+	 * Set the priority of the connections of this client to the given {@code priority}.
+	 * The priority applies to the connections started afterwards.
+	 *
+	 * @param priority the new priority to be set.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code priority} is null.
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	default XClient<B> setPriority(@NotNull Priority priority) {
+		throw new UnsupportedOperationException("priority");
+	}
+
+	/**
+	 * Set the transport performing the connections of this client to the given {@code
+	 * transport}. The transport gets injected into this client on its first connection.
+	 * Thus, the transport can only be replaced before the first connection.
+	 *
+	 * @param transport the new transport to be set. Or null to leave the connections to
+	 *                  the middlewares of this client.
+	 * @return this.
+	 * @throws IllegalStateException if this client has already connected using its
+	 *                               current transport.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	default XClient<B> setTransport(@Nullable Middleware<? super Client<?>> transport) {
+		throw new UnsupportedOperationException("transport");
+	}
+
+	/**
+	 * Set the watchdog timing the callbacks of this client added using {@link
+	 * #onh(Action, Callback)} to the given {@code watchdog}.
+	 *
+	 * @param watchdog the new watchdog to be set. Or null to stop watching.
+	 * @return this.
+	 * @throws UnsupportedOperationException if the watchdog of this client cannot be
+	 *                                       changed.
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	default XClient<B> setWatchdog(@Nullable Watchdog watchdog) {
+		throw new UnsupportedOperationException("watchdog");
+	}
+
+	/**
+	 * Replace the transport of this client to be the result of invoking the given {@code
+	 * operator} with the current transport of this client. If the {@code operator}
+	 * returned null then nothing happens.
+	 * <br>
+	 * Throwable thrown by the {@code operator} will fall throw this method unhandled.
+	 *
+	 * @param operator the computing operator.
+	 * @return this.
+	 * @throws NullPointerException          if the given {@code operator} is null.
+	 * @throws UnsupportedOperationException if the transport of this client cannot be
+	 *                                       changed and the returned transport from the
+	 *                                       given {@code operator} is different from the
+	 *                                       current transport.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	default XClient<B> transport(@NotNull UnaryOperator<Middleware<? super Client<?>>> operator) {
+		Objects.requireNonNull(operator, "operator");
+		Middleware<? super Client<?>> t = this.getTransport();
+		Middleware<? super Client<?>> transport = operator.apply(t);
+
+		if (transport != null && transport != t)
+			this.setTransport(transport);
+
+		return this;
+	}
+
+	/**
+	 * Connect the request of this client directly through its transport with its body
+	 * streamed from the given {@code file} instead of the body of the request. The body
+	 * is sent with a fixed {@code Content-Length}.
+	 * <br>
+	 * {@link #PROGRESS} is triggered while the body is written.
+	 *
+	 * @param file the file to upload.
+	 * @return this.
+	 * @throws NullPointerException          if the given {@code file} is null.
+	 * @throws UnsupportedOperationException if the transport of this client cannot
+	 *                                       upload.
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	@NotNull
+	@Contract("_->this")
+	default XClient<B> upload(@NotNull File file) {
+		throw new UnsupportedOperationException("upload");
+	}
+
+	/**
+	 * Connect the request of this client directly through its transport with its body
+	 * streamed from the given {@code descriptor} instead of the body of the request. The
+	 * descriptor will be closed after the upload. Descriptors of unknown size (like
+	 * pipes) are sent using the chunked encoding.
+	 * <br>
+	 * {@link #PROGRESS} is triggered while the body is written.
+	 *
+	 * @param descriptor the descriptor to upload.
+	 * @return this.
+	 * @throws NullPointerException          if the given {@code descriptor} is null.
+	 * @throws UnsupportedOperationException if the transport of this client cannot
+	 *                                       upload.
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	@NotNull
+	@Contract("_->this")
+	default XClient<B> upload(@NotNull ParcelFileDescriptor descriptor) {
+		throw new UnsupportedOperationException("upload");
+	}
+
+	/**
+	 * Connect the request of this client directly through its transport with its body
+	 * streamed from the given content {@code uri} instead of the body of the request.
+	 * Content of unknown size is sent using the chunked encoding.
+	 * <br>
+	 * {@link #PROGRESS} is triggered while the body is written.
+	 *
+	 * @param uri the uri to upload.
+	 * @return this.
+	 * @throws NullPointerException          if the given {@code uri} is null.
+	 * @throws UnsupportedOperationException if the transport of this client cannot
+	 *                                       upload.
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	@NotNull
+	@Contract("_->this")
+	default XClient<B> upload(@NotNull Uri uri) {
+		throw new UnsupportedOperationException("upload");
+	}
+
+	/**
+	 * Warm up the connection to the host of the request of this client without sending
+	 * the request. The host gets resolved and, if the request is secure, a tls handshake
+	 * gets performed. {@link #WARMED} will be triggered once done.
+	 *
+	 * @return this.
+	 * @throws UnsupportedOperationException if the transport of this client cannot warm
+	 *                                       up connections.
+	 * @since 0.1.1 ~2021.08.26
+	 */
+	@NotNull
+	@Contract("->this")
+	default XClient<B> warmUp() {
+		return this.warmUp(true);
+	}
+
+	/**
+	 * Warm up the connection to the host of the request of this client without sending
+	 * the request. The host gets resolved and, if {@code handshake} is true and the
+	 * request is secure, a tls handshake gets performed. {@link #WARMED} will be
+	 * triggered once done.
+	 *
+	 * @param handshake true, to perform a tls handshake.
+	 * @return this.
+	 * @throws UnsupportedOperationException if the transport of this client cannot warm
+	 *                                       up connections.
+	 * @since 0.1.1 ~2021.08.26
+	 */
+	@NotNull
+	@Contract("_->this")
+	default XClient<B> warmUp(boolean handshake) {
+		throw new UnsupportedOperationException("warmUp");
+	}
+
+	@NotNull
+	@Override
+	XClient<B> clone();
+
+	/**
+	 * Add the given {@code middleware} to this client. A transport middleware (an {@link
+	 * XTransport}, a {@link TransportMiddleware} or an {@code OkHttpMiddleware}) is not
+	 * added next to the {@link #getTransport() transport} of this client. Instead, it
+	 * replaces the default transport of this client. Only one transport middleware can
+	 * be installed. Use {@link #setTransport(Middleware)} to replace an installed
+	 * transport before the first connection.
+	 *
+	 * @param middleware the middleware to be added.
+	 * @return this.
+	 * @throws NullPointerException  if the given {@code middleware} is null.
+	 * @throws IllegalStateException if the given {@code middleware} is a transport
+	 *                               middleware and a transport middleware has already
+	 *                               been installed or this client has already connected
+	 *                               using its transport.
+	 * @since 0.1.1 ~2021.09.07
+	 */
+	@NotNull
+	@Override
+	XClient<B> middleware(@NotNull Middleware<? super Client<B>> middleware);
+
+	@NotNull
+	@Override
+	<T> XClient<B> on(@NotNull Action<T> action, @NotNull Callback<Client<B>, T> callback);
 
 	@NotNull
 	@Override
 	<T> XClient<B> trigger(@NotNull Action<T> action, @Nullable T parameter);
 
+	/**
+	 * Call the listeners of the given {@code trigger} with the given {@code parameter}.
+	 * The listeners are called in the order they were added. Regardless of whether they
+	 * were added with an {@link Action action} or a regex.
+	 *
+	 * @param trigger   the trigger to be triggered.
+	 * @param parameter the parameter to be passed to the listeners.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code trigger} is null.
+	 * @since 0.1.1 ~2021.09.07
+	 */
 	@NotNull
 	@Override
 	XClient<B> trigger(@NotNull @NonNls String trigger, @Nullable Object parameter);
@@ -439,6 +1439,27 @@ public interface XClient<B extends Body> extends Client<B> {
 	@Contract(pure = true)
 	Context getContext();
 
+	/**
+	 * Get the deadline of the connections of this client.
+	 *
+	 * @return the deadline of the client. Or null if the client has no deadline.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@Nullable
+	@Contract(pure = true)
+	Deadline getDeadline();
+
+	/**
+	 * Get the executor used by this client to perform the callbacks added using {@link
+	 * #onx(Action, Callback)}.
+	 *
+	 * @return the executor of the client.
+	 * @since 0.1.1 ~2021.08.19
+	 */
+	@NotNull
+	@Contract(pure = true)
+	Executor getExecutor();
+
 	/**
 	 * Get the handler used by this client.
 	 *
@@ -448,4 +1469,74 @@ public interface XClient<B extends Body> extends Client<B> {
 	@NotNull
 	@Contract(pure = true)
 	Handler getHandler();
+
+	/**
+	 * Get the priority of the connections of this client.
+	 *
+	 * @return the priority of the client.
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	@NotNull
+	@Contract(pure = true)
+	Priority getPriority();
+
+	/**
+	 * Get the timer recording the phases of the last connection of this client.
+	 *
+	 * @return the timer of the last connection. Or null if this client has not connected.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@Nullable
+	@Contract(pure = true)
+	Timer getTimer();
+
+	/**
+	 * Get the transport performing the connections of this client.
+	 *
+	 * @return the transport of the client. Or null if the connections are left to the
+	 * 		middlewares of the client.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@Nullable
+	@Contract(pure = true)
+	Middleware<? super Client<?>> getTransport();
+
+	/**
+	 * Get the watchdog timing the callbacks of this client.
+	 *
+	 * @return the watchdog of the client. Or null if the callbacks are not watched.
+	 * @since 0.1.1 ~2021.09.01
+	 */
+	@Nullable
+	@Contract(pure = true)
+	Watchdog getWatchdog();
+
+	/**
+	 * Return true if the callbacks of this client are posted using asynchronous
+	 * messages.
+	 *
+	 * @return true, if this client is asynchronous.
+	 * @since 0.1.1 ~2021.08.21
+	 */
+	@Contract(pure = true)
+	boolean isAsynchronous();
+
+	/**
+	 * Return true if the callbacks of this client are posted to the {@link HandlerBatch
+	 * batch} of its handler.
+	 *
+	 * @return true, if this client is batching.
+	 * @since 0.1.1 ~2021.08.18
+	 */
+	@Contract(pure = true)
+	boolean isBatching();
+
+	/**
+	 * Return true if this client has been {@link #release() released}.
+	 *
+	 * @return true, if this client is released.
+	 * @since 0.1.1 ~2021.08.25
+	 */
+	@Contract(pure = true)
+	boolean isReleased();
 }
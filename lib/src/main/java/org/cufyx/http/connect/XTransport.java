@@ -0,0 +1,882 @@
+/*
+ *	Copyright 2021 Cufy
+ *
+ *	Licensed under the Apache License, Version 2.0 (the "License");
+ *	you may not use this file except in compliance with the License.
+ *	You may obtain a copy of the License at
+ *
+ *	    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *	Unless required by applicable law or agreed to in writing, software
+ *	distributed under the License is distributed on an "AS IS" BASIS,
+ *	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *	See the License for the specific language governing permissions and
+ *	limitations under the License.
+ */
+package org.cufyx.http.connect;
+
+import android.content.Context;
+
+import org.cufy.http.connect.Caller;
+import org.cufy.http.connect.Client;
+import org.cufy.http.middleware.Middleware;
+import org.cufy.http.request.Request;
+import org.cufy.http.response.Response;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocket;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+
+/**
+ * An application-scoped transport. All the clients connecting through the transport of
+ * the same application share a single connection pool, dispatcher and tls session cache.
+ * Thus, connections are kept alive and multiplexed across separately constructed
+ * clients.
+ * <br>
+ * The connections exceeding the request limits wait in a {@link PriorityDispatcher
+ * priority-ordered queue} by the {@link XClient#getPriority() priority} of their
+ * clients.
+ * <br>
+ * The clients created by the {@link XClient} factories connect through the transport of
+ * the application of their context by default.
+ *
+ * @author LSafer
+ * @version 0.1.1
+ * @since 0.1.1 ~2021.08.24
+ */
+public class XTransport implements Middleware<Client<?>> {
+	/**
+	 * The default keep-alive duration of the idle connections in milliseconds.
+	 *
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	public static final long KEEP_ALIVE = TimeUnit.MINUTES.toMillis(5);
+	/**
+	 * The default maximum number of idle connections in the pool.
+	 *
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	public static final int MAX_IDLE_CONNECTIONS = 8;
+	/**
+	 * The default maximum number of concurrent requests.
+	 *
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	public static final int MAX_REQUESTS = 64;
+	/**
+	 * The default maximum number of concurrent requests to a single host.
+	 *
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	public static final int MAX_REQUESTS_PER_HOST = 6;
+
+	/**
+	 * The transports of each application context.
+	 *
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@NotNull
+	protected static final Map<Context, XTransport> TRANSPORTS = new WeakHashMap<>();
+
+	/**
+	 * The dispatcher of this transport.
+	 *
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@NotNull
+	protected final Dispatcher dispatcher = new Dispatcher();
+	/**
+	 * The client to take the configuration (tls, timeouts, interceptors, etc...) of this
+	 * transport from.
+	 *
+	 * @since 0.1.1 ~2021.08.26
+	 */
+	@NotNull
+	protected final OkHttpClient base;
+	/**
+	 * The priority-ordered queue in front of the dispatcher of this transport.
+	 *
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	@NotNull
+	protected final PriorityDispatcher queue = new PriorityDispatcher(this.dispatcher, PriorityDispatcher.CAPACITY);
+
+	/**
+	 * The client performing the connections of this transport.
+	 *
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@NotNull
+	protected volatile OkHttpClient client;
+	/**
+	 * The keep-alive duration of the idle connections in milliseconds. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	protected long keepAlive = XTransport.KEEP_ALIVE;
+	/**
+	 * The maximum number of idle connections in the pool. (lock on this)
+	 *
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	protected int maxIdleConnections = XTransport.MAX_IDLE_CONNECTIONS;
+
+	/**
+	 * Construct a new transport with its own connection pool and dispatcher.
+	 *
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	public XTransport() {
+		this(new OkHttpClient());
+	}
+
+	/**
+	 * Construct a new transport with its own connection pool and dispatcher and the rest
+	 * of its configuration taken from the given {@code base} client.
+	 *
+	 * @param base the client to take the configuration of the transport from.
+	 * @throws NullPointerException if the given {@code base} is null.
+	 * @since 0.1.1 ~2021.08.26
+	 */
+	public XTransport(@NotNull OkHttpClient base) {
+		Objects.requireNonNull(base, "base");
+		this.base = base;
+		this.dispatcher.setMaxRequests(XTransport.MAX_REQUESTS);
+		this.dispatcher.setMaxRequestsPerHost(XTransport.MAX_REQUESTS_PER_HOST);
+		this.client = this.build();
+	}
+
+	/**
+	 * Return the shared transport of the application of the given {@code context}.
+	 *
+	 * @param context the context to get the transport of its application.
+	 * @return the transport of the application.
+	 * @throws NullPointerException if the given {@code context} is null.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@NotNull
+	public static XTransport transport(@NotNull Context context) {
+		Objects.requireNonNull(context, "context");
+		Context application = context.getApplicationContext();
+
+		if (application == null)
+			application = context;
+
+		synchronized (XTransport.TRANSPORTS) {
+			XTransport transport = XTransport.TRANSPORTS.get(application);
+
+			if (transport == null) {
+				transport = new XTransport();
+				XTransport.TRANSPORTS.put(application, transport);
+			}
+
+			return transport;
+		}
+	}
+
+	/**
+	 * Return true if the given {@code call} is a call of the given {@code client} or of
+	 * an exchange of it.
+	 *
+	 * @param call   the call to be checked.
+	 * @param client the client.
+	 * @return true, if the call belongs to the client.
+	 * @throws NullPointerException if the given {@code call} or {@code client} is null.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@Contract(pure = true)
+	protected static boolean belongs(@NotNull Call call, @NotNull Client<?> client) {
+		Objects.requireNonNull(call, "call");
+		Objects.requireNonNull(client, "client");
+		Client<?> tag = call.request().tag(Client.class);
+		return tag == client || tag != null && TransportMiddleware.origin(tag) == client;
+	}
+
+	/**
+	 * Return the deadline of the connections of the given {@code client}. The deadline
+	 * of an exchange is the deadline of the client it was created for.
+	 *
+	 * @param client the client to get its deadline.
+	 * @return the deadline of the client. Or null if the client has no deadline.
+	 * @throws NullPointerException if the given {@code client} is null.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@Nullable
+	protected static Deadline deadline(@NotNull Client<?> client) {
+		Objects.requireNonNull(client, "client");
+		Client<?> origin = TransportMiddleware.origin(client);
+		return origin instanceof XClient ?
+			   ((XClient<?>) origin).getDeadline() :
+			   null;
+	}
+
+	/**
+	 * Perform a tls handshake with the given {@code url} using the configuration of the
+	 * given {@code client}. Then, close the connection. The established session is left
+	 * in the session cache of the tls context of the client to be resumed.
+	 *
+	 * @param client  the client to use its configuration.
+	 * @param url     the url to handshake with its host.
+	 * @param address the resolved address of the host.
+	 * @throws NullPointerException if the given {@code client} or {@code url} or {@code
+	 *                              address} is null.
+	 * @throws IOException          if an I/O exception occurred or the host could not be
+	 *                              verified.
+	 * @since 0.1.1 ~2021.08.26
+	 */
+	protected static void handshake(@NotNull OkHttpClient client, @NotNull HttpUrl url, @NotNull InetAddress address) throws IOException {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(url, "url");
+		Objects.requireNonNull(address, "address");
+		Socket socket = client.socketFactory().createSocket();
+		try {
+			socket.connect(new InetSocketAddress(address, url.port()), client.connectTimeoutMillis());
+
+			try (SSLSocket ssl = (SSLSocket) client.sslSocketFactory().createSocket(socket, url.host(), url.port(), true)) {
+				ssl.startHandshake();
+
+				if (!client.hostnameVerifier().verify(url.host(), ssl.getSession()))
+					throw new SSLPeerUnverifiedException("Hostname " + url.host() + " not verified");
+			}
+		} finally {
+			socket.close();
+		}
+	}
+
+	/**
+	 * Return the raw status line and headers of the given okhttp {@code response}
+	 * (including the empty line terminating the headers). The body of the response is
+	 * not touched.
+	 *
+	 * @param response the okhttp response.
+	 * @return the raw head of the response.
+	 * @throws NullPointerException if the given {@code response} is null.
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	@NotNull
+	@Contract(pure = true)
+	protected static String head(@NotNull okhttp3.Response response) {
+		Objects.requireNonNull(response, "response");
+		StringBuilder builder = new StringBuilder()
+				.append("HTTP/1.1 ")
+				.append(response.code())
+				.append(" ")
+				.append(response.message())
+				.append("\r\n");
+
+		Headers headers = response.headers();
+		for (int i = 0; i < headers.size(); i++)
+			builder.append(headers.name(i))
+				   .append(": ")
+				   .append(headers.value(i))
+				   .append("\r\n");
+
+		return builder.append("\r\n").toString();
+	}
+
+	/**
+	 * Return the okhttp request equivalent to the given {@code request}.
+	 *
+	 * @param request the request to be converted.
+	 * @return an okhttp request.
+	 * @throws NullPointerException     if the given {@code request} is null.
+	 * @throws IllegalArgumentException if the given {@code request} cannot be converted.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@NotNull
+	@Contract(pure = true)
+	protected static okhttp3.Request request(@NotNull Request<?> request) {
+		Objects.requireNonNull(request, "request");
+		String method = String.valueOf(request.getMethod());
+		String message = request.toString();
+		Headers.Builder headers = new Headers.Builder();
+		String contentType = null;
+
+		int start = message.indexOf('\n') + 1;
+		int body = message.length();
+		while (start > 0 && start < message.length()) {
+			int end = message.indexOf('\n', start);
+			String line = message.substring(start, end < 0 ? message.length() : end).trim();
+			start = end + 1;
+
+			if (line.isEmpty()) {
+				body = end < 0 ? message.length() : end + 1;
+				break;
+			}
+
+			int colon = line.indexOf(':');
+
+			if (colon <= 0)
+				continue;
+
+			String name = line.substring(0, colon).trim();
+			String value = line.substring(colon + 1).trim();
+
+			if (name.equalsIgnoreCase("Content-Type"))
+				contentType = value;
+			if (name.equalsIgnoreCase("Host") ||
+				name.equalsIgnoreCase("Content-Length") ||
+				name.equalsIgnoreCase("Transfer-Encoding"))
+				//computed by okhttp
+				continue;
+
+			headers.add(name, value);
+		}
+
+		RequestBody requestBody = null;
+		if (!method.equalsIgnoreCase("GET") && !method.equalsIgnoreCase("HEAD")) {
+			MediaType mediaType = contentType == null ? null : MediaType.parse(contentType);
+			requestBody = RequestBody.create(message.substring(body), mediaType);
+		}
+
+		return new okhttp3.Request.Builder()
+				.url(String.valueOf(request.getUri()))
+				.headers(headers.build())
+				.method(method, requestBody)
+				.build();
+	}
+
+	/**
+	 * Return the response equivalent to the given okhttp {@code response}. The body of
+	 * the given response will be consumed.
+	 *
+	 * @param response the okhttp response to be converted.
+	 * @return a response.
+	 * @throws NullPointerException if the given {@code response} is null.
+	 * @throws IOException          if an I/O exception occurred while reading the body.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@NotNull
+	protected static Response<?> response(@NotNull okhttp3.Response response) throws IOException {
+		Objects.requireNonNull(response, "response");
+		String head = XTransport.head(response);
+
+		okhttp3.ResponseBody body = response.body();
+		if (body != null)
+			try {
+				return Response.response(head + body.string());
+			} finally {
+				body.close();
+			}
+
+		return Response.response(head);
+	}
+
+	/**
+	 * Return the priority of the connections of the given {@code client}.
+	 *
+	 * @param client the client to get its priority.
+	 * @return the priority of the client. Or {@link Priority#NORMAL} if the client has no
+	 * 		priority.
+	 * @throws NullPointerException if the given {@code client} is null.
+	 * @since 0.1.1 ~2021.09.02
+	 */
+	@NotNull
+	protected static Priority priority(@NotNull Client<?> client) {
+		Objects.requireNonNull(client, "client");
+		return client instanceof XClient ?
+			   ((XClient<?>) client).getPriority() :
+			   Priority.NORMAL;
+	}
+
+	/**
+	 * Return the timer of the current connection of the given {@code client} after
+	 * marking {@link Timing.Phase#MIDDLEWARE} on it.
+	 *
+	 * @param client the client to get its timer.
+	 * @return the timer of the client. Or null if the client has no timer.
+	 * @throws NullPointerException if the given {@code client} is null.
+	 * @since 0.1.1 ~2021.08.31
+	 */
+	@Nullable
+	protected static Timer timer(@NotNull Client<?> client) {
+		Objects.requireNonNull(client, "client");
+
+		if (!(client instanceof XClient))
+			return null;
+
+		Timer timer = ((XClient<?>) client).getTimer();
+
+		if (timer != null)
+			timer.mark(Timing.Phase.MIDDLEWARE);
+
+		return timer;
+	}
+
+	/**
+	 * Cancel the connections of the given {@code client} (and of its exchanges) that are
+	 * queued or running in this transport. The cancelled connections will trigger {@link
+	 * Client#DISCONNECTED} on the client.
+	 *
+	 * @param client the client to cancel its connections.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code client} is null.
+	 * @since 0.1.1 ~2021.08.25
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	public XTransport cancel(@NotNull Client<?> client) {
+		Objects.requireNonNull(client, "client");
+		this.queue.cancel(client);
+		List<Call> calls = new ArrayList<>(this.dispatcher.queuedCalls());
+		calls.addAll(this.dispatcher.runningCalls());
+
+		for (Call call : calls)
+			if (XTransport.belongs(call, client))
+				call.cancel();
+
+		return this;
+	}
+
+	/**
+	 * Connect the given {@code request} and stream the body of its response to the given
+	 * {@code target}. If the target already has content, the download gets resumed using
+	 * a {@code Range} header.
+	 * <br>
+	 * The target is opened using the executor of the given {@code client}. See {@link
+	 * Download} for the actions triggered on the client.
+	 *
+	 * @param client  the client to trigger the progress and the result to.
+	 * @param request the request to be connected.
+	 * @param target  the target to download the body to.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code client} or {@code request} or
+	 *                              {@code target} is null.
+	 * @since 0.1.1 ~2021.08.27
+	 */
+	@NotNull
+	@Contract("_,_,_->this")
+	public XTransport download(@NotNull Client<?> client, @NotNull Request<?> request, @NotNull Download.Target target) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(request, "request");
+		Objects.requireNonNull(target, "target");
+		Executor executor = client instanceof XClient ?
+							((XClient<?>) client).getExecutor() :
+							AbstractXClient.EXECUTOR;
+
+		executor.execute(() -> {
+			FileChannel channel;
+			try {
+				channel = target.open();
+			} catch (IOException | RuntimeException e) {
+				client.trigger(Client.DISCONNECTED, e);
+				return;
+			}
+
+			long offset;
+			okhttp3.Request okRequest;
+			try {
+				offset = channel.size();
+				okhttp3.Request.Builder builder = XTransport.request(request)
+						.newBuilder()
+						.tag(Client.class, client)
+						.tag(Timer.class, XTransport.timer(client));
+
+				if (offset > 0)
+					builder.header("Range", "bytes=" + offset + "-");
+
+				okRequest = builder.build();
+			} catch (IOException | RuntimeException e) {
+				try {
+					channel.close();
+				} catch (IOException ce) {
+					e.addSuppressed(ce);
+				}
+
+				client.trigger(Client.DISCONNECTED, e);
+				return;
+			}
+
+			this.queue.enqueue(
+					XTransport.priority(client),
+					this.call(client, okRequest),
+					new Download(client, channel, offset)
+			);
+		});
+		return this;
+	}
+
+	/**
+	 * Get the okhttp client performing the connections of this transport.
+	 *
+	 * @return the client of this transport.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public OkHttpClient getClient() {
+		return this.client;
+	}
+
+	/**
+	 * Get the keep-alive duration of the idle connections of this transport.
+	 *
+	 * @param unit the unit of the returned value.
+	 * @return the keep-alive duration in the given {@code unit}.
+	 * @throws NullPointerException if the given {@code unit} is null.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	public synchronized long getKeepAlive(@NotNull TimeUnit unit) {
+		Objects.requireNonNull(unit, "unit");
+		return unit.convert(this.keepAlive, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Get the maximum number of idle connections kept by this transport.
+	 *
+	 * @return the maximum number of idle connections.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	public synchronized int getMaxIdleConnections() {
+		return this.maxIdleConnections;
+	}
+
+	/**
+	 * Get the maximum number of concurrent requests of this transport.
+	 *
+	 * @return the maximum number of concurrent requests.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@Contract(pure = true)
+	public int getMaxRequests() {
+		return this.dispatcher.getMaxRequests();
+	}
+
+	/**
+	 * Get the maximum number of concurrent requests to a single host of this transport.
+	 *
+	 * @return the maximum number of concurrent requests per host.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@Contract(pure = true)
+	public int getMaxRequestsPerHost() {
+		return this.dispatcher.getMaxRequestsPerHost();
+	}
+
+	@Override
+	public void inject(@NotNull Client<?> client) {
+		Objects.requireNonNull(client, "client");
+		client.on(Client.CONNECT, (caller, request) ->
+				this.connect(client, request)
+		);
+	}
+
+	/**
+	 * Set the keep-alive duration of the idle connections of this transport. The idle
+	 * connections exceeding the duration get evicted from the pool.
+	 * <br>
+	 * Changing the pool parameters replaces the pool. The current idle connections will
+	 * be evicted.
+	 *
+	 * @param keepAlive the keep-alive duration.
+	 * @param unit      the unit of the given {@code keepAlive}.
+	 * @return this.
+	 * @throws NullPointerException     if the given {@code unit} is null.
+	 * @throws IllegalArgumentException if the given {@code keepAlive} is not positive.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@NotNull
+	@Contract(value = "_,_->this", mutates = "this")
+	public synchronized XTransport setKeepAlive(long keepAlive, @NotNull TimeUnit unit) {
+		Objects.requireNonNull(unit, "unit");
+		if (keepAlive <= 0)
+			throw new IllegalArgumentException("keepAlive <= 0");
+		this.keepAlive = unit.toMillis(keepAlive);
+		this.rebuild();
+		return this;
+	}
+
+	/**
+	 * Set the maximum number of idle connections kept by this transport.
+	 * <br>
+	 * Changing the pool parameters replaces the pool. The current idle connections will
+	 * be evicted.
+	 *
+	 * @param maxIdleConnections the maximum number of idle connections.
+	 * @return this.
+	 * @throws IllegalArgumentException if the given {@code maxIdleConnections} is
+	 *                                  negative.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	public synchronized XTransport setMaxIdleConnections(int maxIdleConnections) {
+		if (maxIdleConnections < 0)
+			throw new IllegalArgumentException("maxIdleConnections < 0");
+		this.maxIdleConnections = maxIdleConnections;
+		this.rebuild();
+		return this;
+	}
+
+	/**
+	 * Set the maximum number of concurrent requests of this transport. Requests
+	 * exceeding the limit are queued.
+	 *
+	 * @param maxRequests the maximum number of concurrent requests.
+	 * @return this.
+	 * @throws IllegalArgumentException if the given {@code maxRequests} is not positive.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	public XTransport setMaxRequests(int maxRequests) {
+		this.dispatcher.setMaxRequests(maxRequests);
+		this.queue.promote();
+		return this;
+	}
+
+	/**
+	 * Set the maximum number of concurrent requests to a single host of this transport.
+	 * Requests exceeding the limit are queued.
+	 *
+	 * @param maxRequestsPerHost the maximum number of concurrent requests per host.
+	 * @return this.
+	 * @throws IllegalArgumentException if the given {@code maxRequestsPerHost} is not
+	 *                                  positive.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@NotNull
+	@Contract(value = "_->this", mutates = "this")
+	public XTransport setMaxRequestsPerHost(int maxRequestsPerHost) {
+		this.dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+		this.queue.promote();
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public String toString() {
+		return "XTransport " + System.identityHashCode(this);
+	}
+
+	/**
+	 * Connect the given {@code request} with its body streamed from the given {@code
+	 * upload} instead of the body of the request. The {@code Content-Type} of the
+	 * request is used as the type of the upload.
+	 * <br>
+	 * {@link XClient#PROGRESS} is triggered on the client while the body is written. The
+	 * response is triggered as usual.
+	 *
+	 * @param client  the client to trigger the progress and the result to.
+	 * @param request the request to be connected.
+	 * @param upload  the source of the body.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code client} or {@code request} or
+	 *                              {@code upload} is null.
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	@NotNull
+	@Contract("_,_,_->this")
+	public XTransport upload(@NotNull Client<?> client, @NotNull Request<?> request, @NotNull Upload.Source upload) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(request, "request");
+		Objects.requireNonNull(upload, "upload");
+		okhttp3.Request okRequest;
+		try {
+			okhttp3.Request base = XTransport.request(request);
+			String contentType = base.header("Content-Type");
+			MediaType mediaType = contentType == null ? null : MediaType.parse(contentType);
+			okRequest = base.newBuilder()
+					.tag(Client.class, client)
+					.tag(Timer.class, XTransport.timer(client))
+					.method(base.method(), new Upload(client, upload, mediaType))
+					.build();
+		} catch (IllegalArgumentException e) {
+			client.trigger(Client.DISCONNECTED, e);
+			return this;
+		}
+
+		this.enqueue(client, okRequest);
+		return this;
+	}
+
+	/**
+	 * Warm up the connection to the host of the given {@code request} without sending
+	 * it. The host gets resolved and, if {@code handshake} is true and the request is
+	 * secure, a tls handshake gets performed so the session gets cached and resumed by
+	 * the actual connection.
+	 * <br>
+	 * Once done, {@link XClient#WARMED} will be triggered on the given {@code client}
+	 * with the given {@code request}. Failures are triggered as {@link
+	 * Caller#EXCEPTION}.
+	 *
+	 * @param client    the client to trigger the result to.
+	 * @param request   the request to warm up its connection.
+	 * @param handshake true, to perform a tls handshake.
+	 * @return this.
+	 * @throws NullPointerException if the given {@code client} or {@code request} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.08.26
+	 */
+	@NotNull
+	@Contract("_,_,_->this")
+	public XTransport warmUp(@NotNull Client<?> client, @NotNull Request<?> request, boolean handshake) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(request, "request");
+		OkHttpClient okClient = this.client;
+		okClient.dispatcher().executorService().execute(() -> {
+			try {
+				HttpUrl url = HttpUrl.get(String.valueOf(request.getUri()));
+				List<InetAddress> addresses = okClient.dns().lookup(url.host());
+
+				if (handshake && url.isHttps())
+					XTransport.handshake(okClient, url, addresses.get(0));
+			} catch (IOException | RuntimeException e) {
+				client.trigger(Caller.EXCEPTION, e);
+				return;
+			}
+
+			client.trigger(XClient.WARMED, request);
+		});
+		return this;
+	}
+
+	/**
+	 * Build a new okhttp client with the current parameters of this transport.
+	 *
+	 * @return a new okhttp client.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	@NotNull
+	protected synchronized OkHttpClient build() {
+		return this.base.newBuilder()
+				.dispatcher(this.dispatcher)
+				.connectionPool(new ConnectionPool(this.maxIdleConnections, this.keepAlive, TimeUnit.MILLISECONDS))
+				.eventListenerFactory(TimingListener.factory(this.base.eventListenerFactory()))
+				.build();
+	}
+
+	/**
+	 * Return a new call of the given {@code okRequest} with the connect and read limits
+	 * of the {@link Deadline deadline} of the given {@code client} applied.
+	 *
+	 * @param client    the client the call is for.
+	 * @param okRequest the okhttp request to be called.
+	 * @return a new call.
+	 * @throws NullPointerException if the given {@code client} or {@code okRequest} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.09.06
+	 */
+	@NotNull
+	protected Call call(@NotNull Client<?> client, @NotNull okhttp3.Request okRequest) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(okRequest, "okRequest");
+		OkHttpClient okClient = this.client;
+		Deadline deadline = XTransport.deadline(client);
+
+		if (deadline != null && (deadline.connect != 0 || deadline.read != 0)) {
+			//shares the dispatcher and the pool of this transport
+			OkHttpClient.Builder builder = okClient.newBuilder();
+
+			if (deadline.connect != 0)
+				builder.connectTimeout(deadline.connect, TimeUnit.MILLISECONDS);
+			if (deadline.read != 0)
+				builder.readTimeout(deadline.read, TimeUnit.MILLISECONDS);
+
+			okClient = builder.build();
+		}
+
+		return okClient.newCall(okRequest);
+	}
+
+	/**
+	 * Connect the given {@code request} and trigger the result to the given {@code
+	 * client}.
+	 *
+	 * @param client  the client to trigger the result to.
+	 * @param request the request to be connected.
+	 * @throws NullPointerException if the given {@code client} or {@code request} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	protected void connect(@NotNull Client<?> client, @NotNull Request<?> request) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(request, "request");
+		okhttp3.Request okRequest;
+		try {
+			okRequest = XTransport.request(request)
+					.newBuilder()
+					//to cancel the calls of a client
+					.tag(Client.class, client)
+					//to record the network phases of a connection
+					.tag(Timer.class, XTransport.timer(client))
+					.build();
+		} catch (IllegalArgumentException e) {
+			client.trigger(Client.DISCONNECTED, e);
+			return;
+		}
+
+		this.enqueue(client, okRequest);
+	}
+
+	/**
+	 * Enqueue the given okhttp request and trigger its result to the given {@code
+	 * client}.
+	 *
+	 * @param client    the client to trigger the result to.
+	 * @param okRequest the okhttp request to be enqueued.
+	 * @throws NullPointerException if the given {@code client} or {@code okRequest} is
+	 *                              null.
+	 * @since 0.1.1 ~2021.08.28
+	 */
+	protected void enqueue(@NotNull Client<?> client, @NotNull okhttp3.Request okRequest) {
+		Objects.requireNonNull(client, "client");
+		Objects.requireNonNull(okRequest, "okRequest");
+		this.queue.enqueue(XTransport.priority(client), this.call(client, okRequest), new Callback() {
+			@Override
+			public void onFailure(@NotNull Call call, @NotNull IOException exception) {
+				client.trigger(Client.DISCONNECTED, exception);
+			}
+
+			@Override
+			public void onResponse(@NotNull Call call, @NotNull okhttp3.Response okResponse) {
+				Response<?> response;
+				try {
+					response = XTransport.response(okResponse);
+				} catch (IOException | RuntimeException e) {
+					client.trigger(Client.DISCONNECTED, e);
+					return;
+				}
+
+				client.trigger(Client.CONNECTED, response);
+			}
+		});
+	}
+
+	/**
+	 * Replace the client of this transport with a client having the current parameters.
+	 * The idle connections of the previous pool get evicted.
+	 *
+	 * @since 0.1.1 ~2021.08.24
+	 */
+	protected synchronized void rebuild() {
+		OkHttpClient previous = this.client;
+		this.client = this.build();
+		previous.connectionPool().evictAll();
+	}
+}
@@ -0,0 +1,139 @@
+package org.cufyx.http.connect;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * A minimal benchmark harness for the robolectric tests. The benchmarks only run when
+ * the {@code org.cufyx.benchmark} system property is true (gradle {@code -Pbenchmark}).
+ * <br>
+ * The results are written to {@code build/benchmark/results.properties}. If a baseline
+ * exists at {@code benchmark/baseline.properties} (or the {@code
+ * org.cufyx.benchmark.baseline} system property), the change of each median from it is
+ * reported. Nothing fails on it until a baseline has been recorded on a reference
+ * machine.
+ */
+final class Benchmark {
+	static final String BASELINE = "org.cufyx.benchmark.baseline";
+	static final String ENABLED = "org.cufyx.benchmark";
+
+	private static final int BATCHES = 30;
+	private static final int WARMUP = 10;
+
+	private final Properties baseline = new Properties();
+	private final Properties results = new Properties();
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	Benchmark() {
+		File file = new File(System.getProperty(Benchmark.BASELINE, "benchmark/baseline.properties"));
+
+		if (file.exists())
+			try (InputStream in = new FileInputStream(file)) {
+				this.baseline.load(in);
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not read the baseline " + file, e);
+			}
+	}
+
+	static boolean isEnabled() {
+		return Boolean.getBoolean(Benchmark.ENABLED);
+	}
+
+	/**
+	 * Time each invocation of the given {@code operation} separately.
+	 */
+	void latency(String name, int samples, Runnable operation) {
+		for (int i = 0; i < samples / 10; i++)
+			operation.run();
+
+		long[] latencies = new long[samples];
+		long allocated = this.allocated();
+		for (int i = 0; i < samples; i++) {
+			long start = System.nanoTime();
+			operation.run();
+			latencies[i] = System.nanoTime() - start;
+		}
+		allocated = this.allocated() - allocated;
+
+		this.report(name, latencies, allocated / samples);
+	}
+
+	void save() throws IOException {
+		File file = new File("build/benchmark/results.properties");
+		//noinspection ResultOfMethodCallIgnored
+		file.getParentFile().mkdirs();
+
+		try (OutputStream out = new FileOutputStream(file)) {
+			this.results.store(out, "ns/op percentiles and bytes/op");
+		}
+
+		System.out.println("Benchmark results written to " + file.getAbsolutePath());
+	}
+
+	/**
+	 * Time batches of {@code operations} invocations of the given {@code operation}. The
+	 * percentiles are of the per-operation time of each batch.
+	 */
+	void throughput(String name, int operations, Runnable operation) {
+		for (int i = 0; i < Benchmark.WARMUP * operations; i++)
+			operation.run();
+
+		long[] batches = new long[Benchmark.BATCHES];
+		long allocated = this.allocated();
+		for (int b = 0; b < batches.length; b++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < operations; i++)
+				operation.run();
+			batches[b] = (System.nanoTime() - start) / operations;
+		}
+		allocated = this.allocated() - allocated;
+
+		this.report(name, batches, allocated / ((long) Benchmark.BATCHES * operations));
+	}
+
+	private long allocated() {
+		if (this.threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) this.threads)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+
+		return 0;
+	}
+
+	private void report(String name, long[] values, long bytes) {
+		Arrays.sort(values);
+		long p50 = Benchmark.percentile(values, 50);
+		long p90 = Benchmark.percentile(values, 90);
+		long p99 = Benchmark.percentile(values, 99);
+
+		this.results.setProperty(name + ".p50", String.valueOf(p50));
+		this.results.setProperty(name + ".p90", String.valueOf(p90));
+		this.results.setProperty(name + ".p99", String.valueOf(p99));
+		this.results.setProperty(name + ".bytes", String.valueOf(bytes));
+
+		String line = String.format(
+				"%-32s p50=%9dns p90=%9dns p99=%9dns %7dB/op",
+				name, p50, p90, p99, bytes
+		);
+
+		String expected = this.baseline.getProperty(name + ".p50");
+		if (expected != null) {
+			double ratio = (double) p50 / Long.parseLong(expected);
+			line += String.format(" (%+.0f%% vs baseline)", (ratio - 1) * 100);
+		}
+
+		System.out.println(line);
+	}
+
+	private static long percentile(long[] sorted, double percentile) {
+		int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+	}
+}
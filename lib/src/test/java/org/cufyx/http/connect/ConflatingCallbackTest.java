@@ -0,0 +1,74 @@
+package org.cufyx.http.connect;
+
+import android.os.Looper;
+
+import org.cufy.http.body.Body;
+import org.cufy.http.connect.Action;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.robolectric.Shadows.shadowOf;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class ConflatingCallbackTest {
+	private static final Action<Integer> VALUE = Action.action(Integer.class, "value", "value");
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void callers() {
+		List<String> delivered = new ArrayList<>();
+
+		XClient<Body> client = XClient.client(RuntimeEnvironment.getApplication());
+		client.onhLatest(ConflatingCallbackTest.VALUE, (c, value) ->
+				delivered.add((c == client ? "client" : "clone") + value)
+		);
+		XClient<Body> clone = client.clone();
+
+		//the looper is paused until idle
+		for (int i = 0; i < 100; i++) {
+			client.trigger(ConflatingCallbackTest.VALUE, i);
+			clone.trigger(ConflatingCallbackTest.VALUE, 1000 + i);
+		}
+
+		shadowOf(Looper.getMainLooper()).idle();
+		Assert.assertEquals("Callers not conflated separately", Arrays.asList("client99", "clone1099"), delivered);
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void latest() {
+		List<Integer> delivered = new ArrayList<>();
+
+		XClient<Body> client = XClient.client(RuntimeEnvironment.getApplication())
+									  .onhLatest(ConflatingCallbackTest.VALUE, (c, value) -> delivered.add(value));
+
+		//the looper is paused until idle
+		for (int i = 0; i < 100; i++)
+			client.trigger(ConflatingCallbackTest.VALUE, i);
+
+		Assert.assertEquals("Delivered before the looper ran", Collections.emptyList(), delivered);
+
+		shadowOf(Looper.getMainLooper()).idle();
+		Assert.assertEquals("Burst not conflated to the latest value", Collections.singletonList(99), delivered);
+
+		client.trigger(ConflatingCallbackTest.VALUE, 100);
+		shadowOf(Looper.getMainLooper()).idle();
+		Assert.assertEquals("Next trigger not delivered", Arrays.asList(99, 100), delivered);
+
+		client.trigger(ConflatingCallbackTest.VALUE, 101);
+		client.trigger(ConflatingCallbackTest.VALUE, null);
+		shadowOf(Looper.getMainLooper()).idle();
+		Assert.assertEquals("Null not delivered as the latest value", Arrays.asList(99, 100, null), delivered);
+	}
+}
@@ -0,0 +1,102 @@
+package org.cufyx.http.connect;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Looper;
+
+import org.cufy.http.connect.Client;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.robolectric.Shadows.shadowOf;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class DeferralTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void charging() {
+		Context context = RuntimeEnvironment.getApplication();
+		Deferral deferral = new Deferral(context);
+		AtomicInteger connected = new AtomicInteger();
+
+		for (int i = 0; i < 3; i++)
+			deferral.defer(DeferralTest.client(context, connected), 1, TimeUnit.HOURS);
+
+		shadowOf(Looper.getMainLooper()).idle();
+		Assert.assertEquals("Connected before the flush", 0, connected.get());
+
+		List<JobInfo> jobs = shadowOf(context.getSystemService(JobScheduler.class)).getAllPendingJobs();
+		Assert.assertEquals("Flush jobs not scheduled", 3, jobs.size());
+		for (JobInfo job : jobs)
+			Assert.assertEquals("Wrong deadline", TimeUnit.HOURS.toMillis(1), job.getMaxExecutionDelayMillis());
+
+		context.sendBroadcast(new Intent(Intent.ACTION_POWER_CONNECTED));
+		shadowOf(Looper.getMainLooper()).idle();
+
+		Assert.assertEquals("Not flushed together", 3, connected.get());
+		Assert.assertEquals("Not emptied", 0, deferral.getSize());
+		Assert.assertEquals(
+				"Flush jobs not cancelled",
+				0,
+				shadowOf(context.getSystemService(JobScheduler.class)).getAllPendingJobs().size()
+		);
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void deadline() {
+		Context context = RuntimeEnvironment.getApplication();
+		Deferral deferral = new Deferral(context);
+		AtomicInteger connected = new AtomicInteger();
+
+		deferral.defer(DeferralTest.client(context, connected), 10, TimeUnit.MINUTES);
+		deferral.defer(DeferralTest.client(context, connected), 1, TimeUnit.MINUTES);
+
+		shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(59));
+		Assert.assertEquals("Connected before the deadline", 0, connected.get());
+
+		shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(2));
+		Assert.assertEquals("Not flushed at the earliest deadline", 2, connected.get());
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void piggyback() {
+		Context context = RuntimeEnvironment.getApplication();
+		AtomicInteger connected = new AtomicInteger();
+
+		DeferralTest.client(context, connected).defer();
+		shadowOf(Looper.getMainLooper()).idle();
+		Assert.assertEquals("Connected before the flush", 0, connected.get());
+
+		//a user-visible connection wakes the radio
+		DeferralTest.client(context, new AtomicInteger()).connect();
+		Assert.assertEquals("Not piggybacked", 1, connected.get());
+
+		Deferral.deferral(context).setPiggyback(false);
+		DeferralTest.client(context, connected).defer();
+		DeferralTest.client(context, new AtomicInteger()).connect();
+		Assert.assertEquals("Piggybacked while disabled", 1, connected.get());
+		Deferral.deferral(context).setPiggyback(true).flush();
+	}
+
+	private static XClient<?> client(Context context, AtomicInteger connected) {
+		return XClient.client(context)
+					  //no network in here
+					  .setTransport(null)
+					  .on(Client.CONNECT, (client, request) -> connected.incrementAndGet());
+	}
+}
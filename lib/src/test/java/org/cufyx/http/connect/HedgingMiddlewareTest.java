@@ -0,0 +1,230 @@
+package org.cufyx.http.connect;
+
+import android.content.Context;
+
+import org.cufy.http.connect.Client;
+import org.cufy.http.middleware.Middleware;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class HedgingMiddlewareTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void cancel() throws IOException, InterruptedException {
+		try (MockWebServer server = new MockWebServer()) {
+			int samples = 20;
+			AtomicInteger requests = new AtomicInteger();
+			server.setDispatcher(new Dispatcher() {
+				@Override
+				public MockResponse dispatch(RecordedRequest request) {
+					MockResponse response = new MockResponse().setBody("ok");
+					//fast until the latencies are known, then stalling
+					return requests.incrementAndGet() <= samples ?
+						   response :
+						   response.setHeadersDelay(10, TimeUnit.SECONDS);
+				}
+			});
+			server.start();
+
+			XTransport transport = new XTransport();
+			HedgingMiddleware middleware = new HedgingMiddleware(transport);
+			HedgingMiddlewareTest.latencies(server, middleware, new AtomicInteger(), samples);
+
+			AtomicInteger results = new AtomicInteger();
+			XClient<?> client = XClient.client(HedgingMiddlewareTest.context())
+									   .setTransport(middleware)
+									   .request(r -> r.setUri(server.url("/").toString()))
+									   .on(Client.CONNECTED, (c, response) -> results.incrementAndGet())
+									   .on(Client.DISCONNECTED, (c, e) -> results.incrementAndGet())
+									   .connect();
+
+			//the original and (most likely) its hedge
+			Thread.sleep(200);
+			Assert.assertTrue("Not connected", requests.get() > samples);
+
+			client.cancel();
+			int sent = requests.get();
+
+			//longer than the backoff of the first retry
+			Thread.sleep(1000);
+			Assert.assertEquals("Cancelled client retried or hedged", sent, requests.get());
+			Assert.assertEquals("Calls of a cancelled client still running", 0, transport.getClient().dispatcher().runningCallsCount());
+			Assert.assertEquals("Result of a cancelled client triggered", 0, results.get());
+		}
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void hedging() throws IOException, InterruptedException {
+		try (MockWebServer server = new MockWebServer()) {
+			int samples = HedgingMiddleware.MIN_SAMPLES;
+			AtomicLong hedged = new AtomicLong();
+			AtomicInteger requests = new AtomicInteger();
+			server.setDispatcher(new Dispatcher() {
+				@Override
+				public MockResponse dispatch(RecordedRequest request) {
+					int index = requests.incrementAndGet() - samples - 1;
+
+					if (index < 0)
+						//a steady latency until the latencies are known
+						return new MockResponse().setBody("sample").setHeadersDelay(50, TimeUnit.MILLISECONDS);
+					if (index == 1)
+						hedged.set(System.nanoTime());
+
+					//the first attempt stalls and its hedge is fast
+					return index == 0 ?
+						   new MockResponse().setBody("stalled").setHeadersDelay(10, TimeUnit.SECONDS) :
+						   new MockResponse().setBody("hedge");
+				}
+			});
+			server.start();
+
+			HedgingMiddleware middleware = new HedgingMiddleware(new XTransport());
+			HedgingMiddlewareTest.latencies(server, middleware, new AtomicInteger(), samples);
+			long delay = middleware.getDelay(server.getHostName(), TimeUnit.NANOSECONDS);
+			Assert.assertTrue("No hedging delay", delay >= TimeUnit.MILLISECONDS.toNanos(50));
+
+			AtomicInteger results = new AtomicInteger();
+			AtomicReference<String> body = new AtomicReference<>();
+			CountDownLatch latch = new CountDownLatch(1);
+			long start = System.nanoTime();
+			XClient.client(HedgingMiddlewareTest.context())
+				   .setTransport(middleware)
+				   .request(r -> r.setUri(server.url("/").toString()))
+				   .on(Client.CONNECTED, (c, response) -> {
+					   body.set(String.valueOf(response.getBody()));
+					   results.incrementAndGet();
+					   latch.countDown();
+				   })
+				   .on(Client.DISCONNECTED, (c, e) -> {
+					   results.incrementAndGet();
+					   latch.countDown();
+				   })
+				   .connect();
+
+			Assert.assertTrue("Stalled request not hedged", latch.await(5, TimeUnit.SECONDS));
+			Assert.assertEquals("Fast response did not win", "hedge", body.get());
+			Assert.assertTrue("Hedged before the delay", hedged.get() - start >= delay);
+
+			//let the loser land
+			Thread.sleep(200);
+			Assert.assertEquals("Not exactly one hedge", samples + 2, server.getRequestCount());
+			Assert.assertEquals("Not exactly one result", 1, results.get());
+		}
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void retry() throws IOException, InterruptedException {
+		try (MockWebServer server = new MockWebServer()) {
+			server.enqueue(new MockResponse().setResponseCode(503));
+			server.enqueue(new MockResponse().setResponseCode(503));
+			server.enqueue(new MockResponse().setBody("ok"));
+			server.start();
+
+			HedgingMiddleware middleware = new HedgingMiddleware(new XTransport());
+			AtomicInteger connected = new AtomicInteger();
+			AtomicInteger code = new AtomicInteger();
+			CountDownLatch latch = new CountDownLatch(1);
+
+			XClient.client(HedgingMiddlewareTest.context())
+				   .middleware(middleware)
+				   .request(r -> r.setUri(server.url("/").toString()))
+				   .on(Client.CONNECTED, (c, response) -> {
+					   code.set(TransportMiddleware.status(response.toString()));
+					   connected.incrementAndGet();
+					   latch.countDown();
+				   })
+				   .on(Client.DISCONNECTED, (c, e) -> latch.countDown())
+				   .connect();
+
+			Assert.assertTrue("No result", latch.await(10, TimeUnit.SECONDS));
+			Assert.assertEquals("Not retried", 200, code.get());
+			Assert.assertEquals("Not exactly one result", 1, connected.get());
+			Assert.assertEquals("Wrong attempts", 3, server.getRequestCount());
+		}
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void budget() throws IOException, InterruptedException {
+		try (MockWebServer server = new MockWebServer()) {
+			server.setDispatcher(new Dispatcher() {
+				@Override
+				public MockResponse dispatch(RecordedRequest request) {
+					//an outage
+					return new MockResponse().setResponseCode(503);
+				}
+			});
+			server.start();
+
+			HedgingMiddleware middleware = new HedgingMiddleware(new XTransport());
+			int connections = 50;
+			CountDownLatch latch = new CountDownLatch(connections);
+
+			for (int i = 0; i < connections; i++)
+				XClient.client(HedgingMiddlewareTest.context())
+					   .middleware(middleware)
+					   .request(r -> r.setUri(server.url("/").toString()))
+					   .on(Client.CONNECTED, (c, response) -> latch.countDown())
+					   .on(Client.DISCONNECTED, (c, e) -> latch.countDown())
+					   .connect();
+
+			Assert.assertTrue("No results", latch.await(30, TimeUnit.SECONDS));
+			int retries = server.getRequestCount() - connections;
+			double allowed = HedgingMiddleware.BUDGET + connections * HedgingMiddleware.BUDGET_RATIO;
+			Assert.assertTrue("Retries amplified the outage: " + retries, retries <= allowed);
+		}
+	}
+
+	private static Context context() {
+		return RuntimeEnvironment.getApplication();
+	}
+
+	private static long[] latencies(MockWebServer server, Middleware<? super Client<?>> transport, AtomicInteger results, int count) throws InterruptedException {
+		long[] latencies = new long[count];
+
+		for (int i = 0; i < count; i++) {
+			CountDownLatch latch = new CountDownLatch(1);
+			long start = System.nanoTime();
+			XClient.client(HedgingMiddlewareTest.context())
+				   .setTransport(transport)
+				   .request(r -> r.setUri(server.url("/").toString()))
+				   .on(Client.CONNECTED, (c, r) -> {
+					   results.incrementAndGet();
+					   latch.countDown();
+				   })
+				   .on(Client.DISCONNECTED, (c, e) -> {
+					   results.incrementAndGet();
+					   latch.countDown();
+				   })
+				   .connect();
+
+			Assert.assertTrue("No result", latch.await(10, TimeUnit.SECONDS));
+			latencies[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		}
+
+		Arrays.sort(latencies);
+		return latencies;
+	}
+}
@@ -0,0 +1,166 @@
+package org.cufyx.http.connect;
+
+import android.graphics.Bitmap;
+
+import org.cufy.http.connect.Client;
+import org.cufy.http.middleware.Middleware;
+import org.cufy.http.response.Response;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class ImageLoaderTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void cache() {
+		int size = 100 * 100 * 4;
+		BitmapCache cache = new BitmapCache(3 * size);
+		Bitmap a = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+		Bitmap b = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+		Bitmap c = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+		Bitmap d = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+
+		cache.put("a", a);
+		cache.put("b", b);
+		cache.put("c", c);
+		Assert.assertSame("Not cached", a, cache.get("a"));
+
+		cache.put("d", d);
+		Assert.assertEquals("Not bounded", 3 * size, cache.getSize());
+		Assert.assertNull("Least recently used not evicted", cache.get("b"));
+		Assert.assertSame("Recently used evicted", a, cache.get("a"));
+		Assert.assertEquals("Wrong eviction count", 1, cache.getEvictionCount());
+
+		BitmapPool pool = new BitmapPool(2 * size);
+		ImageLoader loader = new ImageLoader(cache, pool);
+		loader.recycle(a);
+		Assert.assertNull("Recycled bitmap still cached", cache.get("a"));
+		Assert.assertEquals("Not pooled", size, pool.getSize());
+		Assert.assertNull("Wasteful bitmap reused", pool.get(size / 4));
+		Assert.assertSame("Not reused", a, pool.get(size - 1));
+		Assert.assertNull("Reused twice", pool.get(size - 1));
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void chain() throws IOException, InterruptedException {
+		try (MockWebServer server = new MockWebServer()) {
+			server.enqueue(new MockResponse().setBody(ImageLoaderTest.png(400, 300)));
+			server.start();
+			String uri = server.url("/chain.png").toString();
+
+			List<Bitmap> bitmaps = new CopyOnWriteArrayList<>();
+			CountDownLatch latch = new CountDownLatch(1);
+
+			ImageLoaderTest.client(uri, bitmaps, new AtomicInteger(), latch)
+						   .setTransport(new HedgingMiddleware(new LimitingMiddleware(new XTransport())))
+						   .image(100, 100);
+
+			Assert.assertTrue("Not loaded through the chain", latch.await(5, TimeUnit.SECONDS));
+			Assert.assertEquals("Wrong request count", 1, server.getRequestCount());
+			Assert.assertEquals("Wrong width", 200, bitmaps.get(0).getWidth());
+		}
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void fallback() throws IOException, InterruptedException {
+		String body = ImageLoaderTest.png(400, 300).readString(StandardCharsets.ISO_8859_1);
+		AtomicInteger requests = new AtomicInteger();
+		Middleware<Client<?>> transport = new Middleware<Client<?>>() {
+			@Override
+			public void inject(Client<?> client) {
+				client.on(Client.CONNECT, (c, request) -> {
+					requests.incrementAndGet();
+					c.trigger(Client.CONNECTED, Response.response("HTTP/1.1 200 OK\r\n\r\n" + body));
+				});
+			}
+		};
+
+		List<Bitmap> bitmaps = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(1);
+
+		ImageLoaderTest.client("http://example.com/fallback.png", bitmaps, new AtomicInteger(), latch)
+					   .setTransport(transport)
+					   .image(100, 100);
+
+		Assert.assertTrue("Not loaded through a plain transport", latch.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals("Transport not used once", 1, requests.get());
+		Assert.assertEquals("Wrong width", 200, bitmaps.get(0).getWidth());
+		Assert.assertEquals("Wrong height", 150, bitmaps.get(0).getHeight());
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void load() throws IOException, InterruptedException {
+		try (MockWebServer server = new MockWebServer()) {
+			Buffer png = ImageLoaderTest.png(400, 300);
+			server.enqueue(new MockResponse().setBody(png).setHeadersDelay(200, TimeUnit.MILLISECONDS));
+			server.start();
+			String uri = server.url("/image.png").toString();
+
+			List<Bitmap> bitmaps = new CopyOnWriteArrayList<>();
+			AtomicInteger connected = new AtomicInteger();
+			CountDownLatch latch = new CountDownLatch(3);
+
+			//duplicate loads while in flight
+			for (int i = 0; i < 3; i++)
+				ImageLoaderTest.client(uri, bitmaps, connected, latch).image(100, 100);
+
+			Assert.assertTrue("Not loaded", latch.await(5, TimeUnit.SECONDS));
+			Assert.assertEquals("Duplicate loads not merged", 1, server.getRequestCount());
+			Assert.assertEquals("Not connected once per client", 3, connected.get());
+			for (Bitmap bitmap : bitmaps) {
+				Assert.assertSame("Not the same bitmap", bitmaps.get(0), bitmap);
+				//the largest power of two keeping it at least 100x100
+				Assert.assertEquals("Wrong width", 200, bitmap.getWidth());
+				Assert.assertEquals("Wrong height", 150, bitmap.getHeight());
+			}
+
+			//cached
+			CountDownLatch cached = new CountDownLatch(1);
+			ImageLoaderTest.client(uri, bitmaps, connected, cached).image(100, 100);
+			Assert.assertTrue("Not loaded from the cache", cached.await(0, TimeUnit.SECONDS));
+			Assert.assertEquals("Connected for a cached image", 1, server.getRequestCount());
+			Assert.assertSame("Not the cached bitmap", bitmaps.get(0), bitmaps.get(3));
+		}
+	}
+
+	private static XClient<?> client(String uri, List<Bitmap> bitmaps, AtomicInteger connected, CountDownLatch latch) {
+		return XClient.client(RuntimeEnvironment.getApplication())
+					  .request(r -> r.setUri(uri))
+					  .on(Client.CONNECTED, (c, response) -> connected.incrementAndGet())
+					  .on(XClient.IMAGE, (c, bitmap) -> {
+						  bitmaps.add(bitmap);
+						  latch.countDown();
+					  });
+	}
+
+	private static Buffer png(int width, int height) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", out);
+		return new Buffer().write(out.toByteArray());
+	}
+}
@@ -0,0 +1,108 @@
+package org.cufyx.http.connect;
+
+import org.cufy.http.connect.Client;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class LimitingMiddlewareTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void concurrency() throws IOException, InterruptedException {
+		try (MockWebServer server = new MockWebServer()) {
+			AtomicInteger concurrent = new AtomicInteger();
+			AtomicInteger max = new AtomicInteger();
+			server.setDispatcher(new Dispatcher() {
+				@Override
+				public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+					max.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+					Thread.sleep(100);
+					concurrent.decrementAndGet();
+					return new MockResponse().setBody("ok");
+				}
+			});
+			server.start();
+
+			LimitingMiddleware middleware = new LimitingMiddleware(new XTransport(), 1000, 1000, 2);
+			CountDownLatch latch = LimitingMiddlewareTest.connect(server, middleware, 8);
+
+			Assert.assertEquals("Not queued", 6, middleware.getLimits().values().iterator().next().getQueuedCount());
+			Assert.assertTrue("Not finished", latch.await(5, TimeUnit.SECONDS));
+			Assert.assertEquals("Concurrency not limited", 2, max.get());
+
+			LimitingMiddleware.Limit limit = middleware.getLimits().values().iterator().next();
+			Assert.assertEquals("Not emptied", 0, limit.getQueuedCount());
+			Assert.assertEquals("Not all admitted", 8, limit.getWaitCount());
+			Assert.assertTrue("Wait not recorded", limit.getMaxWaitTime(TimeUnit.MILLISECONDS) >= 200);
+		}
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void rate() throws IOException, InterruptedException {
+		try (MockWebServer server = new MockWebServer()) {
+			server.setDispatcher(new Dispatcher() {
+				@Override
+				public MockResponse dispatch(RecordedRequest request) {
+					return new MockResponse().setBody("ok");
+				}
+			});
+			server.start();
+
+			//two at once, then one every 100ms
+			LimitingMiddleware middleware = new LimitingMiddleware(new XTransport(), 10, 2, 100);
+			long start = System.nanoTime();
+			CountDownLatch latch = LimitingMiddlewareTest.connect(server, middleware, 7);
+
+			Assert.assertTrue("Not finished", latch.await(5, TimeUnit.SECONDS));
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			Assert.assertTrue("Rate not limited: " + elapsed + "ms", elapsed >= 450);
+			Assert.assertEquals("Requests failed instead of queueing", 7, server.getRequestCount());
+		}
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void retryAfter() throws IOException, InterruptedException {
+		try (MockWebServer server = new MockWebServer()) {
+			server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "1"));
+			server.enqueue(new MockResponse().setBody("ok"));
+			server.start();
+
+			LimitingMiddleware middleware = new LimitingMiddleware(new XTransport());
+			Assert.assertTrue("Not throttled", LimitingMiddlewareTest.connect(server, middleware, 1).await(5, TimeUnit.SECONDS));
+
+			long start = System.nanoTime();
+			Assert.assertTrue("Not finished", LimitingMiddlewareTest.connect(server, middleware, 1).await(5, TimeUnit.SECONDS));
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			Assert.assertTrue("Retry-After not respected: " + elapsed + "ms", elapsed >= 900);
+		}
+	}
+
+	private static CountDownLatch connect(MockWebServer server, LimitingMiddleware middleware, int count) {
+		CountDownLatch latch = new CountDownLatch(count);
+		for (int i = 0; i < count; i++)
+			XClient.client(RuntimeEnvironment.getApplication())
+				   .setTransport(middleware)
+				   .request(r -> r.setUri(server.url("/").toString()))
+				   .on(Client.CONNECTED, (c, response) -> latch.countDown())
+				   .connect();
+		return latch;
+	}
+}
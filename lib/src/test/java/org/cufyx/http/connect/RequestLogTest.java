@@ -0,0 +1,123 @@
+package org.cufyx.http.connect;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+@SuppressWarnings("JUnitTestNG")
+public class RequestLogTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void compaction() throws IOException {
+		File file = RequestLogTest.file();
+		String message = RequestLogTest.message(4096);
+
+		try (RequestLog log = new RequestLog(file)) {
+			RequestLog.Entry kept = log.append("kept", message);
+			for (int i = 0; i < 1_000; i++) {
+				RequestLog.Entry entry = log.append("key" + i, message);
+				log.remove(entry.id);
+				log.sync();
+			}
+
+			Assert.assertTrue("Log was not compacted", file.length() < 4 * RequestLog.COMPACT_SIZE);
+			Assert.assertEquals("Live entry lost", kept.id, log.getEntries().get(0).id);
+		}
+
+		try (RequestLog log = new RequestLog(file)) {
+			List<RequestLog.Entry> entries = log.getEntries();
+			Assert.assertEquals("Wrong entries after compaction", 1, entries.size());
+			Assert.assertEquals("Wrong entry after compaction", "kept", entries.get(0).key);
+			Assert.assertEquals("Corrupted entry", message, entries.get(0).message);
+		}
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void reopen() throws IOException {
+		File file = RequestLogTest.file();
+
+		try (RequestLog log = new RequestLog(file)) {
+			log.append("a", RequestLogTest.message(10));
+			RequestLog.Entry b = log.append("b", RequestLogTest.message(20));
+			log.append("c", RequestLogTest.message(30));
+			log.remove(b.id);
+		}
+
+		try (RequestLog log = new RequestLog(file)) {
+			List<RequestLog.Entry> entries = log.getEntries();
+			Assert.assertEquals("Wrong size", 2, entries.size());
+			Assert.assertEquals("Wrong order", "a", entries.get(0).key);
+			Assert.assertEquals("Wrong order", "c", entries.get(1).key);
+			Assert.assertEquals("Corrupted entry", RequestLogTest.message(30), entries.get(1).message);
+
+			RequestLog.Entry d = log.append("d", RequestLogTest.message(40));
+			Assert.assertTrue("Id reused", d.id > entries.get(1).id);
+		}
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void tornTail() throws IOException {
+		File file = RequestLogTest.file();
+
+		try (RequestLog log = new RequestLog(file)) {
+			log.append("a", RequestLogTest.message(100));
+			log.append("b", RequestLogTest.message(100));
+		}
+
+		long length = file.length();
+
+		//a process death in the middle of writing a record
+		try (RequestLog log = new RequestLog(file)) {
+			log.append("c", RequestLogTest.message(100));
+		}
+		try (OutputStream out = new FileOutputStream(file, true)) {
+			out.write(new byte[]{1, 0, 0, 0, 0, 0, 0, 0, 9, 0, 0, 1});
+		}
+
+		try (RequestLog log = new RequestLog(file)) {
+			Assert.assertEquals("Valid records lost", 3, log.getSize());
+			log.append("d", RequestLogTest.message(100));
+		}
+
+		try (RequestLog log = new RequestLog(file)) {
+			List<RequestLog.Entry> entries = log.getEntries();
+			Assert.assertEquals("Torn tail not dropped", 4, entries.size());
+			Assert.assertEquals("Wrong order", "d", entries.get(3).key);
+		}
+
+		//a corrupted byte in the payload of "c"
+		try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+			out.seek(length + 20);
+			int value = out.read();
+			out.seek(length + 20);
+			out.write(~value);
+		}
+
+		try (RequestLog log = new RequestLog(file)) {
+			Assert.assertEquals("Corrupted record not dropped", 2, log.getSize());
+		}
+	}
+
+	private static File file() throws IOException {
+		File file = File.createTempFile("request-log", ".log");
+		file.deleteOnExit();
+		//noinspection ResultOfMethodCallIgnored
+		file.delete();
+		return file;
+	}
+
+	private static String message(int length) {
+		StringBuilder builder = new StringBuilder("POST /queue HTTP/1.1\r\n\r\n");
+		for (int i = 0; i < length; i++)
+			builder.append((char) ('a' + i % 26));
+		return builder.toString();
+	}
+}
@@ -0,0 +1,48 @@
+package org.cufyx.http.connect;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+@SuppressWarnings("JUnitTestNG")
+public class TextInputStreamTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void chunks() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		//multibyte and surrogate pairs crossing the chunk boundaries
+		for (int i = 0; i < 5_000; i++)
+			builder.append("aéم😀");
+		String text = builder.toString();
+		byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+
+		Assert.assertTrue("Wrong bytes (bulk)", Arrays.equals(expected, TextInputStreamTest.read(new TextInputStream(text), 1000)));
+		Assert.assertTrue("Wrong bytes (single)", Arrays.equals(expected, TextInputStreamTest.read(new TextInputStream(text), 1)));
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void empty() throws IOException {
+		Assert.assertEquals("Not ended", -1, new TextInputStream("").read());
+	}
+
+	private static byte[] read(InputStream in, int size) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		if (size == 1)
+			for (int b = in.read(); b != -1; b = in.read())
+				out.write(b);
+		else {
+			byte[] buffer = new byte[size];
+			for (int n = in.read(buffer); n != -1; n = in.read(buffer))
+				out.write(buffer, 0, n);
+		}
+
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,63 @@
+package org.cufyx.http.connect;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("JUnitTestNG")
+public class TimingHistogramTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void percentiles() {
+		TimingHistogram histogram = new TimingHistogram();
+		Random random = new Random(42);
+		long[] durations = new long[100_000];
+
+		for (int i = 0; i < durations.length; i++) {
+			//log-normal: mostly milliseconds with a long tail
+			durations[i] = (long) Math.exp(14 + 1.5 * random.nextGaussian());
+			histogram.record(TimingHistogramTest.timing(durations[i]));
+		}
+
+		Arrays.sort(durations);
+		Assert.assertEquals("Wrong count", durations.length, histogram.getCount(Timing.Span.QUEUE));
+		Assert.assertEquals("Missing spans recorded", 0, histogram.getCount(Timing.Span.DNS));
+
+		for (double percentile : new double[]{50, 90, 99, 99.9}) {
+			long expected = durations[(int) Math.ceil(percentile / 100 * durations.length) - 1];
+			long actual = histogram.getPercentile(Timing.Span.QUEUE, percentile, TimeUnit.NANOSECONDS);
+			double error = Math.abs(actual - expected) / (double) expected;
+
+			Assert.assertTrue("p" + percentile + " off by " + error, error < 1.0 / TimingHistogram.SUB_BUCKETS);
+		}
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void timer() {
+		Timer timer = new Timer();
+
+		Assert.assertTrue("Not marked", timer.mark(Timing.Phase.CONNECT));
+		long connect = timer.snapshot().get(Timing.Phase.CONNECT);
+		Assert.assertFalse("Marked twice", timer.mark(Timing.Phase.CONNECT));
+		Assert.assertEquals("Overwritten", connect, timer.snapshot().get(Timing.Phase.CONNECT));
+
+		timer.mark(Timing.Phase.TRIGGER);
+		Assert.assertEquals("Missing phase measured", -1, timer.snapshot().get(Timing.Span.DNS));
+		Assert.assertTrue("Negative span", timer.snapshot().get(Timing.Span.TOTAL) >= 0);
+
+		Assert.assertNotNull("Not published", timer.publish());
+		Assert.assertNull("Published twice", timer.publish());
+	}
+
+	private static Timing timing(long queue) {
+		long[] timestamps = new long[Timing.Phase.values().length];
+		timestamps[Timing.Phase.CONNECT.ordinal()] = 1_000;
+		timestamps[Timing.Phase.ENQUEUE.ordinal()] = 2_000;
+		timestamps[Timing.Phase.CALLBACK_START.ordinal()] = 2_000 + queue;
+		return new Timing(timestamps);
+	}
+}
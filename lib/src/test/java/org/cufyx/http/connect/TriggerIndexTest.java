@@ -0,0 +1,149 @@
+package org.cufyx.http.connect;
+
+import org.cufy.http.connect.Callback;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@SuppressWarnings("JUnitTestNG")
+public class TriggerIndexTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void cloning() {
+		Callback<Object, Object> callback = (caller, parameter) -> {
+		};
+		Callback<Object, Object> own = (caller, parameter) -> {
+		};
+		Callback<Object, Object> origin = (caller, parameter) -> {
+		};
+
+		for (int size : new int[]{0, 10, 1_000}) {
+			TriggerIndex template = new TriggerIndex();
+			for (int i = 0; i < size; i++)
+				template.add(Object.class, "event" + i + "|connected", callback);
+
+			//the clone materializes its own listeners only when mutated
+			TriggerIndex clone = template.clone();
+			Assert.assertSame("State not shared", template.state, clone.state);
+			Assert.assertEquals(size, clone.resolve("connected").length);
+
+			clone.add(Object.class, "connected", own);
+			Assert.assertNotSame("State not copied on write", template.state, clone.state);
+			Assert.assertEquals(size + 1, clone.resolve("connected").length);
+			Assert.assertEquals("Clone affected its origin", size, template.resolve("connected").length);
+			Assert.assertFalse("Clone affected its origin", TriggerIndexTest.callbacks(template.resolve("connected")).contains(own));
+
+			template.add(Object.class, "connected", origin);
+			Assert.assertEquals(size + 1, template.resolve("connected").length);
+			Assert.assertEquals("Origin affected its clone", size + 1, clone.resolve("connected").length);
+			Assert.assertFalse("Origin affected its clone", TriggerIndexTest.callbacks(clone.resolve("connected")).contains(origin));
+
+			//a clone still sharing the state of its origin
+			TriggerIndex shared = template.clone();
+			template.add(Object.class, "connected", own);
+			Assert.assertEquals("Origin affected its clone", size + 1, shared.resolve("connected").length);
+			Assert.assertFalse("Origin affected its clone", TriggerIndexTest.callbacks(shared.resolve("connected")).contains(own));
+			Assert.assertEquals(size + 2, template.resolve("connected").length);
+		}
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void literals() {
+		Assert.assertTrue(TriggerIndex.Listener.isLiteral("connected"));
+		Assert.assertTrue(TriggerIndex.Listener.isLiteral("connected|disconnected"));
+		Assert.assertTrue(TriggerIndex.Listener.isLiteral("not-sent|exception"));
+		Assert.assertFalse(TriggerIndex.Listener.isLiteral(""));
+		Assert.assertFalse(TriggerIndex.Listener.isLiteral("connected|"));
+		Assert.assertFalse(TriggerIndex.Listener.isLiteral("|connected"));
+		Assert.assertFalse(TriggerIndex.Listener.isLiteral("connect.*"));
+		Assert.assertFalse(TriggerIndex.Listener.isLiteral("(connected)"));
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void matching() {
+		Callback<Object, Object> literal = (caller, parameter) -> {
+		};
+		Callback<Object, Object> alternation = (caller, parameter) -> {
+		};
+		Callback<Object, Object> prefix = (caller, parameter) -> {
+		};
+		Callback<Object, Object> group = (caller, parameter) -> {
+		};
+		Callback<Object, Object> numbered = (caller, parameter) -> {
+		};
+		Callback<Object, Object> hyphenated = (caller, parameter) -> {
+		};
+
+		TriggerIndex index = new TriggerIndex()
+				.add(Object.class, "connected", literal)
+				.add(Object.class, "connected|disconnected", alternation)
+				.add(Object.class, "connect.*", prefix)
+				.add(Object.class, "dis(connected)", group)
+				.add(Object.class, "event[0-9]+", numbered)
+				.add(Object.class, "not-sent|exception", hyphenated);
+
+		//in the order they were added
+		Assert.assertEquals(Arrays.asList(literal, alternation, prefix), TriggerIndexTest.callbacks(index.resolve("connected")));
+		Assert.assertEquals(Arrays.asList(alternation, group), TriggerIndexTest.callbacks(index.resolve("disconnected")));
+		Assert.assertEquals(Collections.singletonList(prefix), TriggerIndexTest.callbacks(index.resolve("connecting")));
+		Assert.assertEquals(Collections.singletonList(numbered), TriggerIndexTest.callbacks(index.resolve("event12")));
+		Assert.assertEquals(Collections.singletonList(hyphenated), TriggerIndexTest.callbacks(index.resolve("not-sent")));
+		Assert.assertEquals(Collections.singletonList(hyphenated), TriggerIndexTest.callbacks(index.resolve("exception")));
+
+		//whole triggers only
+		Assert.assertEquals(0, index.resolve("event").length);
+		Assert.assertEquals(0, index.resolve("onnected").length);
+		Assert.assertEquals(0, index.resolve("disconnect").length);
+		Assert.assertEquals(0, index.resolve("not").length);
+		//an alternation is not a literal containing a bar
+		Assert.assertEquals(Collections.singletonList(prefix), TriggerIndexTest.callbacks(index.resolve("connected|disconnected")));
+
+		//literals and alternations of literals skip the regex engine
+		TriggerIndex.Listener[] connected = index.resolve("connected");
+		Assert.assertNotNull(connected[0].literals);
+		Assert.assertNotNull(connected[1].literals);
+		Assert.assertNull(connected[1].pattern);
+		Assert.assertNotNull(connected[2].pattern);
+		Assert.assertNotNull(index.resolve("disconnected")[1].pattern);
+		Assert.assertNotNull(index.resolve("exception")[0].literals);
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void resolve() {
+		Callback<Object, Object> callback = (caller, parameter) -> {
+		};
+
+		TriggerIndex index = new TriggerIndex()
+				.add(Object.class, "connected|disconnected", callback)
+				.add(Throwable.class, "exception|disconnected", callback)
+				.add(Object.class, "connect.*", callback);
+
+		Assert.assertEquals(2, index.resolve("connected").length);
+		Assert.assertEquals(2, index.resolve("disconnected").length);
+		Assert.assertEquals(1, index.resolve("exception").length);
+		Assert.assertEquals(0, index.resolve("sending").length);
+		Assert.assertSame("Resolution not memoized", index.resolve("connected"), index.resolve("connected"));
+
+		TriggerIndex clone = index.clone();
+		clone.add(Object.class, "connected", callback);
+
+		Assert.assertEquals("Clone affected its origin", 2, index.resolve("connected").length);
+		Assert.assertEquals(3, clone.resolve("connected").length);
+		Assert.assertFalse(index.resolve("disconnected")[1].accepts(new Object()));
+		Assert.assertTrue(index.resolve("disconnected")[1].accepts(new Exception()));
+	}
+
+	private static List<Callback> callbacks(TriggerIndex.Listener[] listeners) {
+		List<Callback> callbacks = new ArrayList<>();
+		for (TriggerIndex.Listener listener : listeners)
+			callbacks.add(listener.callback);
+		return callbacks;
+	}
+}
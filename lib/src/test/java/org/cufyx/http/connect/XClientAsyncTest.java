@@ -0,0 +1,92 @@
+package org.cufyx.http.connect;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+
+import org.cufy.http.body.Body;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.robolectric.Shadows.shadowOf;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class XClientAsyncTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void asynchronous() {
+		XClient<Body> client = XClient.client(RuntimeEnvironment.getApplication(), true);
+		XClient<Body> plain = XClient.client(RuntimeEnvironment.getApplication());
+
+		//the looper is paused until idle
+		client.post(() -> {
+		});
+		client.post(() -> {
+		});
+		plain.post(() -> {
+		});
+
+		List<Message> async = XClientAsyncTest.pending(client.getHandler());
+		List<Message> sync = XClientAsyncTest.pending(plain.getHandler());
+
+		Assert.assertEquals(2, async.size());
+		for (Message message : async)
+			Assert.assertTrue("Message not asynchronous", message.isAsynchronous());
+
+		Assert.assertEquals(1, sync.size());
+		Assert.assertFalse("Message of a plain client asynchronous", sync.get(0).isAsynchronous());
+
+		shadowOf(Looper.getMainLooper()).idle();
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void ordering() {
+		List<String> performed = new ArrayList<>();
+		List<String> expected = new ArrayList<>();
+
+		XClient<Body> client = XClient.client(RuntimeEnvironment.getApplication(), true)
+									  .onh("event", (c, parameter) -> performed.add("event" + parameter));
+
+		//the looper is paused until idle
+		for (int i = 0; i < 100; i++) {
+			String post = "post" + i;
+			client.post(() -> performed.add(post));
+			client.trigger("event", i);
+			Handler handler = client.getHandler();
+			handler.post(() -> performed.add("handler" + post));
+
+			expected.add(post);
+			expected.add("event" + i);
+			expected.add("handler" + post);
+		}
+
+		shadowOf(Looper.getMainLooper()).idle();
+		Assert.assertEquals("Not performed in the order of the posts", expected, performed);
+	}
+
+	private static List<Message> pending(Handler handler) {
+		List<Message> pending = new ArrayList<>();
+		Object queue = Looper.getMainLooper().getQueue();
+
+		for (
+				Message message = ReflectionHelpers.getField(queue, "mMessages");
+				message != null;
+				message = ReflectionHelpers.getField(message, "next")
+		)
+			if (message.getTarget() == handler)
+				pending.add(message);
+
+		return pending;
+	}
+}
@@ -0,0 +1,198 @@
+package org.cufyx.http.connect;
+
+import android.content.Context;
+import android.os.Looper;
+
+import org.cufy.http.connect.Client;
+import org.cufy.http.response.Response;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.robolectric.Shadows.shadowOf;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class XClientBenchmark {
+	private static final Benchmark BENCHMARK = new Benchmark();
+
+	private final Response<?> response = Response.response("HTTP/1.1 200 OK\r\n\r\n");
+
+	@AfterClass
+	public static void save() throws IOException {
+		if (Benchmark.isEnabled())
+			XClientBenchmark.BENCHMARK.save();
+	}
+
+	@Before
+	public void assume() {
+		Assume.assumeTrue("Benchmarks are disabled", Benchmark.isEnabled());
+	}
+
+	@Test
+	public void clone_() {
+		for (int size : new int[]{10, 1_000, 10_000}) {
+			XClient<?> client = XClientBenchmark.client();
+			for (int i = 0; i < size; i++)
+				client.on("action" + i + "|connected", (c, o) -> {
+				});
+
+			XClientBenchmark.BENCHMARK.throughput("clone " + size, 10_000, client::clone);
+		}
+	}
+
+	@Test
+	public void dispatch() {
+		XClient<?> on = XClientBenchmark.client()
+										.on(Client.CONNECTED, (c, r) -> {
+										});
+		XClient<?> onh = XClientBenchmark.client()
+										 .onh(Client.CONNECTED, (c, r) -> {
+										 });
+		Looper looper = Looper.getMainLooper();
+
+		XClientBenchmark.BENCHMARK.throughput("dispatch.on", 10_000, () ->
+				on.trigger(Client.CONNECTED, this.response)
+		);
+		//the posted callbacks are drained in batches of 100
+		int[] pending = {0};
+		XClientBenchmark.BENCHMARK.throughput("dispatch.onh", 10_000, () -> {
+			onh.trigger(Client.CONNECTED, this.response);
+
+			if (++pending[0] == 100) {
+				pending[0] = 0;
+				shadowOf(looper).idle();
+			}
+		});
+		shadowOf(looper).idle();
+	}
+
+	@Test
+	public void histogram() {
+		long[] timestamps = new long[Timing.Phase.values().length];
+		timestamps[Timing.Phase.CONNECT.ordinal()] = 1_000;
+		timestamps[Timing.Phase.ENQUEUE.ordinal()] = 2_000;
+		timestamps[Timing.Phase.CALLBACK_START.ordinal()] = 2_000 + TimeUnit.MILLISECONDS.toNanos(3);
+		Timing timing = new Timing(timestamps);
+		TimingHistogram histogram = new TimingHistogram();
+
+		XClientBenchmark.BENCHMARK.throughput("histogram.record", 1_000_000, () ->
+				histogram.record(timing)
+		);
+	}
+
+	@Test
+	public void index() {
+		for (int listeners : new int[]{1, 10, 100}) {
+			TriggerIndex index = new TriggerIndex();
+			Pattern[] patterns = new Pattern[listeners];
+			for (int i = 0; i < listeners; i++) {
+				String regex = i % 2 == 0 ? "action" + i + "|connected" : "action" + i + "[a-z]*";
+				index.add(Object.class, regex, (c, o) -> {
+				});
+				patterns[i] = Pattern.compile(regex);
+			}
+
+			int[] matched = {0};
+			XClientBenchmark.BENCHMARK.throughput("index.indexed." + listeners, 1_000, () -> {
+				for (TriggerIndex.Listener listener : index.resolve("connected"))
+					if (listener.accepts(this.response))
+						matched[0]++;
+			});
+			//what each trigger costs without the index
+			XClientBenchmark.BENCHMARK.throughput("index.scanned." + listeners, 1_000, () -> {
+				for (Pattern pattern : patterns)
+					if (pattern.matcher("connected").matches())
+						matched[0]++;
+			});
+		}
+	}
+
+	@Test
+	public void latency() throws IOException {
+		try (MockWebServer server = new MockWebServer()) {
+			server.setDispatcher(new Dispatcher() {
+				@Override
+				public MockResponse dispatch(RecordedRequest request) {
+					return new MockResponse().setBody("ok");
+				}
+			});
+			server.start();
+
+			AtomicReference<CountDownLatch> latch = new AtomicReference<>();
+			XClient<?> client = XClientBenchmark.client(XTransport.transport(XClientBenchmark.context()))
+												.request(r -> r.setUri(server.url("/").toString()))
+												.on(Client.CONNECTED, (c, r) -> latch.get().countDown())
+												.on(Client.DISCONNECTED, (c, e) -> latch.get().countDown());
+
+			XClientBenchmark.BENCHMARK.latency("latency.loopback", 1_000, () -> {
+				latch.set(new CountDownLatch(1));
+				client.connect();
+				try {
+					if (!latch.get().await(10, TimeUnit.SECONDS))
+						throw new IllegalStateException("Timed out");
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+			});
+		}
+	}
+
+	@Test
+	public void regex() {
+		for (int listeners : new int[]{1, 10, 100}) {
+			XClient<?> client = XClientBenchmark.client();
+			for (int i = 0; i < listeners; i++)
+				client.on("action" + i + "|connected", (c, o) -> {
+				});
+
+			XClientBenchmark.BENCHMARK.throughput("regex." + listeners, 1_000, () ->
+					client.trigger("connected", this.response)
+			);
+		}
+	}
+
+	@Test
+	public void trigger() {
+		XClient<?> client = XClientBenchmark.client()
+											.on(Client.CONNECTED, (c, r) -> {
+											});
+
+		XClientBenchmark.BENCHMARK.throughput("trigger.action", 10_000, () ->
+				client.trigger(Client.CONNECTED, this.response)
+		);
+		XClientBenchmark.BENCHMARK.throughput("trigger.string", 10_000, () ->
+				client.trigger("connected", this.response)
+		);
+	}
+
+	private static XClient<?> client() {
+		//no network in here
+		return XClientBenchmark.client(null);
+	}
+
+	private static XClient<?> client(XTransport transport) {
+		return XClient.client(XClientBenchmark.context()).setTransport(transport);
+	}
+
+	private static Context context() {
+		return RuntimeEnvironment.getApplication();
+	}
+}
@@ -0,0 +1,198 @@
+package org.cufyx.http.connect;
+
+import android.os.Looper;
+
+import org.cufy.http.body.Body;
+import org.cufy.http.connect.Client;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.robolectric.Shadows.shadowOf;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class XClientDeadlineTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void cancel() throws IOException, InterruptedException {
+		try (MockWebServer server = XClientDeadlineTest.slow()) {
+			XTransport transport = new XTransport();
+			AtomicInteger results = new AtomicInteger();
+			AtomicInteger posted = new AtomicInteger();
+			CountDownLatch cancelled = new CountDownLatch(1);
+
+			XClient<?> client = XClient.client(RuntimeEnvironment.getApplication())
+									   .setTransport(transport)
+									   .request(r -> r.setUri(server.url("/").toString()))
+									   .onh(Client.CONNECT, (c, request) -> posted.incrementAndGet())
+									   .on(Client.CONNECTED, (c, response) -> results.incrementAndGet())
+									   .on(Client.DISCONNECTED, (c, throwable) -> results.incrementAndGet())
+									   .on(XClient.CANCELLED, (c, request) -> cancelled.countDown())
+									   .connect();
+
+			Assert.assertNotNull("Not connected", server.takeRequest(5, TimeUnit.SECONDS));
+			Assert.assertEquals("Not running", 1, transport.getClient().dispatcher().runningCallsCount());
+
+			client.cancel();
+			Assert.assertTrue("Not cancelled", cancelled.await(0, TimeUnit.SECONDS));
+			XClientDeadlineTest.released(transport);
+
+			shadowOf(Looper.getMainLooper()).idle();
+			Assert.assertEquals("Pending callback not removed", 0, posted.get());
+			Assert.assertEquals("Result of a cancelled connection triggered", 0, results.get());
+		}
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void cancelClone() throws IOException, InterruptedException {
+		try (MockWebServer server = XClientDeadlineTest.slow()) {
+			XTransport transport = new XTransport();
+			List<String> delivered = new ArrayList<>();
+
+			XClient<Body> client = XClient.client(RuntimeEnvironment.getApplication())
+										  .setTransport(transport)
+										  .request(r -> r.setUri(server.url("/").toString()));
+			client.onh("event", (c, parameter) -> delivered.add((c == client ? "origin" : "clone") + " event"))
+				  .onhLatest(Client.CONNECT, (c, request) -> delivered.add((c == client ? "origin" : "clone") + " connect"));
+
+			//the listeners are shared with the clone
+			XClient<Body> clone = client.clone().connect();
+			client.trigger(Client.CONNECT, null);
+			client.trigger("event", null);
+			clone.trigger("event", null);
+
+			clone.cancel();
+			shadowOf(Looper.getMainLooper()).idle();
+			Assert.assertEquals(
+					"Not only the deliveries of the clone removed",
+					Arrays.asList("origin connect", "origin event"),
+					delivered
+			);
+
+			delivered.clear();
+			clone.connect();
+			shadowOf(Looper.getMainLooper()).idle();
+			Assert.assertEquals("No delivery after reconnecting", Collections.singletonList("clone connect"), delivered);
+
+			clone.cancel();
+			XClientDeadlineTest.released(transport);
+		}
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void cancelLatest() throws IOException, InterruptedException {
+		try (MockWebServer server = XClientDeadlineTest.slow()) {
+			server.enqueue(new MockResponse().setBody("fast"));
+			XTransport transport = new XTransport();
+			AtomicInteger delivered = new AtomicInteger();
+
+			XClient<?> client = XClient.client(RuntimeEnvironment.getApplication())
+									   .setTransport(transport)
+									   .request(r -> r.setUri(server.url("/").toString()))
+									   .onhLatest(Client.CONNECT, (c, request) -> delivered.incrementAndGet())
+									   .connect();
+
+			client.cancel();
+			shadowOf(Looper.getMainLooper()).idle();
+			Assert.assertEquals("Pending delivery not removed", 0, delivered.get());
+
+			client.connect();
+			shadowOf(Looper.getMainLooper()).idle();
+			Assert.assertEquals("No delivery after reconnecting", 1, delivered.get());
+
+			client.cancel();
+			XClientDeadlineTest.released(transport);
+		}
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void read() throws IOException, InterruptedException {
+		try (MockWebServer server = XClientDeadlineTest.slow()) {
+			XTransport transport = new XTransport();
+			List<Throwable> failures = new CopyOnWriteArrayList<>();
+			CountDownLatch latch = new CountDownLatch(1);
+
+			XClient.client(RuntimeEnvironment.getApplication())
+				   //the limit reaches the transport through the middleware
+				   .setTransport(new HedgingMiddleware(transport))
+				   .setDeadline(new Deadline(0, 200, 0, TimeUnit.MILLISECONDS))
+				   .request(r -> r.setUri(server.url("/").toString()))
+				   .on(Client.DISCONNECTED, (c, throwable) -> {
+					   failures.add(throwable);
+					   latch.countDown();
+				   })
+				   .connect();
+
+			Assert.assertTrue("Read limit not applied", latch.await(5, TimeUnit.SECONDS));
+			Assert.assertTrue("Not a read timeout", failures.get(0) instanceof SocketTimeoutException);
+			XClientDeadlineTest.released(transport);
+		}
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void timeout() throws IOException, InterruptedException {
+		try (MockWebServer server = XClientDeadlineTest.slow()) {
+			XTransport transport = new XTransport();
+			AtomicInteger results = new AtomicInteger();
+			AtomicInteger cancelled = new AtomicInteger();
+			CountDownLatch timeout = new CountDownLatch(1);
+			long start = System.nanoTime();
+
+			XClient.client(RuntimeEnvironment.getApplication())
+				   .setTransport(transport)
+				   .setDeadline(Deadline.deadline(300, TimeUnit.MILLISECONDS))
+				   .request(r -> r.setUri(server.url("/").toString()))
+				   .on(Client.CONNECTED, (c, response) -> results.incrementAndGet())
+				   .on(Client.DISCONNECTED, (c, throwable) -> results.incrementAndGet())
+				   .on(XClient.CANCELLED, (c, request) -> cancelled.incrementAndGet())
+				   .on(XClient.TIMEOUT, (c, request) -> timeout.countDown())
+				   .connect();
+
+			Assert.assertTrue("Not timed out", timeout.await(5, TimeUnit.SECONDS));
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			Assert.assertTrue("Timed out early: " + elapsed + "ms", elapsed >= 300);
+			XClientDeadlineTest.released(transport);
+			Assert.assertEquals("Timeout triggered as a cancellation", 0, cancelled.get());
+			Assert.assertEquals("Result of a timed out connection triggered", 0, results.get());
+		}
+	}
+
+	private static void released(XTransport transport) throws InterruptedException {
+		//the socket gets closed, not waited for
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+		while (transport.getClient().dispatcher().runningCallsCount() != 0) {
+			Assert.assertTrue("Connection not released", System.nanoTime() < deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	private static MockWebServer slow() throws IOException {
+		MockWebServer server = new MockWebServer();
+		server.enqueue(new MockResponse().setBody("late").setHeadersDelay(10, TimeUnit.SECONDS));
+		server.start();
+		return server;
+	}
+}
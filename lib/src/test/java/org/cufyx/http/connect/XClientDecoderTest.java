@@ -0,0 +1,91 @@
+package org.cufyx.http.connect;
+
+import android.os.Looper;
+
+import org.cufy.http.connect.Caller;
+import org.cufy.http.connect.Client;
+import org.cufy.http.response.Response;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.robolectric.Shadows.shadowOf;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class XClientDecoderTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void decoded() {
+		List<Runnable> background = new ArrayList<>();
+		List<String> decoded = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		XClient<?> client = XClient.client(RuntimeEnvironment.getApplication())
+								   //no network in here
+								   .setTransport(null)
+								   .setExecutor(background::add)
+								   .onh(Client.CONNECTED, body -> {
+									   threads.add(Thread.currentThread());
+									   ByteArrayOutputStream out = new ByteArrayOutputStream();
+									   byte[] buffer = new byte[64];
+									   for (int n = body.read(buffer); n != -1; n = body.read(buffer))
+										   out.write(buffer, 0, n);
+									   return out.toString(StandardCharsets.UTF_8.name());
+								   }, (c, value) -> decoded.add(value));
+
+		client.trigger(Client.CONNECTED, Response.response("HTTP/1.1 200 OK\r\n\r\nhello"));
+		Assert.assertEquals("Not decoded on the executor", 1, background.size());
+		Assert.assertTrue("Decoded before the executor ran", threads.isEmpty());
+
+		Thread thread = new Thread(background.get(0));
+		thread.start();
+		XClientDecoderTest.join(thread);
+		Assert.assertEquals("Not decoded once", 1, threads.size());
+		Assert.assertNotSame("Decoded on the main thread", Looper.getMainLooper().getThread(), threads.get(0));
+		Assert.assertTrue("Delivered before the main thread", decoded.isEmpty());
+
+		shadowOf(Looper.getMainLooper()).idle();
+		Assert.assertEquals("Not delivered", 1, decoded.size());
+		Assert.assertEquals("Wrong body", "hello", decoded.get(0));
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void failed() {
+		List<Throwable> exceptions = new ArrayList<>();
+		List<Object> decoded = new ArrayList<>();
+		XClient<?> client = XClient.client(RuntimeEnvironment.getApplication())
+								   //no network in here
+								   .setTransport(null)
+								   .setExecutor(Runnable::run)
+								   .on(Caller.EXCEPTION, (c, exception) -> exceptions.add(exception))
+								   .onh(Client.CONNECTED, body -> {
+									   throw new IOException("Malformed");
+								   }, (c, value) -> decoded.add(value));
+
+		client.trigger(Client.CONNECTED, Response.response("HTTP/1.1 200 OK\r\n\r\n"));
+		shadowOf(Looper.getMainLooper()).idle();
+
+		Assert.assertTrue("Delivered a failed decoding", decoded.isEmpty());
+		Assert.assertEquals("Failure not triggered", 1, exceptions.size());
+		Assert.assertEquals("Wrong failure", "Malformed", exceptions.get(0).getMessage());
+	}
+
+	private static void join(Thread thread) {
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			throw new AssertionError(e);
+		}
+	}
+}
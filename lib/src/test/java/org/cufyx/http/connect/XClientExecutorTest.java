@@ -0,0 +1,119 @@
+package org.cufyx.http.connect;
+
+import org.cufy.http.body.Body;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class XClientExecutorTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void cloning() throws InterruptedException {
+		CountDownLatch hold = new CountDownLatch(1);
+		CountDownLatch performed = new CountDownLatch(1);
+
+		XClient<Body> client = XClient.client(RuntimeEnvironment.getApplication())
+									  .onx("hold", (c, parameter) -> {
+										  try {
+											  hold.await();
+										  } catch (InterruptedException e) {
+											  Thread.currentThread().interrupt();
+										  }
+									  })
+									  .onx("event", (c, parameter) -> performed.countDown());
+
+		try {
+			//the lane of the client is busy
+			client.trigger("hold", null);
+			client.clone().trigger("event", null);
+
+			Assert.assertTrue("Clone waited for the lane of its origin", performed.await(5, TimeUnit.SECONDS));
+		} finally {
+			hold.countDown();
+		}
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void executor() throws InterruptedException {
+		AtomicInteger first = new AtomicInteger();
+		AtomicInteger second = new AtomicInteger();
+		CountDownLatch latch = new CountDownLatch(2);
+
+		XClient<Body> client = XClient.client(RuntimeEnvironment.getApplication())
+									  .setExecutor(task -> {
+										  first.incrementAndGet();
+										  new Thread(task).start();
+									  })
+									  .onx("event", (c, parameter) -> latch.countDown());
+
+		client.trigger("event", null);
+		//replaced after the callback was added
+		client.setExecutor(task -> {
+			second.incrementAndGet();
+			new Thread(task).start();
+		});
+		Thread.sleep(100);
+		client.trigger("event", null);
+
+		Assert.assertTrue("Not performed", latch.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals("Initial executor not used", 1, first.get());
+		Assert.assertEquals("Replaced executor not used", 1, second.get());
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void ordering() throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		ExecutorService other = Executors.newFixedThreadPool(8);
+		try {
+			int count = 1000;
+			List<String> performed = Collections.synchronizedList(new ArrayList<>());
+			CountDownLatch latch = new CountDownLatch(count * 3);
+
+			XClient<Body> client = XClient.client(RuntimeEnvironment.getApplication())
+										  .setExecutor(pool)
+										  .onx("event", (c, parameter) -> {
+											  performed.add("a" + parameter);
+											  latch.countDown();
+										  })
+										  .onx("event", (c, parameter) -> {
+											  performed.add("b" + parameter);
+											  latch.countDown();
+										  })
+										  .onx(other, "event", (c, parameter) -> {
+											  performed.add("c" + parameter);
+											  latch.countDown();
+										  });
+
+			for (int i = 0; i < count; i++)
+				client.trigger("event", i);
+
+			Assert.assertTrue("Not performed", latch.await(10, TimeUnit.SECONDS));
+
+			List<String> expected = new ArrayList<>();
+			for (int i = 0; i < count; i++)
+				Collections.addAll(expected, "a" + i, "b" + i, "c" + i);
+
+			Assert.assertEquals("Not performed in the order of the triggers", expected, performed);
+		} finally {
+			pool.shutdown();
+			other.shutdown();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package org.cufyx.http.connect;
+
+import android.os.Looper;
+
+import androidx.activity.ComponentActivity;
+
+import org.cufy.http.body.Body;
+import org.cufy.http.connect.Client;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.robolectric.Shadows.shadowOf;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class XClientLifecycleTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void release() throws InterruptedException {
+		AtomicInteger delivered = new AtomicInteger();
+		@SuppressWarnings("unchecked")
+		WeakReference<ComponentActivity>[] out = new WeakReference[1];
+
+		XClient<Body> client = XClientLifecycleTest.destroyed(delivered, out);
+		WeakReference<ComponentActivity> reference = out[0];
+
+		Assert.assertTrue("Client not released", client.isReleased());
+		Assert.assertNotSame("Activity held by the client", reference.get(), client.getContext());
+
+		//the pending callback was posted before the destroy
+		shadowOf(Looper.getMainLooper()).idle();
+		Assert.assertEquals("Stale callback executed", 0, delivered.get());
+
+		//callbacks posted after the destroy are dropped
+		client.trigger("connected", null);
+		shadowOf(Looper.getMainLooper()).idle();
+		Assert.assertEquals("Stale callback executed", 0, delivered.get());
+
+		for (int i = 0; i < 20 && reference.get() != null; i++) {
+			System.gc();
+			System.runFinalization();
+			Thread.sleep(50);
+		}
+
+		//the client is still reachable here
+		Assert.assertNotNull(client);
+		Assert.assertNull("Activity not collectable after destroy", reference.get());
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void releaseOrigin() {
+		AtomicInteger delivered = new AtomicInteger();
+
+		XClient<Body> client = XClient.client(RuntimeEnvironment.getApplication())
+									  .on(Client.CONNECTED, (c, response) -> delivered.incrementAndGet());
+		XClient<Body> clone = client.clone();
+
+		client.release();
+		client.trigger(Client.CONNECTED, null);
+		Assert.assertEquals("Listener of a released client called", 0, delivered.get());
+
+		clone.trigger(Client.CONNECTED, null);
+		Assert.assertEquals("Releasing the origin dropped the listener of the clone", 1, delivered.get());
+	}
+
+	private static XClient<Body> destroyed(AtomicInteger delivered, WeakReference<ComponentActivity>[] out) {
+		ActivityController<ComponentActivity> controller = Robolectric.buildActivity(ComponentActivity.class).setup();
+		ComponentActivity activity = controller.get();
+		out[0] = new WeakReference<>(activity);
+
+		XClient<Body> client = XClient.client(activity, activity)
+									  .onh("connected", (c, o) -> {
+										  //captures the activity
+										  activity.getTitle();
+										  delivered.incrementAndGet();
+									  })
+									  .onh(Client.CONNECTED, (c, response) -> {
+										  //stored by the base client
+										  activity.getTitle();
+										  delivered.incrementAndGet();
+									  });
+
+		client.trigger("connected", null);
+		controller.pause().stop().destroy();
+		return client;
+	}
+}
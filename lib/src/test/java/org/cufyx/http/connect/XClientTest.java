@@ -1,5 +1,78 @@
 package org.cufyx.http.connect;
 
-@SuppressWarnings("EmptyClass")
+import org.cufy.http.body.Body;
+import org.cufy.http.connect.Caller;
+import org.cufy.http.connect.Client;
+import org.cufy.http.response.Response;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
 public class XClientTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void ordering() {
+		List<String> called = new ArrayList<>();
+
+		XClient<Body> client = XClient.client(RuntimeEnvironment.getApplication())
+									  .setTransport(null)
+									  .on("connected", (c, r) -> called.add("regex1"))
+									  .on(Client.CONNECTED, (c, r) -> called.add("action1"))
+									  .on("connected|disconnected", (c, r) -> called.add("regex2"))
+									  .on(Client.CONNECTED, (c, r) -> called.add("action2"));
+		XClient<Body> clone = client.clone()
+									.on(Client.CONNECTED, (c, r) -> called.add("action3"))
+									.on("connected", (c, r) -> called.add("regex3"));
+
+		client.trigger(Client.CONNECTED, Response.response("HTTP/1.1 200 OK\r\n\r\n"));
+		Assert.assertEquals(
+				"Not called in the order added",
+				Arrays.asList("regex1", "action1", "regex2", "action2"),
+				called
+		);
+
+		called.clear();
+		clone.trigger("connected", Response.response("HTTP/1.1 200 OK\r\n\r\n"));
+		Assert.assertEquals(
+				"Clone not called in the order added",
+				Arrays.asList("regex1", "action1", "regex2", "action2", "action3", "regex3"),
+				called
+		);
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void reentrant() {
+		List<String> called = new ArrayList<>();
+
+		XClient<Body> client = XClient.client(RuntimeEnvironment.getApplication());
+		client.on(Caller.EXCEPTION, (c, e) -> called.add("exception " + e.getMessage()))
+			  .on("event", (c, p) -> called.add("regex"))
+			  .on(Client.DISCONNECTED, (c, e) -> {
+				  called.add("action");
+				  throw new IllegalStateException("thrown");
+			  })
+			  .on("disconnected", (c, e) -> {
+				  called.add("nested");
+				  c.trigger("event", null);
+			  })
+			  .on(Client.DISCONNECTED, (c, e) -> called.add("last"));
+
+		client.trigger("disconnected", null);
+		Assert.assertEquals(
+				"Nested triggers not dispatched in place",
+				Arrays.asList("action", "exception thrown", "nested", "regex", "last"),
+				called
+		);
+	}
 }
@@ -0,0 +1,75 @@
+package org.cufyx.http.connect;
+
+import android.os.Looper;
+
+import org.cufy.http.connect.Client;
+import org.cufy.http.response.Response;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.robolectric.Shadows.shadowOf;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class XClientTimingTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void posted() {
+		List<Timing> timings = new ArrayList<>();
+		XClient<?> client = XClient.client(RuntimeEnvironment.getApplication())
+								   //no network in here
+								   .setTransport(null)
+								   .onh(Client.CONNECTED, (c, response) -> {
+								   })
+								   .on(XClient.TIMING, (c, timing) -> timings.add(timing))
+								   .connect();
+
+		client.trigger(Client.CONNECTED, Response.response("HTTP/1.1 200 OK\r\n\r\n"));
+		Assert.assertTrue("Published before the callback", timings.isEmpty());
+
+		shadowOf(Looper.getMainLooper()).idle();
+		Assert.assertEquals("Not published once", 1, timings.size());
+
+		Timing timing = timings.get(0);
+		Timing.Phase[] phases = {
+				Timing.Phase.CONNECT,
+				Timing.Phase.TRIGGER,
+				Timing.Phase.ENQUEUE,
+				Timing.Phase.CALLBACK_START,
+				Timing.Phase.CALLBACK_END
+		};
+		for (int i = 1; i < phases.length; i++)
+			Assert.assertTrue(
+					phases[i] + " before " + phases[i - 1],
+					timing.get(phases[i]) - timing.get(phases[i - 1]) >= 0
+			);
+
+		Assert.assertTrue("Queue not measured", timing.get(Timing.Span.QUEUE) >= 0);
+		Assert.assertEquals("Network measured without a transport", -1, timing.get(Timing.Span.DNS));
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void synchronous() {
+		List<Timing> timings = new ArrayList<>();
+		XClient<?> client = XClient.client(RuntimeEnvironment.getApplication())
+								   .setTransport(null)
+								   .on(XClient.TIMING, (c, timing) -> timings.add(timing))
+								   .connect();
+
+		client.trigger(Client.DISCONNECTED, new Exception());
+		client.trigger(Client.DISCONNECTED, new Exception());
+
+		Assert.assertEquals("Not published once", 1, timings.size());
+		Assert.assertEquals("Queue measured without a callback", -1, timings.get(0).get(Timing.Span.QUEUE));
+		Assert.assertTrue("Total not measured", timings.get(0).get(Timing.Span.TOTAL) >= 0);
+	}
+}
@@ -0,0 +1,87 @@
+package org.cufyx.http.connect;
+
+import android.os.Looper;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.robolectric.Shadows.shadowOf;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class XClientWatchdogTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void report() {
+		List<Jank> janks = new ArrayList<>();
+		XClient<?> client = XClient.client(RuntimeEnvironment.getApplication())
+								   .setWatchdog(new Watchdog(5, TimeUnit.MILLISECONDS, false))
+								   .onh("connected", (c, o) -> XClientWatchdogTest.sleep(20))
+								   .onh("connected", (c, o) -> {
+								   })
+								   .on(XClient.JANK, (c, jank) -> janks.add(jank));
+
+		client.trigger("connected", null);
+		shadowOf(Looper.getMainLooper()).idle();
+
+		Assert.assertEquals("Not reported once", 1, janks.size());
+		Assert.assertEquals("Wrong action", "connected", janks.get(0).getAction());
+		Assert.assertTrue("Wrong duration", janks.get(0).getDuration(TimeUnit.MILLISECONDS) >= 20);
+		Assert.assertFalse("Rerouted while not rerouting", janks.get(0).isRerouted());
+
+		client.setWatchdog(null).trigger("connected", null);
+		shadowOf(Looper.getMainLooper()).idle();
+		Assert.assertEquals("Reported without a watchdog", 1, janks.size());
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void reroute() {
+		List<Jank> janks = new ArrayList<>();
+		AtomicInteger rerouted = new AtomicInteger();
+		AtomicInteger main = new AtomicInteger();
+		XClient<?> client = XClient.client(RuntimeEnvironment.getApplication())
+								   .setWatchdog(new Watchdog(5, TimeUnit.MILLISECONDS, true))
+								   .setExecutor(task -> {
+									   rerouted.incrementAndGet();
+									   task.run();
+								   })
+								   .onh("connected", (c, o) -> {
+									   if (Looper.myLooper() == Looper.getMainLooper())
+										   main.incrementAndGet();
+									   XClientWatchdogTest.sleep(20);
+								   })
+								   .on(XClient.JANK, (c, jank) -> janks.add(jank));
+
+		client.trigger("connected", null);
+		shadowOf(Looper.getMainLooper()).idle();
+		Assert.assertEquals("Not reported", 1, janks.size());
+		Assert.assertTrue("Not marked rerouted", janks.get(0).isRerouted());
+
+		for (int i = 0; i < 3; i++)
+			client.trigger("connected", null);
+		shadowOf(Looper.getMainLooper()).idle();
+
+		Assert.assertEquals("Rerouted callback ran in the main thread", 1, main.get());
+		Assert.assertEquals("Not rerouted", 3, rerouted.get());
+		Assert.assertEquals("Rerouted callback reported", 1, janks.size());
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package org.cufyx.http.connect;
+
+import android.content.Context;
+
+import org.cufy.http.connect.Client;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+@SuppressWarnings("JUnitTestNG")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class XTransportPriorityTest {
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void preemption() throws IOException, InterruptedException {
+		try (MockWebServer server = new MockWebServer()) {
+			server.setDispatcher(new Dispatcher() {
+				@Override
+				public MockResponse dispatch(RecordedRequest request) {
+					MockResponse response = new MockResponse().setBody("ok");
+					return "/background".equals(request.getPath()) ?
+						   response.setHeadersDelay(50, TimeUnit.MILLISECONDS) :
+						   response;
+				}
+			});
+			server.start();
+
+			Context context = RuntimeEnvironment.getApplication();
+			XTransport transport = new XTransport();
+			CountDownLatch background = new CountDownLatch(200);
+
+			//200 x 50ms over 6 connections per host: ~1.7s of background load
+			for (int i = 0; i < 200; i++)
+				XClient.client(context)
+					   .setTransport(transport)
+					   .setPriority(Priority.LOW)
+					   .request(r -> r.setUri(server.url("/background").toString()))
+					   .on(Client.CONNECTED, (c, r) -> background.countDown())
+					   .on(Client.DISCONNECTED, (c, e) -> background.countDown())
+					   .connect();
+
+			Thread.sleep(100);
+			Assert.assertTrue("Background not queued", transport.queue.getQueuedCount() > 0);
+
+			CountDownLatch visible = new CountDownLatch(1);
+			long start = System.nanoTime();
+			XClient.client(context)
+				   .setTransport(transport)
+				   .setPriority(Priority.HIGH)
+				   .request(r -> r.setUri(server.url("/visible").toString()))
+				   .on(Client.CONNECTED, (c, r) -> visible.countDown())
+				   .connect();
+
+			Assert.assertTrue("Visible request starved", visible.await(10, TimeUnit.SECONDS));
+			long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+			Assert.assertTrue("Visible latency " + latency + "ms", latency < 500);
+			Assert.assertTrue("Background load not completed", background.await(30, TimeUnit.SECONDS));
+		}
+	}
+
+	@SuppressWarnings("MigrateAssertToMatcherAssert")
+	@Test
+	public void rejection() throws IOException, InterruptedException {
+		try (MockWebServer server = new MockWebServer()) {
+			server.setDispatcher(new Dispatcher() {
+				@Override
+				public MockResponse dispatch(RecordedRequest request) {
+					//nothing completes while the queue is filled
+					return new MockResponse().setHeadersDelay(10, TimeUnit.SECONDS);
+				}
+			});
+			server.start();
+
+			Context context = RuntimeEnvironment.getApplication();
+			XTransport transport = new XTransport().setMaxRequests(1);
+			CountDownLatch rejected = new CountDownLatch(10);
+
+			for (int i = 0; i < PriorityDispatcher.CAPACITY + 11; i++)
+				XClient.client(context)
+					   .setTransport(transport)
+					   .request(r -> r.setUri(server.url("/").toString()))
+					   .on(Client.DISCONNECTED, (c, e) -> rejected.countDown())
+					   .connect();
+
+			Assert.assertTrue("Queue not bounded", rejected.await(5, TimeUnit.SECONDS));
+			Assert.assertEquals("Wrong queue size", PriorityDispatcher.CAPACITY, transport.queue.getQueuedCount());
+			transport.setMaxRequests(XTransport.MAX_REQUESTS);
+		}
+	}
+}